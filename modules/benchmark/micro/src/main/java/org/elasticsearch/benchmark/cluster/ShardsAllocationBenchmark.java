@@ -0,0 +1,118 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.cluster;
+
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.allocation.ShardsAllocation;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+
+import static org.elasticsearch.cluster.ClusterState.*;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
+import static org.elasticsearch.cluster.metadata.MetaData.*;
+import static org.elasticsearch.cluster.node.DiscoveryNodes.*;
+import static org.elasticsearch.cluster.routing.RoutingBuilders.*;
+import static org.elasticsearch.cluster.routing.ShardRoutingState.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+
+/**
+ * Measures the cost of rerouting (on the master) a large cluster, by default 100 nodes and 40k shards
+ * (2000 indices, 10 shards each with 1 replica).
+ */
+public class ShardsAllocationBenchmark {
+
+    public static void main(String[] args) {
+        int NUMBER_OF_NODES = 100;
+        int NUMBER_OF_INDICES = 2000;
+        int NUMBER_OF_SHARDS = 10;
+        int NUMBER_OF_REPLICAS = 1;
+        int ITERATIONS = 10;
+
+        // don't throttle, so the initial allocation converges in a few rounds
+        ShardsAllocation strategy = new ShardsAllocation(settingsBuilder()
+                .put("cluster.routing.allocation.node_initial_primaries_recoveries", 1000)
+                .put("cluster.routing.allocation.node_concurrent_recoveries", 1000)
+                .put("cluster.routing.allocation.cluster_concurrent_rebalance", 10)
+                .build());
+
+        MetaData.Builder metaDataBuilder = newMetaDataBuilder();
+        for (int i = 0; i < NUMBER_OF_INDICES; i++) {
+            metaDataBuilder.put(newIndexMetaDataBuilder("test" + i).numberOfShards(NUMBER_OF_SHARDS).numberOfReplicas(NUMBER_OF_REPLICAS));
+        }
+        MetaData metaData = metaDataBuilder.build();
+
+        RoutingTable.Builder routingTableBuilder = routingTable();
+        for (int i = 0; i < NUMBER_OF_INDICES; i++) {
+            routingTableBuilder.add(indexRoutingTable("test" + i).initializeEmpty(metaData.index("test" + i)));
+        }
+
+        DiscoveryNodes.Builder nodesBuilder = newNodesBuilder();
+        for (int i = 0; i < NUMBER_OF_NODES; i++) {
+            nodesBuilder.put(newNode("node" + i));
+        }
+        ClusterState clusterState = newClusterStateBuilder().metaData(metaData).routingTable(routingTableBuilder.build()).nodes(nodesBuilder).build();
+
+        System.out.println("Allocating [" + (NUMBER_OF_INDICES * NUMBER_OF_SHARDS * (NUMBER_OF_REPLICAS + 1)) + "] shards on [" + NUMBER_OF_NODES + "] nodes");
+        StopWatch stopWatch = new StopWatch().start();
+        int rounds = 0;
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(strategy.reroute(clusterState).routingTable()).build();
+        while (clusterState.routingNodes().hasUnassigned() || !clusterState.routingNodes().shardsWithState(INITIALIZING).isEmpty()) {
+            clusterState = newClusterStateBuilder().state(clusterState)
+                    .routingTable(strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable()).build();
+            if (++rounds > 100) {
+                System.out.println("Failed to start all shards, unassigned [" + clusterState.routingNodes().unassigned().size() + "]");
+                break;
+            }
+        }
+        System.out.println("Initial allocation took " + stopWatch.stop().totalTime() + ", rounds [" + rounds + "]");
+
+        System.out.println("Running [" + ITERATIONS + "] reroutes of a balanced cluster");
+        stopWatch = new StopWatch().start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            strategy.reroute(clusterState);
+        }
+        System.out.println("Reroute took " + new TimeValue(stopWatch.stop().totalTime().millis() / ITERATIONS) + " on average");
+
+        System.out.println("Removing a node, and reallocating its shards");
+        ClusterState nodeLeftState = newClusterStateBuilder().state(clusterState).nodes(newNodesBuilder().putAll(clusterState.nodes()).remove("node0")).build();
+        stopWatch = new StopWatch().start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            strategy.reroute(nodeLeftState);
+        }
+        System.out.println("Reroute (node left) took " + new TimeValue(stopWatch.stop().totalTime().millis() / ITERATIONS) + " on average");
+
+        System.out.println("Adding a node, and rebalancing");
+        ClusterState nodeJoinedState = newClusterStateBuilder().state(clusterState).nodes(newNodesBuilder().putAll(clusterState.nodes()).put(newNode("node" + NUMBER_OF_NODES))).build();
+        stopWatch = new StopWatch().start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            strategy.reroute(nodeJoinedState);
+        }
+        System.out.println("Reroute (node joined) took " + new TimeValue(stopWatch.stop().totalTime().millis() / ITERATIONS) + " on average");
+    }
+
+    private static DiscoveryNode newNode(String nodeId) {
+        return new DiscoveryNode(nodeId, DummyTransportAddress.INSTANCE);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index.engine;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.elasticsearch.cache.memory.ByteBufferCache;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.analysis.AnalysisService;
+import org.elasticsearch.index.cache.bloom.none.NoneBloomCache;
+import org.elasticsearch.index.deletionpolicy.KeepOnlyLastDeletionPolicy;
+import org.elasticsearch.index.deletionpolicy.SnapshotDeletionPolicy;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.robin.RobinEngine;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.merge.policy.LogByteSizeMergePolicyProvider;
+import org.elasticsearch.index.merge.scheduler.ConcurrentMergeSchedulerProvider;
+import org.elasticsearch.index.settings.IndexSettingsService;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.memory.ByteBufferStore;
+import org.elasticsearch.index.translog.fs.FsTranslog;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.elasticsearch.common.lucene.DocumentBuilder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+
+/**
+ * Measures the throughput of acquiring / releasing searchers and of (non realtime) gets on a {@link RobinEngine}
+ * from many threads, while the engine is continuously refreshed and fully flushed (which reopens the index writer
+ * and swaps the searcher). Run it against two revisions to compare how much the read path contends with flushes.
+ */
+public class EngineSearcherContentionBenchmark {
+
+    private static final byte[] TRANSLOG_PAYLOAD = new byte[12];
+
+    public static void main(String[] args) throws Exception {
+        final int NUMBER_OF_DOCS = 10000;
+        final int NUMBER_OF_READERS = 32;
+        final TimeValue DURATION = TimeValue.timeValueSeconds(30);
+        final TimeValue FLUSH_INTERVAL = TimeValue.timeValueMillis(200);
+
+        ShardId shardId = new ShardId(new Index("index"), 1);
+        Settings settings = EMPTY_SETTINGS;
+
+        Store store = new ByteBufferStore(shardId, settings, null, new ByteBufferCache(settings));
+        store.deleteContent();
+
+        ThreadPool threadPool = new ThreadPool();
+        SnapshotDeletionPolicy deletionPolicy = new SnapshotDeletionPolicy(new KeepOnlyLastDeletionPolicy(shardId, settings));
+        final Engine engine = new RobinEngine(shardId, settings, threadPool, new IndexSettingsService(shardId.index(), settings), store, deletionPolicy, new FsTranslog(shardId, EMPTY_SETTINGS, new File("work/fs-translog")), new LogByteSizeMergePolicyProvider(store, new IndexSettingsService(shardId.index(), EMPTY_SETTINGS)),
+                new ConcurrentMergeSchedulerProvider(shardId, settings), new AnalysisService(shardId.index()), new SimilarityService(shardId.index()), new NoneBloomCache(shardId.index()));
+        engine.start();
+
+        for (int i = 0; i < NUMBER_OF_DOCS; i++) {
+            index(engine, i);
+        }
+        engine.refresh(new Engine.Refresh(true));
+
+        final long endTime = System.currentTimeMillis() + DURATION.millis();
+        final AtomicLong searcherOps = new AtomicLong();
+        final AtomicLong getOps = new AtomicLong();
+        final CountDownLatch latch = new CountDownLatch(NUMBER_OF_READERS);
+
+        Thread[] readers = new Thread[NUMBER_OF_READERS];
+        for (int i = 0; i < readers.length; i++) {
+            final int readerId = i;
+            readers[i] = new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        long searches = 0;
+                        long gets = 0;
+                        int counter = readerId;
+                        while (System.currentTimeMillis() < endTime) {
+                            Engine.Searcher searcher = engine.searcher();
+                            searcher.searcher().maxDoc();
+                            searcher.release();
+                            searches++;
+
+                            String id = Integer.toString((counter++) % NUMBER_OF_DOCS);
+                            Engine.GetResult result = engine.get(new Engine.Get(false, new Term("_uid", "type#" + id)));
+                            if (result.searcher() != null) {
+                                result.searcher().release();
+                            }
+                            gets++;
+                        }
+                        searcherOps.addAndGet(searches);
+                        getOps.addAndGet(gets);
+                    } catch (Exception e) {
+                        System.out.println("Reader thread failed");
+                        e.printStackTrace();
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }, "Reader[" + i + "]");
+        }
+
+        // keeps on indexing a few docs and then refreshing / fully flushing, each one publishes a new searcher
+        Thread flusher = new Thread(new Runnable() {
+            @Override public void run() {
+                int id = NUMBER_OF_DOCS;
+                int flushes = 0;
+                StopWatch stopWatch = new StopWatch();
+                try {
+                    while (System.currentTimeMillis() < endTime) {
+                        for (int i = 0; i < 10; i++) {
+                            index(engine, id++);
+                        }
+                        stopWatch.start();
+                        if ((flushes++ % 2) == 0) {
+                            engine.flush(new Engine.Flush().full(true));
+                        } else {
+                            engine.refresh(new Engine.Refresh(true));
+                        }
+                        stopWatch.stop();
+                        Thread.sleep(FLUSH_INTERVAL.millis());
+                    }
+                } catch (Exception e) {
+                    System.out.println("Flusher thread failed");
+                    e.printStackTrace();
+                }
+                System.out.println("--> [" + flushes + "] refreshes / full flushes, took " + stopWatch.totalTime());
+            }
+        }, "Flusher");
+
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        flusher.start();
+
+        latch.await();
+        flusher.join();
+
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(DURATION.millis());
+        System.out.println("--> [" + NUMBER_OF_READERS + "] readers for " + DURATION);
+        System.out.println("    searchers: " + searcherOps.get() + " (" + (searcherOps.get() / seconds) + " ops/s)");
+        System.out.println("    gets: " + getOps.get() + " (" + (getOps.get() / seconds) + " ops/s)");
+
+        engine.close();
+        store.close();
+        threadPool.shutdown();
+    }
+
+    private static void index(Engine engine, int id) {
+        String sId = Integer.toString(id);
+        Document doc = doc().add(field("_uid", "type#" + sId))
+                .add(field("content", "content" + sId)).build();
+        ParsedDocument pDoc = new ParsedDocument("type#" + sId, sId, "type", null, doc, Lucene.STANDARD_ANALYZER, TRANSLOG_PAYLOAD, false);
+        engine.index(new Engine.Index(null, new Term("_uid", "type#" + sId), pDoc));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index.mapper;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.analysis.AnalysisService;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.DocumentMapperParser;
+import org.elasticsearch.index.mapper.ParsedDocument;
+
+import java.lang.management.ManagementFactory;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.*;
+
+/**
+ * Reports the time and the bytes allocated per document when parsing (and then indexing) documents, with
+ * <tt>_all</tt> enabled and disabled. Run it against two revisions to compare their allocation rate.
+ *
+ * <p>Relies on the allocated bytes per thread exposed by the Sun / Oracle JVM (<tt>com.sun.management.ThreadMXBean</tt>).
+ */
+public class DocumentParsingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final long WARMUP_COUNT = SizeValue.parseSizeValue("50k").singles();
+        final long COUNT = SizeValue.parseSizeValue("200k").singles();
+
+        DocumentMapperParser mapperParser = new DocumentMapperParser(new Index("test"), new AnalysisService(new Index("test")));
+
+        String allEnabledMapping = jsonBuilder().startObject().startObject("type1")
+                .startObject("_all").field("enabled", true).endObject()
+                .endObject().endObject().string();
+        String allDisabledMapping = jsonBuilder().startObject().startObject("type1")
+                .startObject("_all").field("enabled", false).endObject()
+                .endObject().endObject().string();
+
+        DocumentMapper[] mappers = new DocumentMapper[]{mapperParser.parse(allEnabledMapping), mapperParser.parse(allDisabledMapping)};
+        String[] names = new String[]{"_all enabled", "_all disabled"};
+
+        byte[][] sources = new byte[1000][];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = jsonBuilder().startObject()
+                    .field("name", "name " + i)
+                    .field("description", "a somewhat longer description of the document number " + i)
+                    .field("count", i)
+                    .field("price", i * 1.5)
+                    .field("tags", new String[]{"tag" + (i % 10), "tag" + (i % 100)})
+                    .startObject("user").field("first", "first" + i).field("last", "last" + i).endObject()
+                    .endObject().copiedBytes();
+        }
+
+        for (int i = 0; i < mappers.length; i++) {
+            DocumentMapper mapper = mappers[i];
+            // warm up, also makes sure the dynamic mappings are already introduced
+            run(mapper, sources, WARMUP_COUNT, false);
+            run(mapper, sources, WARMUP_COUNT, true);
+
+            System.out.println("--> " + names[i]);
+            report("parse", run(mapper, sources, COUNT, false), COUNT);
+            report("parse and index", run(mapper, sources, COUNT, true), COUNT);
+        }
+    }
+
+    private static long[] run(DocumentMapper mapper, byte[][] sources, long count, boolean index) throws Exception {
+        IndexWriter writer = null;
+        if (index) {
+            writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        }
+        long allocatedBefore = allocatedBytes();
+        StopWatch stopWatch = new StopWatch().start();
+        for (long i = 0; i < count; i++) {
+            ParsedDocument doc = mapper.parse("type1", Long.toString(i), sources[(int) (i % sources.length)]);
+            if (writer != null) {
+                writer.addDocument(doc.doc(), doc.analyzer());
+            }
+        }
+        stopWatch.stop();
+        long allocated = allocatedBytes() - allocatedBefore;
+        if (writer != null) {
+            writer.close();
+        }
+        return new long[]{stopWatch.totalTime().millis(), allocated};
+    }
+
+    private static void report(String name, long[] result, long count) {
+        System.out.println("    " + name + ": took [" + result[0] + "ms], " + ((count * 1000) / Math.max(1, result[0])) + " docs/s, allocated ["
+                + new ByteSizeValue(result[1]) + "], [" + (result[1] / count) + "] bytes per doc");
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.lucene.index;
+
+import org.apache.lucene.util.NumericUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A merge policy for time based (append mostly) data, which extends the {@link TieredMergePolicy} settings
+ * with the following behavior when finding natural merges:
+ *
+ * <ul>
+ * <li>Segments are ordered by the time range of a configured (numeric, long) time field, and only segments
+ * that are adjacent in time are merged together, so old data is not repeatedly re-merged with new data.</li>
+ * <li>Segments whose newest document is older than the configured max age are never merged with other segments.
+ * They are only rewritten on their own once their deletes ratio is above the frozen expunge deletes threshold.</li>
+ * <li>The score of a candidate merge favors segments with a high deletes ratio, so segments full of deleted
+ * documents are reclaimed early.</li>
+ * </ul>
+ *
+ * <p>The time range of each segment is derived from the time field terms of the segment (using the terms
+ * of the configured precision shift, so only a few terms are iterated), and cached by segment name, since
+ * segments never change once written. The terms are read using the pooled segment readers of the writer
+ * (already open when near real time readers are used), so no new reader is opened while finding merges.
+ */
+public class TimeBasedMergePolicy extends TieredMergePolicy {
+
+    private volatile String timeField;
+
+    private volatile int timeFieldShift = 16;
+
+    private volatile long maxMergeAgeInMillis = -1;
+
+    private volatile double frozenExpungeDeletesPctAllowed = 30.0;
+
+    private volatile double reclaimDeletesWeight = 2.0;
+
+    private final ConcurrentMap<String, TimeRange> timeRanges = new ConcurrentHashMap<String, TimeRange>();
+
+    public TimeBasedMergePolicy() {
+        super();
+    }
+
+    /**
+     * The numeric (long) field holding the time of each document, <tt>null</tt> to disable time
+     * based segment ordering.
+     */
+    public void setTimeField(String timeField) {
+        this.timeField = timeField;
+        timeRanges.clear();
+    }
+
+    public String getTimeField() {
+        return timeField;
+    }
+
+    /**
+     * The precision shift of the time field terms used to compute each segment time range. Must be a
+     * multiple of the field precision step.
+     */
+    public void setTimeFieldShift(int timeFieldShift) {
+        this.timeFieldShift = timeFieldShift;
+        timeRanges.clear();
+    }
+
+    public int getTimeFieldShift() {
+        return timeFieldShift;
+    }
+
+    /**
+     * Segments with all documents older than this age (in milliseconds) are not merged with other segments.
+     * Set to <tt>-1</tt> to disable.
+     */
+    public void setMaxMergeAgeInMillis(long maxMergeAgeInMillis) {
+        this.maxMergeAgeInMillis = maxMergeAgeInMillis;
+    }
+
+    public long getMaxMergeAgeInMillis() {
+        return maxMergeAgeInMillis;
+    }
+
+    /**
+     * The deletes percentage above which a segment older than the max merge age is rewritten (on its own).
+     */
+    public void setFrozenExpungeDeletesPctAllowed(double frozenExpungeDeletesPctAllowed) {
+        this.frozenExpungeDeletesPctAllowed = frozenExpungeDeletesPctAllowed;
+    }
+
+    public double getFrozenExpungeDeletesPctAllowed() {
+        return frozenExpungeDeletesPctAllowed;
+    }
+
+    /**
+     * How strongly candidate merges reclaiming deletes are favored, <tt>0</tt> to ignore deletes.
+     */
+    public void setReclaimDeletesWeight(double reclaimDeletesWeight) {
+        this.reclaimDeletesWeight = reclaimDeletesWeight;
+    }
+
+    public double getReclaimDeletesWeight() {
+        return reclaimDeletesWeight;
+    }
+
+    @Override public MergeSpecification findMerges(SegmentInfos infos) throws IOException {
+        if (infos.size() == 0) {
+            return null;
+        }
+        IndexWriter writer = this.writer.get();
+        Collection<SegmentInfo> merging = writer.getMergingSegments();
+
+        // clean time ranges of segments that no longer exist
+        Set<String> names = new HashSet<String>();
+        for (SegmentInfo info : infos) {
+            names.add(info.name);
+        }
+        for (Iterator<String> it = timeRanges.keySet().iterator(); it.hasNext(); ) {
+            if (!names.contains(it.next())) {
+                it.remove();
+            }
+        }
+
+        MergeSpecification spec = null;
+        long frozenTime = maxMergeAgeInMillis < 0 ? Long.MIN_VALUE : System.currentTimeMillis() - maxMergeAgeInMillis;
+        List<Candidate> eligible = new ArrayList<Candidate>();
+        for (SegmentInfo info : infos) {
+            if (merging.contains(info)) {
+                continue;
+            }
+            Candidate candidate = new Candidate(info, timeRange(writer, info), deletesRatio(writer, info), size(info));
+            if (candidate.timeRange != null && candidate.timeRange.max < frozenTime) {
+                // frozen, only rewrite it on its own to reclaim deletes
+                if (candidate.deletesRatio * 100 > frozenExpungeDeletesPctAllowed) {
+                    if (spec == null) {
+                        spec = new MergeSpecification();
+                    }
+                    spec.add(new OneMerge(Collections.singletonList(info)));
+                }
+                continue;
+            }
+            eligible.add(candidate);
+        }
+
+        Collections.sort(eligible, CANDIDATE_COMPARATOR);
+
+        long maxMergedSegmentBytes = (long) (getMaxMergedSegmentMB() * 1024 * 1024);
+        int maxMergeAtOnce = getMaxMergeAtOnce();
+        while (eligible.size() > getSegmentsPerTier()) {
+            int bestStart = -1;
+            int bestEnd = -1;
+            double bestScore = Double.MAX_VALUE;
+            for (int start = 0; start < eligible.size(); start++) {
+                long totalSize = 0;
+                long largestSize = 0;
+                double deletes = 0;
+                for (int end = start; end < eligible.size() && end - start < maxMergeAtOnce; end++) {
+                    Candidate candidate = eligible.get(end);
+                    if (totalSize + candidate.size > maxMergedSegmentBytes) {
+                        break;
+                    }
+                    totalSize += candidate.size;
+                    largestSize = Math.max(largestSize, candidate.size);
+                    deletes += candidate.deletesRatio;
+                    if (end == start) {
+                        continue;
+                    }
+                    // same as tiered, lower skew (more balanced merges) and smaller merges are preferred
+                    double skew = ((double) largestSize) / totalSize;
+                    double score = skew * Math.pow(totalSize, 0.05);
+                    double avgDeletesRatio = deletes / (end - start + 1);
+                    score = score / (1 + reclaimDeletesWeight * avgDeletesRatio);
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestStart = start;
+                        bestEnd = end;
+                    }
+                }
+            }
+            if (bestStart == -1) {
+                break;
+            }
+            List<SegmentInfo> segments = new ArrayList<SegmentInfo>(bestEnd - bestStart + 1);
+            for (int i = bestStart; i <= bestEnd; i++) {
+                segments.add(eligible.get(i).info);
+            }
+            if (spec == null) {
+                spec = new MergeSpecification();
+            }
+            spec.add(new OneMerge(segments));
+            eligible.subList(bestStart, bestEnd + 1).clear();
+        }
+        return spec;
+    }
+
+    private long size(SegmentInfo info) throws IOException {
+        long size = info.sizeInBytes(true);
+        long floor = (long) (getFloorSegmentMB() * 1024 * 1024);
+        return Math.max(size, floor);
+    }
+
+    private double deletesRatio(IndexWriter writer, SegmentInfo info) throws IOException {
+        if (info.docCount <= 0) {
+            return 0;
+        }
+        return ((double) writer.numDeletedDocs(info)) / info.docCount;
+    }
+
+    private TimeRange timeRange(IndexWriter writer, SegmentInfo info) throws IOException {
+        String timeField = this.timeField;
+        if (timeField == null) {
+            return null;
+        }
+        TimeRange timeRange = timeRanges.get(info.name);
+        if (timeRange != null) {
+            return timeRange == TimeRange.EMPTY ? null : timeRange;
+        }
+        timeRange = loadTimeRange(writer, info, timeField, timeFieldShift);
+        timeRanges.put(info.name, timeRange);
+        return timeRange == TimeRange.EMPTY ? null : timeRange;
+    }
+
+    /**
+     * Called when a segment has terms for the time field, but none with the configured precision shift, which
+     * means the shift is not a multiple of the field precision step. Such segments have no time range.
+     */
+    protected void onTimeFieldShiftMismatch(SegmentInfo info, String timeField, int shift) {
+    }
+
+    private TimeRange loadTimeRange(IndexWriter writer, SegmentInfo info, String timeField, int shift) throws IOException {
+        SegmentReader reader = writer.readerPool.get(info, false);
+        try {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            char shiftChar = (char) (NumericUtils.SHIFT_START_LONG + shift);
+            TermEnum termEnum = reader.terms(new Term(timeField, NumericUtils.longToPrefixCoded(Long.MIN_VALUE, shift)));
+            try {
+                do {
+                    Term term = termEnum.term();
+                    if (term == null || !timeField.equals(term.field())) {
+                        break;
+                    }
+                    String text = term.text();
+                    if (text.length() == 0 || text.charAt(0) != shiftChar) {
+                        break;
+                    }
+                    long value = NumericUtils.prefixCodedToLong(text);
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                } while (termEnum.next());
+            } finally {
+                termEnum.close();
+            }
+            if (min == Long.MAX_VALUE) {
+                if (hasTerms(reader, timeField)) {
+                    onTimeFieldShiftMismatch(info, timeField, shift);
+                }
+                return TimeRange.EMPTY;
+            }
+            // the lower bits are not part of the shifted term
+            return new TimeRange(min, max + ((1L << shift) - 1));
+        } finally {
+            writer.readerPool.release(reader);
+        }
+    }
+
+    private static boolean hasTerms(IndexReader reader, String field) throws IOException {
+        TermEnum termEnum = reader.terms(new Term(field, ""));
+        try {
+            Term term = termEnum.term();
+            return term != null && field.equals(term.field());
+        } finally {
+            termEnum.close();
+        }
+    }
+
+    private static final Comparator<Candidate> CANDIDATE_COMPARATOR = new Comparator<Candidate>() {
+        @Override public int compare(Candidate o1, Candidate o2) {
+            // segments without a time range go last, ordered by size
+            if (o1.timeRange == null || o2.timeRange == null) {
+                if (o1.timeRange != null) {
+                    return -1;
+                }
+                if (o2.timeRange != null) {
+                    return 1;
+                }
+                return o1.size < o2.size ? -1 : (o1.size == o2.size ? 0 : 1);
+            }
+            if (o1.timeRange.min != o2.timeRange.min) {
+                return o1.timeRange.min < o2.timeRange.min ? -1 : 1;
+            }
+            return o1.timeRange.max < o2.timeRange.max ? -1 : (o1.timeRange.max == o2.timeRange.max ? 0 : 1);
+        }
+    };
+
+    static class Candidate {
+        final SegmentInfo info;
+        final TimeRange timeRange;
+        final double deletesRatio;
+        final long size;
+
+        Candidate(SegmentInfo info, TimeRange timeRange, double deletesRatio, long size) {
+            this.info = info;
+            this.timeRange = timeRange;
+            this.deletesRatio = deletesRatio;
+            // account only for the live docs when sizing the merge
+            this.size = (long) (size * (1 - deletesRatio));
+        }
+    }
+
+    static class TimeRange {
+        static final TimeRange EMPTY = new TimeRange(Long.MAX_VALUE, Long.MIN_VALUE);
+
+        final long min;
+        final long max;
+
+        TimeRange(long min, long max) {
+            this.min = min;
+            this.max = max;
+        }
+    }
+}
@@ -46,6 +46,7 @@ import org.elasticsearch.action.admin.indices.optimize.TransportOptimizeAction;
 import org.elasticsearch.action.admin.indices.refresh.TransportRefreshAction;
 import org.elasticsearch.action.admin.indices.segments.TransportIndicesSegmentsAction;
 import org.elasticsearch.action.admin.indices.settings.TransportUpdateSettingsAction;
+import org.elasticsearch.action.admin.indices.split.TransportSplitIndexAction;
 import org.elasticsearch.action.admin.indices.status.TransportIndicesStatusAction;
 import org.elasticsearch.action.admin.indices.template.delete.TransportDeleteIndexTemplateAction;
 import org.elasticsearch.action.admin.indices.template.put.TransportPutIndexTemplateAction;
@@ -103,6 +104,7 @@ public class TransportActionModule extends AbstractModule {
         bind(TransportDeleteIndexAction.class).asEagerSingleton();
         bind(TransportOpenIndexAction.class).asEagerSingleton();
         bind(TransportCloseIndexAction.class).asEagerSingleton();
+        bind(TransportSplitIndexAction.class).asEagerSingleton();
         bind(TransportIndicesExistsAction.class).asEagerSingleton();
         bind(TransportPutMappingAction.class).asEagerSingleton();
         bind(TransportDeleteMappingAction.class).asEagerSingleton();
@@ -21,9 +21,13 @@ package org.elasticsearch.action.admin.cluster.node.stats;
 
 import org.elasticsearch.action.support.nodes.NodeOperationResponse;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.operation.ReplicaSelectionStats;
+import org.elasticsearch.cluster.service.ClusterStatePublishStats;
+import org.elasticsearch.cluster.service.ClusterUpdateTasksStats;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.indices.NodeIndicesStats;
+import org.elasticsearch.indices.ShardsLoadStats;
 import org.elasticsearch.monitor.jvm.JvmStats;
 import org.elasticsearch.monitor.network.NetworkStats;
 import org.elasticsearch.monitor.os.OsStats;
@@ -48,17 +52,30 @@ public class NodeStats extends NodeOperationResponse {
 
     private NetworkStats network;
 
+    private ClusterUpdateTasksStats clusterUpdateTasks;
+
+    private ClusterStatePublishStats clusterStatePublish;
+
+    private ReplicaSelectionStats replicaSelection;
+
+    private ShardsLoadStats shardsLoad;
+
     NodeStats() {
     }
 
     public NodeStats(DiscoveryNode node, NodeIndicesStats indices,
-                     OsStats os, ProcessStats process, JvmStats jvm, NetworkStats network) {
+                     OsStats os, ProcessStats process, JvmStats jvm, NetworkStats network, ClusterUpdateTasksStats clusterUpdateTasks,
+                     ClusterStatePublishStats clusterStatePublish, ReplicaSelectionStats replicaSelection, ShardsLoadStats shardsLoad) {
         super(node);
         this.indices = indices;
         this.os = os;
         this.process = process;
         this.jvm = jvm;
         this.network = network;
+        this.clusterUpdateTasks = clusterUpdateTasks;
+        this.clusterStatePublish = clusterStatePublish;
+        this.replicaSelection = replicaSelection;
+        this.shardsLoad = shardsLoad;
     }
 
     /**
@@ -131,6 +148,62 @@ public class NodeStats extends NodeOperationResponse {
         return network();
     }
 
+    /**
+     * Cluster state update tasks statistics, per batch key.
+     */
+    public ClusterUpdateTasksStats clusterUpdateTasks() {
+        return clusterUpdateTasks;
+    }
+
+    /**
+     * Cluster state update tasks statistics, per batch key.
+     */
+    public ClusterUpdateTasksStats getClusterUpdateTasks() {
+        return clusterUpdateTasks();
+    }
+
+    /**
+     * Stats of the cluster states published by the node (when master), including the per node ack latency.
+     */
+    public ClusterStatePublishStats clusterStatePublish() {
+        return clusterStatePublish;
+    }
+
+    /**
+     * Stats of the cluster states published by the node (when master), including the per node ack latency.
+     */
+    public ClusterStatePublishStats getClusterStatePublish() {
+        return clusterStatePublish();
+    }
+
+    /**
+     * The inputs used to rank the shard copies of read operations, per node they were sent to.
+     */
+    public ReplicaSelectionStats replicaSelection() {
+        return replicaSelection;
+    }
+
+    /**
+     * The inputs used to rank the shard copies of read operations, per node they were sent to.
+     */
+    public ReplicaSelectionStats getReplicaSelection() {
+        return replicaSelection();
+    }
+
+    /**
+     * The load (indexing and search rates, store size) of each shard allocated on the node.
+     */
+    public ShardsLoadStats shardsLoad() {
+        return shardsLoad;
+    }
+
+    /**
+     * The load (indexing and search rates, store size) of each shard allocated on the node.
+     */
+    public ShardsLoadStats getShardsLoad() {
+        return shardsLoad();
+    }
+
     public static NodeStats readNodeStats(StreamInput in) throws IOException {
         NodeStats nodeInfo = new NodeStats();
         nodeInfo.readFrom(in);
@@ -154,6 +227,18 @@ public class NodeStats extends NodeOperationResponse {
         if (in.readBoolean()) {
             network = NetworkStats.readNetworkStats(in);
         }
+        if (in.readBoolean()) {
+            clusterUpdateTasks = ClusterUpdateTasksStats.readClusterUpdateTasksStats(in);
+        }
+        if (in.readBoolean()) {
+            clusterStatePublish = ClusterStatePublishStats.readClusterStatePublishStats(in);
+        }
+        if (in.readBoolean()) {
+            replicaSelection = ReplicaSelectionStats.readReplicaSelectionStats(in);
+        }
+        if (in.readBoolean()) {
+            shardsLoad = ShardsLoadStats.readShardsLoadStats(in);
+        }
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
@@ -188,5 +273,29 @@ public class NodeStats extends NodeOperationResponse {
             out.writeBoolean(true);
             network.writeTo(out);
         }
+        if (clusterUpdateTasks == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            clusterUpdateTasks.writeTo(out);
+        }
+        if (clusterStatePublish == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            clusterStatePublish.writeTo(out);
+        }
+        if (replicaSelection == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            replicaSelection.writeTo(out);
+        }
+        if (shardsLoad == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            shardsLoad.writeTo(out);
+        }
     }
 }
\ No newline at end of file
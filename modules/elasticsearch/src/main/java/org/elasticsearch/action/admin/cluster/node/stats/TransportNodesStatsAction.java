@@ -25,6 +25,7 @@ import org.elasticsearch.action.support.nodes.NodeOperationRequest;
 import org.elasticsearch.action.support.nodes.TransportNodesOperationAction;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.routing.operation.ResponseCollector;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -45,12 +46,15 @@ public class TransportNodesStatsAction extends TransportNodesOperationAction<Nod
 
     private final IndicesService indicesService;
 
+    private final ResponseCollector responseCollector;
+
     @Inject public TransportNodesStatsAction(Settings settings, ClusterName clusterName, ThreadPool threadPool,
                                              ClusterService clusterService, TransportService transportService,
-                                             MonitorService monitorService, IndicesService indicesService) {
+                                             MonitorService monitorService, IndicesService indicesService, ResponseCollector responseCollector) {
         super(settings, clusterName, threadPool, clusterService, transportService);
         this.monitorService = monitorService;
         this.indicesService = indicesService;
+        this.responseCollector = responseCollector;
     }
 
     @Override protected String executor() {
@@ -95,7 +99,9 @@ public class TransportNodesStatsAction extends TransportNodesOperationAction<Nod
     @Override protected NodeStats nodeOperation(NodeStatsRequest request) throws ElasticSearchException {
         return new NodeStats(clusterService.state().nodes().localNode(), indicesService.stats(),
                 monitorService.osService().stats(), monitorService.processService().stats(),
-                monitorService.jvmService().stats(), monitorService.networkService().stats());
+                monitorService.jvmService().stats(), monitorService.networkService().stats(),
+                clusterService.updateTasksStats(), clusterService.publishStats(), responseCollector.stats(),
+                indicesService.shardsLoadStats());
     }
 
     @Override protected boolean accumulateExceptions() {
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.indices.split;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.master.MasterNodeOperationRequest;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.io.IOException;
+
+import static org.elasticsearch.action.Actions.*;
+import static org.elasticsearch.common.unit.TimeValue.*;
+
+/**
+ * A request to split an index into a new index with a multiple of its number of shards. The index must have
+ * been created with a number of routing shards that the new number of shards divides.
+ */
+public class SplitIndexRequest extends MasterNodeOperationRequest {
+
+    private String index;
+
+    private String target;
+
+    private int numberOfShards = -1;
+
+    private TimeValue timeout = timeValueSeconds(10);
+
+    SplitIndexRequest() {
+    }
+
+    /**
+     * Constructs a new split index request, splitting the index into the target index.
+     */
+    public SplitIndexRequest(String index, String target) {
+        this.index = index;
+        this.target = target;
+    }
+
+    @Override public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (index == null) {
+            validationException = addValidationError("index is missing", validationException);
+        }
+        if (target == null) {
+            validationException = addValidationError("target index is missing", validationException);
+        }
+        if (numberOfShards <= 0) {
+            validationException = addValidationError("number_of_shards is missing", validationException);
+        }
+        return validationException;
+    }
+
+    /**
+     * The index to split.
+     */
+    String index() {
+        return index;
+    }
+
+    /**
+     * The index to split into.
+     */
+    String target() {
+        return target;
+    }
+
+    /**
+     * The number of shards of the target index, a multiple of the number of shards of the split index.
+     */
+    int numberOfShards() {
+        return numberOfShards;
+    }
+
+    /**
+     * The number of shards of the target index, a multiple of the number of shards of the split index.
+     */
+    public SplitIndexRequest numberOfShards(int numberOfShards) {
+        this.numberOfShards = numberOfShards;
+        return this;
+    }
+
+    /**
+     * Timeout to wait for the target index creation to be acknowledged by current cluster nodes. Defaults
+     * to <tt>10s</tt>.
+     */
+    TimeValue timeout() {
+        return timeout;
+    }
+
+    /**
+     * Timeout to wait for the target index creation to be acknowledged by current cluster nodes. Defaults
+     * to <tt>10s</tt>.
+     */
+    public SplitIndexRequest timeout(TimeValue timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Timeout to wait for the target index creation to be acknowledged by current cluster nodes. Defaults
+     * to <tt>10s</tt>.
+     */
+    public SplitIndexRequest timeout(String timeout) {
+        return timeout(TimeValue.parseTimeValue(timeout, null));
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        index = in.readUTF();
+        target = in.readUTF();
+        numberOfShards = in.readVInt();
+        timeout = readTimeValue(in);
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeUTF(index);
+        out.writeUTF(target);
+        out.writeVInt(numberOfShards);
+        timeout.writeTo(out);
+    }
+}
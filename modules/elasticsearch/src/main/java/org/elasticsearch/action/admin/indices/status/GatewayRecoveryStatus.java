@@ -75,8 +75,12 @@ public class GatewayRecoveryStatus {
 
     final long recoveredTranslogOperations;
 
+    final long verificationTime;
+
+    final int retriedFiles;
+
     public GatewayRecoveryStatus(Stage stage, long startTime, long time, long indexSize, long reusedIndexSize,
-                                 long recoveredIndexSize, long recoveredTranslogOperations) {
+                                 long recoveredIndexSize, long recoveredTranslogOperations, long verificationTime, int retriedFiles) {
         this.stage = stage;
         this.startTime = startTime;
         this.time = time;
@@ -84,6 +88,8 @@ public class GatewayRecoveryStatus {
         this.reusedIndexSize = reusedIndexSize;
         this.recoveredIndexSize = recoveredIndexSize;
         this.recoveredTranslogOperations = recoveredTranslogOperations;
+        this.verificationTime = verificationTime;
+        this.retriedFiles = retriedFiles;
     }
 
     public Stage stage() {
@@ -165,4 +171,32 @@ public class GatewayRecoveryStatus {
     public long getRecoveredTranslogOperations() {
         return recoveredTranslogOperations();
     }
+
+    /**
+     * The time spent verifying the checksum of the recovered files.
+     */
+    public TimeValue verificationTime() {
+        return TimeValue.timeValueMillis(verificationTime);
+    }
+
+    /**
+     * The time spent verifying the checksum of the recovered files.
+     */
+    public TimeValue getVerificationTime() {
+        return verificationTime();
+    }
+
+    /**
+     * The number of files that failed checksum verification and were recovered again.
+     */
+    public int retriedFiles() {
+        return retriedFiles;
+    }
+
+    /**
+     * The number of files that failed checksum verification and were recovered again.
+     */
+    public int getRetriedFiles() {
+        return retriedFiles();
+    }
 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.indices.status;
 
+import org.elasticsearch.cache.memory.BlockCacheStats;
 import org.elasticsearch.common.collect.Iterators;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.merge.MergeStats;
@@ -194,6 +195,27 @@ public class IndexShardStatus implements Iterable<ShardStatus> {
         return refreshStats();
     }
 
+    /**
+     * Block cache stats of this shard replication group, <tt>null</tt> if none of the shards use the block cache.
+     */
+    public BlockCacheStats blockCacheStats() {
+        BlockCacheStats blockCacheStats = null;
+        for (ShardStatus shard : shards) {
+            if (shard.blockCacheStats() == null) {
+                continue;
+            }
+            if (blockCacheStats == null) {
+                blockCacheStats = new BlockCacheStats();
+            }
+            blockCacheStats.add(shard.blockCacheStats());
+        }
+        return blockCacheStats;
+    }
+
+    public BlockCacheStats getBlockCacheStats() {
+        return blockCacheStats();
+    }
+
     @Override public Iterator<ShardStatus> iterator() {
         return Iterators.forArray(shards);
     }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.indices.status;
 
+import org.elasticsearch.cache.memory.BlockCacheStats;
 import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.merge.MergeStats;
@@ -202,6 +203,27 @@ public class IndexStatus implements Iterable<IndexShardStatus> {
         return refreshStats();
     }
 
+    /**
+     * Block cache stats of this index, <tt>null</tt> if none of the shards use the block cache.
+     */
+    public BlockCacheStats blockCacheStats() {
+        BlockCacheStats blockCacheStats = null;
+        for (IndexShardStatus shard : this) {
+            if (shard.blockCacheStats() == null) {
+                continue;
+            }
+            if (blockCacheStats == null) {
+                blockCacheStats = new BlockCacheStats();
+            }
+            blockCacheStats.add(shard.blockCacheStats());
+        }
+        return blockCacheStats;
+    }
+
+    public BlockCacheStats getBlockCacheStats() {
+        return blockCacheStats();
+    }
+
     @Override public Iterator<IndexShardStatus> iterator() {
         return indexShards.values().iterator();
     }
@@ -21,6 +21,7 @@ package org.elasticsearch.action.admin.indices.status;
 
 import org.elasticsearch.action.ShardOperationFailedException;
 import org.elasticsearch.action.support.broadcast.BroadcastOperationResponse;
+import org.elasticsearch.cache.memory.BlockCacheStats;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.Sets;
@@ -158,6 +159,10 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
             if (refreshStats != null) {
                 refreshStats.toXContent(builder, params);
             }
+            BlockCacheStats blockCacheStats = indexStatus.blockCacheStats();
+            if (blockCacheStats != null) {
+                blockCacheStats.toXContent(builder, params);
+            }
 
             builder.startObject(Fields.SHARDS);
             for (IndexShardStatus indexShardStatus : indexStatus) {
@@ -206,6 +211,11 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
                         refreshStats.toXContent(builder, params);
                     }
 
+                    blockCacheStats = shardStatus.blockCacheStats();
+                    if (blockCacheStats != null) {
+                        blockCacheStats.toXContent(builder, params);
+                    }
+
                     if (shardStatus.peerRecoveryStatus() != null) {
                         PeerRecoveryStatus peerRecoveryStatus = shardStatus.peerRecoveryStatus();
                         builder.startObject(Fields.PEER_RECOVERY);
@@ -224,6 +234,11 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
                         builder.field(Fields.EXPECTED_RECOVERED_SIZE_IN_BYTES, peerRecoveryStatus.expectedRecoveredIndexSize().bytes());
                         builder.field(Fields.RECOVERED_SIZE, peerRecoveryStatus.recoveredIndexSize());
                         builder.field(Fields.RECOVERED_SIZE_IN_BYTES, peerRecoveryStatus.recoveredIndexSize().bytes());
+                        builder.field(Fields.THROUGHPUT, peerRecoveryStatus.indexThroughput());
+                        builder.field(Fields.THROUGHPUT_IN_BYTES_PER_SEC, peerRecoveryStatus.indexThroughput().bytes());
+                        builder.field(Fields.VERIFICATION_TIME, peerRecoveryStatus.verificationTime());
+                        builder.field(Fields.VERIFICATION_TIME_IN_MILLIS, peerRecoveryStatus.verificationTime().millis());
+                        builder.field(Fields.RETRIED_FILES, peerRecoveryStatus.retriedFiles());
                         builder.endObject();
 
                         builder.startObject(Fields.TRANSLOG);
@@ -251,6 +266,9 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
                         builder.field(Fields.EXPECTED_RECOVERED_SIZE_IN_BYTES, gatewayRecoveryStatus.expectedRecoveredIndexSize().bytes());
                         builder.field(Fields.RECOVERED_SIZE, gatewayRecoveryStatus.recoveredIndexSize());
                         builder.field(Fields.RECOVERED_SIZE_IN_BYTES, gatewayRecoveryStatus.recoveredIndexSize().bytes());
+                        builder.field(Fields.VERIFICATION_TIME, gatewayRecoveryStatus.verificationTime());
+                        builder.field(Fields.VERIFICATION_TIME_IN_MILLIS, gatewayRecoveryStatus.verificationTime().millis());
+                        builder.field(Fields.RETRIED_FILES, gatewayRecoveryStatus.retriedFiles());
                         builder.endObject();
 
                         builder.startObject(Fields.TRANSLOG);
@@ -317,6 +335,11 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
         static final XContentBuilderString STAGE = new XContentBuilderString("stage");
         static final XContentBuilderString START_TIME_IN_MILLIS = new XContentBuilderString("start_time_in_millis");
         static final XContentBuilderString TIME = new XContentBuilderString("time");
+        static final XContentBuilderString THROUGHPUT = new XContentBuilderString("throughput");
+        static final XContentBuilderString THROUGHPUT_IN_BYTES_PER_SEC = new XContentBuilderString("throughput_in_bytes_per_sec");
+        static final XContentBuilderString VERIFICATION_TIME = new XContentBuilderString("verification_time");
+        static final XContentBuilderString VERIFICATION_TIME_IN_MILLIS = new XContentBuilderString("verification_time_in_millis");
+        static final XContentBuilderString RETRIED_FILES = new XContentBuilderString("retried_files");
         static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
         static final XContentBuilderString PROGRESS = new XContentBuilderString("progress");
         static final XContentBuilderString REUSED_SIZE = new XContentBuilderString("reused_size");
@@ -75,8 +75,12 @@ public class PeerRecoveryStatus {
 
     final long recoveredTranslogOperations;
 
+    final long verificationTime;
+
+    final int retriedFiles;
+
     public PeerRecoveryStatus(Stage stage, long startTime, long time, long indexSize, long reusedIndexSize,
-                              long recoveredIndexSize, long recoveredTranslogOperations) {
+                              long recoveredIndexSize, long recoveredTranslogOperations, long verificationTime, int retriedFiles) {
         this.stage = stage;
         this.startTime = startTime;
         this.time = time;
@@ -84,6 +88,8 @@ public class PeerRecoveryStatus {
         this.reusedIndexSize = reusedIndexSize;
         this.recoveredIndexSize = recoveredIndexSize;
         this.recoveredTranslogOperations = recoveredTranslogOperations;
+        this.verificationTime = verificationTime;
+        this.retriedFiles = retriedFiles;
     }
 
     public Stage stage() {
@@ -158,6 +164,23 @@ public class PeerRecoveryStatus {
         return indexRecoveryProgress();
     }
 
+    /**
+     * The rate (per second) the index files are recovered at.
+     */
+    public ByteSizeValue indexThroughput() {
+        if (time == 0) {
+            return new ByteSizeValue(0);
+        }
+        return new ByteSizeValue(recoveredIndexSize * 1000 / time);
+    }
+
+    /**
+     * The rate (per second) the index files are recovered at.
+     */
+    public ByteSizeValue getIndexThroughput() {
+        return indexThroughput();
+    }
+
     public long recoveredTranslogOperations() {
         return recoveredTranslogOperations;
     }
@@ -165,4 +188,32 @@ public class PeerRecoveryStatus {
     public long getRecoveredTranslogOperations() {
         return recoveredTranslogOperations();
     }
+
+    /**
+     * The time spent verifying the checksum of the recovered files.
+     */
+    public TimeValue verificationTime() {
+        return TimeValue.timeValueMillis(verificationTime);
+    }
+
+    /**
+     * The time spent verifying the checksum of the recovered files.
+     */
+    public TimeValue getVerificationTime() {
+        return verificationTime();
+    }
+
+    /**
+     * The number of files that failed checksum verification and were recovered again.
+     */
+    public int retriedFiles() {
+        return retriedFiles;
+    }
+
+    /**
+     * The number of files that failed checksum verification and were recovered again.
+     */
+    public int getRetriedFiles() {
+        return retriedFiles();
+    }
 }
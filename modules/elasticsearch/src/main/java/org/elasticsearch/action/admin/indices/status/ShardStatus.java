@@ -20,6 +20,7 @@
 package org.elasticsearch.action.admin.indices.status;
 
 import org.elasticsearch.action.support.broadcast.BroadcastShardOperationResponse;
+import org.elasticsearch.cache.memory.BlockCacheStats;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -56,6 +57,8 @@ public class ShardStatus extends BroadcastShardOperationResponse {
 
     RefreshStats refreshStats;
 
+    BlockCacheStats blockCacheStats;
+
     PeerRecoveryStatus peerRecoveryStatus;
 
     GatewayRecoveryStatus gatewayRecoveryStatus;
@@ -182,6 +185,20 @@ public class ShardStatus extends BroadcastShardOperationResponse {
         return refreshStats();
     }
 
+    /**
+     * Block cache stats, <tt>null</tt> if the shard store does not use the block cache.
+     */
+    public BlockCacheStats blockCacheStats() {
+        return this.blockCacheStats;
+    }
+
+    /**
+     * Block cache stats, <tt>null</tt> if the shard store does not use the block cache.
+     */
+    public BlockCacheStats getBlockCacheStats() {
+        return blockCacheStats();
+    }
+
     /**
      * Peer recovery status (<tt>null</tt> if not applicable). Both real time if an on going recovery
      * is in progress and summary once it is done.
@@ -265,6 +282,8 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeVLong(peerRecoveryStatus.reusedIndexSize);
             out.writeVLong(peerRecoveryStatus.recoveredIndexSize);
             out.writeVLong(peerRecoveryStatus.recoveredTranslogOperations);
+            out.writeVLong(peerRecoveryStatus.verificationTime);
+            out.writeVInt(peerRecoveryStatus.retriedFiles);
         }
 
         if (gatewayRecoveryStatus == null) {
@@ -278,6 +297,8 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeVLong(gatewayRecoveryStatus.reusedIndexSize);
             out.writeVLong(gatewayRecoveryStatus.recoveredIndexSize);
             out.writeVLong(gatewayRecoveryStatus.recoveredTranslogOperations);
+            out.writeVLong(gatewayRecoveryStatus.verificationTime);
+            out.writeVInt(gatewayRecoveryStatus.retriedFiles);
         }
 
         if (gatewaySnapshotStatus == null) {
@@ -303,6 +324,12 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeBoolean(true);
             refreshStats.writeTo(out);
         }
+        if (blockCacheStats == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            blockCacheStats.writeTo(out);
+        }
     }
 
     @Override public void readFrom(StreamInput in) throws IOException {
@@ -322,12 +349,12 @@ public class ShardStatus extends BroadcastShardOperationResponse {
         }
         if (in.readBoolean()) {
             peerRecoveryStatus = new PeerRecoveryStatus(PeerRecoveryStatus.Stage.fromValue(in.readByte()),
-                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVInt());
         }
 
         if (in.readBoolean()) {
             gatewayRecoveryStatus = new GatewayRecoveryStatus(GatewayRecoveryStatus.Stage.fromValue(in.readByte()),
-                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVInt());
         }
 
         if (in.readBoolean()) {
@@ -341,5 +368,8 @@ public class ShardStatus extends BroadcastShardOperationResponse {
         if (in.readBoolean()) {
             refreshStats = RefreshStats.readRefreshStats(in);
         }
+        if (in.readBoolean()) {
+            blockCacheStats = BlockCacheStats.readBlockCacheStats(in);
+        }
     }
 }
@@ -43,6 +43,7 @@ import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.recovery.RecoveryStatus;
 import org.elasticsearch.index.shard.recovery.RecoveryTarget;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.store.fs.CachedNioFsStore;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
@@ -171,6 +172,9 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
 
             shardStatus.mergeStats = indexShard.mergeScheduler().stats();
             shardStatus.refreshStats = indexShard.refreshStats();
+            if (indexShard.store() instanceof CachedNioFsStore) {
+                shardStatus.blockCacheStats = ((CachedNioFsStore) indexShard.store()).blockCacheStats();
+            }
         }
 
         if (request.recovery) {
@@ -202,7 +206,8 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
                 }
                 shardStatus.peerRecoveryStatus = new PeerRecoveryStatus(stage, peerRecoveryStatus.startTime(), peerRecoveryStatus.time(),
                         peerRecoveryStatus.phase1TotalSize(), peerRecoveryStatus.phase1ExistingTotalSize(),
-                        peerRecoveryStatus.currentFilesSize(), peerRecoveryStatus.currentTranslogOperations());
+                        peerRecoveryStatus.currentFilesSize(), peerRecoveryStatus.currentTranslogOperations(),
+                        peerRecoveryStatus.verificationTime(), peerRecoveryStatus.retriedFiles());
             }
 
             IndexShardGatewayService gatewayService = indexService.shardInjector(request.shardId()).getInstance(IndexShardGatewayService.class);
@@ -226,7 +231,8 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
                         stage = GatewayRecoveryStatus.Stage.INIT;
                 }
                 shardStatus.gatewayRecoveryStatus = new GatewayRecoveryStatus(stage, gatewayRecoveryStatus.startTime(), gatewayRecoveryStatus.time(),
-                        gatewayRecoveryStatus.index().totalSize(), gatewayRecoveryStatus.index().reusedTotalSize(), gatewayRecoveryStatus.index().currentFilesSize(), gatewayRecoveryStatus.translog().currentTranslogOperations());
+                        gatewayRecoveryStatus.index().totalSize(), gatewayRecoveryStatus.index().reusedTotalSize(), gatewayRecoveryStatus.index().currentFilesSize(), gatewayRecoveryStatus.translog().currentTranslogOperations(),
+                        gatewayRecoveryStatus.index().verificationTime(), gatewayRecoveryStatus.index().retriedFiles());
             }
         }
 
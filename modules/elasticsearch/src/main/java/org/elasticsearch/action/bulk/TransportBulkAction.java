@@ -35,7 +35,6 @@ import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardIterator;
-import org.elasticsearch.common.UUID;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.common.collect.Sets;
@@ -142,9 +141,8 @@ public class TransportBulkAction extends BaseAction<BulkRequest, BulkResponse> {
                 indexRequest.index(clusterState.metaData().concreteIndex(indexRequest.index()));
                 if (allowIdGeneration) {
                     if (indexRequest.id() == null) {
-                        indexRequest.id(UUID.randomBase64UUID());
-                        // since we generate the id, change it to CREATE
-                        indexRequest.opType(IndexRequest.OpType.CREATE);
+                        // since we generate the id, it gets changed to CREATE
+                        indexRequest.generateId();
                     }
                 }
             } else if (request instanceof DeleteRequest) {
@@ -97,6 +97,14 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         state.blocks().indexBlockedRaiseException(ClusterBlockLevel.WRITE, request.index());
     }
 
+    @Override protected void resolveRetry(BulkShardRequest request) {
+        for (BulkItemRequest item : request.items()) {
+            if (item.request() instanceof IndexRequest) {
+                ((IndexRequest) item.request()).canHaveDuplicates();
+            }
+        }
+    }
+
     @Override protected ShardIterator shards(ClusterState clusterState, BulkShardRequest request) {
         return clusterState.routingTable().index(request.index()).shard(request.shardId()).shardsIt();
     }
@@ -105,14 +113,14 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         final BulkShardRequest request = shardRequest.request;
         IndexShard indexShard = indexShard(shardRequest);
 
-        Engine.IndexingOperation[] ops = null;
-
+        // prepare the operations of all the items, and execute them as a single batch
+        Engine.Operation[] engineOps = new Engine.Operation[request.items().length];
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         for (int i = 0; i < request.items().length; i++) {
             BulkItemRequest item = request.items()[i];
-            if (item.request() instanceof IndexRequest) {
-                IndexRequest indexRequest = (IndexRequest) item.request();
-                try {
+            try {
+                if (item.request() instanceof IndexRequest) {
+                    IndexRequest indexRequest = (IndexRequest) item.request();
 
                     // validate, if routing is required, that we got routing
                     MappingMetaData mappingMd = clusterState.metaData().index(request.index()).mapping(indexRequest.type());
@@ -124,63 +132,77 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
                     SourceToParse sourceToParse = SourceToParse.source(indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
                             .routing(indexRequest.routing()).parent(indexRequest.parent());
-                    long version;
-                    Engine.IndexingOperation op;
                     if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-                        Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
-                        indexShard.index(index);
-                        version = index.version();
-                        op = index;
+                        engineOps[i] = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
                     } else {
-                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
-                        indexShard.create(create);
-                        version = create.version();
-                        op = create;
+                        engineOps[i] = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType())
+                                .autoGeneratedIdTimestamp(indexRequest.autoGeneratedIdTimestamp()).canHaveDuplicates(indexRequest.isCanHaveDuplicates())
+                                .origin(Engine.Operation.Origin.PRIMARY);
                     }
-                    // update the version on request so it will happen on the replicas
-                    indexRequest.version(version);
+                } else if (item.request() instanceof DeleteRequest) {
+                    DeleteRequest deleteRequest = (DeleteRequest) item.request();
+                    engineOps[i] = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version()).versionType(deleteRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+                }
+            } catch (Exception e) {
+                responses[i] = failedItem(shardRequest, item, e);
+            }
+        }
 
-                    // update mapping on master if needed, we won't update changes to the same type, since once its changed, it won't have mappers added
-                    if (op.parsedDoc().mappersAdded()) {
-                        updateMappingOnMaster(indexRequest);
-                    }
+        Engine.Bulk bulk = new Engine.Bulk(engineOps);
+        try {
+            indexShard.bulk(bulk);
+        } catch (Exception e) {
+            // the shard / engine is not in the right state for any of them
+            for (int i = 0; i < engineOps.length; i++) {
+                if (engineOps[i] != null) {
+                    bulk.failures()[i] = e;
+                }
+            }
+        }
 
-                    // if we are going to percolate, then we need to keep this op for the postPrimary operation
-                    if (Strings.hasLength(indexRequest.percolate())) {
-                        if (ops == null) {
-                            ops = new Engine.IndexingOperation[request.items().length];
-                        }
-                        ops[i] = op;
-                    }
+        Engine.IndexingOperation[] ops = null;
+        for (int i = 0; i < request.items().length; i++) {
+            BulkItemRequest item = request.items()[i];
+            Engine.Operation op = bulk.ops()[i];
+            if (op == null) {
+                continue; // failed to prepare it
+            }
+            if (bulk.failures()[i] != null) {
+                responses[i] = failedItem(shardRequest, item, bulk.failures()[i]);
+                continue;
+            }
+            if (item.request() instanceof IndexRequest) {
+                IndexRequest indexRequest = (IndexRequest) item.request();
+                long version = op instanceof Engine.Index ? ((Engine.Index) op).version() : ((Engine.Create) op).version();
+                // update the version on request so it will happen on the replicas
+                indexRequest.version(version);
 
-                    // add the response
-                    responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().toString().toLowerCase(),
-                            new IndexResponse(indexRequest.index(), indexRequest.type(), indexRequest.id(), version));
-                } catch (Exception e) {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("[" + shardRequest.request.index() + "][" + shardRequest.shardId + "]" + ": Failed to execute bulk item (index) [" + indexRequest + "]", e);
-                    }
-                    responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().toString().toLowerCase(),
-                            new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), ExceptionsHelper.detailedMessage(e)));
+                Engine.IndexingOperation indexingOp = (Engine.IndexingOperation) op;
+                // update mapping on master if needed, we won't update changes to the same type, since once its changed, it won't have mappers added
+                if (indexingOp.parsedDoc().mappersAdded()) {
+                    updateMappingOnMaster(indexRequest);
                 }
-            } else if (item.request() instanceof DeleteRequest) {
-                DeleteRequest deleteRequest = (DeleteRequest) item.request();
-                try {
-                    Engine.Delete delete = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version()).versionType(deleteRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
-                    indexShard.delete(delete);
-                    // update the request with teh version so it will go to the replicas
-                    deleteRequest.version(delete.version());
-
-                    // add the response
-                    responses[i] = new BulkItemResponse(item.id(), "delete",
-                            new DeleteResponse(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), delete.version(), delete.notFound()));
-                } catch (Exception e) {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("[" + shardRequest.request.index() + "][" + shardRequest.shardId + "]" + ": Failed to execute bulk item (delete) [" + deleteRequest + "]", e);
+
+                // if we are going to percolate, then we need to keep this op for the postPrimary operation
+                if (Strings.hasLength(indexRequest.percolate())) {
+                    if (ops == null) {
+                        ops = new Engine.IndexingOperation[request.items().length];
                     }
-                    responses[i] = new BulkItemResponse(item.id(), "delete",
-                            new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), ExceptionsHelper.detailedMessage(e)));
+                    ops[i] = indexingOp;
                 }
+
+                // add the response
+                responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().toString().toLowerCase(),
+                        new IndexResponse(indexRequest.index(), indexRequest.type(), indexRequest.id(), version));
+            } else {
+                DeleteRequest deleteRequest = (DeleteRequest) item.request();
+                Engine.Delete delete = (Engine.Delete) op;
+                // update the request with teh version so it will go to the replicas
+                deleteRequest.version(delete.version());
+
+                // add the response
+                responses[i] = new BulkItemResponse(item.id(), "delete",
+                        new DeleteResponse(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), delete.version(), delete.notFound()));
             }
         }
 
@@ -195,6 +217,23 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         return new PrimaryResponse<BulkShardResponse>(response, ops);
     }
 
+    private BulkItemResponse failedItem(ShardOperationRequest shardRequest, BulkItemRequest item, Throwable e) {
+        if (item.request() instanceof IndexRequest) {
+            IndexRequest indexRequest = (IndexRequest) item.request();
+            if (logger.isDebugEnabled()) {
+                logger.debug("[" + shardRequest.request.index() + "][" + shardRequest.shardId + "]" + ": Failed to execute bulk item (index) [" + indexRequest + "]", e);
+            }
+            return new BulkItemResponse(item.id(), indexRequest.opType().toString().toLowerCase(),
+                    new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), ExceptionsHelper.detailedMessage(e)));
+        }
+        DeleteRequest deleteRequest = (DeleteRequest) item.request();
+        if (logger.isDebugEnabled()) {
+            logger.debug("[" + shardRequest.request.index() + "][" + shardRequest.shardId + "]" + ": Failed to execute bulk item (delete) [" + deleteRequest + "]", e);
+        }
+        return new BulkItemResponse(item.id(), "delete",
+                new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), ExceptionsHelper.detailedMessage(e)));
+    }
+
     @Override protected void postPrimaryOperation(BulkShardRequest request, PrimaryResponse<BulkShardResponse> response) {
         IndexService indexService = indicesService.indexServiceSafe(request.index());
         Engine.IndexingOperation[] ops = (Engine.IndexingOperation[]) response.payload();
@@ -230,33 +269,35 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     @Override protected void shardOperationOnReplica(ShardOperationRequest shardRequest) {
         IndexShard indexShard = indexShard(shardRequest);
         final BulkShardRequest request = shardRequest.request;
+        Engine.Operation[] engineOps = new Engine.Operation[request.items().length];
         for (int i = 0; i < request.items().length; i++) {
             BulkItemRequest item = request.items()[i];
-            if (item.request() instanceof IndexRequest) {
-                IndexRequest indexRequest = (IndexRequest) item.request();
-                try {
+            try {
+                if (item.request() instanceof IndexRequest) {
+                    IndexRequest indexRequest = (IndexRequest) item.request();
                     SourceToParse sourceToParse = SourceToParse.source(indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
                             .routing(indexRequest.routing()).parent(indexRequest.parent());
                     if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-                        Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
-                        indexShard.index(index);
+                        engineOps[i] = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
                     } else {
-                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
-                        indexShard.create(create);
+                        engineOps[i] = indexShard.prepareCreate(sourceToParse).version(indexRequest.version())
+                                .autoGeneratedIdTimestamp(indexRequest.autoGeneratedIdTimestamp()).canHaveDuplicates(indexRequest.isCanHaveDuplicates())
+                                .origin(Engine.Operation.Origin.REPLICA);
                     }
-                } catch (Exception e) {
-                    // ignore, we are on backup
-                }
-            } else if (item.request() instanceof DeleteRequest) {
-                DeleteRequest deleteRequest = (DeleteRequest) item.request();
-                try {
-                    Engine.Delete delete = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version()).origin(Engine.Operation.Origin.REPLICA);
-                    indexShard.delete(delete);
-                } catch (Exception e) {
-                    // ignore, we are on backup
+                } else if (item.request() instanceof DeleteRequest) {
+                    DeleteRequest deleteRequest = (DeleteRequest) item.request();
+                    engineOps[i] = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version()).origin(Engine.Operation.Origin.REPLICA);
                 }
+            } catch (Exception e) {
+                // ignore, we are on backup
             }
         }
+        try {
+            // failures of single operations are ignored as well
+            indexShard.bulk(new Engine.Bulk(engineOps));
+        } catch (Exception e) {
+            // ignore, we are on backup
+        }
 
         if (request.refresh()) {
             try {
@@ -276,7 +317,7 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             }
             documentMapper.refreshSource();
 
-            mappingUpdatedAction.execute(new MappingUpdatedAction.MappingUpdatedRequest(request.index(), request.type(), documentMapper.mappingSource()), new ActionListener<MappingUpdatedAction.MappingUpdatedResponse>() {
+            mappingUpdatedAction.updateMappingOnMaster(request.index(), request.type(), documentMapper.mappingSource(), new ActionListener<MappingUpdatedAction.MappingUpdatedResponse>() {
                 @Override public void onResponse(MappingUpdatedAction.MappingUpdatedResponse mappingUpdatedResponse) {
                     // all is well
                 }
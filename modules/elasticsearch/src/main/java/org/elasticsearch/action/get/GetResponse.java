@@ -22,7 +22,6 @@ package org.elasticsearch.action.get;
 import org.elasticsearch.ElasticSearchParseException;
 import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.common.BytesHolder;
-import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.compress.lzf.LZF;
 import org.elasticsearch.common.compress.lzf.LZFDecoder;
@@ -32,6 +31,7 @@ import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.rest.action.support.RestXContentBuilder;
 import org.elasticsearch.search.lookup.SourceLookup;
 
@@ -200,7 +200,11 @@ public class GetResponse implements ActionResponse, Streamable, Iterable<GetFiel
             return null;
         }
         BytesHolder source = sourceRef();
-        return Unicode.fromBytes(source.bytes(), source.offset(), source.length());
+        try {
+            return XContentHelper.convertToJson(source.bytes(), source.offset(), source.length());
+        } catch (IOException e) {
+            throw new ElasticSearchParseException("failed to convert source to a json string", e);
+        }
     }
 
     /**
@@ -31,6 +31,7 @@ import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.operation.ResponseCollector;
 import org.elasticsearch.common.BytesHolder;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
@@ -73,8 +74,8 @@ public class TransportGetAction extends TransportShardSingleOperationAction<GetR
     private final boolean realtime;
 
     @Inject public TransportGetAction(Settings settings, ClusterService clusterService, TransportService transportService,
-                                      IndicesService indicesService, ScriptService scriptService, ThreadPool threadPool) {
-        super(settings, threadPool, clusterService, transportService);
+                                      IndicesService indicesService, ScriptService scriptService, ThreadPool threadPool, ResponseCollector responseCollector) {
+        super(settings, threadPool, clusterService, transportService, responseCollector);
         this.indicesService = indicesService;
         this.scriptService = scriptService;
 
@@ -144,169 +145,177 @@ public class TransportGetAction extends TransportShardSingleOperationAction<GetR
             }
         }
 
+        try {
+            return loadResult(logger, scriptService, indexService, index, type, id, gFields, get);
+        } finally {
+            if (get.searcher() != null) {
+                get.searcher().release();
+            }
+        }
+    }
+
+    /**
+     * Builds the response of an existing doc out of its get result. Does not release the searcher of the get
+     * result, the caller should.
+     */
+    static GetResponse loadResult(ESLogger logger, ScriptService scriptService, IndexService indexService, String index, String type, String id, String[] gFields, Engine.GetResult get) throws ElasticSearchException {
         DocumentMapper docMapper = indexService.mapperService().documentMapper(type);
         if (docMapper == null) {
             return new GetResponse(index, type, id, -1, false, null, null);
         }
 
-        try {
-            // break between having loaded it from translog (so we only have _source), and having a document to load
-            if (get.docIdAndVersion() != null) {
-                Map<String, GetField> fields = null;
-                byte[] source = null;
-                UidField.DocIdAndVersion docIdAndVersion = get.docIdAndVersion();
-                FieldSelector fieldSelector = buildFieldSelectors(docMapper, gFields);
-                if (fieldSelector != null) {
-                    Document doc;
-                    try {
-                        doc = docIdAndVersion.reader.document(docIdAndVersion.docId, fieldSelector);
-                    } catch (IOException e) {
-                        throw new ElasticSearchException("Failed to get type [" + type + "] and id [" + id + "]", e);
-                    }
-                    source = extractSource(doc, docMapper);
-
-                    for (Object oField : doc.getFields()) {
-                        Fieldable field = (Fieldable) oField;
-                        String name = field.name();
-                        Object value = null;
-                        FieldMappers fieldMappers = docMapper.mappers().indexName(field.name());
-                        if (fieldMappers != null) {
-                            FieldMapper mapper = fieldMappers.mapper();
-                            if (mapper != null) {
-                                name = mapper.names().fullName();
-                                value = mapper.valueForSearch(field);
-                            }
+        // break between having loaded it from translog (so we only have _source), and having a document to load
+        if (get.docIdAndVersion() != null) {
+            Map<String, GetField> fields = null;
+            byte[] source = null;
+            UidField.DocIdAndVersion docIdAndVersion = get.docIdAndVersion();
+            FieldSelector fieldSelector = buildFieldSelectors(docMapper, gFields);
+            if (fieldSelector != null) {
+                Document doc;
+                try {
+                    doc = docIdAndVersion.reader.document(docIdAndVersion.docId, fieldSelector);
+                } catch (IOException e) {
+                    throw new ElasticSearchException("Failed to get type [" + type + "] and id [" + id + "]", e);
+                }
+                source = extractSource(doc, docMapper);
+
+                for (Object oField : doc.getFields()) {
+                    Fieldable field = (Fieldable) oField;
+                    String name = field.name();
+                    Object value = null;
+                    FieldMappers fieldMappers = docMapper.mappers().indexName(field.name());
+                    if (fieldMappers != null) {
+                        FieldMapper mapper = fieldMappers.mapper();
+                        if (mapper != null) {
+                            name = mapper.names().fullName();
+                            value = mapper.valueForSearch(field);
                         }
-                        if (value == null) {
-                            if (field.isBinary()) {
-                                value = field.getBinaryValue();
-                            } else {
-                                value = field.stringValue();
-                            }
+                    }
+                    if (value == null) {
+                        if (field.isBinary()) {
+                            value = field.getBinaryValue();
+                        } else {
+                            value = field.stringValue();
                         }
+                    }
 
-                        if (fields == null) {
-                            fields = newHashMapWithExpectedSize(2);
-                        }
+                    if (fields == null) {
+                        fields = newHashMapWithExpectedSize(2);
+                    }
 
-                        GetField getField = fields.get(name);
-                        if (getField == null) {
-                            getField = new GetField(name, new ArrayList<Object>(2));
-                            fields.put(name, getField);
-                        }
-                        getField.values().add(value);
+                    GetField getField = fields.get(name);
+                    if (getField == null) {
+                        getField = new GetField(name, new ArrayList<Object>(2));
+                        fields.put(name, getField);
                     }
+                    getField.values().add(value);
                 }
+            }
 
-                // now, go and do the script thingy if needed
-                if (gFields != null && gFields.length > 0) {
-                    SearchLookup searchLookup = null;
-                    for (String field : gFields) {
-                        String script = null;
-                        if (field.contains("_source.") || field.contains("doc[")) {
-                            script = field;
-                        } else {
-                            FieldMappers x = docMapper.mappers().smartName(field);
-                            if (x != null && !x.mapper().stored()) {
-                                script = "_source." + x.mapper().names().fullName();
-                            }
+            // now, go and do the script thingy if needed
+            if (gFields != null && gFields.length > 0) {
+                SearchLookup searchLookup = null;
+                for (String field : gFields) {
+                    String script = null;
+                    if (field.contains("_source.") || field.contains("doc[")) {
+                        script = field;
+                    } else {
+                        FieldMappers x = docMapper.mappers().smartName(field);
+                        if (x != null && !x.mapper().stored()) {
+                            script = "_source." + x.mapper().names().fullName();
                         }
-                        if (script != null) {
-                            if (searchLookup == null) {
-                                searchLookup = new SearchLookup(indexService.mapperService(), indexService.cache().fieldData());
+                    }
+                    if (script != null) {
+                        if (searchLookup == null) {
+                            searchLookup = new SearchLookup(indexService.mapperService(), indexService.cache().fieldData());
+                        }
+                        SearchScript searchScript = scriptService.search(searchLookup, "mvel", script, null);
+                        searchScript.setNextReader(docIdAndVersion.reader);
+                        searchScript.setNextDocId(docIdAndVersion.docId);
+
+                        try {
+                            Object value = searchScript.run();
+                            if (fields == null) {
+                                fields = newHashMapWithExpectedSize(2);
+                            }
+                            GetField getField = fields.get(field);
+                            if (getField == null) {
+                                getField = new GetField(field, new ArrayList<Object>(2));
+                                fields.put(field, getField);
                             }
-                            SearchScript searchScript = scriptService.search(searchLookup, "mvel", script, null);
-                            searchScript.setNextReader(docIdAndVersion.reader);
-                            searchScript.setNextDocId(docIdAndVersion.docId);
-
-                            try {
-                                Object value = searchScript.run();
-                                if (fields == null) {
-                                    fields = newHashMapWithExpectedSize(2);
-                                }
-                                GetField getField = fields.get(field);
-                                if (getField == null) {
-                                    getField = new GetField(field, new ArrayList<Object>(2));
-                                    fields.put(field, getField);
-                                }
-                                getField.values().add(value);
-                            } catch (RuntimeException e) {
-                                if (logger.isTraceEnabled()) {
-                                    logger.trace("failed to execute get request script field [{}]", e, script);
-                                }
-                                // ignore
+                            getField.values().add(value);
+                        } catch (RuntimeException e) {
+                            if (logger.isTraceEnabled()) {
+                                logger.trace("failed to execute get request script field [{}]", e, script);
                             }
+                            // ignore
                         }
                     }
                 }
+            }
 
-                return new GetResponse(index, type, id, get.version(), get.exists(), source == null ? null : new BytesHolder(source), fields);
-            } else {
-                BytesHolder source = get.source();
-                assert source != null;
-
-                Map<String, GetField> fields = null;
-                boolean sourceRequested = false;
-
-                // we can only load scripts that can run against the source
-                if (gFields != null && gFields.length > 0) {
-                    Map<String, Object> sourceAsMap = SourceLookup.sourceAsMap(source.bytes(), source.offset(), source.length());
-                    SearchLookup searchLookup = null;
-                    for (String field : gFields) {
-                        if (field.equals("_source")) {
-                            sourceRequested = true;
-                            continue;
+            return new GetResponse(index, type, id, get.version(), get.exists(), source == null ? null : new BytesHolder(source), fields);
+        } else {
+            BytesHolder source = get.source();
+            assert source != null;
+
+            Map<String, GetField> fields = null;
+            boolean sourceRequested = false;
+
+            // we can only load scripts that can run against the source
+            if (gFields != null && gFields.length > 0) {
+                Map<String, Object> sourceAsMap = SourceLookup.sourceAsMap(source.bytes(), source.offset(), source.length());
+                SearchLookup searchLookup = null;
+                for (String field : gFields) {
+                    if (field.equals("_source")) {
+                        sourceRequested = true;
+                        continue;
+                    }
+                    String script = null;
+                    if (field.contains("_source.")) {
+                        script = field;
+                    } else {
+                        FieldMappers x = docMapper.mappers().smartName(field);
+                        if (x != null) {
+                            script = "_source." + x.mapper().names().fullName();
                         }
-                        String script = null;
-                        if (field.contains("_source.")) {
-                            script = field;
-                        } else {
-                            FieldMappers x = docMapper.mappers().smartName(field);
-                            if (x != null) {
-                                script = "_source." + x.mapper().names().fullName();
-                            }
+                    }
+                    if (script != null) {
+                        if (searchLookup == null) {
+                            searchLookup = new SearchLookup(indexService.mapperService(), indexService.cache().fieldData());
                         }
-                        if (script != null) {
-                            if (searchLookup == null) {
-                                searchLookup = new SearchLookup(indexService.mapperService(), indexService.cache().fieldData());
+                        SearchScript searchScript = scriptService.search(searchLookup, "mvel", script, null);
+                        // we can't do this, only allow to run scripts against the source
+                        //searchScript.setNextReader(docIdAndVersion.reader);
+                        //searchScript.setNextDocId(docIdAndVersion.docId);
+
+                        // but, we need to inject the parsed source into the script, so it will be used...
+                        searchScript.setNextSource(sourceAsMap);
+
+                        try {
+                            Object value = searchScript.run();
+                            if (fields == null) {
+                                fields = newHashMapWithExpectedSize(2);
+                            }
+                            GetField getField = fields.get(field);
+                            if (getField == null) {
+                                getField = new GetField(field, new ArrayList<Object>(2));
+                                fields.put(field, getField);
                             }
-                            SearchScript searchScript = scriptService.search(searchLookup, "mvel", script, null);
-                            // we can't do this, only allow to run scripts against the source
-                            //searchScript.setNextReader(docIdAndVersion.reader);
-                            //searchScript.setNextDocId(docIdAndVersion.docId);
-
-                            // but, we need to inject the parsed source into the script, so it will be used...
-                            searchScript.setNextSource(sourceAsMap);
-
-                            try {
-                                Object value = searchScript.run();
-                                if (fields == null) {
-                                    fields = newHashMapWithExpectedSize(2);
-                                }
-                                GetField getField = fields.get(field);
-                                if (getField == null) {
-                                    getField = new GetField(field, new ArrayList<Object>(2));
-                                    fields.put(field, getField);
-                                }
-                                getField.values().add(value);
-                            } catch (RuntimeException e) {
-                                if (logger.isTraceEnabled()) {
-                                    logger.trace("failed to execute get request script field [{}]", e, script);
-                                }
-                                // ignore
+                            getField.values().add(value);
+                        } catch (RuntimeException e) {
+                            if (logger.isTraceEnabled()) {
+                                logger.trace("failed to execute get request script field [{}]", e, script);
                             }
+                            // ignore
                         }
                     }
-                } else {
-                    sourceRequested = true;
                 }
-
-                return new GetResponse(index, type, id, get.version(), get.exists(), sourceRequested ? source : null, fields);
-            }
-        } finally {
-            if (get.searcher() != null) {
-                get.searcher().release();
+            } else {
+                sourceRequested = true;
             }
+
+            return new GetResponse(index, type, id, get.version(), get.exists(), sourceRequested ? source : null, fields);
         }
     }
 
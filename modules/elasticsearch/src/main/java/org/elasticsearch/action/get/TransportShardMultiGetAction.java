@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.get;
 
+import org.apache.lucene.index.IndexReader;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
@@ -27,9 +28,13 @@ import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.operation.ResponseCollector;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.uid.UidField;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesService;
@@ -37,6 +42,11 @@ import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 public class TransportShardMultiGetAction extends TransportShardSingleOperationAction<MultiGetShardRequest, MultiGetShardResponse> {
 
     private final IndicesService indicesService;
@@ -46,8 +56,8 @@ public class TransportShardMultiGetAction extends TransportShardSingleOperationA
     private final boolean realtime;
 
     @Inject public TransportShardMultiGetAction(Settings settings, ClusterService clusterService, TransportService transportService,
-                                                IndicesService indicesService, ScriptService scriptService, ThreadPool threadPool) {
-        super(settings, threadPool, clusterService, transportService);
+                                                IndicesService indicesService, ScriptService scriptService, ThreadPool threadPool, ResponseCollector responseCollector) {
+        super(settings, threadPool, clusterService, transportService, responseCollector);
         this.indicesService = indicesService;
         this.scriptService = scriptService;
 
@@ -98,17 +108,92 @@ public class TransportShardMultiGetAction extends TransportShardSingleOperationA
             indexShard.refresh(new Engine.Refresh(false));
         }
 
-        MultiGetShardResponse response = new MultiGetShardResponse();
-        for (int i = 0; i < request.locations.size(); i++) {
+        int size = request.locations.size();
+        GetResponse[] responses = new GetResponse[size];
+        MultiGetResponse.Failure[] failures = new MultiGetResponse.Failure[size];
+
+        // the items with a type are resolved against the engine at once (the ones without one are checked
+        // against each type, one by one)
+        Engine.Get[] gets = new Engine.Get[size];
+        for (int i = 0; i < size; i++) {
             String type = request.types.get(i);
-            String id = request.ids.get(i);
-            String[] fields = request.fields.get(i);
-
-            try {
-                GetResponse getResponse = TransportGetAction.load(logger, scriptService, indexService, indexShard, request.index(), type, id, fields, request.realtime());
-                response.add(request.locations.get(i), getResponse);
-            } catch (Exception e) {
-                response.add(request.locations.get(i), new MultiGetResponse.Failure(request.index(), type, id, ExceptionsHelper.detailedMessage(e)));
+            if (type != null && !type.equals("_all")) {
+                gets[i] = new Engine.Get(request.realtime(), UidFieldMapper.TERM_FACTORY.createTerm(Uid.createUid(type, request.ids.get(i))));
+            }
+        }
+        Engine.MultiGet multiGet = new Engine.MultiGet(gets);
+        try {
+            indexShard.multiGet(multiGet);
+            final Engine.GetResult[] results = multiGet.results();
+
+            // build the responses of the docs loaded from the index in index order, for the locality of the stored fields
+            final Map<IndexReader, Integer> readerOrds = new IdentityHashMap<IndexReader, Integer>();
+            if (multiGet.searcher() != null) {
+                IndexReader[] subReaders = multiGet.searcher().searcher().subReaders();
+                for (int i = 0; i < subReaders.length; i++) {
+                    readerOrds.put(subReaders[i], i);
+                }
+            }
+            Integer[] order = new Integer[size];
+            int numberOfResults = 0;
+            for (int i = 0; i < size; i++) {
+                if (results[i] != null) {
+                    order[numberOfResults++] = i;
+                }
+            }
+            Arrays.sort(order, 0, numberOfResults, new Comparator<Integer>() {
+                @Override public int compare(Integer o1, Integer o2) {
+                    UidField.DocIdAndVersion doc1 = results[o1].docIdAndVersion();
+                    UidField.DocIdAndVersion doc2 = results[o2].docIdAndVersion();
+                    if (doc1 == null || doc2 == null) {
+                        // the ones that are not loaded from the index first
+                        return (doc1 == null ? 0 : 1) - (doc2 == null ? 0 : 1);
+                    }
+                    int cmp = readerOrds.get(doc1.reader) - readerOrds.get(doc2.reader);
+                    if (cmp != 0) {
+                        return cmp;
+                    }
+                    return doc1.docId - doc2.docId;
+                }
+            });
+            for (int j = 0; j < numberOfResults; j++) {
+                int i = order[j];
+                String type = request.types.get(i);
+                String id = request.ids.get(i);
+                if (!results[i].exists()) {
+                    responses[i] = new GetResponse(request.index(), type, id, -1, false, null, null);
+                    continue;
+                }
+                try {
+                    responses[i] = TransportGetAction.loadResult(logger, scriptService, indexService, request.index(), type, id, request.fields.get(i), results[i]);
+                } catch (Exception e) {
+                    failures[i] = new MultiGetResponse.Failure(request.index(), type, id, ExceptionsHelper.detailedMessage(e));
+                }
+            }
+        } catch (Exception e) {
+            // get the items one by one
+            logger.debug("failed to execute multi get of [{}] items, getting them one by one", e, size);
+            Arrays.fill(responses, null);
+            Arrays.fill(failures, null);
+        } finally {
+            multiGet.release();
+        }
+
+        MultiGetShardResponse response = new MultiGetShardResponse();
+        for (int i = 0; i < size; i++) {
+            if (responses[i] == null && failures[i] == null) {
+                String type = request.types.get(i);
+                String id = request.ids.get(i);
+                try {
+                    responses[i] = TransportGetAction.load(logger, scriptService, indexService, indexShard, request.index(), type, id, request.fields.get(i), request.realtime());
+                } catch (Exception e) {
+                    failures[i] = new MultiGetResponse.Failure(request.index(), type, id, ExceptionsHelper.detailedMessage(e));
+                }
+            }
+            if (failures[i] != null) {
+                response.add(request.locations.get(i), failures[i]);
+            } else {
+                response.add(request.locations.get(i), responses[i]);
             }
         }
 
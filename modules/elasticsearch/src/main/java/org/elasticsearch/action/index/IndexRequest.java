@@ -33,6 +33,7 @@ import org.elasticsearch.client.Requests;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Required;
+import org.elasticsearch.common.UUID;
 import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -129,6 +130,9 @@ public class IndexRequest extends ShardReplicationOperationRequest {
     private VersionType versionType = VersionType.INTERNAL;
     private String percolate;
 
+    private long autoGeneratedIdTimestamp = -1;
+    private boolean canHaveDuplicates;
+
     private XContentType contentType = Requests.INDEX_CONTENT_TYPE;
 
     public IndexRequest() {
@@ -509,6 +513,39 @@ public class IndexRequest extends ShardReplicationOperationRequest {
         return this.opType;
     }
 
+    /**
+     * Sets a generated id for the document, the document is then created (and can be appended to the index
+     * without checking if it already exists).
+     */
+    public IndexRequest generateId() {
+        id(UUID.randomBase64UUID());
+        opType(OpType.CREATE);
+        // never -1, which means the id was not generated
+        this.autoGeneratedIdTimestamp = Math.max(0, System.currentTimeMillis());
+        return this;
+    }
+
+    /**
+     * The time the id of the document was generated at (see {@link #generateId()}), <tt>-1</tt> if it was not.
+     */
+    public long autoGeneratedIdTimestamp() {
+        return this.autoGeneratedIdTimestamp;
+    }
+
+    /**
+     * Marks this request as retried, it might have been executed already.
+     */
+    public void canHaveDuplicates() {
+        this.canHaveDuplicates = true;
+    }
+
+    /**
+     * Was this request retried, and might have been executed already.
+     */
+    public boolean isCanHaveDuplicates() {
+        return this.canHaveDuplicates;
+    }
+
     /**
      * Should a refresh be executed post this index operation causing the operation to
      * be searchable. Note, heavy indexing should not set this to <tt>true</tt>. Defaults
@@ -609,6 +646,8 @@ public class IndexRequest extends ShardReplicationOperationRequest {
             percolate = in.readUTF();
         }
         versionType = VersionType.fromValue(in.readByte());
+        autoGeneratedIdTimestamp = in.readLong();
+        canHaveDuplicates = in.readBoolean();
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
@@ -644,6 +683,8 @@ public class IndexRequest extends ShardReplicationOperationRequest {
             out.writeUTF(percolate);
         }
         out.writeByte(versionType.getValue());
+        out.writeLong(autoGeneratedIdTimestamp);
+        out.writeBoolean(canHaveDuplicates);
     }
 
     @Override public String toString() {
@@ -36,7 +36,6 @@ import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.common.Strings;
-import org.elasticsearch.common.UUID;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.engine.Engine;
@@ -93,9 +92,8 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
     @Override protected void doExecute(final IndexRequest request, final ActionListener<IndexResponse> listener) {
         if (allowIdGeneration) {
             if (request.id() == null) {
-                request.id(UUID.randomBase64UUID());
-                // since we generate the id, change it to CREATE
-                request.opType(IndexRequest.OpType.CREATE);
+                // since we generate the id, it gets changed to CREATE
+                request.generateId();
             }
         }
         if (autoCreateIndex && !clusterService.state().metaData().hasConcreteIndex(request.index())) {
@@ -159,6 +157,10 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
         state.blocks().indexBlockedRaiseException(ClusterBlockLevel.WRITE, request.index());
     }
 
+    @Override protected void resolveRetry(IndexRequest request) {
+        request.canHaveDuplicates();
+    }
+
     @Override protected ShardIterator shards(ClusterState clusterState, IndexRequest request) {
         return clusterService.operationRouting()
                 .indexShards(clusterService.state(), request.index(), request.type(), request.id(), request.routing());
@@ -192,6 +194,8 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
             Engine.Create create = indexShard.prepareCreate(sourceToParse)
                     .version(request.version())
                     .versionType(request.versionType())
+                    .autoGeneratedIdTimestamp(request.autoGeneratedIdTimestamp())
+                    .canHaveDuplicates(request.isCanHaveDuplicates())
                     .origin(Engine.Operation.Origin.PRIMARY);
             indexShard.create(create);
             version = create.version();
@@ -241,6 +245,8 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
         } else {
             Engine.Create create = indexShard.prepareCreate(sourceToParse)
                     .version(request.version())
+                    .autoGeneratedIdTimestamp(request.autoGeneratedIdTimestamp())
+                    .canHaveDuplicates(request.isCanHaveDuplicates())
                     .origin(Engine.Operation.Origin.REPLICA);
             indexShard.create(create);
         }
@@ -263,7 +269,7 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
             }
             documentMapper.refreshSource();
 
-            mappingUpdatedAction.execute(new MappingUpdatedAction.MappingUpdatedRequest(request.index(), request.type(), documentMapper.mappingSource()), new ActionListener<MappingUpdatedAction.MappingUpdatedResponse>() {
+            mappingUpdatedAction.updateMappingOnMaster(request.index(), request.type(), documentMapper.mappingSource(), new ActionListener<MappingUpdatedAction.MappingUpdatedResponse>() {
                 @Override public void onResponse(MappingUpdatedAction.MappingUpdatedResponse mappingUpdatedResponse) {
                     // all is well
                     latch.countDown();
@@ -39,6 +39,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.io.stream.VoidStreamable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.IndexShardMissingException;
@@ -54,6 +55,10 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -78,9 +83,18 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
 
     final String transportAction;
     final String transportReplicaAction;
+    final String transportReplicaStreamAction;
     final String executor;
     final boolean checkWriteConsistency;
 
+    // replica operations sent over the replica streams, batching consecutive operations of a shard to a node
+    final boolean streamSyncReplication;
+    final int streamBatchSize;
+    final int streamMaxPending;
+    final TimeValue streamTimeout;
+
+    private final ConcurrentMap<String, ReplicaOperationStream> replicaStreams = ConcurrentCollections.newConcurrentMap();
+
     protected TransportShardReplicationOperationAction(Settings settings, TransportService transportService,
                                                        ClusterService clusterService, IndicesService indicesService,
                                                        ThreadPool threadPool, ShardStateAction shardStateAction) {
@@ -92,11 +106,18 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
 
         this.transportAction = transportAction();
         this.transportReplicaAction = transportReplicaAction();
+        this.transportReplicaStreamAction = transportReplicaAction + "/stream";
         this.executor = executor();
         this.checkWriteConsistency = checkWriteConsistency();
 
+        this.streamSyncReplication = settings.getAsBoolean("action.replication.stream.sync", false);
+        this.streamBatchSize = settings.getAsInt("action.replication.stream.batch_size", 100);
+        this.streamMaxPending = settings.getAsInt("action.replication.stream.max_pending", 10000);
+        this.streamTimeout = settings.getAsTime("action.replication.stream.timeout", TimeValue.timeValueMinutes(1));
+
         transportService.registerHandler(transportAction, new OperationTransportHandler());
         transportService.registerHandler(transportReplicaAction, new ReplicaOperationTransportHandler());
+        transportService.registerHandler(transportReplicaStreamAction, new ReplicaStreamOperationTransportHandler());
 
         this.defaultReplicationType = ReplicationType.fromString(settings.get("action.replication_type", "sync"));
         this.defaultWriteConsistencyLevel = WriteConsistencyLevel.fromString(settings.get("action.write_consistency", "quorum"));
@@ -133,6 +154,14 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
 
     }
 
+    /**
+     * Called before the operation is retried after it might have been (partially) executed on the primary shard
+     * already, for example when the connection to the node holding it got lost.
+     */
+    protected void resolveRetry(Request request) {
+
+    }
+
     protected TransportRequestOptions transportOptions() {
         return TransportRequestOptions.EMPTY;
     }
@@ -230,6 +259,301 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
         }
     }
 
+    /**
+     * Executes, in order, a batch of operations sent over a replica stream. The operations failing with an
+     * exception that is not ignored (see {@link #ignoreReplicaException(Throwable)}) are sent back.
+     */
+    class ReplicaStreamOperationTransportHandler extends BaseTransportRequestHandler<ReplicaStreamBatch> {
+
+        @Override public ReplicaStreamBatch newInstance() {
+            return new ReplicaStreamBatch();
+        }
+
+        @Override public String executor() {
+            return executor;
+        }
+
+        @Override public void messageReceived(final ReplicaStreamBatch batch, final TransportChannel channel) throws Exception {
+            if (logger.isTraceEnabled()) {
+                logger.trace("executing [{}] replica operations, starting at seq [{}]", batch.ops.size(), batch.seq);
+            }
+            ReplicaStreamBatchResponse response = new ReplicaStreamBatchResponse();
+            for (int i = 0; i < batch.ops.size(); i++) {
+                try {
+                    shardOperationOnReplica(batch.ops.get(i));
+                } catch (Exception e) {
+                    if (!ignoreReplicaException(e)) {
+                        response.add(i, detailedMessage(e));
+                    }
+                }
+            }
+            channel.sendResponse(response);
+        }
+    }
+
+    class ReplicaStreamBatch implements Streamable {
+
+        // the sequence number (within its stream) of the first operation of the batch
+        long seq;
+
+        List<ShardOperationRequest> ops;
+
+        ReplicaStreamBatch() {
+        }
+
+        ReplicaStreamBatch(long seq, List<ShardOperationRequest> ops) {
+            this.seq = seq;
+            this.ops = ops;
+        }
+
+        @Override public void readFrom(StreamInput in) throws IOException {
+            seq = in.readVLong();
+            int size = in.readVInt();
+            ops = new ArrayList<ShardOperationRequest>(size);
+            for (int i = 0; i < size; i++) {
+                ShardOperationRequest op = new ShardOperationRequest();
+                op.readFrom(in);
+                ops.add(op);
+            }
+        }
+
+        @Override public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(seq);
+            out.writeVInt(ops.size());
+            for (ShardOperationRequest op : ops) {
+                op.writeTo(out);
+            }
+        }
+    }
+
+    static class ReplicaStreamBatchResponse implements Streamable {
+
+        // the positions in the batch of the failed operations, and their failures
+        List<Integer> failedOps = new ArrayList<Integer>();
+
+        List<String> failures = new ArrayList<String>();
+
+        void add(int op, String failure) {
+            failedOps.add(op);
+            failures.add(failure);
+        }
+
+        @Override public void readFrom(StreamInput in) throws IOException {
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                add(in.readVInt(), in.readUTF());
+            }
+        }
+
+        @Override public void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(failedOps.size());
+            for (int i = 0; i < failedOps.size(); i++) {
+                out.writeVInt(failedOps.get(i));
+                out.writeUTF(failures.get(i));
+            }
+        }
+    }
+
+    /**
+     * An operation appended to a replica stream.
+     */
+    abstract class PendingReplicaOperation {
+
+        final ShardOperationRequest request;
+
+        // the replica shard the operation is performed on
+        final ShardRouting shard;
+
+        long seq;
+
+        PendingReplicaOperation(ShardOperationRequest request, ShardRouting shard) {
+            this.request = request;
+            this.shard = shard;
+        }
+
+        /**
+         * The operation was performed on the replica, or failed, in which case the replica shard has been failed
+         * already (once for the whole batch, see {@link ReplicaOperationStream}).
+         */
+        abstract void done();
+    }
+
+    /**
+     * The operations of a shard replicated to a node. Operations are appended in order, and sent in batches
+     * with a single batch in flight at a time: the operations appended while a batch is in flight are sent
+     * (together) once it is acknowledged. A stream with nothing left to send is closed and removed, a new one
+     * is created by the next operation. A batch that is not acknowledged within the stream timeout fails the
+     * replica, like a batch with failed operations does.
+     */
+    class ReplicaOperationStream {
+
+        private final String key;
+
+        private final DiscoveryNode node;
+
+        private final LinkedList<PendingReplicaOperation> pending = new LinkedList<PendingReplicaOperation>();
+
+        private boolean inFlight;
+
+        private boolean closed;
+
+        private long nextSeq;
+
+        ReplicaOperationStream(String key, DiscoveryNode node) {
+            this.key = key;
+            this.node = node;
+        }
+
+        synchronized boolean full() {
+            return pending.size() >= streamMaxPending;
+        }
+
+        /**
+         * Appends the operation, returns <tt>false</tt> if the stream got closed.
+         */
+        boolean append(PendingReplicaOperation op) {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                op.seq = nextSeq++;
+                pending.add(op);
+                if (inFlight) {
+                    return true;
+                }
+                inFlight = true;
+            }
+            sendNext();
+            return true;
+        }
+
+        private void sendNext() {
+            final List<PendingReplicaOperation> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    inFlight = false;
+                    closed = true;
+                    replicaStreams.remove(key, this);
+                    return;
+                }
+                batch = new ArrayList<PendingReplicaOperation>(Math.min(pending.size(), streamBatchSize));
+                while (!pending.isEmpty() && batch.size() < streamBatchSize) {
+                    batch.add(pending.removeFirst());
+                }
+            }
+            List<ShardOperationRequest> ops = new ArrayList<ShardOperationRequest>(batch.size());
+            for (PendingReplicaOperation op : batch) {
+                ops.add(op.request);
+            }
+            // don't change the (possibly shared) options of the action
+            TransportRequestOptions options = transportOptions();
+            options = TransportRequestOptions.options().withCompress(options.compress()).withType(options.type()).withTimeout(streamTimeout);
+            transportService.sendRequest(node, transportReplicaStreamAction, new ReplicaStreamBatch(batch.get(0).seq, ops), options, new BaseTransportResponseHandler<ReplicaStreamBatchResponse>() {
+                @Override public ReplicaStreamBatchResponse newInstance() {
+                    return new ReplicaStreamBatchResponse();
+                }
+
+                @Override public String executor() {
+                    return ThreadPool.Names.SAME;
+                }
+
+                @Override public void handleResponse(ReplicaStreamBatchResponse response) {
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("replica stream [{}] to [{}] acknowledged up to seq [{}]", key, node, batch.get(batch.size() - 1).seq);
+                    }
+                    if (!response.failedOps.isEmpty()) {
+                        failReplicas(batch, response.failedOps.size() + " operations failed, first failure [" + response.failures.get(0) + "]");
+                    }
+                    batchDone(batch);
+                }
+
+                @Override public void handleException(TransportException exp) {
+                    if (!ignoreReplicaException(exp.unwrapCause())) {
+                        failReplicas(batch, detailedMessage(exp));
+                    }
+                    batchDone(batch);
+                }
+            });
+        }
+
+        /**
+         * Fails the replica shards the operations of the batch were performed on, once per batch.
+         */
+        private void failReplicas(List<PendingReplicaOperation> batch, String failure) {
+            List<ShardRouting> shards = new ArrayList<ShardRouting>(1);
+            for (PendingReplicaOperation op : batch) {
+                if (!shards.contains(op.shard)) {
+                    shards.add(op.shard);
+                }
+            }
+            for (ShardRouting shard : shards) {
+                logger.warn("Failed to perform " + transportAction + " on replica " + shard.shardId() + " over replica stream [" + key + "], message [" + failure + "]");
+                shardStateAction.shardFailed(shard, "Failed to perform [" + transportAction + "] on replica, message [" + failure + "]");
+            }
+        }
+
+        private void batchDone(List<PendingReplicaOperation> batch) {
+            for (PendingReplicaOperation op : batch) {
+                op.done();
+            }
+            sendNext();
+        }
+    }
+
+    /**
+     * Appends the operation to the replica stream of the shard to the node, returns <tt>false</tt> if the stream
+     * has too many pending operations (in which case the operation should be sent on its own).
+     */
+    private boolean appendToReplicaStream(ShardId shardId, DiscoveryNode node, PendingReplicaOperation op) {
+        String key = shardId.index().name() + "/" + shardId.id() + "/" + node.id();
+        while (true) {
+            ReplicaOperationStream stream = replicaStreams.get(key);
+            if (stream == null) {
+                stream = new ReplicaOperationStream(key, node);
+                ReplicaOperationStream existing = replicaStreams.putIfAbsent(key, stream);
+                if (existing != null) {
+                    stream = existing;
+                }
+            }
+            if (stream.full()) {
+                return false;
+            }
+            if (stream.append(op)) {
+                return true;
+            }
+            // the stream got closed, retry with a new one
+        }
+    }
+
+    /**
+     * Should an exception be ignored when the operation is performed on the replica.
+     */
+    private boolean ignoreReplicaException(Throwable e) {
+        Throwable cause = ExceptionsHelper.unwrapCause(e);
+        if (cause instanceof IllegalIndexShardStateException) {
+            return true;
+        }
+        if (cause instanceof IndexMissingException) {
+            return true;
+        }
+        if (cause instanceof IndexShardMissingException) {
+            return true;
+        }
+        if (cause instanceof ConnectTransportException) {
+            return true;
+        }
+        // on version conflict or document missing, it means
+        // that a news change has crept into the replica, and its fine
+        if (cause instanceof VersionConflictEngineException) {
+            return true;
+        }
+        // same here
+        if (cause instanceof DocumentAlreadyExistsEngineException) {
+            return true;
+        }
+        return false;
+    }
+
     protected class AsyncShardOperationAction {
 
         private final ActionListener<Response> listener;
@@ -355,6 +679,8 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
                             if (exp.unwrapCause() instanceof ConnectTransportException || exp.unwrapCause() instanceof NodeClosedException ||
                                     exp.unwrapCause() instanceof IllegalIndexShardStateException) {
                                 primaryOperationStarted.set(false);
+                                // the operation might have been executed on the node before it failed
+                                resolveRetry(request);
                                 // we already marked it as started when we executed it (removed the listener) so pass false
                                 // to re-add to the cluster listener
                                 retry(false, shard.shardId());
@@ -420,6 +746,7 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
             } catch (Exception e) {
                 // shard has not been allocated yet, retry it here
                 if (e instanceof IndexShardMissingException || e instanceof IllegalIndexShardStateException || e instanceof IndexMissingException) {
+                    resolveRetry(request);
                     retry(fromDiscoveryListener, shard.shardId());
                     return;
                 }
@@ -531,6 +858,15 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
             final ShardOperationRequest shardRequest = new ShardOperationRequest(shardIt.shardId().id(), request);
             if (!nodeId.equals(nodes.localNodeId())) {
                 DiscoveryNode node = nodes.get(nodeId);
+                if ((replicationType == ReplicationType.ASYNC || streamSyncReplication) && appendToReplicaStream(shardIt.shardId(), node, new PendingReplicaOperation(shardRequest, shard) {
+                    @Override void done() {
+                        if (counter.decrementAndGet() == 0) {
+                            listener.onResponse(response.response());
+                        }
+                    }
+                })) {
+                    return;
+                }
                 transportService.sendRequest(node, transportReplicaAction, shardRequest, transportOptions(), new VoidTransportResponseHandler(ThreadPool.Names.SAME) {
                     @Override public void handleResponse(VoidStreamable vResponse) {
                         finishIfPossible();
@@ -583,35 +919,6 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
                 }
             }
         }
-
-        /**
-         * Should an exception be ignored when the operation is performed on the replica.
-         */
-        private boolean ignoreReplicaException(Throwable e) {
-            Throwable cause = ExceptionsHelper.unwrapCause(e);
-            if (cause instanceof IllegalIndexShardStateException) {
-                return true;
-            }
-            if (cause instanceof IndexMissingException) {
-                return true;
-            }
-            if (cause instanceof IndexShardMissingException) {
-                return true;
-            }
-            if (cause instanceof ConnectTransportException) {
-                return true;
-            }
-            // on version conflict or document missing, it means
-            // that a news change has crept into the replica, and its fine
-            if (cause instanceof VersionConflictEngineException) {
-                return true;
-            }
-            // same here
-            if (cause instanceof DocumentAlreadyExistsEngineException) {
-                return true;
-            }
-            return false;
-        }
     }
 
     public static class PrimaryResponse<T> {
@@ -30,6 +30,9 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.operation.ResponseCollector;
+import org.elasticsearch.cluster.routing.operation.ServiceTimedResponse;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -52,14 +55,26 @@ public abstract class TransportShardSingleOperationAction<Request extends Single
 
     protected final TransportService transportService;
 
+    @Nullable protected final ResponseCollector responseCollector;
+
     final String transportAction;
     final String transportShardAction;
     final String executor;
 
     protected TransportShardSingleOperationAction(Settings settings, ThreadPool threadPool, ClusterService clusterService, TransportService transportService) {
+        this(settings, threadPool, clusterService, transportService, null);
+    }
+
+    /**
+     * @param responseCollector If provided, the response and service times of shard operations executed on other
+     *                          nodes are collected, and used to rank the shard copies
+     */
+    protected TransportShardSingleOperationAction(Settings settings, ThreadPool threadPool, ClusterService clusterService, TransportService transportService,
+                                                  @Nullable ResponseCollector responseCollector) {
         super(settings, threadPool);
         this.clusterService = clusterService;
         this.transportService = transportService;
+        this.responseCollector = responseCollector;
 
         this.transportAction = transportAction();
         this.transportShardAction = transportShardAction();
@@ -169,22 +184,32 @@ public abstract class TransportShardSingleOperationAction<Request extends Single
                 final ShardRouting shard = shardIt.nextActive();
                 // no need to check for local nodes, we tried them already in performFirstGet
                 if (!shard.currentNodeId().equals(nodes.localNodeId())) {
-                    DiscoveryNode node = nodes.get(shard.currentNodeId());
-                    transportService.sendRequest(node, transportShardAction, new ShardSingleOperationRequest(request, shard.id()), new BaseTransportResponseHandler<Response>() {
+                    final DiscoveryNode node = nodes.get(shard.currentNodeId());
+                    final long start = System.nanoTime();
+                    if (responseCollector != null) {
+                        responseCollector.requestSent(node.id());
+                    }
+                    transportService.sendRequest(node, transportShardAction, new ShardSingleOperationRequest(request, shard.id()), new BaseTransportResponseHandler<ServiceTimedResponse<Response>>() {
 
-                        @Override public Response newInstance() {
-                            return newResponse();
+                        @Override public ServiceTimedResponse<Response> newInstance() {
+                            return new ServiceTimedResponse<Response>(newResponse());
                         }
 
                         @Override public String executor() {
                             return ThreadPool.Names.SAME;
                         }
 
-                        @Override public void handleResponse(final Response response) {
-                            listener.onResponse(response);
+                        @Override public void handleResponse(final ServiceTimedResponse<Response> response) {
+                            if (responseCollector != null) {
+                                responseCollector.responseReceived(node.id(), System.nanoTime() - start, response.serviceTimeInNanos());
+                            }
+                            listener.onResponse(response.response());
                         }
 
                         @Override public void handleException(TransportException exp) {
+                            if (responseCollector != null) {
+                                responseCollector.requestFailed(node.id());
+                            }
                             onFailure(shard, exp);
                         }
                     });
@@ -251,8 +276,9 @@ public abstract class TransportShardSingleOperationAction<Request extends Single
         }
 
         @Override public void messageReceived(final ShardSingleOperationRequest request, final TransportChannel channel) throws Exception {
+            long start = System.nanoTime();
             Response response = shardOperation(request.request(), request.shardId());
-            channel.sendResponse(response);
+            channel.sendResponse(new ServiceTimedResponse<Response>(response, System.nanoTime() - start));
         }
     }
 
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.cache;
 
+import org.elasticsearch.cache.memory.BlockCache;
 import org.elasticsearch.cache.memory.ByteBufferCache;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterService;
@@ -36,22 +37,30 @@ public class NodeCache extends AbstractComponent implements ClusterStateListener
 
     private final ByteBufferCache byteBufferCache;
 
-    @Inject public NodeCache(Settings settings, ByteBufferCache byteBufferCache, ClusterService clusterService) {
+    private final BlockCache blockCache;
+
+    @Inject public NodeCache(Settings settings, ByteBufferCache byteBufferCache, BlockCache blockCache, ClusterService clusterService) {
         super(settings);
         this.clusterService = clusterService;
         this.byteBufferCache = byteBufferCache;
+        this.blockCache = blockCache;
         clusterService.add(this);
     }
 
     public void close() {
         clusterService.remove(this);
         byteBufferCache.close();
+        blockCache.close();
     }
 
     public ByteBufferCache byteBuffer() {
         return byteBufferCache;
     }
 
+    public BlockCache block() {
+        return blockCache;
+    }
+
     @Override public void clusterChanged(ClusterChangedEvent event) {
     }
 }
@@ -0,0 +1,420 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cache.memory;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A node level, fixed size, block cache. Files are cached in fixed size blocks keyed by the
+ * (file, block) pair, and blocks are evicted using the clock (second chance LRU) algorithm
+ * once the cache is full. The cache is shared by all the shards allocated on the node.
+ *
+ * <p>Blocks are only copied into the cache buffers on a miss, reads validate after copying
+ * that the block was not evicted while it was being copied, and treat it as a miss if it was.
+ *
+ * <p>There is no cache wide lock, a thread takes exclusive ownership of a slot by moving its state
+ * from {@link #FREE} or {@link #CACHED} to {@link #CLAIMED} (using compare and set) before filling
+ * or releasing it. The slots holding the blocks of each file are tracked so a file can be invalidated
+ * without scanning the whole cache.
+ */
+public class BlockCache extends AbstractComponent {
+
+    // the slot is not allocated yet, or is in the free slots queue
+    private static final int FREE = 0;
+
+    // the slot is owned by a thread filling or releasing it
+    private static final int CLAIMED = 1;
+
+    // the slot holds a cached block
+    private static final int CACHED = 2;
+
+    private final boolean direct;
+
+    private final int blockSize;
+
+    private final int numberOfBlocks;
+
+    private final ConcurrentMap<BlockKey, Integer> blocks;
+
+    private final ConcurrentMapLong<Set<Integer>> fileSlots = ConcurrentCollections.newConcurrentMapLong();
+
+    private final ByteBuffer[] buffers;
+
+    private final AtomicIntegerArray slotStates;
+
+    private final AtomicReferenceArray<BlockKey> slotKeys;
+
+    private final Owner[] slotOwners;
+
+    private final int[] slotLengths;
+
+    private final AtomicIntegerArray referenced;
+
+    private final ConcurrentLinkedQueue<Integer> freeSlots = new ConcurrentLinkedQueue<Integer>();
+
+    private final AtomicInteger allocatedSlots = new AtomicInteger();
+
+    private final AtomicInteger clockHand = new AtomicInteger();
+
+    private final AtomicLong fileIdGenerator = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public BlockCache() {
+        this(ImmutableSettings.Builder.EMPTY_SETTINGS);
+    }
+
+    // really, for testing...
+    public BlockCache(int blockSizeInBytes, int cacheSizeInBytes, boolean direct) {
+        this(ImmutableSettings.settingsBuilder()
+                .put("cache.block.block_size", blockSizeInBytes)
+                .put("cache.block.size", cacheSizeInBytes)
+                .put("cache.block.direct", direct).build());
+    }
+
+    @Inject public BlockCache(Settings settings) {
+        super(settings);
+
+        this.direct = componentSettings.getAsBoolean("direct", true);
+        ByteSizeValue blockSize = componentSettings.getAsBytesSize("block_size", new ByteSizeValue(16, ByteSizeUnit.KB));
+        ByteSizeValue size = componentSettings.getAsBytesSize("size", new ByteSizeValue(256, ByteSizeUnit.MB));
+        this.blockSize = (int) blockSize.bytes();
+        this.numberOfBlocks = Math.max(1, (int) (size.bytes() / blockSize.bytes()));
+
+        this.blocks = new ConcurrentHashMap<BlockKey, Integer>(Math.min(numberOfBlocks, 1024));
+        // buffers are allocated lazily, the cache only takes the memory it actually uses
+        this.buffers = new ByteBuffer[numberOfBlocks];
+        this.slotStates = new AtomicIntegerArray(numberOfBlocks);
+        this.slotKeys = new AtomicReferenceArray<BlockKey>(numberOfBlocks);
+        this.slotOwners = new Owner[numberOfBlocks];
+        this.slotLengths = new int[numberOfBlocks];
+        this.referenced = new AtomicIntegerArray(numberOfBlocks);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("using block cache with block_size [{}], size [{}], number_of_blocks [{}], direct [{}]", blockSize, size, numberOfBlocks, direct);
+        }
+    }
+
+    public boolean direct() {
+        return this.direct;
+    }
+
+    /**
+     * The size (in bytes) of each cached block.
+     */
+    public int blockSize() {
+        return this.blockSize;
+    }
+
+    /**
+     * The maximum number of blocks the cache can hold.
+     */
+    public int numberOfBlocks() {
+        return this.numberOfBlocks;
+    }
+
+    /**
+     * Returns a new unique id to be used to identify a (opened) file within the cache.
+     */
+    public long newFileId() {
+        return fileIdGenerator.incrementAndGet();
+    }
+
+    /**
+     * Reads <tt>length</tt> bytes from the cached block, starting at <tt>blockOffset</tt> within the
+     * block. Returns <tt>false</tt> if the block is not cached (and nothing should be assumed on
+     * the content of the provided byte array).
+     */
+    public boolean read(Owner owner, long fileId, long block, int blockOffset, byte[] b, int offset, int length) {
+        BlockKey key = new BlockKey(fileId, block);
+        Integer slot = blocks.get(key);
+        // reading the key first makes the slot length and buffer set before it was published visible
+        if (slot == null || !key.equals(slotKeys.get(slot))) {
+            owner.misses.incrementAndGet();
+            return false;
+        }
+        if (blockOffset + length > slotLengths[slot]) {
+            owner.misses.incrementAndGet();
+            return false;
+        }
+        ByteBuffer buffer = buffers[slot];
+        if (buffer == null) {
+            // cache was closed
+            owner.misses.incrementAndGet();
+            return false;
+        }
+        buffer = buffer.duplicate();
+        buffer.position(blockOffset);
+        buffer.get(b, offset, length);
+        // the slot might have been evicted (and reused) while we were copying it
+        if (!key.equals(slotKeys.get(slot))) {
+            owner.misses.incrementAndGet();
+            return false;
+        }
+        referenced.set(slot, 1);
+        owner.hits.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Caches the provided block, evicting other blocks if needed.
+     */
+    public void put(Owner owner, long fileId, long block, byte[] b, int offset, int length) {
+        if (length > blockSize || closed) {
+            return;
+        }
+        BlockKey key = new BlockKey(fileId, block);
+        if (blocks.containsKey(key)) {
+            return;
+        }
+        int slot = claimSlot();
+        if (slot == -1) {
+            // all the blocks are being read or claimed by other threads, just don't cache it
+            return;
+        }
+        ByteBuffer buffer = buffers[slot];
+        if (buffer == null) {
+            // cache was closed
+            freeSlot(slot);
+            return;
+        }
+        buffer = buffer.duplicate();
+        buffer.clear();
+        buffer.put(b, offset, length);
+        slotLengths[slot] = length;
+        slotOwners[slot] = owner;
+        referenced.set(slot, 0);
+        slotKeys.set(slot, key);
+        if (blocks.putIfAbsent(key, slot) != null) {
+            // cached by another thread in the meantime
+            slotKeys.set(slot, null);
+            slotOwners[slot] = null;
+            freeSlot(slot);
+            return;
+        }
+        addFileSlot(fileId, slot);
+        owner.cachedBlocks.incrementAndGet();
+        owner.cachedBytes.addAndGet(length);
+        slotStates.set(slot, CACHED);
+    }
+
+    /**
+     * Removes all the blocks cached for the provided file id, called when a file is deleted.
+     */
+    public void invalidate(long fileId) {
+        Set<Integer> slots = fileSlots.remove(fileId);
+        if (slots == null) {
+            return;
+        }
+        for (int slot : slots) {
+            if (!slotStates.compareAndSet(slot, CACHED, CLAIMED)) {
+                // already being evicted or invalidated
+                continue;
+            }
+            BlockKey key = slotKeys.get(slot);
+            if (key != null && key.fileId == fileId) {
+                releaseSlot(slot);
+                freeSlot(slot);
+            } else {
+                // reused for another file since
+                slotStates.set(slot, CACHED);
+            }
+        }
+    }
+
+    /**
+     * Removes all the blocks cached for the provided owner, called when a shard store is closed.
+     */
+    public void invalidate(Owner owner) {
+        int allocated = allocatedSlots.get();
+        for (int slot = 0; slot < allocated; slot++) {
+            if (!slotStates.compareAndSet(slot, CACHED, CLAIMED)) {
+                continue;
+            }
+            if (slotOwners[slot] == owner) {
+                releaseSlot(slot);
+                freeSlot(slot);
+            } else {
+                slotStates.set(slot, CACHED);
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        blocks.clear();
+        fileSlots.clear();
+        freeSlots.clear();
+        int allocated = allocatedSlots.get();
+        for (int slot = 0; slot < allocated; slot++) {
+            slotKeys.set(slot, null);
+            slotOwners[slot] = null;
+            buffers[slot] = null;
+        }
+    }
+
+    /**
+     * Returns a slot in the {@link #CLAIMED} state, or <tt>-1</tt> if none could be claimed.
+     */
+    private int claimSlot() {
+        Integer freeSlot = freeSlots.poll();
+        if (freeSlot != null) {
+            slotStates.set(freeSlot, CLAIMED);
+            return freeSlot;
+        }
+        while (true) {
+            int slot = allocatedSlots.get();
+            if (slot >= numberOfBlocks) {
+                break;
+            }
+            if (allocatedSlots.compareAndSet(slot, slot + 1)) {
+                buffers[slot] = direct ? ByteBuffer.allocateDirect(blockSize) : ByteBuffer.allocate(blockSize);
+                slotStates.set(slot, CLAIMED);
+                return slot;
+            }
+        }
+        // clock eviction, give a second chance to blocks that were read since the hand last passed,
+        // and skip slots claimed by other threads, two rounds are enough unless they keep being read
+        for (int i = 0; i < 2 * numberOfBlocks; i++) {
+            int slot = (clockHand.getAndIncrement() & Integer.MAX_VALUE) % numberOfBlocks;
+            if (referenced.getAndSet(slot, 0) == 1) {
+                continue;
+            }
+            if (slotStates.compareAndSet(slot, CACHED, CLAIMED)) {
+                slotOwners[slot].evictions.incrementAndGet();
+                releaseSlot(slot);
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void freeSlot(int slot) {
+        slotStates.set(slot, FREE);
+        freeSlots.offer(slot);
+    }
+
+    /**
+     * Releases the block held by the slot, which must be claimed by the calling thread.
+     */
+    private void releaseSlot(int slot) {
+        BlockKey key = slotKeys.get(slot);
+        blocks.remove(key, slot);
+        removeFileSlot(key.fileId, slot);
+        slotKeys.set(slot, null);
+        Owner owner = slotOwners[slot];
+        owner.cachedBlocks.decrementAndGet();
+        owner.cachedBytes.addAndGet(-slotLengths[slot]);
+        slotOwners[slot] = null;
+        referenced.set(slot, 0);
+    }
+
+    private void addFileSlot(long fileId, int slot) {
+        while (true) {
+            Set<Integer> slots = fileSlots.get(fileId);
+            if (slots == null) {
+                Set<Integer> newSlots = ConcurrentCollections.newConcurrentSet();
+                slots = fileSlots.putIfAbsent(fileId, newSlots);
+                if (slots == null) {
+                    slots = newSlots;
+                }
+            }
+            slots.add(slot);
+            if (fileSlots.get(fileId) == slots) {
+                return;
+            }
+            // the set was removed (emptied by eviction, or the file invalidated) while we added to it, use a new one
+            slots.remove(slot);
+        }
+    }
+
+    private void removeFileSlot(long fileId, int slot) {
+        Set<Integer> slots = fileSlots.get(fileId);
+        if (slots == null) {
+            return;
+        }
+        slots.remove(slot);
+        if (slots.isEmpty()) {
+            fileSlots.remove(fileId, slots);
+        }
+    }
+
+    /**
+     * The owner of cached blocks (usually, a shard store), used to account hits, misses and evictions.
+     */
+    public static class Owner {
+
+        final AtomicLong hits = new AtomicLong();
+
+        final AtomicLong misses = new AtomicLong();
+
+        final AtomicLong evictions = new AtomicLong();
+
+        final AtomicLong cachedBlocks = new AtomicLong();
+
+        final AtomicLong cachedBytes = new AtomicLong();
+
+        public BlockCacheStats stats() {
+            return new BlockCacheStats(hits.get(), misses.get(), evictions.get(), cachedBytes.get());
+        }
+    }
+
+    static class BlockKey {
+
+        final long fileId;
+
+        final long block;
+
+        BlockKey(long fileId, long block) {
+            this.fileId = fileId;
+            this.block = block;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            BlockKey that = (BlockKey) o;
+            return fileId == that.fileId && block == that.block;
+        }
+
+        @Override public int hashCode() {
+            int result = (int) (fileId ^ (fileId >>> 32));
+            result = 31 * result + (int) (block ^ (block >>> 32));
+            return result;
+        }
+    }
+}
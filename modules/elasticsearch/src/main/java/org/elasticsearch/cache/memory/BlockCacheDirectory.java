@@ -0,0 +1,237 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cache.memory;
+
+import org.apache.lucene.store.BufferedIndexInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.LockFactory;
+import org.elasticsearch.index.store.support.ForceSyncDirectory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A directory that serves reads of the delegate directory through the node level {@link BlockCache}.
+ * Writes go directly to the delegate directory, and cached blocks of a file are invalidated when it
+ * is deleted (or overridden).
+ */
+public class BlockCacheDirectory extends Directory implements ForceSyncDirectory {
+
+    private final Directory delegate;
+
+    private final BlockCache blockCache;
+
+    private final BlockCache.Owner owner = new BlockCache.Owner();
+
+    private final ConcurrentMap<String, Long> fileIds = new ConcurrentHashMap<String, Long>();
+
+    public BlockCacheDirectory(Directory delegate, BlockCache blockCache) {
+        this.delegate = delegate;
+        this.blockCache = blockCache;
+        this.lockFactory = delegate.getLockFactory();
+    }
+
+    public Directory delegate() {
+        return delegate;
+    }
+
+    public BlockCacheStats stats() {
+        return owner.stats();
+    }
+
+    @Override public String[] listAll() throws IOException {
+        return delegate.listAll();
+    }
+
+    @Override public boolean fileExists(String name) throws IOException {
+        return delegate.fileExists(name);
+    }
+
+    @Override public long fileModified(String name) throws IOException {
+        return delegate.fileModified(name);
+    }
+
+    @Override public void touchFile(String name) throws IOException {
+        delegate.touchFile(name);
+    }
+
+    @Override public void deleteFile(String name) throws IOException {
+        invalidate(name);
+        delegate.deleteFile(name);
+    }
+
+    @Override public long fileLength(String name) throws IOException {
+        return delegate.fileLength(name);
+    }
+
+    @Override public IndexOutput createOutput(String name) throws IOException {
+        invalidate(name);
+        return delegate.createOutput(name);
+    }
+
+    @Override public IndexInput openInput(String name) throws IOException {
+        return openInput(name, BufferedIndexInput.BUFFER_SIZE);
+    }
+
+    @Override public IndexInput openInput(String name, int bufferSize) throws IOException {
+        if (!cacheFile(name)) {
+            return delegate.openInput(name, bufferSize);
+        }
+        Long fileId = fileIds.get(name);
+        if (fileId == null) {
+            fileId = blockCache.newFileId();
+            Long existing = fileIds.putIfAbsent(name, fileId);
+            if (existing != null) {
+                fileId = existing;
+            }
+        }
+        return new BlockCacheIndexInput(delegate.openInput(name, bufferSize), fileId);
+    }
+
+    @Override public void sync(Collection<String> names) throws IOException {
+        delegate.sync(names);
+    }
+
+    @Override public void sync(String name) throws IOException {
+        delegate.sync(name);
+    }
+
+    @Override public void forceSync(String name) throws IOException {
+        if (delegate instanceof ForceSyncDirectory) {
+            ((ForceSyncDirectory) delegate).forceSync(name);
+        } else {
+            delegate.sync(name);
+        }
+    }
+
+    @Override public Lock makeLock(String name) {
+        return delegate.makeLock(name);
+    }
+
+    @Override public void clearLock(String name) throws IOException {
+        delegate.clearLock(name);
+    }
+
+    @Override public void setLockFactory(LockFactory lockFactory) throws IOException {
+        delegate.setLockFactory(lockFactory);
+    }
+
+    @Override public LockFactory getLockFactory() {
+        return delegate.getLockFactory();
+    }
+
+    @Override public String getLockID() {
+        return delegate.getLockID();
+    }
+
+    @Override public void close() throws IOException {
+        try {
+            delegate.close();
+        } finally {
+            fileIds.clear();
+            blockCache.invalidate(owner);
+        }
+    }
+
+    /**
+     * Segments files (and the deletion files) are small and rewritten, no need to cache them.
+     */
+    private boolean cacheFile(String name) {
+        return !(name.startsWith("segments") || name.endsWith(".del") || name.endsWith(".lock"));
+    }
+
+    private void invalidate(String name) {
+        Long fileId = fileIds.remove(name);
+        if (fileId != null) {
+            blockCache.invalidate(fileId);
+        }
+    }
+
+    class BlockCacheIndexInput extends BufferedIndexInput {
+
+        private IndexInput input;
+
+        private final long fileId;
+
+        private final long length;
+
+        private final int blockSize;
+
+        private byte[] blockBuffer;
+
+        BlockCacheIndexInput(IndexInput input, long fileId) {
+            super(blockCache.blockSize());
+            this.input = input;
+            this.fileId = fileId;
+            this.length = input.length();
+            this.blockSize = blockCache.blockSize();
+        }
+
+        @Override protected void readInternal(byte[] b, int offset, int len) throws IOException {
+            long position = getFilePointer();
+            if (position + len > length) {
+                throw new IOException("read past EOF");
+            }
+            while (len > 0) {
+                long block = position / blockSize;
+                int blockOffset = (int) (position % blockSize);
+                int toRead = Math.min(len, blockSize - blockOffset);
+                if (!blockCache.read(owner, fileId, block, blockOffset, b, offset, toRead)) {
+                    long blockStart = block * blockSize;
+                    int blockLength = (int) Math.min(blockSize, length - blockStart);
+                    if (blockBuffer == null) {
+                        blockBuffer = new byte[blockSize];
+                    }
+                    input.seek(blockStart);
+                    input.readBytes(blockBuffer, 0, blockLength);
+                    blockCache.put(owner, fileId, block, blockBuffer, 0, blockLength);
+                    System.arraycopy(blockBuffer, blockOffset, b, offset, toRead);
+                }
+                position += toRead;
+                offset += toRead;
+                len -= toRead;
+            }
+        }
+
+        @Override protected void seekInternal(long pos) throws IOException {
+            // nothing to do here, we read based on the file pointer
+        }
+
+        @Override public long length() {
+            return length;
+        }
+
+        @Override public void close() throws IOException {
+            input.close();
+        }
+
+        @Override public Object clone() {
+            BlockCacheIndexInput clone = (BlockCacheIndexInput) super.clone();
+            clone.input = (IndexInput) input.clone();
+            clone.blockBuffer = null;
+            return clone;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cache.memory;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Statistics of the {@link BlockCache} usage, aggregated per shard and index.
+ */
+public class BlockCacheStats implements Streamable, ToXContent {
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long size;
+
+    public BlockCacheStats() {
+
+    }
+
+    public BlockCacheStats(long hits, long misses, long evictions, long size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    public void add(BlockCacheStats stats) {
+        if (stats == null) {
+            return;
+        }
+        this.hits += stats.hits;
+        this.misses += stats.misses;
+        this.evictions += stats.evictions;
+        this.size += stats.size;
+    }
+
+    /**
+     * The number of block reads served from the cache.
+     */
+    public long hits() {
+        return this.hits;
+    }
+
+    public long getHits() {
+        return hits();
+    }
+
+    /**
+     * The number of block reads that had to go to the file system.
+     */
+    public long misses() {
+        return this.misses;
+    }
+
+    public long getMisses() {
+        return misses();
+    }
+
+    /**
+     * The number of blocks evicted from the cache to make room for other blocks.
+     */
+    public long evictions() {
+        return this.evictions;
+    }
+
+    public long getEvictions() {
+        return evictions();
+    }
+
+    /**
+     * The ratio of block reads served from the cache, <tt>0</tt> if there were no reads.
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        if (total == 0) {
+            return 0;
+        }
+        return ((double) hits) / total;
+    }
+
+    public double getHitRate() {
+        return hitRate();
+    }
+
+    public long sizeInBytes() {
+        return this.size;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes();
+    }
+
+    /**
+     * The size of the blocks currently held in the cache.
+     */
+    public ByteSizeValue size() {
+        return new ByteSizeValue(size);
+    }
+
+    public ByteSizeValue getSize() {
+        return size();
+    }
+
+    public static BlockCacheStats readBlockCacheStats(StreamInput in) throws IOException {
+        BlockCacheStats stats = new BlockCacheStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.BLOCK_CACHE);
+        builder.field(Fields.HITS, hits);
+        builder.field(Fields.MISSES, misses);
+        builder.field(Fields.HIT_RATE, hitRate());
+        builder.field(Fields.EVICTIONS, evictions);
+        builder.field(Fields.SIZE, size().toString());
+        builder.field(Fields.SIZE_IN_BYTES, size);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString BLOCK_CACHE = new XContentBuilderString("block_cache");
+        static final XContentBuilderString HITS = new XContentBuilderString("hits");
+        static final XContentBuilderString MISSES = new XContentBuilderString("misses");
+        static final XContentBuilderString HIT_RATE = new XContentBuilderString("hit_rate");
+        static final XContentBuilderString EVICTIONS = new XContentBuilderString("evictions");
+        static final XContentBuilderString SIZE = new XContentBuilderString("size");
+        static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        hits = in.readVLong();
+        misses = in.readVLong();
+        evictions = in.readVLong();
+        size = in.readVLong();
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(hits);
+        out.writeVLong(misses);
+        out.writeVLong(evictions);
+        out.writeVLong(size);
+    }
+}
@@ -53,6 +53,8 @@ import org.elasticsearch.action.admin.indices.segments.IndicesSegmentResponse;
 import org.elasticsearch.action.admin.indices.segments.IndicesSegmentsRequest;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsRequest;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsResponse;
+import org.elasticsearch.action.admin.indices.split.SplitIndexRequest;
+import org.elasticsearch.action.admin.indices.split.SplitIndexResponse;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusRequest;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusResponse;
 import org.elasticsearch.action.admin.indices.template.delete.DeleteIndexTemplateRequest;
@@ -75,6 +77,7 @@ import org.elasticsearch.client.action.admin.indices.optimize.OptimizeRequestBui
 import org.elasticsearch.client.action.admin.indices.refresh.RefreshRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.segments.IndicesSegmentsRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.settings.UpdateSettingsRequestBuilder;
+import org.elasticsearch.client.action.admin.indices.split.SplitIndexRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.status.IndicesStatusRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.template.delete.DeleteIndexTemplateRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.template.put.PutIndexTemplateRequestBuilder;
@@ -231,6 +234,32 @@ public interface IndicesAdminClient {
      */
     CloseIndexRequestBuilder prepareClose(String index);
 
+    /**
+     * Splits an index into a new index with a multiple of its number of shards.
+     *
+     * @param request The split index request
+     * @return The result future
+     * @see org.elasticsearch.client.Requests#splitIndexRequest(String, String)
+     */
+    ActionFuture<SplitIndexResponse> split(SplitIndexRequest request);
+
+    /**
+     * Splits an index into a new index with a multiple of its number of shards.
+     *
+     * @param request  The split index request
+     * @param listener A listener to be notified with a result
+     * @see org.elasticsearch.client.Requests#splitIndexRequest(String, String)
+     */
+    void split(SplitIndexRequest request, ActionListener<SplitIndexResponse> listener);
+
+    /**
+     * Splits an index into a new index with a multiple of its number of shards.
+     *
+     * @param index  The index name to split
+     * @param target The index name to split into
+     */
+    SplitIndexRequestBuilder prepareSplit(String index, String target);
+
     /**
      * OPen an index based on the index name.
      *
@@ -43,6 +43,7 @@ import org.elasticsearch.action.admin.indices.optimize.OptimizeRequest;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
 import org.elasticsearch.action.admin.indices.segments.IndicesSegmentsRequest;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsRequest;
+import org.elasticsearch.action.admin.indices.split.SplitIndexRequest;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusRequest;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.count.CountRequest;
@@ -237,6 +238,18 @@ public class Requests {
         return new CloseIndexRequest(index);
     }
 
+    /**
+     * Creates a split index request.
+     *
+     * @param index  The index to split
+     * @param target The index to split into
+     * @return The split index request
+     * @see org.elasticsearch.client.IndicesAdminClient#split(org.elasticsearch.action.admin.indices.split.SplitIndexRequest)
+     */
+    public static SplitIndexRequest splitIndexRequest(String index, String target) {
+        return new SplitIndexRequest(index, target);
+    }
+
     /**
      * Creates an open index request.
      *
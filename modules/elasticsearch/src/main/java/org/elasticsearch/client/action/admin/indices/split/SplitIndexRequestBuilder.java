@@ -0,0 +1,80 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.client.action.admin.indices.split;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.indices.split.SplitIndexRequest;
+import org.elasticsearch.action.admin.indices.split.SplitIndexResponse;
+import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.client.action.admin.indices.support.BaseIndicesRequestBuilder;
+import org.elasticsearch.common.unit.TimeValue;
+
+public class SplitIndexRequestBuilder extends BaseIndicesRequestBuilder<SplitIndexRequest, SplitIndexResponse> {
+
+    public SplitIndexRequestBuilder(IndicesAdminClient indicesClient, String index, String target) {
+        super(indicesClient, new SplitIndexRequest(index, target));
+    }
+
+    /**
+     * The number of shards of the target index, a multiple of the number of shards of the split index.
+     */
+    public SplitIndexRequestBuilder setNumberOfShards(int numberOfShards) {
+        request.numberOfShards(numberOfShards);
+        return this;
+    }
+
+    /**
+     * Timeout to wait for the operation to be acknowledged by current cluster nodes. Defaults
+     * to <tt>10s</tt>.
+     */
+    public SplitIndexRequestBuilder setTimeout(TimeValue timeout) {
+        request.timeout(timeout);
+        return this;
+    }
+
+    /**
+     * Timeout to wait for the operation to be acknowledged by current cluster nodes. Defaults
+     * to <tt>10s</tt>.
+     */
+    public SplitIndexRequestBuilder setTimeout(String timeout) {
+        request.timeout(timeout);
+        return this;
+    }
+
+    /**
+     * Sets the master node timeout in case the master has not yet been discovered.
+     */
+    public SplitIndexRequestBuilder setMasterNodeTimeout(TimeValue timeout) {
+        request.masterNodeTimeout(timeout);
+        return this;
+    }
+
+    /**
+     * Sets the master node timeout in case the master has not yet been discovered.
+     */
+    public SplitIndexRequestBuilder setMasterNodeTimeout(String timeout) {
+        request.masterNodeTimeout(timeout);
+        return this;
+    }
+
+    @Override protected void doExecute(ActionListener<SplitIndexResponse> listener) {
+        client.split(request, listener);
+    }
+}
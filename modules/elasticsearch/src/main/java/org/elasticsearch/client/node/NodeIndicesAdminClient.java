@@ -69,6 +69,9 @@ import org.elasticsearch.action.admin.indices.segments.TransportIndicesSegmentsA
 import org.elasticsearch.action.admin.indices.settings.TransportUpdateSettingsAction;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsRequest;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsResponse;
+import org.elasticsearch.action.admin.indices.split.SplitIndexRequest;
+import org.elasticsearch.action.admin.indices.split.SplitIndexResponse;
+import org.elasticsearch.action.admin.indices.split.TransportSplitIndexAction;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusRequest;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusResponse;
 import org.elasticsearch.action.admin.indices.status.TransportIndicesStatusAction;
@@ -103,6 +106,8 @@ public class NodeIndicesAdminClient extends AbstractIndicesAdminClient implement
 
     private final TransportCloseIndexAction closeIndexAction;
 
+    private final TransportSplitIndexAction splitIndexAction;
+
     private final TransportOpenIndexAction openIndexAction;
 
     private final TransportRefreshAction refreshAction;
@@ -131,7 +136,7 @@ public class NodeIndicesAdminClient extends AbstractIndicesAdminClient implement
 
     @Inject public NodeIndicesAdminClient(Settings settings, ThreadPool threadPool, TransportIndicesExistsAction indicesExistsAction, TransportIndicesStatusAction indicesStatusAction, TransportIndicesSegmentsAction indicesSegmentsAction,
                                           TransportCreateIndexAction createIndexAction, TransportDeleteIndexAction deleteIndexAction,
-                                          TransportCloseIndexAction closeIndexAction, TransportOpenIndexAction openIndexAction,
+                                          TransportCloseIndexAction closeIndexAction, TransportSplitIndexAction splitIndexAction, TransportOpenIndexAction openIndexAction,
                                           TransportRefreshAction refreshAction, TransportFlushAction flushAction, TransportOptimizeAction optimizeAction,
                                           TransportPutMappingAction putMappingAction, TransportDeleteMappingAction deleteMappingAction, TransportGatewaySnapshotAction gatewaySnapshotAction,
                                           TransportIndicesAliasesAction indicesAliasesAction, TransportClearIndicesCacheAction clearIndicesCacheAction,
@@ -144,6 +149,7 @@ public class NodeIndicesAdminClient extends AbstractIndicesAdminClient implement
         this.createIndexAction = createIndexAction;
         this.deleteIndexAction = deleteIndexAction;
         this.closeIndexAction = closeIndexAction;
+        this.splitIndexAction = splitIndexAction;
         this.openIndexAction = openIndexAction;
         this.refreshAction = refreshAction;
         this.flushAction = flushAction;
@@ -211,6 +217,14 @@ public class NodeIndicesAdminClient extends AbstractIndicesAdminClient implement
         closeIndexAction.execute(request, listener);
     }
 
+    @Override public ActionFuture<SplitIndexResponse> split(SplitIndexRequest request) {
+        return splitIndexAction.execute(request);
+    }
+
+    @Override public void split(SplitIndexRequest request, ActionListener<SplitIndexResponse> listener) {
+        splitIndexAction.execute(request, listener);
+    }
+
     @Override public ActionFuture<OpenIndexResponse> open(OpenIndexRequest request) {
         return openIndexAction.execute(request);
     }
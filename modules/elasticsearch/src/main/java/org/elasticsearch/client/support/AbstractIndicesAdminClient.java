@@ -35,6 +35,7 @@ import org.elasticsearch.client.action.admin.indices.optimize.OptimizeRequestBui
 import org.elasticsearch.client.action.admin.indices.refresh.RefreshRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.segments.IndicesSegmentsRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.settings.UpdateSettingsRequestBuilder;
+import org.elasticsearch.client.action.admin.indices.split.SplitIndexRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.status.IndicesStatusRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.template.delete.DeleteIndexTemplateRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.template.put.PutIndexTemplateRequestBuilder;
@@ -69,6 +70,10 @@ public abstract class AbstractIndicesAdminClient implements InternalIndicesAdmin
         return new CloseIndexRequestBuilder(this, index);
     }
 
+    @Override public SplitIndexRequestBuilder prepareSplit(String index, String target) {
+        return new SplitIndexRequestBuilder(this, index, target);
+    }
+
     @Override public OpenIndexRequestBuilder prepareOpen(String index) {
         return new OpenIndexRequestBuilder(this, index);
     }
@@ -44,6 +44,7 @@ import org.elasticsearch.client.transport.action.admin.indices.optimize.ClientTr
 import org.elasticsearch.client.transport.action.admin.indices.refresh.ClientTransportRefreshAction;
 import org.elasticsearch.client.transport.action.admin.indices.segments.ClientTransportIndicesSegmentsAction;
 import org.elasticsearch.client.transport.action.admin.indices.settings.ClientTransportUpdateSettingsAction;
+import org.elasticsearch.client.transport.action.admin.indices.split.ClientTransportSplitIndexAction;
 import org.elasticsearch.client.transport.action.admin.indices.status.ClientTransportIndicesStatusAction;
 import org.elasticsearch.client.transport.action.admin.indices.template.delete.ClientTransportDeleteIndexTemplateAction;
 import org.elasticsearch.client.transport.action.admin.indices.template.put.ClientTransportPutIndexTemplateAction;
@@ -85,6 +86,7 @@ public class ClientTransportActionModule extends AbstractModule {
         bind(ClientTransportCreateIndexAction.class).asEagerSingleton();
         bind(ClientTransportDeleteIndexAction.class).asEagerSingleton();
         bind(ClientTransportCloseIndexAction.class).asEagerSingleton();
+        bind(ClientTransportSplitIndexAction.class).asEagerSingleton();
         bind(ClientTransportOpenIndexAction.class).asEagerSingleton();
         bind(ClientTransportPutMappingAction.class).asEagerSingleton();
         bind(ClientTransportDeleteMappingAction.class).asEagerSingleton();
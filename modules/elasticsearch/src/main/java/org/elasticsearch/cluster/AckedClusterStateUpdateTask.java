@@ -0,0 +1,45 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * An extension interface to {@link ProcessedClusterStateUpdateTask} that allows to be notified when
+ * all the nodes in the cluster have acknowledged (applied) the cluster state resulting from the task.
+ */
+public interface AckedClusterStateUpdateTask extends ProcessedClusterStateUpdateTask {
+
+    /**
+     * The time to wait for all the nodes to acknowledge the new cluster state.
+     */
+    TimeValue ackTimeout();
+
+    /**
+     * Called once all the nodes have acknowledged the new cluster state. Note, nodes that failed to
+     * receive it are considered as acknowledged (they will be removed from the cluster by fault detection).
+     */
+    void onAllNodesAcked();
+
+    /**
+     * Called if not all the nodes have acknowledged the new cluster state within {@link #ackTimeout()}.
+     */
+    void onAckTimeout();
+}
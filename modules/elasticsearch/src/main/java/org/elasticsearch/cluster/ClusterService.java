@@ -23,6 +23,9 @@ import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.cluster.block.ClusterBlock;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.cluster.service.ClusterStatePublishStats;
+import org.elasticsearch.cluster.service.ClusterUpdateTasksStats;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.LifecycleComponent;
 import org.elasticsearch.common.unit.TimeValue;
 
@@ -78,4 +81,21 @@ public interface ClusterService extends LifecycleComponent<ClusterService> {
      * Submits a task that will update the cluster state.
      */
     void submitStateUpdateTask(final String source, final ClusterStateUpdateTask updateTask);
+
+    /**
+     * Submits a task that will update the cluster state. Pending tasks submitted with the same batch key
+     * are executed one after the other on the same cluster state, which is then applied and published once.
+     */
+    void submitStateUpdateTask(final String source, @Nullable final String batchKey, final ClusterStateUpdateTask updateTask);
+
+    /**
+     * Returns stats on the cluster state update tasks executed so far, per batch key.
+     */
+    ClusterUpdateTasksStats updateTasksStats();
+
+    /**
+     * Returns stats on the cluster states published by this node (when master), and how long it took each
+     * node to acknowledge them.
+     */
+    ClusterStatePublishStats publishStats();
 }
@@ -20,6 +20,8 @@
 package org.elasticsearch.cluster.action.index;
 
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchTimeoutException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.action.support.master.MasterNodeOperationRequest;
@@ -27,6 +29,7 @@ import org.elasticsearch.action.support.master.TransportMasterNodeOperationActio
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.MetaDataMappingService;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.compress.CompressedString;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -36,25 +39,115 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.elasticsearch.common.collect.Lists.*;
+import static org.elasticsearch.common.collect.Maps.*;
+
 /**
  * Called by shards in the cluster when their mapping was dynamically updated and it needs to be updated
  * in the cluster state meta data (and broadcast to all members).
  *
+ * <p>Shards should use {@link #updateMappingOnMaster(String, String, org.elasticsearch.common.compress.CompressedString, org.elasticsearch.action.ActionListener)}
+ * which coalesces the updates of the same index and type sent from this node.
+ *
  * @author kimchy (shay.banon)
  */
 public class MappingUpdatedAction extends TransportMasterNodeOperationAction<MappingUpdatedAction.MappingUpdatedRequest, MappingUpdatedAction.MappingUpdatedResponse> {
 
     private final MetaDataMappingService metaDataMappingService;
 
+    private final Map<Tuple<String, String>, MappingUpdates> mappingUpdates = newHashMap();
+
     @Inject public MappingUpdatedAction(Settings settings, TransportService transportService, ClusterService clusterService, ThreadPool threadPool,
                                         MetaDataMappingService metaDataMappingService) {
         super(settings, transportService, clusterService, threadPool);
         this.metaDataMappingService = metaDataMappingService;
     }
 
+    /**
+     * Updates the master with the dynamically updated mapping of the provided index and type. Only one update per
+     * index and type is in flight at a time, updates with the same mapping source as the one in flight simply wait
+     * for it, and other updates are held back and replaced by the latest one (the mapping of a type on a node only
+     * grows, so the latest mapping source includes the previous ones), which is sent once the in flight one is done.
+     */
+    public void updateMappingOnMaster(String index, String type, CompressedString mappingSource, ActionListener<MappingUpdatedResponse> listener) {
+        Tuple<String, String> key = Tuple.tuple(index, type);
+        synchronized (mappingUpdates) {
+            MappingUpdates updates = mappingUpdates.get(key);
+            if (updates != null) {
+                if (mappingSource.equals(updates.inFlightSource)) {
+                    updates.inFlightListeners.add(listener);
+                } else {
+                    updates.pendingSource = mappingSource;
+                    updates.pendingListeners.add(listener);
+                }
+                return;
+            }
+            updates = new MappingUpdates(mappingSource);
+            updates.inFlightListeners.add(listener);
+            mappingUpdates.put(key, updates);
+        }
+        sendMappingUpdate(key, mappingSource);
+    }
+
+    private void sendMappingUpdate(final Tuple<String, String> key, CompressedString mappingSource) {
+        execute(new MappingUpdatedRequest(key.v1(), key.v2(), mappingSource), new ActionListener<MappingUpdatedResponse>() {
+            @Override public void onResponse(MappingUpdatedResponse response) {
+                for (ActionListener<MappingUpdatedResponse> listener : mappingUpdateDone(key)) {
+                    listener.onResponse(response);
+                }
+            }
+
+            @Override public void onFailure(Throwable e) {
+                for (ActionListener<MappingUpdatedResponse> listener : mappingUpdateDone(key)) {
+                    listener.onFailure(e);
+                }
+            }
+        });
+    }
+
+    private List<ActionListener<MappingUpdatedResponse>> mappingUpdateDone(Tuple<String, String> key) {
+        List<ActionListener<MappingUpdatedResponse>> listeners;
+        CompressedString nextSource = null;
+        synchronized (mappingUpdates) {
+            MappingUpdates updates = mappingUpdates.get(key);
+            listeners = updates.inFlightListeners;
+            if (updates.pendingSource == null) {
+                mappingUpdates.remove(key);
+            } else {
+                nextSource = updates.pendingSource;
+                updates.inFlightSource = nextSource;
+                updates.inFlightListeners = updates.pendingListeners;
+                updates.pendingSource = null;
+                updates.pendingListeners = newArrayList();
+            }
+        }
+        if (nextSource != null) {
+            sendMappingUpdate(key, nextSource);
+        }
+        return listeners;
+    }
+
+    static class MappingUpdates {
+
+        CompressedString inFlightSource;
+
+        List<ActionListener<MappingUpdatedResponse>> inFlightListeners = newArrayList();
+
+        CompressedString pendingSource;
+
+        List<ActionListener<MappingUpdatedResponse>> pendingListeners = newArrayList();
+
+        MappingUpdates(CompressedString inFlightSource) {
+            this.inFlightSource = inFlightSource;
+        }
+    }
+
     @Override protected String transportAction() {
         return "cluster/mappingUpdated";
     }
@@ -85,6 +178,10 @@ public class MappingUpdatedAction extends TransportMasterNodeOperationAction<Map
                     latch.countDown();
                 }
             });
+            // wait for the mapping to be applied, so the next (coalesced) update of the same type is only sent after it
+            if (!latch.await(request.masterNodeTimeout().millis(), TimeUnit.MILLISECONDS)) {
+                failure.set(new ElasticSearchTimeoutException("timed out waiting for the mapping update of [" + request.index() + "][" + request.type() + "] to be applied"));
+            }
         } catch (Exception e) {
             failure.set(e);
         }
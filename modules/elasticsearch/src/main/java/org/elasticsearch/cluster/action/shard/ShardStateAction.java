@@ -66,8 +66,14 @@ public class ShardStateAction extends AbstractComponent {
 
     private final ThreadPool threadPool;
 
+    static final String SHARD_STARTED_BATCH = "shard-started";
+
+    static final String SHARD_FAILED_BATCH = "shard-failed";
+
     private final BlockingQueue<ShardRouting> startedShardsQueue = new LinkedTransferQueue<ShardRouting>();
 
+    private final BlockingQueue<ShardRoutingEntry> failedShardsQueue = new LinkedTransferQueue<ShardRoutingEntry>();
+
     @Inject public ShardStateAction(Settings settings, ClusterService clusterService, TransportService transportService,
                                     ShardsAllocation shardsAllocation, ThreadPool threadPool) {
         super(settings);
@@ -114,17 +120,33 @@ public class ShardStateAction extends AbstractComponent {
 
     private void innerShardFailed(final ShardRouting shardRouting, final String reason) {
         logger.warn("received shard failed for {}, reason [{}]", shardRouting, reason);
-        clusterService.submitStateUpdateTask("shard-failed (" + shardRouting + "), reason [" + reason + "]", new ClusterStateUpdateTask() {
+        // buffer shard failed requests the same way started ones are, so a burst of failures (for example,
+        // a node holding many shards going away) is applied with a single reroute
+        failedShardsQueue.add(new ShardRoutingEntry(shardRouting, reason));
+
+        clusterService.submitStateUpdateTask("shard-failed (" + shardRouting + "), reason [" + reason + "]", SHARD_FAILED_BATCH, new ClusterStateUpdateTask() {
             @Override public ClusterState execute(ClusterState currentState) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Received failed shard {}, reason [{}]", shardRouting, reason);
+                List<ShardRoutingEntry> entries = new ArrayList<ShardRoutingEntry>();
+                failedShardsQueue.drainTo(entries);
+
+                // nothing to process (a previous event has process it already)
+                if (entries.isEmpty()) {
+                    return currentState;
+                }
+
+                List<ShardRouting> shards = new ArrayList<ShardRouting>(entries.size());
+                for (ShardRoutingEntry entry : entries) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Received failed shard {}, reason [{}]", entry.shardRouting, entry.reason);
+                    }
+                    shards.add(entry.shardRouting);
                 }
-                RoutingAllocation.Result routingResult = shardsAllocation.applyFailedShard(currentState, shardRouting);
+                RoutingAllocation.Result routingResult = shardsAllocation.applyFailedShards(currentState, shards);
                 if (!routingResult.changed()) {
                     return currentState;
                 }
                 if (logger.isDebugEnabled()) {
-                    logger.debug("Applying failed shard {}, reason [{}]", shardRouting, reason);
+                    logger.debug("Applying failed shards {}", shards);
                 }
                 return newClusterStateBuilder().state(currentState).routingResult(routingResult).build();
             }
@@ -141,7 +163,7 @@ public class ShardStateAction extends AbstractComponent {
         // process started events as fast as possible, to make shards available
         startedShardsQueue.add(shardRouting);
 
-        clusterService.submitStateUpdateTask("shard-started (" + shardRouting + "), reason [" + reason + "]", new ClusterStateUpdateTask() {
+        clusterService.submitStateUpdateTask("shard-started (" + shardRouting + "), reason [" + reason + "]", SHARD_STARTED_BATCH, new ClusterStateUpdateTask() {
             @Override public ClusterState execute(ClusterState currentState) {
 
                 List<ShardRouting> shards = new ArrayList<ShardRouting>();
@@ -20,6 +20,7 @@
 package org.elasticsearch.cluster.metadata;
 
 import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Preconditions;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.collect.ImmutableSet;
@@ -101,6 +102,18 @@ public class IndexMetaData {
 
     public static final String SETTING_AUTO_EXPAND_REPLICAS = "index.auto_expand_replicas";
 
+    /**
+     * The number of (virtual) routing shards, the hash space is divided into that many ranges, each shard owning
+     * a contiguous run of them. Must be a multiple of the number of shards, defaults to the number of shards. The
+     * index can later be split by any factor that divides <tt>number_of_routing_shards / number_of_shards</tt>.
+     */
+    public static final String SETTING_NUMBER_OF_ROUTING_SHARDS = "index.number_of_routing_shards";
+
+    /**
+     * The index this index was split from, if any.
+     */
+    public static final String SETTING_SPLIT_SOURCE = "index.split.source";
+
     private final String index;
 
     private final State state;
@@ -113,6 +126,8 @@ public class IndexMetaData {
 
     private transient final int totalNumberOfShards;
 
+    private transient final int numberOfRoutingShards;
+
     private IndexMetaData(String index, State state, Settings settings, ImmutableMap<String, MappingMetaData> mappings, ImmutableMap<String, AliasMetaData> aliases) {
         Preconditions.checkArgument(settings.getAsInt(SETTING_NUMBER_OF_SHARDS, -1) != -1, "must specify numberOfShards for index [" + index + "]");
         Preconditions.checkArgument(settings.getAsInt(SETTING_NUMBER_OF_REPLICAS, -1) != -1, "must specify numberOfReplicas for index [" + index + "]");
@@ -121,6 +136,9 @@ public class IndexMetaData {
         this.settings = settings;
         this.mappings = mappings;
         this.totalNumberOfShards = numberOfShards() * (numberOfReplicas() + 1);
+        this.numberOfRoutingShards = settings.getAsInt(SETTING_NUMBER_OF_ROUTING_SHARDS, numberOfShards());
+        Preconditions.checkArgument(numberOfRoutingShards >= numberOfShards() && numberOfRoutingShards % numberOfShards() == 0,
+                "number_of_routing_shards [" + numberOfRoutingShards + "] must be a multiple of number_of_shards [" + numberOfShards() + "] for index [" + index + "]");
 
         this.aliases = aliases;
     }
@@ -165,6 +183,25 @@ public class IndexMetaData {
         return totalNumberOfShards();
     }
 
+    /**
+     * The number of ranges the hash space of the routing values is divided into (see
+     * {@link #SETTING_NUMBER_OF_ROUTING_SHARDS}).
+     */
+    public int numberOfRoutingShards() {
+        return numberOfRoutingShards;
+    }
+
+    public int getNumberOfRoutingShards() {
+        return numberOfRoutingShards();
+    }
+
+    /**
+     * The index this index was split from, <tt>null</tt> if it was not created by a split.
+     */
+    @Nullable public String splitSource() {
+        return settings.get(SETTING_SPLIT_SOURCE);
+    }
+
     public Settings settings() {
         return settings;
     }
@@ -193,6 +230,37 @@ public class IndexMetaData {
         return mappings.get(mappingType);
     }
 
+    /**
+     * Returns an index metadata that uses the instances found in the provided pools for its settings and
+     * mappings (adding its own ones to the pools when missing), so indices with identical settings and
+     * mappings share them. Returns this instance if it already uses the pooled instances.
+     */
+    IndexMetaData intern(Map<Settings, Settings> settingsPool, Map<MappingMetaData, MappingMetaData> mappingsPool) {
+        boolean changed = false;
+        Settings internedSettings = settingsPool.get(settings);
+        if (internedSettings == null) {
+            settingsPool.put(settings, settings);
+            internedSettings = settings;
+        } else if (internedSettings != settings) {
+            changed = true;
+        }
+        MapBuilder<String, MappingMetaData> internedMappings = MapBuilder.newMapBuilder();
+        for (MappingMetaData mappingMd : mappings.values()) {
+            MappingMetaData internedMappingMd = mappingsPool.get(mappingMd);
+            if (internedMappingMd == null) {
+                mappingsPool.put(mappingMd, mappingMd);
+                internedMappingMd = mappingMd;
+            } else if (internedMappingMd != mappingMd) {
+                changed = true;
+            }
+            internedMappings.put(internedMappingMd.type(), internedMappingMd);
+        }
+        if (!changed) {
+            return this;
+        }
+        return new IndexMetaData(index, state, internedSettings, internedMappings.immutableMap(), aliases);
+    }
+
     public static Builder newIndexMetaDataBuilder(String index) {
         return new Builder(index);
     }
@@ -247,6 +315,11 @@ public class IndexMetaData {
             return settings.getAsInt(SETTING_NUMBER_OF_REPLICAS, -1);
         }
 
+        public Builder numberOfRoutingShards(int numberOfRoutingShards) {
+            settings = settingsBuilder().put(settings).put(SETTING_NUMBER_OF_ROUTING_SHARDS, numberOfRoutingShards).build();
+            return this;
+        }
+
         public Builder settings(Settings.Builder settings) {
             this.settings = settings.build();
             return this;
@@ -397,12 +470,32 @@ public class IndexMetaData {
                 MappingMetaData mappingMd = MappingMetaData.readFrom(in);
                 builder.putMapping(mappingMd);
             }
+            readAliasesFrom(builder, in);
+            return builder.build();
+        }
+
+        /**
+         * Reads an index metadata written with {@link #writeTo(IndexMetaData, StreamOutput, java.util.Map, java.util.Map)},
+         * resolving its settings and mappings against the (already read) shared tables.
+         */
+        static IndexMetaData readFrom(StreamInput in, Settings[] settingsTable, MappingMetaData[] mappingsTable) throws IOException {
+            Builder builder = new Builder(in.readUTF());
+            builder.state(State.fromId(in.readByte()));
+            builder.settings(settingsTable[in.readVInt()]);
+            int mappingsSize = in.readVInt();
+            for (int i = 0; i < mappingsSize; i++) {
+                builder.putMapping(mappingsTable[in.readVInt()]);
+            }
+            readAliasesFrom(builder, in);
+            return builder.build();
+        }
+
+        private static void readAliasesFrom(Builder builder, StreamInput in) throws IOException {
             int aliasesSize = in.readVInt();
             for (int i = 0; i < aliasesSize; i++) {
                 AliasMetaData aliasMd = AliasMetaData.Builder.readFrom(in);
                 builder.putAlias(aliasMd);
             }
-            return builder.build();
         }
 
         public static void writeTo(IndexMetaData indexMetaData, StreamOutput out) throws IOException {
@@ -413,6 +506,25 @@ public class IndexMetaData {
             for (MappingMetaData mappingMd : indexMetaData.mappings().values()) {
                 MappingMetaData.writeTo(mappingMd, out);
             }
+            writeAliasesTo(indexMetaData, out);
+        }
+
+        /**
+         * Writes the index metadata referencing its settings and mappings by their ordinal in shared tables
+         * that are written once for all the indices.
+         */
+        static void writeTo(IndexMetaData indexMetaData, StreamOutput out, Map<Settings, Integer> settingsOrdinals, Map<MappingMetaData, Integer> mappingsOrdinals) throws IOException {
+            out.writeUTF(indexMetaData.index());
+            out.writeByte(indexMetaData.state().id());
+            out.writeVInt(settingsOrdinals.get(indexMetaData.settings()));
+            out.writeVInt(indexMetaData.mappings().size());
+            for (MappingMetaData mappingMd : indexMetaData.mappings().values()) {
+                out.writeVInt(mappingsOrdinals.get(mappingMd));
+            }
+            writeAliasesTo(indexMetaData, out);
+        }
+
+        private static void writeAliasesTo(IndexMetaData indexMetaData, StreamOutput out) throws IOException {
             out.writeVInt(indexMetaData.aliases().size());
             for (AliasMetaData aliasMd : indexMetaData.aliases().values()) {
                 AliasMetaData.Builder.writeTo(aliasMd, out);
@@ -72,6 +72,24 @@ public class MappingMetaData {
         public String[] pathElements() {
             return this.pathElements;
         }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Routing routing = (Routing) o;
+
+            if (required != routing.required) return false;
+            if (path != null ? !path.equals(routing.path) : routing.path != null) return false;
+
+            return true;
+        }
+
+        @Override public int hashCode() {
+            int result = (required ? 1 : 0);
+            result = 31 * result + (path != null ? path.hashCode() : 0);
+            return result;
+        }
     }
 
     private final String type;
@@ -80,6 +98,9 @@ public class MappingMetaData {
 
     private final Routing routing;
 
+    // lazily computed, used to share identical mappings across indices
+    private transient int hashCode;
+
     public MappingMetaData(DocumentMapper docMapper) {
         this.type = docMapper.type();
         this.source = docMapper.mappingSource();
@@ -130,6 +151,31 @@ public class MappingMetaData {
         return this.routing;
     }
 
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        MappingMetaData that = (MappingMetaData) o;
+
+        if (hashCode() != that.hashCode()) return false;
+        if (!type.equals(that.type)) return false;
+        if (!source.equals(that.source)) return false;
+        if (!routing.equals(that.routing)) return false;
+
+        return true;
+    }
+
+    @Override public int hashCode() {
+        int result = hashCode;
+        if (result == 0) {
+            result = type.hashCode();
+            result = 31 * result + source.hashCode();
+            result = 31 * result + routing.hashCode();
+            hashCode = result;
+        }
+        return result;
+    }
+
     public String parseRouting(XContentParser parser) throws IOException {
         return parseRouting(parser, 0);
     }
@@ -670,7 +670,15 @@ public class MetaData implements Iterable<IndexMetaData> {
         }
 
         public MetaData build() {
-            return new MetaData(version, indices.immutableMap(), templates.immutableMap());
+            // share identical settings and mappings across indices (typically created from the same templates),
+            // so large number of similar indices don't keep (and compare) a copy of each per index
+            Map<Settings, Settings> settingsPool = newHashMap();
+            Map<MappingMetaData, MappingMetaData> mappingsPool = newHashMap();
+            MapBuilder<String, IndexMetaData> internedIndices = newMapBuilder();
+            for (IndexMetaData indexMetaData : indices.map().values()) {
+                internedIndices.put(indexMetaData.index(), indexMetaData.intern(settingsPool, mappingsPool));
+            }
+            return new MetaData(version, internedIndices.immutableMap(), templates.immutableMap());
         }
 
         public static String toXContent(MetaData metaData) throws IOException {
@@ -734,9 +742,17 @@ public class MetaData implements Iterable<IndexMetaData> {
         public static MetaData readFrom(StreamInput in) throws IOException {
             Builder builder = new Builder();
             builder.version = in.readLong();
+            Settings[] settingsTable = new Settings[in.readVInt()];
+            for (int i = 0; i < settingsTable.length; i++) {
+                settingsTable[i] = readSettingsFromStream(in);
+            }
+            MappingMetaData[] mappingsTable = new MappingMetaData[in.readVInt()];
+            for (int i = 0; i < mappingsTable.length; i++) {
+                mappingsTable[i] = MappingMetaData.readFrom(in);
+            }
             int size = in.readVInt();
             for (int i = 0; i < size; i++) {
-                builder.put(IndexMetaData.Builder.readFrom(in));
+                builder.put(IndexMetaData.Builder.readFrom(in, settingsTable, mappingsTable));
             }
             size = in.readVInt();
             for (int i = 0; i < size; i++) {
@@ -747,9 +763,34 @@ public class MetaData implements Iterable<IndexMetaData> {
 
         public static void writeTo(MetaData metaData, StreamOutput out) throws IOException {
             out.writeLong(metaData.version);
+            // write each distinct settings and mapping once, indices reference them by ordinal
+            Map<Settings, Integer> settingsOrdinals = newHashMap();
+            List<Settings> settingsTable = newArrayList();
+            Map<MappingMetaData, Integer> mappingsOrdinals = newHashMap();
+            List<MappingMetaData> mappingsTable = newArrayList();
+            for (IndexMetaData indexMetaData : metaData) {
+                if (!settingsOrdinals.containsKey(indexMetaData.settings())) {
+                    settingsOrdinals.put(indexMetaData.settings(), settingsTable.size());
+                    settingsTable.add(indexMetaData.settings());
+                }
+                for (MappingMetaData mappingMd : indexMetaData.mappings().values()) {
+                    if (!mappingsOrdinals.containsKey(mappingMd)) {
+                        mappingsOrdinals.put(mappingMd, mappingsTable.size());
+                        mappingsTable.add(mappingMd);
+                    }
+                }
+            }
+            out.writeVInt(settingsTable.size());
+            for (Settings settings : settingsTable) {
+                writeSettingsToStream(settings, out);
+            }
+            out.writeVInt(mappingsTable.size());
+            for (MappingMetaData mappingMd : mappingsTable) {
+                MappingMetaData.writeTo(mappingMd, out);
+            }
             out.writeVInt(metaData.indices.size());
             for (IndexMetaData indexMetaData : metaData) {
-                IndexMetaData.Builder.writeTo(indexMetaData, out);
+                IndexMetaData.Builder.writeTo(indexMetaData, out, settingsOrdinals, mappingsOrdinals);
             }
             out.writeVInt(metaData.templates.size());
             for (IndexTemplateMetaData template : metaData.templates.values()) {
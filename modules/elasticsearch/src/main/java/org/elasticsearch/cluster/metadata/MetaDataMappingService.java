@@ -19,13 +19,14 @@
 
 package org.elasticsearch.cluster.metadata;
 
+import org.elasticsearch.cluster.AckedClusterStateUpdateTask;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.cluster.FailableClusterStateUpdateTask;
 import org.elasticsearch.cluster.ProcessedClusterStateUpdateTask;
-import org.elasticsearch.cluster.action.index.NodeMappingCreatedAction;
-import org.elasticsearch.cluster.routing.IndexRoutingTable;
 import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.compress.CompressedString;
 import org.elasticsearch.common.inject.Inject;
@@ -42,10 +43,10 @@ import org.elasticsearch.indices.InvalidTypeNameException;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
 
 import static org.elasticsearch.cluster.ClusterState.*;
 import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
@@ -62,13 +63,13 @@ public class MetaDataMappingService extends AbstractComponent {
 
     private final IndicesService indicesService;
 
-    private final NodeMappingCreatedAction mappingCreatedAction;
+    // dynamic mapping updates submitted and not yet executed, by index and type
+    private final Map<Tuple<String, String>, MappingUpdates> pendingMappingUpdates = newHashMap();
 
-    @Inject public MetaDataMappingService(Settings settings, ClusterService clusterService, IndicesService indicesService, NodeMappingCreatedAction mappingCreatedAction) {
+    @Inject public MetaDataMappingService(Settings settings, ClusterService clusterService, IndicesService indicesService) {
         super(settings);
         this.clusterService = clusterService;
         this.indicesService = indicesService;
-        this.mappingCreatedAction = mappingCreatedAction;
     }
 
     /**
@@ -128,18 +129,52 @@ public class MetaDataMappingService extends AbstractComponent {
         });
     }
 
+    /**
+     * Updates the mapping of the provided index and type with a dynamically updated mapping. Updates of the same
+     * index and type submitted before the pending one got executed are merged into it, and applied as a single
+     * mapping change.
+     */
     public void updateMapping(final String index, final String type, final CompressedString mappingSource, final Listener listener) {
-        clusterService.submitStateUpdateTask("update-mapping [" + index + "][" + type + "]", new ProcessedClusterStateUpdateTask() {
+        final Tuple<String, String> key = Tuple.tuple(index, type);
+        final MappingUpdates updates;
+        synchronized (pendingMappingUpdates) {
+            MappingUpdates pendingUpdates = pendingMappingUpdates.get(key);
+            if (pendingUpdates != null) {
+                pendingUpdates.add(mappingSource, listener);
+                return;
+            }
+            updates = new MappingUpdates();
+            updates.add(mappingSource, listener);
+            pendingMappingUpdates.put(key, updates);
+        }
+        clusterService.submitStateUpdateTask("update-mapping [" + index + "][" + type + "]", "update-mapping", new FailableClusterStateUpdateTask() {
+
+            private boolean notified;
+
             @Override public ClusterState execute(ClusterState currentState) {
+                synchronized (pendingMappingUpdates) {
+                    // further updates will go into a new task
+                    pendingMappingUpdates.remove(key);
+                }
                 boolean createdIndex = false;
                 try {
                     // first, check if it really needs to be updated
                     final IndexMetaData indexMetaData = currentState.metaData().index(index);
                     if (indexMetaData == null) {
                         // index got delete on us, ignore...
+                        notifyListeners(null);
                         return currentState;
                     }
-                    if (indexMetaData.mappings().containsKey(type) && indexMetaData.mapping(type).source().equals(mappingSource)) {
+                    List<CompressedString> mappingSources = Lists.newArrayList();
+                    for (CompressedString mappingSource : updates.mappingSources) {
+                        if (indexMetaData.mappings().containsKey(type) && indexMetaData.mapping(type).source().equals(mappingSource)) {
+                            continue;
+                        }
+                        mappingSources.add(mappingSource);
+                    }
+                    if (mappingSources.isEmpty()) {
+                        // already applied, no cluster state change, so the listeners have to be notified here
+                        notifyListeners(null);
                         return currentState;
                     }
 
@@ -156,24 +191,27 @@ public class MetaDataMappingService extends AbstractComponent {
                     MapperService mapperService = indexService.mapperService();
 
                     DocumentMapper existingMapper = mapperService.documentMapper(type);
-                    // parse the updated one
-                    DocumentMapper updatedMapper = mapperService.parse(type, mappingSource.string());
-                    if (existingMapper == null) {
-                        existingMapper = updatedMapper;
-                    } else {
-                        // merge from the updated into the existing, ignore conflicts (we know we have them, we just want the new ones)
-                        existingMapper.merge(updatedMapper, mergeFlags().simulate(false));
+                    for (CompressedString mappingSource : mappingSources) {
+                        // parse the updated one
+                        DocumentMapper updatedMapper = mapperService.parse(type, mappingSource.string());
+                        if (existingMapper == null) {
+                            existingMapper = updatedMapper;
+                        } else {
+                            // merge from the updated into the existing, ignore conflicts (we know we have them, we just want the new ones)
+                            existingMapper.merge(updatedMapper, mergeFlags().simulate(false));
+                        }
                     }
 
                     // if we end up with the same mapping as the original once, ignore
                     if (indexMetaData.mappings().containsKey(type) && indexMetaData.mapping(type).source().equals(existingMapper.mappingSource())) {
+                        notifyListeners(null);
                         return currentState;
                     }
 
                     // build the updated mapping source
                     if (logger.isDebugEnabled()) {
                         try {
-                            logger.debug("[{}] update_mapping [{}] (dynamic) with source [{}]", index, type, existingMapper.mappingSource().string());
+                            logger.debug("[{}] update_mapping [{}] (dynamic, merged from [{}] updates) with source [{}]", index, type, mappingSources.size(), existingMapper.mappingSource().string());
                         } catch (IOException e) {
                             // ignore
                         }
@@ -186,7 +224,7 @@ public class MetaDataMappingService extends AbstractComponent {
                     return newClusterStateBuilder().state(currentState).metaData(builder).build();
                 } catch (Exception e) {
                     logger.warn("failed to dynamically update the mapping in cluster_state from shard", e);
-                    listener.onFailure(e);
+                    notifyListeners(e);
                     return currentState;
                 } finally {
                     if (createdIndex) {
@@ -196,11 +234,47 @@ public class MetaDataMappingService extends AbstractComponent {
             }
 
             @Override public void clusterStateProcessed(ClusterState clusterState) {
-                listener.onResponse(new Response(true));
+                notifyListeners(null);
+            }
+
+            @Override public void onFailure(String source, Throwable t) {
+                notifyListeners(t);
+            }
+
+            private void notifyListeners(Throwable t) {
+                synchronized (this) {
+                    if (notified) {
+                        return;
+                    }
+                    notified = true;
+                }
+                for (Listener listener : updates.listeners) {
+                    if (t == null) {
+                        listener.onResponse(new Response(true));
+                    } else {
+                        listener.onFailure(t);
+                    }
+                }
             }
         });
     }
 
+    /**
+     * The dynamic mapping updates of an index and type waiting to be applied.
+     */
+    static class MappingUpdates {
+
+        // the distinct mapping sources, in the order they were received
+        final Set<CompressedString> mappingSources = new LinkedHashSet<CompressedString>();
+
+        final List<Listener> listeners = Lists.newArrayList();
+
+        void add(CompressedString mappingSource, Listener listener) {
+            mappingSources.add(mappingSource);
+            listeners.add(listener);
+        }
+    }
+
     public void removeMapping(final RemoveRequest request) {
         clusterService.submitStateUpdateTask("remove-mapping [" + request.mappingType + "]", new ProcessedClusterStateUpdateTask() {
             @Override public ClusterState execute(ClusterState currentState) {
@@ -226,7 +300,7 @@ public class MetaDataMappingService extends AbstractComponent {
     }
 
     public void putMapping(final PutRequest request, final Listener listener) {
-        clusterService.submitStateUpdateTask("put-mapping [" + request.mappingType + "]", new ProcessedClusterStateUpdateTask() {
+        clusterService.submitStateUpdateTask("put-mapping [" + request.mappingType + "]", new AckedClusterStateUpdateTask() {
             @Override public ClusterState execute(ClusterState currentState) {
                 List<String> indicesToClose = Lists.newArrayList();
                 try {
@@ -339,23 +413,7 @@ public class MetaDataMappingService extends AbstractComponent {
                         }
                     }
 
-                    ClusterState updatedState = newClusterStateBuilder().state(currentState).metaData(builder).build();
-
-                    // wait for responses from other nodes if needed
-                    int counter = 0;
-                    for (String index : request.indices) {
-                        IndexRoutingTable indexRoutingTable = updatedState.routingTable().index(index);
-                        if (indexRoutingTable != null) {
-                            counter += indexRoutingTable.numberOfNodesShardsAreAllocatedOn(updatedState.nodes().masterNodeId());
-                        }
-                    }
-
-                    if (counter == 0) {
-                        listener.onResponse(new Response(true));
-                        return updatedState;
-                    }
-                    mappingCreatedAction.add(new CountDownListener(counter, listener), request.timeout);
-                    return updatedState;
+                    return newClusterStateBuilder().state(currentState).metaData(builder).build();
                 } catch (Exception e) {
                     listener.onFailure(e);
                     return currentState;
@@ -368,6 +426,19 @@ public class MetaDataMappingService extends AbstractComponent {
 
             @Override public void clusterStateProcessed(ClusterState clusterState) {
             }
+
+            @Override public TimeValue ackTimeout() {
+                return request.timeout;
+            }
+
+            @Override public void onAllNodesAcked() {
+                // all the nodes have applied the new cluster state, and with it, the new mappings
+                listener.onResponse(new Response(true));
+            }
+
+            @Override public void onAckTimeout() {
+                listener.onResponse(new Response(false));
+            }
         });
     }
 
@@ -430,32 +501,4 @@ public class MetaDataMappingService extends AbstractComponent {
             return acknowledged;
         }
     }
-
-    private class CountDownListener implements NodeMappingCreatedAction.Listener {
-
-        private final AtomicBoolean notified = new AtomicBoolean();
-        private final AtomicInteger countDown;
-        private final Listener listener;
-
-        public CountDownListener(int countDown, Listener listener) {
-            this.countDown = new AtomicInteger(countDown);
-            this.listener = listener;
-        }
-
-        @Override public void onNodeMappingCreated(NodeMappingCreatedAction.NodeMappingCreatedResponse response) {
-            if (countDown.decrementAndGet() == 0) {
-                mappingCreatedAction.remove(this);
-                if (notified.compareAndSet(false, true)) {
-                    listener.onResponse(new Response(true));
-                }
-            }
-        }
-
-        @Override public void onTimeout() {
-            mappingCreatedAction.remove(this);
-            if (notified.compareAndSet(false, true)) {
-                listener.onResponse(new Response(false));
-            }
-        }
-    }
 }
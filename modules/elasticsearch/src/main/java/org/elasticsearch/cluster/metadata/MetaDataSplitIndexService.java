@@ -0,0 +1,170 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ProcessedClusterStateUpdateTask;
+import org.elasticsearch.cluster.block.ClusterBlock;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.block.ClusterBlocks;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
+import org.elasticsearch.indices.IndexMissingException;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+
+/**
+ * Splits an index into a new index with a multiple of its number of shards. The source index is blocked for
+ * writes, and the new index is created with the same settings and mappings, and the same number of routing
+ * shards, so each source shard maps to a contiguous range of the new shards (see
+ * {@link org.elasticsearch.cluster.routing.operation.plain.PlainOperationRouting#shardId(IndexMetaData, int)}).
+ * The new primaries are allocated next to their source shard and recovered out of it by
+ * {@link org.elasticsearch.index.shard.split.ShardSplitService}.
+ */
+public class MetaDataSplitIndexService extends AbstractComponent {
+
+    public static final ClusterBlock INDEX_SPLIT_BLOCK = new ClusterBlock(5, "index split, writes blocked", false, false, ClusterBlockLevel.WRITE);
+
+    private final ClusterService clusterService;
+
+    private final MetaDataCreateIndexService createIndexService;
+
+    @Inject public MetaDataSplitIndexService(Settings settings, ClusterService clusterService, MetaDataCreateIndexService createIndexService) {
+        super(settings);
+        this.clusterService = clusterService;
+        this.createIndexService = createIndexService;
+    }
+
+    public void splitIndex(final Request request, final Listener listener) {
+        final AtomicReference<IndexMetaData> sourceRef = new AtomicReference<IndexMetaData>();
+        clusterService.submitStateUpdateTask("split-index [" + request.index + "] into [" + request.target + "]", new ProcessedClusterStateUpdateTask() {
+            @Override public ClusterState execute(ClusterState currentState) {
+                IndexMetaData indexMetaData = currentState.metaData().index(request.index);
+                if (indexMetaData == null) {
+                    listener.onFailure(new IndexMissingException(new Index(request.index)));
+                    return currentState;
+                }
+                if (indexMetaData.state() != IndexMetaData.State.OPEN) {
+                    listener.onFailure(new ElasticSearchIllegalStateException("can't split closed index [" + request.index + "]"));
+                    return currentState;
+                }
+                if (currentState.metaData().hasIndex(request.target)) {
+                    listener.onFailure(new IndexAlreadyExistsException(new Index(request.target)));
+                    return currentState;
+                }
+                if (request.numberOfShards <= indexMetaData.numberOfShards() || request.numberOfShards % indexMetaData.numberOfShards() != 0) {
+                    listener.onFailure(new ElasticSearchIllegalArgumentException("number_of_shards [" + request.numberOfShards + "] must be a multiple of the number of shards [" + indexMetaData.numberOfShards() + "] of index [" + request.index + "]"));
+                    return currentState;
+                }
+                if (indexMetaData.numberOfRoutingShards() % request.numberOfShards != 0) {
+                    listener.onFailure(new ElasticSearchIllegalArgumentException("number_of_shards [" + request.numberOfShards + "] must divide the number of routing shards [" + indexMetaData.numberOfRoutingShards() + "] of index [" + request.index + "]"));
+                    return currentState;
+                }
+
+                logger.info("[{}] splitting index into [{}] with [{}] shards", request.index, request.target, request.numberOfShards);
+                sourceRef.set(indexMetaData);
+
+                ClusterBlocks.Builder blocks = ClusterBlocks.builder().blocks(currentState.blocks())
+                        .addIndexBlock(request.index, INDEX_SPLIT_BLOCK);
+                return ClusterState.builder().state(currentState).blocks(blocks).build();
+            }
+
+            @Override public void clusterStateProcessed(ClusterState clusterState) {
+                IndexMetaData source = sourceRef.get();
+                if (source == null) {
+                    // validation failed, the listener was already notified
+                    return;
+                }
+                try {
+                    Settings targetSettings = settingsBuilder().put(source.settings())
+                            .put(SETTING_NUMBER_OF_SHARDS, request.numberOfShards)
+                            .put(SETTING_NUMBER_OF_ROUTING_SHARDS, source.numberOfRoutingShards())
+                            .put(SETTING_SPLIT_SOURCE, source.index())
+                            .build();
+                    createIndexService.createIndex(new MetaDataCreateIndexService.Request("split from [" + source.index() + "]", request.target)
+                            .settings(targetSettings)
+                            .mappingsMetaData(source.mappings())
+                            .timeout(request.timeout), new MetaDataCreateIndexService.Listener() {
+                        @Override public void onResponse(MetaDataCreateIndexService.Response response) {
+                            listener.onResponse(new Response(response.acknowledged()));
+                        }
+
+                        @Override public void onFailure(Throwable t) {
+                            listener.onFailure(t);
+                        }
+                    });
+                } catch (Exception e) {
+                    listener.onFailure(e);
+                }
+            }
+        });
+    }
+
+    public static interface Listener {
+
+        void onResponse(Response response);
+
+        void onFailure(Throwable t);
+    }
+
+    public static class Request {
+
+        final String index;
+
+        final String target;
+
+        final int numberOfShards;
+
+        TimeValue timeout = TimeValue.timeValueSeconds(10);
+
+        public Request(String index, String target, int numberOfShards) {
+            this.index = index;
+            this.target = target;
+            this.numberOfShards = numberOfShards;
+        }
+
+        public Request timeout(TimeValue timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+    }
+
+    public static class Response {
+        private final boolean acknowledged;
+
+        public Response(boolean acknowledged) {
+            this.acknowledged = acknowledged;
+        }
+
+        public boolean acknowledged() {
+            return acknowledged;
+        }
+    }
+}
@@ -19,7 +19,10 @@
 
 package org.elasticsearch.cluster.routing;
 
+import org.elasticsearch.common.trove.map.hash.TObjectIntHashMap;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -34,6 +37,14 @@ public class RoutingNode implements Iterable<MutableShardRouting> {
 
     private final List<MutableShardRouting> shards;
 
+    private final List<MutableShardRouting> unmodifiableShards;
+
+    // the number of shards of each index allocated on this node, maintained as shards are added and removed
+    private final TObjectIntHashMap<String> shardsPerIndex = new TObjectIntHashMap<String>();
+
+    // the routing nodes this node belongs to, notified when shards are added or removed
+    private RoutingNodes routingNodes;
+
     public RoutingNode(String nodeId) {
         this(nodeId, new ArrayList<MutableShardRouting>());
     }
@@ -41,27 +52,80 @@ public class RoutingNode implements Iterable<MutableShardRouting> {
     public RoutingNode(String nodeId, List<MutableShardRouting> shards) {
         this.nodeId = nodeId;
         this.shards = shards;
+        this.unmodifiableShards = Collections.unmodifiableList(shards);
+        for (MutableShardRouting shard : shards) {
+            shardsPerIndex.adjustOrPutValue(shard.index(), 1, 1);
+        }
+    }
+
+    void routingNodes(RoutingNodes routingNodes) {
+        this.routingNodes = routingNodes;
     }
 
+    /**
+     * Iterates over the shards of this node, removing a shard should be done through the
+     * returned iterator.
+     */
     @Override public Iterator<MutableShardRouting> iterator() {
-        return shards.iterator();
+        final Iterator<MutableShardRouting> it = shards.iterator();
+        return new Iterator<MutableShardRouting>() {
+            private MutableShardRouting current;
+
+            @Override public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override public MutableShardRouting next() {
+                current = it.next();
+                return current;
+            }
+
+            @Override public void remove() {
+                it.remove();
+                removed(current);
+            }
+        };
     }
 
     public String nodeId() {
         return this.nodeId;
     }
 
+    /**
+     * The shards allocated on this node (read only, use {@link #add(MutableShardRouting)} and
+     * {@link #iterator()} to change them).
+     */
     public List<MutableShardRouting> shards() {
-        return this.shards;
+        return this.unmodifiableShards;
     }
 
     public void add(MutableShardRouting shard) {
         shards.add(shard);
         shard.assignToNode(nodeId);
+        shardsPerIndex.adjustOrPutValue(shard.index(), 1, 1);
+        if (routingNodes != null) {
+            routingNodes.shardAdded(shard);
+        }
+    }
+
+    private void removed(MutableShardRouting shard) {
+        if (shardsPerIndex.adjustOrPutValue(shard.index(), -1, 0) <= 0) {
+            shardsPerIndex.remove(shard.index());
+        }
+        if (routingNodes != null) {
+            routingNodes.shardRemoved(shard);
+        }
+    }
+
+    /**
+     * The number of shards of the provided index allocated on this node.
+     */
+    public int numberOfShardsOfIndex(String index) {
+        return shardsPerIndex.get(index);
     }
 
     public void removeByShardId(int shardId) {
-        for (Iterator<MutableShardRouting> it = shards.iterator(); it.hasNext();) {
+        for (Iterator<MutableShardRouting> it = iterator(); it.hasNext();) {
             MutableShardRouting shard = it.next();
             if (shard.id() == shardId) {
                 it.remove();
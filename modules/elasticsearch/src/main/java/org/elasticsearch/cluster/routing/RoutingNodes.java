@@ -23,6 +23,7 @@ import org.elasticsearch.cluster.block.ClusterBlocks;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.common.util.concurrent.NotThreadSafe;
+import org.elasticsearch.index.shard.ShardId;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -52,6 +53,13 @@ public class RoutingNodes implements Iterable<RoutingNode> {
 
     private final List<MutableShardRouting> ignoredUnassigned = newArrayList();
 
+    // all the shards assigned to a node, by shard id, maintained as shards are added to / removed from nodes
+    private final Map<ShardId, List<MutableShardRouting>> assignedShards = newHashMap();
+
+    private final int totalNumberOfShards;
+
+    private int mutations;
+
     public RoutingNodes(MetaData metaData, ClusterBlocks blocks, RoutingTable routingTable) {
         this.metaData = metaData;
         this.blocks = blocks;
@@ -86,8 +94,22 @@ public class RoutingNodes implements Iterable<RoutingNode> {
         }
         for (Map.Entry<String, List<MutableShardRouting>> entry : nodesToShards.entrySet()) {
             String nodeId = entry.getKey();
-            this.nodesToShards.put(nodeId, new RoutingNode(nodeId, entry.getValue()));
+            RoutingNode routingNode = new RoutingNode(nodeId, entry.getValue());
+            routingNode.routingNodes(this);
+            this.nodesToShards.put(nodeId, routingNode);
+            for (MutableShardRouting shard : routingNode) {
+                shardAdded(shard);
+            }
+        }
+
+        int totalNumberOfShards = 0;
+        // we need to take closed shards into account
+        for (IndexMetaData indexMetaData : metaData.indices().values()) {
+            if (indexMetaData.state() == IndexMetaData.State.OPEN) {
+                totalNumberOfShards += indexMetaData.totalNumberOfShards();
+            }
         }
+        this.totalNumberOfShards = totalNumberOfShards;
     }
 
     @Override public Iterator<RoutingNode> iterator() {
@@ -119,16 +141,17 @@ public class RoutingNodes implements Iterable<RoutingNode> {
     }
 
     public int requiredAverageNumberOfShardsPerNode() {
-        int totalNumberOfShards = 0;
-        // we need to recompute to take closed shards into account
-        for (IndexMetaData indexMetaData : metaData.indices().values()) {
-            if (indexMetaData.state() == IndexMetaData.State.OPEN) {
-                totalNumberOfShards += indexMetaData.totalNumberOfShards();
-            }
-        }
         return totalNumberOfShards / nodesToShards.size();
     }
 
+    /**
+     * The number of times shards were added to or removed from the nodes. Allows to tell if a result
+     * computed based on the shards allocation is still valid.
+     */
+    public int mutations() {
+        return mutations;
+    }
+
     public boolean hasUnassigned() {
         return !unassigned.isEmpty();
     }
@@ -157,16 +180,70 @@ public class RoutingNodes implements Iterable<RoutingNode> {
         return nodesToShards.get(nodeId);
     }
 
+    /**
+     * Adds a new (empty) node.
+     */
+    public RoutingNode addNode(String nodeId) {
+        RoutingNode routingNode = new RoutingNode(nodeId);
+        routingNode.routingNodes(this);
+        nodesToShards.put(nodeId, routingNode);
+        return routingNode;
+    }
+
+    void shardAdded(MutableShardRouting shard) {
+        mutations++;
+        List<MutableShardRouting> shards = assignedShards.get(shard.shardId());
+        if (shards == null) {
+            shards = new ArrayList<MutableShardRouting>(2);
+            assignedShards.put(shard.shardId(), shards);
+        }
+        shards.add(shard);
+    }
+
+    void shardRemoved(MutableShardRouting shard) {
+        mutations++;
+        List<MutableShardRouting> shards = assignedShards.get(shard.shardId());
+        if (shards == null) {
+            return;
+        }
+        for (Iterator<MutableShardRouting> it = shards.iterator(); it.hasNext(); ) {
+            // identity, the relocation source and target are two different instances of the same shard
+            if (it.next() == shard) {
+                it.remove();
+                break;
+            }
+        }
+        if (shards.isEmpty()) {
+            assignedShards.remove(shard.shardId());
+        }
+    }
+
+    /**
+     * All the shards with the provided shard id that are assigned to a node (including both the source and the
+     * target of a relocation).
+     */
+    public List<MutableShardRouting> assignedShards(ShardId shardId) {
+        List<MutableShardRouting> shards = assignedShards.get(shardId);
+        if (shards == null) {
+            return Collections.emptyList();
+        }
+        return shards;
+    }
+
     public MutableShardRouting findPrimaryForReplica(ShardRouting shard) {
         assert !shard.primary();
-        for (RoutingNode routingNode : nodesToShards.values()) {
-            for (MutableShardRouting shardRouting : routingNode) {
-                if (shardRouting.shardId().equals(shard.shardId()) && shardRouting.primary()) {
-                    return shardRouting;
+        MutableShardRouting relocationTarget = null;
+        for (MutableShardRouting shardRouting : assignedShards(shard.shardId())) {
+            if (shardRouting.primary()) {
+                if (shardRouting.initializing() && shardRouting.relocatingNodeId() != null) {
+                    // prefer the source of the relocation
+                    relocationTarget = shardRouting;
+                    continue;
                 }
+                return shardRouting;
             }
         }
-        return null;
+        return relocationTarget;
     }
 
     public List<MutableShardRouting> shardsRoutingFor(ShardRouting shardRouting) {
@@ -174,14 +251,7 @@ public class RoutingNodes implements Iterable<RoutingNode> {
     }
 
     public List<MutableShardRouting> shardsRoutingFor(String index, int shardId) {
-        List<MutableShardRouting> shards = newArrayList();
-        for (RoutingNode routingNode : this) {
-            for (MutableShardRouting shardRouting : routingNode) {
-                if (shardRouting.index().equals(index) && shardRouting.id() == shardId) {
-                    shards.add(shardRouting);
-                }
-            }
-        }
+        List<MutableShardRouting> shards = newArrayList(assignedShards(new ShardId(index, shardId)));
         for (MutableShardRouting shardRouting : unassigned) {
             if (shardRouting.index().equals(index) && shardRouting.id() == shardId) {
                 shards.add(shardRouting);
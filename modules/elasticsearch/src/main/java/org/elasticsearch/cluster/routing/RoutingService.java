@@ -114,6 +114,13 @@ public class RoutingService extends AbstractLifecycleComponent<RoutingService> i
         }
     }
 
+    /**
+     * Marks the routing table as requiring a reroute, executed on the next scheduled run (if we are the master).
+     */
+    public void scheduleReroute() {
+        routingTableDirty = true;
+    }
+
     private void reroute() {
         try {
             if (!routingTableDirty) {
@@ -33,6 +33,18 @@ public class ClusterRebalanceNodeAllocation extends NodeAllocation {
         INDICES_ALL_ACTIVE
     }
 
+    private static final String CACHE_KEY = "cluster_rebalance";
+
+    static class CachedDecision {
+        final int mutations;
+        final boolean canRebalance;
+
+        CachedDecision(int mutations, boolean canRebalance) {
+            this.mutations = mutations;
+            this.canRebalance = canRebalance;
+        }
+    }
+
     private final ClusterRebalanceType type;
 
     @Inject public ClusterRebalanceNodeAllocation(Settings settings) {
@@ -52,6 +64,20 @@ public class ClusterRebalanceNodeAllocation extends NodeAllocation {
     }
 
     @Override public boolean canRebalance(ShardRouting shardRouting, RoutingAllocation allocation) {
+        if (type == ClusterRebalanceType.ALWAYS) {
+            return true;
+        }
+        // the check goes over all the shards, and does not depend on the shard, so cache it until shards get moved around
+        CachedDecision cached = allocation.cached(CACHE_KEY);
+        if (cached != null && cached.mutations == allocation.routingNodes().mutations()) {
+            return cached.canRebalance;
+        }
+        boolean canRebalance = clusterCanRebalance(allocation);
+        allocation.cache(CACHE_KEY, new CachedDecision(allocation.routingNodes().mutations(), canRebalance));
+        return canRebalance;
+    }
+
+    private boolean clusterCanRebalance(RoutingAllocation allocation) {
         if (type == ClusterRebalanceType.INDICES_PRIMARIES_ACTIVE) {
             for (MutableShardRouting shard : allocation.routingNodes().unassigned()) {
                 if (shard.primary()) {
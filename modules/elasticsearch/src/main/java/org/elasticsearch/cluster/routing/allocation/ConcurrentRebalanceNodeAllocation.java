@@ -28,6 +28,8 @@ import org.elasticsearch.common.settings.Settings;
 
 public class ConcurrentRebalanceNodeAllocation extends NodeAllocation {
 
+    private static final String CACHE_KEY = "concurrent_rebalance";
+
     private final int clusterConcurrentRebalance;
 
     @Inject public ConcurrentRebalanceNodeAllocation(Settings settings) {
@@ -40,6 +42,11 @@ public class ConcurrentRebalanceNodeAllocation extends NodeAllocation {
         if (clusterConcurrentRebalance == -1) {
             return true;
         }
+        // only depends on the shards allocation, so cache it until shards get moved around (a relocation adds a shard)
+        ClusterRebalanceNodeAllocation.CachedDecision cached = allocation.cached(CACHE_KEY);
+        if (cached != null && cached.mutations == allocation.routingNodes().mutations()) {
+            return cached.canRebalance;
+        }
         int rebalance = 0;
         for (RoutingNode node : allocation.routingNodes()) {
             for (MutableShardRouting shard : node) {
@@ -48,9 +55,8 @@ public class ConcurrentRebalanceNodeAllocation extends NodeAllocation {
                 }
             }
         }
-        if (rebalance >= clusterConcurrentRebalance) {
-            return false;
-        }
-        return true;
+        boolean canRebalance = rebalance < clusterConcurrentRebalance;
+        allocation.cache(CACHE_KEY, new ClusterRebalanceNodeAllocation.CachedDecision(allocation.routingNodes().mutations(), canRebalance));
+        return canRebalance;
     }
 }
\ No newline at end of file
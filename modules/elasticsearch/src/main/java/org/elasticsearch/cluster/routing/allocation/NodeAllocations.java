@@ -44,6 +44,8 @@ public class NodeAllocations extends NodeAllocation {
                 .add(new RebalanceOnlyWhenActiveNodeAllocation(settings))
                 .add(new ClusterRebalanceNodeAllocation(settings))
                 .add(new ConcurrentRebalanceNodeAllocation(settings))
+                .add(new ShardsLoadNodeAllocation(settings))
+                .add(new SplitNodeAllocation(settings))
                 .build()
         );
     }
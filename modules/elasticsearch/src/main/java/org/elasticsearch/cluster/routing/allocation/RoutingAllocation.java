@@ -67,6 +67,10 @@ public class RoutingAllocation {
 
     private Map<ShardId, String> ignoredShardToNodes = null;
 
+    private Map<Object, Object> cache = null;
+
+    private ShardsLoad shardsLoad = ShardsLoad.EMPTY;
+
     public RoutingAllocation(RoutingNodes routingNodes, DiscoveryNodes nodes) {
         this.routingNodes = routingNodes;
         this.nodes = nodes;
@@ -88,6 +92,17 @@ public class RoutingAllocation {
         return explanation;
     }
 
+    /**
+     * The last known load of the shards, {@link ShardsLoad#EMPTY} if not known.
+     */
+    public ShardsLoad shardsLoad() {
+        return shardsLoad;
+    }
+
+    public void shardsLoad(ShardsLoad shardsLoad) {
+        this.shardsLoad = shardsLoad;
+    }
+
     public void addIgnoreShardForNode(ShardId shardId, String nodeId) {
         if (ignoredShardToNodes == null) {
             ignoredShardToNodes = new HashMap<ShardId, String>();
@@ -98,4 +113,34 @@ public class RoutingAllocation {
     public boolean shouldIgnoreShardForNode(ShardId shardId, String nodeId) {
         return ignoredShardToNodes != null && nodeId.equals(ignoredShardToNodes.get(shardId));
     }
+
+    /**
+     * Returns a result cached by a node allocation during the current reroute, <tt>null</tt> if there is none.
+     */
+    @SuppressWarnings({"unchecked"})
+    public <T> T cached(Object key) {
+        if (cache == null) {
+            return null;
+        }
+        return (T) cache.get(key);
+    }
+
+    /**
+     * Caches a result for the rest of the current reroute. Only results that can't be changed by the allocation
+     * decisions taken during the reroute should be cached, or they should be validated against
+     * {@link RoutingNodes#mutations()}.
+     */
+    public void cache(Object key, Object value) {
+        if (cache == null) {
+            cache = new HashMap<Object, Object>();
+        }
+        cache.put(key, value);
+    }
+
+    /**
+     * Clears the cached results, called when a new reroute starts.
+     */
+    public void clearCache() {
+        cache = null;
+    }
 }
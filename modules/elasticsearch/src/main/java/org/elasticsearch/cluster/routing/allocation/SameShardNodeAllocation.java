@@ -37,9 +37,12 @@ public class SameShardNodeAllocation extends NodeAllocation {
     }
 
     @Override public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
-        for (MutableShardRouting current : node.shards()) {
+        if (node.numberOfShardsOfIndex(shardRouting.index()) == 0) {
+            return Decision.YES;
+        }
+        for (MutableShardRouting current : allocation.routingNodes().assignedShards(shardRouting.shardId())) {
             // we do not allow for two shards of the same shard id to exists on the same node
-            if (current.shardId().equals(shardRouting.shardId())) {
+            if (node.nodeId().equals(current.currentNodeId())) {
                 return Decision.NO;
             }
         }
@@ -50,10 +50,13 @@ public class ShardAllocationModule extends AbstractModule {
         allocationMultibinder.addBinding().to(RebalanceOnlyWhenActiveNodeAllocation.class);
         allocationMultibinder.addBinding().to(ClusterRebalanceNodeAllocation.class);
         allocationMultibinder.addBinding().to(ConcurrentRebalanceNodeAllocation.class);
+        allocationMultibinder.addBinding().to(ShardsLoadNodeAllocation.class);
+        allocationMultibinder.addBinding().to(SplitNodeAllocation.class);
         for (Class<? extends NodeAllocation> allocation : allocations) {
             allocationMultibinder.addBinding().to(allocation);
         }
 
         bind(NodeAllocations.class).asEagerSingleton();
+        bind(ShardsLoadService.class).asEagerSingleton();
     }
 }
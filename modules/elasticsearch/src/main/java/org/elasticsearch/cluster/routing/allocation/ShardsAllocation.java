@@ -33,8 +33,11 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import static org.elasticsearch.cluster.routing.ShardRoutingState.*;
@@ -45,8 +48,16 @@ import static org.elasticsearch.common.collect.Sets.*;
  */
 public class ShardsAllocation extends AbstractComponent {
 
+    private static final Comparator<RoutingNode> NODE_WEIGHT_COMPARATOR = new Comparator<RoutingNode>() {
+        @Override public int compare(RoutingNode o1, RoutingNode o2) {
+            return o1.shards().size() - o2.shards().size();
+        }
+    };
+
     private final NodeAllocations nodeAllocations;
 
+    private volatile ShardsLoad shardsLoad = ShardsLoad.EMPTY;
+
     public ShardsAllocation() {
         this(ImmutableSettings.Builder.EMPTY_SETTINGS);
     }
@@ -60,6 +71,20 @@ public class ShardsAllocation extends AbstractComponent {
         this.nodeAllocations = nodeAllocations;
     }
 
+    /**
+     * The last known load of the shards, used to spread hot shards across nodes when rebalancing.
+     */
+    public ShardsLoad shardsLoad() {
+        return this.shardsLoad;
+    }
+
+    /**
+     * Updates the load of the shards, taken into account starting with the next reroute.
+     */
+    public void shardsLoad(ShardsLoad shardsLoad) {
+        this.shardsLoad = shardsLoad;
+    }
+
     /**
      * Applies the started shards. Note, shards can be called several times within this method.
      *
@@ -94,6 +119,31 @@ public class ShardsAllocation extends AbstractComponent {
         return new RoutingAllocation.Result(true, new RoutingTable.Builder().updateNodes(routingNodes).build().validateRaiseException(clusterState.metaData()), allocation.explanation());
     }
 
+    /**
+     * Applies several failed shards at once, and reroutes only once for all of them.
+     *
+     * <p>If the same instance of the routing table is returned, then no change has been made.
+     */
+    public RoutingAllocation.Result applyFailedShards(ClusterState clusterState, List<? extends ShardRouting> failedShards) {
+        RoutingNodes routingNodes = clusterState.routingNodes();
+        RoutingAllocation allocation = new RoutingAllocation(routingNodes, clusterState.nodes());
+        boolean changed = false;
+        for (ShardRouting failedShard : failedShards) {
+            FailedRerouteAllocation failedAllocation = new FailedRerouteAllocation(routingNodes, clusterState.nodes(), failedShard);
+            if (applyFailedShard(failedAllocation)) {
+                changed = true;
+                nodeAllocations.applyFailedShards(nodeAllocations, failedAllocation);
+                // don't allocate the failed shards back to the nodes they just failed on
+                allocation.addIgnoreShardForNode(failedShard.shardId(), failedShard.currentNodeId());
+            }
+        }
+        if (!changed) {
+            return new RoutingAllocation.Result(false, clusterState.routingTable(), allocation.explanation());
+        }
+        reroute(allocation);
+        return new RoutingAllocation.Result(true, new RoutingTable.Builder().updateNodes(routingNodes).build().validateRaiseException(clusterState.metaData()), allocation.explanation());
+    }
+
     /**
      * Reroutes the routing table based on the live nodes.
      *
@@ -135,6 +185,9 @@ public class ShardsAllocation extends AbstractComponent {
     }
 
     private boolean reroute(RoutingAllocation allocation) {
+        // results cached by node allocations are only valid for a single reroute
+        allocation.clearCache();
+        allocation.shardsLoad(shardsLoad);
         Iterable<DiscoveryNode> dataNodes = allocation.nodes().dataNodes().values();
 
         boolean changed = false;
@@ -158,6 +211,7 @@ public class ShardsAllocation extends AbstractComponent {
 
         // rebalance
         changed |= rebalance(allocation);
+        changed |= rebalanceLoad(allocation);
 
         return changed;
     }
@@ -217,28 +271,89 @@ public class ShardsAllocation extends AbstractComponent {
         return changed;
     }
 
+    /**
+     * Moves started shards from the most loaded node to the least loaded one (by the shards load, not count), as
+     * long as the difference between them is above the tolerated one. Each move picks the shard that brings the
+     * two nodes the closest, and is subject to the node allocations (throttling, same shard, ...).
+     */
+    private boolean rebalanceLoad(RoutingAllocation allocation) {
+        ShardsLoad shardsLoad = allocation.shardsLoad();
+        if (shardsLoad.empty()) {
+            return false;
+        }
+        List<RoutingNode> nodes = allocation.routingNodes().nodesToShardsSorted(null);
+        if (nodes.size() < 2) {
+            return false;
+        }
+        boolean changed = false;
+        // bound the number of moves, the concurrent rebalance / throttling allocations will usually stop us earlier
+        for (int i = 0; i < nodes.size(); i++) {
+            RoutingNode hottestNode = null;
+            RoutingNode coldestNode = null;
+            double hottestLoad = 0;
+            double coldestLoad = 0;
+            for (RoutingNode node : nodes) {
+                double load = shardsLoad.nodeLoad(node);
+                if (hottestNode == null || load > hottestLoad) {
+                    hottestNode = node;
+                    hottestLoad = load;
+                }
+                if (coldestNode == null || load < coldestLoad) {
+                    coldestNode = node;
+                    coldestLoad = load;
+                }
+            }
+            double difference = hottestLoad - coldestLoad;
+            if (hottestNode == coldestNode || difference <= shardsLoad.tolerance(allocation)) {
+                break;
+            }
+
+            MutableShardRouting bestShard = null;
+            double bestDistance = Double.MAX_VALUE;
+            for (MutableShardRouting startedShard : hottestNode.shardsWithState(STARTED)) {
+                double weight = shardsLoad.weight(startedShard.shardId());
+                // moving it must reduce the difference between the two nodes, the best one halves it
+                if (weight <= 0 || weight >= difference) {
+                    continue;
+                }
+                double distance = Math.abs(difference / 2 - weight);
+                if (distance >= bestDistance) {
+                    continue;
+                }
+                if (!nodeAllocations.canRebalance(startedShard, allocation)) {
+                    continue;
+                }
+                if (!nodeAllocations.canAllocate(startedShard, coldestNode, allocation).allocate()) {
+                    continue;
+                }
+                bestShard = startedShard;
+                bestDistance = distance;
+            }
+            if (bestShard == null) {
+                break;
+            }
+            coldestNode.add(new MutableShardRouting(bestShard.index(), bestShard.id(),
+                    coldestNode.nodeId(), bestShard.currentNodeId(),
+                    bestShard.primary(), INITIALIZING, bestShard.version() + 1));
+            bestShard.relocate(coldestNode.nodeId());
+            changed = true;
+        }
+        return changed;
+    }
+
     private boolean electPrimaries(RoutingNodes routingNodes) {
         boolean changed = false;
         for (MutableShardRouting shardEntry : routingNodes.unassigned()) {
             if (shardEntry.primary() && !shardEntry.assignedToNode()) {
-                boolean elected = false;
                 // primary and not assigned, go over and find a replica that is assigned and active (since it might be relocating)
-                for (RoutingNode routingNode : routingNodes.nodesToShards().values()) {
-
-                    for (MutableShardRouting shardEntry2 : routingNode.shards()) {
-                        if (shardEntry.shardId().equals(shardEntry2.shardId()) && shardEntry2.active()) {
-                            assert shardEntry2.assignedToNode();
-                            assert !shardEntry2.primary();
-
-                            changed = true;
-                            shardEntry.moveFromPrimary();
-                            shardEntry2.moveToPrimary();
-                            elected = true;
-                            break;
-                        }
-                    }
+                for (MutableShardRouting shardEntry2 : routingNodes.assignedShards(shardEntry.shardId())) {
+                    if (shardEntry2.active()) {
+                        assert shardEntry2.assignedToNode();
+                        assert !shardEntry2.primary();
 
-                    if (elected) {
+                        changed = true;
+                        shardEntry.moveFromPrimary();
+                        shardEntry2.moveToPrimary();
                         break;
                     }
                 }
@@ -250,53 +365,62 @@ public class ShardsAllocation extends AbstractComponent {
     private boolean allocateUnassigned(RoutingAllocation allocation) {
         boolean changed = false;
         RoutingNodes routingNodes = allocation.routingNodes();
+        if (routingNodes.nodesToShards().isEmpty()) {
+            return false;
+        }
 
+        // the nodes ordered by weight (the least loaded first), a node is polled and put back once a shard is allocated
+        // to it, so we don't need to sort all the nodes for each shard
+        PriorityQueue<RoutingNode> nodes = new PriorityQueue<RoutingNode>(routingNodes.nodesToShards().size(), NODE_WEIGHT_COMPARATOR);
+        nodes.addAll(routingNodes.nodesToShards().values());
+        List<RoutingNode> polledNodes = new ArrayList<RoutingNode>();
 
-        List<RoutingNode> nodes = routingNodes.sortedNodesLeastToHigh();
-
-        Iterator<MutableShardRouting> unassignedIterator = routingNodes.unassigned().iterator();
-        int lastNode = 0;
-
-        while (unassignedIterator.hasNext()) {
-            MutableShardRouting shard = unassignedIterator.next();
-            // do the allocation, finding the least "busy" node
-            for (int i = 0; i < nodes.size(); i++) {
-                RoutingNode node = nodes.get(lastNode);
-                lastNode++;
-                if (lastNode == nodes.size()) {
-                    lastNode = 0;
-                }
-
-                if (nodeAllocations.canAllocate(shard, node, allocation).allocate()) {
-                    int numberOfShardsToAllocate = routingNodes.requiredAverageNumberOfShardsPerNode() - node.shards().size();
-                    if (numberOfShardsToAllocate <= 0) {
-                        continue;
-                    }
-
-                    changed = true;
-                    node.add(shard);
-                    unassignedIterator.remove();
-                    break;
-                }
+        // first, allocate the unassigned shards to nodes that are below the average number of shards per node
+        int averageNumOfShards = routingNodes.requiredAverageNumberOfShardsPerNode();
+        for (Iterator<MutableShardRouting> it = routingNodes.unassigned().iterator(); it.hasNext(); ) {
+            MutableShardRouting shard = it.next();
+            if (allocateToLeastLoaded(shard, nodes, polledNodes, averageNumOfShards, allocation)) {
+                changed = true;
+                it.remove();
             }
         }
 
         // allocate all the unassigned shards above the average per node.
         for (Iterator<MutableShardRouting> it = routingNodes.unassigned().iterator(); it.hasNext(); ) {
             MutableShardRouting shard = it.next();
-            // go over the nodes and try and allocate the remaining ones
-            for (RoutingNode routingNode : routingNodes.sortedNodesLeastToHigh()) {
-                if (nodeAllocations.canAllocate(shard, routingNode, allocation).allocate()) {
-                    changed = true;
-                    routingNode.add(shard);
-                    it.remove();
-                    break;
-                }
+            if (allocateToLeastLoaded(shard, nodes, polledNodes, Integer.MAX_VALUE, allocation)) {
+                changed = true;
+                it.remove();
             }
         }
         return changed;
     }
 
+    /**
+     * Allocates the shard to the least loaded node that has less than <tt>maxNumOfShards</tt> and allows for it.
+     */
+    private boolean allocateToLeastLoaded(MutableShardRouting shard, PriorityQueue<RoutingNode> nodes, List<RoutingNode> polledNodes,
+                                          int maxNumOfShards, RoutingAllocation allocation) {
+        boolean allocated = false;
+        while (!nodes.isEmpty()) {
+            RoutingNode node = nodes.poll();
+            polledNodes.add(node);
+            if (node.shards().size() >= maxNumOfShards) {
+                // all the remaining nodes have at least as many shards
+                break;
+            }
+            if (nodeAllocations.canAllocate(shard, node, allocation).allocate()) {
+                node.add(shard);
+                allocated = true;
+                break;
+            }
+        }
+        // put back the polled nodes, with their updated weight
+        nodes.addAll(polledNodes);
+        polledNodes.clear();
+        return allocated;
+    }
+
     /**
      * Applies the new nodes to the routing nodes and returns them (just the
      * new nodes);
@@ -306,8 +430,7 @@ public class ShardsAllocation extends AbstractComponent {
     private void applyNewNodes(RoutingNodes routingNodes, Iterable<DiscoveryNode> liveNodes) {
         for (DiscoveryNode node : liveNodes) {
             if (!routingNodes.nodesToShards().containsKey(node.id())) {
-                RoutingNode routingNode = new RoutingNode(node.id());
-                routingNodes.nodesToShards().put(node.id(), routingNode);
+                routingNodes.addNode(node.id());
             }
         }
     }
@@ -320,7 +443,7 @@ public class ShardsAllocation extends AbstractComponent {
         }
         Set<String> nodeIdsToRemove = newHashSet();
         for (RoutingNode routingNode : routingNodes) {
-            for (Iterator<MutableShardRouting> shardsIterator = routingNode.shards().iterator(); shardsIterator.hasNext(); ) {
+            for (Iterator<MutableShardRouting> shardsIterator = routingNode.iterator(); shardsIterator.hasNext(); ) {
                 MutableShardRouting shardRoutingEntry = shardsIterator.next();
                 if (shardRoutingEntry.assignedToNode()) {
                     // we store the relocation state here since when we call de-assign node
@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation;
+
+import org.elasticsearch.cluster.routing.MutableShardRouting;
+import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.cluster.routing.RoutingNodes;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.common.collect.ImmutableMap;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.util.Map;
+
+/**
+ * The load of the shards in the cluster, as a (relative) weight per shard, where a shard of average load weights
+ * the sum of the weights of the load inputs (indexing, search, store size). Shards with no known load are
+ * considered average.
+ */
+public class ShardsLoad {
+
+    private static final String AVERAGE_NODE_LOAD_KEY = "shards_load_average_node_load";
+
+    public static final ShardsLoad EMPTY = new ShardsLoad(ImmutableMap.<ShardId, Double>of(), 0, 0);
+
+    private final ImmutableMap<ShardId, Double> weights;
+
+    private final double averageWeight;
+
+    private final double threshold;
+
+    /**
+     * @param weights       The weight of each shard
+     * @param averageWeight The weight of a shard of average load
+     * @param threshold     The difference between the load of nodes, relative to the average node load, that is
+     *                      tolerated before shards are moved around
+     */
+    public ShardsLoad(Map<ShardId, Double> weights, double averageWeight, double threshold) {
+        this.weights = ImmutableMap.copyOf(weights);
+        this.averageWeight = averageWeight;
+        this.threshold = threshold;
+    }
+
+    public boolean empty() {
+        return weights.isEmpty();
+    }
+
+    public double threshold() {
+        return this.threshold;
+    }
+
+    public double averageWeight() {
+        return this.averageWeight;
+    }
+
+    public double weight(ShardId shardId) {
+        Double weight = weights.get(shardId);
+        if (weight == null) {
+            return averageWeight;
+        }
+        return weight;
+    }
+
+    /**
+     * The load of a node, the shards relocating away from it are not taken into account, while the shards
+     * initializing on it are.
+     */
+    public double nodeLoad(RoutingNode node) {
+        double load = 0;
+        for (MutableShardRouting shard : node.shards()) {
+            if (shard.state() != ShardRoutingState.RELOCATING) {
+                load += weight(shard.shardId());
+            }
+        }
+        return load;
+    }
+
+    /**
+     * The average load of the nodes, cached for the allocation as long as no shards are added or removed.
+     */
+    public double averageNodeLoad(RoutingAllocation allocation) {
+        RoutingNodes routingNodes = allocation.routingNodes();
+        double[] cached = allocation.cached(AVERAGE_NODE_LOAD_KEY);
+        if (cached != null && cached[0] == routingNodes.mutations()) {
+            return cached[1];
+        }
+        double total = 0;
+        int nodes = 0;
+        for (RoutingNode node : routingNodes) {
+            total += nodeLoad(node);
+            nodes++;
+        }
+        double average = nodes == 0 ? 0 : total / nodes;
+        allocation.cache(AVERAGE_NODE_LOAD_KEY, new double[]{routingNodes.mutations(), average});
+        return average;
+    }
+
+    /**
+     * The load difference between nodes that is tolerated.
+     */
+    public double tolerance(RoutingAllocation allocation) {
+        return threshold * averageNodeLoad(allocation);
+    }
+}
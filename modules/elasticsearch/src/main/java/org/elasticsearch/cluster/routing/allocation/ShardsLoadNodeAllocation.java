@@ -0,0 +1,59 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation;
+
+import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+
+/**
+ * Prevents rebalancing a started shard to a node if, once moved, that node would end up more loaded than the node
+ * the shard is moved from (see {@link ShardsLoad}), so hot shards don't pile up on the nodes that happen to have
+ * less shards. Has no effect when the shards load is not known.
+ */
+public class ShardsLoadNodeAllocation extends NodeAllocation {
+
+    @Inject public ShardsLoadNodeAllocation(Settings settings) {
+        super(settings);
+    }
+
+    @Override public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
+        // only applies to started shards, i.e. relocations
+        if (!shardRouting.started()) {
+            return Decision.YES;
+        }
+        ShardsLoad shardsLoad = allocation.shardsLoad();
+        if (shardsLoad.empty()) {
+            return Decision.YES;
+        }
+        RoutingNode sourceNode = allocation.routingNodes().node(shardRouting.currentNodeId());
+        if (sourceNode == null) {
+            return Decision.YES;
+        }
+        double weight = shardsLoad.weight(shardRouting.shardId());
+        double sourceLoad = shardsLoad.nodeLoad(sourceNode) - weight;
+        double targetLoad = shardsLoad.nodeLoad(node) + weight;
+        if (targetLoad > sourceLoad + shardsLoad.tolerance(allocation)) {
+            return Decision.NO;
+        }
+        return Decision.YES;
+    }
+}
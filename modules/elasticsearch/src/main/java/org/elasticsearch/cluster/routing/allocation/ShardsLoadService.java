@@ -0,0 +1,211 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsRequest;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.action.admin.cluster.node.stats.TransportNodesStatsAction;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingService;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.ShardsLoadStats;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.elasticsearch.common.collect.Maps.*;
+import static org.elasticsearch.common.unit.TimeValue.*;
+
+/**
+ * Periodically (when the local node is the master) collects the load of the shards from the data nodes and
+ * hands it over to the {@link ShardsAllocation}, so rebalancing spreads hot shards across nodes and not just
+ * the number of shards.
+ *
+ * <p>The weight of a shard is the sum of its indexing rate, search rate and store size, each relative to the
+ * average of all the shards (so a shard of average load on all three weights <tt>3</tt> with the default
+ * weights). The copies of a shard are averaged.
+ */
+public class ShardsLoadService extends AbstractLifecycleComponent<ShardsLoadService> {
+
+    private final ClusterService clusterService;
+
+    private final ThreadPool threadPool;
+
+    private final TransportNodesStatsAction nodesStatsAction;
+
+    private final ShardsAllocation shardsAllocation;
+
+    private final RoutingService routingService;
+
+    private final boolean enabled;
+
+    private final TimeValue interval;
+
+    private final double threshold;
+
+    private final double indexingWeight;
+
+    private final double searchWeight;
+
+    private final double storeWeight;
+
+    private volatile ScheduledFuture scheduledFuture;
+
+    @Inject public ShardsLoadService(Settings settings, ClusterService clusterService, ThreadPool threadPool, TransportNodesStatsAction nodesStatsAction,
+                                     ShardsAllocation shardsAllocation, RoutingService routingService) {
+        super(settings);
+        this.clusterService = clusterService;
+        this.threadPool = threadPool;
+        this.nodesStatsAction = nodesStatsAction;
+        this.shardsAllocation = shardsAllocation;
+        this.routingService = routingService;
+
+        this.enabled = componentSettings.getAsBoolean("enabled", true);
+        this.interval = componentSettings.getAsTime("interval", timeValueSeconds(30));
+        this.threshold = componentSettings.getAsDouble("threshold", 0.2d);
+        this.indexingWeight = componentSettings.getAsDouble("indexing_weight", 1.0d);
+        this.searchWeight = componentSettings.getAsDouble("search_weight", 1.0d);
+        this.storeWeight = componentSettings.getAsDouble("store_weight", 1.0d);
+
+        logger.debug("using enabled [{}], interval [{}], threshold [{}], indexing_weight [{}], search_weight [{}], store_weight [{}]",
+                enabled, interval, threshold, indexingWeight, searchWeight, storeWeight);
+    }
+
+    @Override protected void doStart() throws ElasticSearchException {
+        if (!enabled) {
+            return;
+        }
+        scheduledFuture = threadPool.scheduleWithFixedDelay(new ShardsLoadCollector(), interval);
+    }
+
+    @Override protected void doStop() throws ElasticSearchException {
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(true);
+            scheduledFuture = null;
+        }
+    }
+
+    @Override protected void doClose() throws ElasticSearchException {
+    }
+
+    /**
+     * Computes the load of the shards out of the shards load stats reported by the nodes.
+     */
+    ShardsLoad buildShardsLoad(NodeStats[] nodesStats) {
+        Map<ShardId, double[]> samples = newHashMap();
+        for (NodeStats nodeStats : nodesStats) {
+            ShardsLoadStats shardsLoadStats = nodeStats.shardsLoad();
+            if (shardsLoadStats == null) {
+                continue;
+            }
+            for (ShardsLoadStats.Entry entry : shardsLoadStats.entries()) {
+                double[] sample = samples.get(entry.shardId());
+                if (sample == null) {
+                    sample = new double[4];
+                    samples.put(entry.shardId(), sample);
+                }
+                sample[0] += entry.indexingRate();
+                sample[1] += entry.searchRate();
+                sample[2] += entry.storeSizeInBytes();
+                sample[3]++;
+            }
+        }
+        if (samples.isEmpty()) {
+            return ShardsLoad.EMPTY;
+        }
+
+        double[] averages = new double[3];
+        for (double[] sample : samples.values()) {
+            for (int i = 0; i < 3; i++) {
+                sample[i] /= sample[3];
+                averages[i] += sample[i];
+            }
+        }
+        double[] weights = new double[]{indexingWeight, searchWeight, storeWeight};
+        double averageWeight = 0;
+        for (int i = 0; i < 3; i++) {
+            averages[i] /= samples.size();
+            if (averages[i] > 0) {
+                averageWeight += weights[i];
+            }
+        }
+        if (averageWeight == 0) {
+            // no load at all, nothing to balance
+            return ShardsLoad.EMPTY;
+        }
+
+        Map<ShardId, Double> shardsWeights = newHashMapWithExpectedSize(samples.size());
+        for (Map.Entry<ShardId, double[]> entry : samples.entrySet()) {
+            double weight = 0;
+            for (int i = 0; i < 3; i++) {
+                if (averages[i] > 0) {
+                    weight += weights[i] * (entry.getValue()[i] / averages[i]);
+                }
+            }
+            shardsWeights.put(entry.getKey(), weight);
+        }
+        return new ShardsLoad(shardsWeights, averageWeight, threshold);
+    }
+
+    private class ShardsLoadCollector implements Runnable {
+
+        @Override public void run() {
+            if (!lifecycle.started()) {
+                return;
+            }
+            DiscoveryNodes nodes = clusterService.state().nodes();
+            if (!nodes.localNodeMaster()) {
+                if (!shardsAllocation.shardsLoad().empty()) {
+                    shardsAllocation.shardsLoad(ShardsLoad.EMPTY);
+                }
+                return;
+            }
+            String[] nodesIds = nodes.dataNodes().keySet().toArray(new String[nodes.dataNodes().size()]);
+            if (nodesIds.length == 0) {
+                return;
+            }
+            nodesStatsAction.execute(new NodesStatsRequest(nodesIds), new ActionListener<NodesStatsResponse>() {
+                @Override public void onResponse(NodesStatsResponse response) {
+                    ShardsLoad shardsLoad = buildShardsLoad(response.nodes());
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("collected shards load from [{}] nodes, average weight [{}]", response.nodes().length, shardsLoad.averageWeight());
+                    }
+                    shardsAllocation.shardsLoad(shardsLoad);
+                    if (!shardsLoad.empty()) {
+                        routingService.scheduleReroute();
+                    }
+                }
+
+                @Override public void onFailure(Throwable e) {
+                    logger.debug("failed to collect the shards load", e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation;
+
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.MutableShardRouting;
+import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+
+/**
+ * An allocation strategy that only allows for the primary shards of an index split from another index to be
+ * allocated on a node that holds a started copy of the shard they are split from, so they can be recovered by
+ * linking its files. Also, shards of an index being split are not rebalanced until all the primaries of the
+ * split index are active.
+ */
+public class SplitNodeAllocation extends NodeAllocation {
+
+    @Inject public SplitNodeAllocation(Settings settings) {
+        super(settings);
+    }
+
+    @Override public boolean canRebalance(ShardRouting shardRouting, RoutingAllocation allocation) {
+        for (IndexMetaData indexMetaData : allocation.routingNodes().metaData()) {
+            if (!shardRouting.index().equals(indexMetaData.splitSource())) {
+                continue;
+            }
+            IndexRoutingTable indexRoutingTable = allocation.routingTable().index(indexMetaData.index());
+            if (indexRoutingTable != null && !indexRoutingTable.allPrimaryShardsActive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
+        if (!shardRouting.primary()) {
+            return Decision.YES;
+        }
+        IndexMetaData indexMetaData = allocation.routingNodes().metaData().index(shardRouting.index());
+        if (indexMetaData == null || indexMetaData.splitSource() == null) {
+            return Decision.YES;
+        }
+        IndexMetaData sourceMetaData = allocation.routingNodes().metaData().index(indexMetaData.splitSource());
+        if (sourceMetaData == null) {
+            // the source index got deleted, the split shards are now regular shards
+            return Decision.YES;
+        }
+        int sourceShardId = shardRouting.id() / (indexMetaData.numberOfShards() / sourceMetaData.numberOfShards());
+        for (MutableShardRouting shard : node) {
+            if (shard.id() == sourceShardId && shard.index().equals(sourceMetaData.index()) && shard.started()) {
+                return Decision.YES;
+            }
+        }
+        return Decision.NO;
+    }
+}
@@ -44,15 +44,15 @@ public class ThrottlingNodeAllocation extends NodeAllocation {
 
     @Override public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
         if (shardRouting.primary()) {
-            boolean primaryUnassigned = false;
-            for (MutableShardRouting shard : allocation.routingNodes().unassigned()) {
-                if (shard.shardId().equals(shardRouting.shardId())) {
-                    primaryUnassigned = true;
-                }
-            }
-            if (primaryUnassigned) {
+            // there is a single primary per shard id, so if the one we allocate is unassigned, the primary is unassigned
+            if (shardRouting.unassigned()) {
                 // primary is unassigned, means we are going to do recovery from gateway
                 // count *just the primary* currently doing recovery on the node and check against concurrent_recoveries
+                // recoveries don't complete during a reroute, so once throttled, the node stays throttled for the reroute
+                String key = "throttling:primaries:" + node.nodeId();
+                if (allocation.cached(key) != null) {
+                    return Decision.THROTTLE;
+                }
                 int primariesInRecovery = 0;
                 for (MutableShardRouting shard : node) {
                     if (shard.state() == ShardRoutingState.INITIALIZING && shard.primary()) {
@@ -60,6 +60,7 @@ public class ThrottlingNodeAllocation extends NodeAllocation {
                     }
                 }
                 if (primariesInRecovery >= primariesInitialRecoveries) {
+                    allocation.cache(key, Decision.THROTTLE);
                     return Decision.THROTTLE;
                 } else {
                     return Decision.YES;
@@ -69,6 +70,11 @@ public class ThrottlingNodeAllocation extends NodeAllocation {
 
         // either primary or replica doing recovery (from peer shard)
 
+        String key = "throttling:recoveries:" + node.nodeId();
+        if (allocation.cached(key) != null) {
+            return Decision.THROTTLE;
+        }
+
         // count the number of recoveries on the node, its for both target (INITIALIZING) and source (RELOCATING)
         int currentRecoveries = 0;
         for (MutableShardRouting shard : node) {
@@ -78,6 +84,7 @@ public class ThrottlingNodeAllocation extends NodeAllocation {
         }
 
         if (currentRecoveries >= concurrentRecoveries) {
+            allocation.cache(key, Decision.THROTTLE);
             return Decision.THROTTLE;
         } else {
             return Decision.YES;
@@ -20,6 +20,7 @@
 package org.elasticsearch.cluster.routing.operation;
 
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.common.Nullable;
@@ -47,4 +48,10 @@ public interface OperationRouting {
     GroupShardsIterator deleteByQueryShards(ClusterState clusterState, String index, @Nullable Set<String> routing) throws IndexMissingException;
 
     GroupShardsIterator searchShards(ClusterState clusterState, String[] indices, String[] concreteIndices, @Nullable String queryHint, @Nullable Map<String, Set<String>> routing, @Nullable String preference) throws IndexMissingException;
+
+    /**
+     * The shard of the provided index a document belongs to, based on its routing value if set, or its type
+     * and id otherwise.
+     */
+    int shardId(IndexMetaData indexMetaData, @Nullable String type, @Nullable String id, @Nullable String routing);
 }
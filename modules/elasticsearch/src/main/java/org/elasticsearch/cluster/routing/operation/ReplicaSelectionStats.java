@@ -0,0 +1,155 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.common.collect.Maps;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The inputs used by a node to rank the shard copies of read operations, per node the operations were sent to.
+ */
+public class ReplicaSelectionStats implements Streamable, ToXContent {
+
+    public static class Entry {
+
+        long responseTimeInNanos;
+
+        long serviceTimeInNanos;
+
+        int inFlight;
+
+        double rank;
+
+        /**
+         * The moving average of the time it takes to get a response from the node.
+         */
+        public TimeValue responseTime() {
+            return new TimeValue(responseTimeInNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * The moving average of the time it takes the node to execute an operation.
+         */
+        public TimeValue serviceTime() {
+            return new TimeValue(serviceTimeInNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * The number of operations currently sent to the node and not yet responded.
+         */
+        public int inFlight() {
+            return inFlight;
+        }
+
+        /**
+         * The rank of the node, lower is preferred.
+         */
+        public double rank() {
+            return rank;
+        }
+    }
+
+    private Map<String, Entry> entries = Maps.newHashMap();
+
+    ReplicaSelectionStats() {
+    }
+
+    public ReplicaSelectionStats(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * The stats per node id.
+     */
+    public Map<String, Entry> entries() {
+        return this.entries;
+    }
+
+    public Map<String, Entry> getEntries() {
+        return entries();
+    }
+
+    public static ReplicaSelectionStats readReplicaSelectionStats(StreamInput in) throws IOException {
+        ReplicaSelectionStats stats = new ReplicaSelectionStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.REPLICA_SELECTION);
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            builder.startObject(entry.getKey(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.RESPONSE_TIME, entry.getValue().responseTime().toString());
+            builder.field(Fields.RESPONSE_TIME_IN_MILLIS, entry.getValue().responseTime().millis());
+            builder.field(Fields.SERVICE_TIME, entry.getValue().serviceTime().toString());
+            builder.field(Fields.SERVICE_TIME_IN_MILLIS, entry.getValue().serviceTime().millis());
+            builder.field(Fields.IN_FLIGHT, entry.getValue().inFlight);
+            builder.field(Fields.RANK, entry.getValue().rank);
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString REPLICA_SELECTION = new XContentBuilderString("replica_selection");
+        static final XContentBuilderString RESPONSE_TIME = new XContentBuilderString("response_time");
+        static final XContentBuilderString RESPONSE_TIME_IN_MILLIS = new XContentBuilderString("response_time_in_millis");
+        static final XContentBuilderString SERVICE_TIME = new XContentBuilderString("service_time");
+        static final XContentBuilderString SERVICE_TIME_IN_MILLIS = new XContentBuilderString("service_time_in_millis");
+        static final XContentBuilderString IN_FLIGHT = new XContentBuilderString("in_flight");
+        static final XContentBuilderString RANK = new XContentBuilderString("rank");
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        entries = Maps.newHashMapWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            String nodeId = in.readUTF();
+            Entry entry = new Entry();
+            entry.responseTimeInNanos = in.readVLong();
+            entry.serviceTimeInNanos = in.readVLong();
+            entry.inFlight = in.readVInt();
+            entry.rank = in.readDouble();
+            entries.put(nodeId, entry);
+        }
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeVLong(entry.getValue().responseTimeInNanos);
+            out.writeVLong(entry.getValue().serviceTimeInNanos);
+            out.writeVInt(entry.getValue().inFlight);
+            out.writeDouble(entry.getValue().rank);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.collect.Maps;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects, per node, the (exponentially weighted moving average) response time and service time of shard level
+ * read operations (search, get) sent by this node, as well as the number of such operations currently in flight.
+ * Used to rank the copies of a shard so operations steer away from slow or loaded nodes.
+ */
+public class ResponseCollector extends AbstractComponent {
+
+    private final boolean enabled;
+
+    private final double alpha;
+
+    private final ConcurrentMap<String, NodeStatistics> nodes = ConcurrentCollections.newConcurrentMap();
+
+    private volatile DiscoveryNodes lastRetainedNodes;
+
+    @Inject public ResponseCollector(Settings settings) {
+        super(settings);
+        this.enabled = componentSettings.getAsBoolean("adaptive_replica_selection", true);
+        this.alpha = componentSettings.getAsDouble("ewma_alpha", 0.3d);
+
+        logger.debug("using adaptive_replica_selection [{}], ewma_alpha [{}]", enabled, alpha);
+    }
+
+    /**
+     * Should shard copies be ranked based on the collected statistics.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public void requestSent(String nodeId) {
+        statistics(nodeId).inFlight.incrementAndGet();
+    }
+
+    public void requestFailed(String nodeId) {
+        statistics(nodeId).inFlight.decrementAndGet();
+    }
+
+    /**
+     * A response was received from the node for a request previously marked with {@link #requestSent(String)}.
+     *
+     * @param responseTimeInNanos The time it took from sending the request to receiving the response
+     * @param serviceTimeInNanos  The time it took the node to execute the request
+     */
+    public void responseReceived(String nodeId, long responseTimeInNanos, long serviceTimeInNanos) {
+        NodeStatistics statistics = statistics(nodeId);
+        statistics.inFlight.decrementAndGet();
+        statistics.update(alpha, responseTimeInNanos, serviceTimeInNanos);
+    }
+
+    /**
+     * Records an operation executed locally (the response time is the service time).
+     */
+    public void localResponse(String nodeId, long serviceTimeInNanos) {
+        statistics(nodeId).update(alpha, serviceTimeInNanos, serviceTimeInNanos);
+    }
+
+    /**
+     * The rank of the node, lower is better. The queueing (and network) overhead is added to the service time
+     * penalized by the number of operations in flight to the node. Nodes we know nothing about are ranked first
+     * so they get to be measured.
+     */
+    public double rank(String nodeId) {
+        NodeStatistics statistics = nodes.get(nodeId);
+        if (statistics == null) {
+            return 0;
+        }
+        return statistics.rank();
+    }
+
+    /**
+     * Drops the statistics of nodes that are no longer part of the cluster.
+     */
+    public void retainNodes(DiscoveryNodes discoveryNodes) {
+        if (discoveryNodes == lastRetainedNodes) {
+            return;
+        }
+        lastRetainedNodes = discoveryNodes;
+        for (Iterator<String> it = nodes.keySet().iterator(); it.hasNext();) {
+            if (!discoveryNodes.nodeExists(it.next())) {
+                it.remove();
+            }
+        }
+    }
+
+    public ReplicaSelectionStats stats() {
+        Map<String, ReplicaSelectionStats.Entry> entries = Maps.newHashMap();
+        for (Map.Entry<String, NodeStatistics> entry : nodes.entrySet()) {
+            NodeStatistics statistics = entry.getValue();
+            ReplicaSelectionStats.Entry statsEntry = new ReplicaSelectionStats.Entry();
+            synchronized (statistics) {
+                statsEntry.responseTimeInNanos = (long) statistics.responseTime;
+                statsEntry.serviceTimeInNanos = (long) statistics.serviceTime;
+            }
+            statsEntry.inFlight = Math.max(0, statistics.inFlight.get());
+            statsEntry.rank = statistics.rank();
+            entries.put(entry.getKey(), statsEntry);
+        }
+        return new ReplicaSelectionStats(entries);
+    }
+
+    private NodeStatistics statistics(String nodeId) {
+        NodeStatistics statistics = nodes.get(nodeId);
+        if (statistics == null) {
+            statistics = new NodeStatistics();
+            NodeStatistics existing = nodes.putIfAbsent(nodeId, statistics);
+            if (existing != null) {
+                statistics = existing;
+            }
+        }
+        return statistics;
+    }
+
+    static class NodeStatistics {
+
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        // guarded by this
+        double responseTime = -1;
+
+        // guarded by this
+        double serviceTime = -1;
+
+        synchronized void update(double alpha, long responseTimeInNanos, long serviceTimeInNanos) {
+            if (responseTime < 0) {
+                responseTime = responseTimeInNanos;
+                serviceTime = serviceTimeInNanos;
+            } else {
+                responseTime = alpha * responseTimeInNanos + (1 - alpha) * responseTime;
+                serviceTime = alpha * serviceTimeInNanos + (1 - alpha) * serviceTime;
+            }
+        }
+
+        double rank() {
+            double responseTime;
+            double serviceTime;
+            synchronized (this) {
+                responseTime = this.responseTime;
+                serviceTime = this.serviceTime;
+            }
+            if (responseTime < 0) {
+                return 0;
+            }
+            double queueSize = 1 + Math.max(0, inFlight.get());
+            return Math.max(0, responseTime - serviceTime) + queueSize * queueSize * queueSize * serviceTime;
+        }
+    }
+}
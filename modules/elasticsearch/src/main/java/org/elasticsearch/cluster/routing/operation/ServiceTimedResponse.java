@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+
+import java.io.IOException;
+
+/**
+ * A shard level response along with the time it took the node to execute the operation, reported back
+ * to the {@link ResponseCollector} of the node that sent the request.
+ */
+public class ServiceTimedResponse<T extends Streamable> implements Streamable {
+
+    private T response;
+
+    private long serviceTimeInNanos;
+
+    /**
+     * Constructs a response to be read into the provided (empty) response.
+     */
+    public ServiceTimedResponse(T response) {
+        this.response = response;
+    }
+
+    public ServiceTimedResponse(T response, long serviceTimeInNanos) {
+        this.response = response;
+        this.serviceTimeInNanos = serviceTimeInNanos;
+    }
+
+    public T response() {
+        return this.response;
+    }
+
+    public long serviceTimeInNanos() {
+        return this.serviceTimeInNanos;
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        serviceTimeInNanos = in.readVLong();
+        response.readFrom(in);
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(serviceTimeInNanos);
+        response.writeTo(out);
+    }
+}
@@ -24,8 +24,11 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.IndexRoutingTable;
 import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.PlainShardIterator;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.cluster.routing.operation.ResponseCollector;
 import org.elasticsearch.cluster.routing.operation.hash.HashFunction;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.common.Nullable;
@@ -38,6 +41,7 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndexMissingException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -54,9 +58,12 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
 
     private final boolean useType;
 
-    @Inject public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction) {
+    private final ResponseCollector responseCollector;
+
+    @Inject public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, ResponseCollector responseCollector) {
         super(indexSettings);
         this.hashFunction = hashFunction;
+        this.responseCollector = responseCollector;
         this.useType = indexSettings.getAsBoolean("cluster.routing.operation.use_type", false);
     }
 
@@ -69,10 +76,12 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
     }
 
     @Override public ShardIterator getShards(ClusterState clusterState, String index, String type, String id, @Nullable String routing, @Nullable String preference) throws IndexMissingException, IndexShardMissingException {
+        responseCollector.retainNodes(clusterState.nodes());
         return preferenceShardIterator(shards(clusterState, index, type, id, routing), clusterState.nodes().localNodeId(), preference);
     }
 
     @Override public ShardIterator getShards(ClusterState clusterState, String index, int shardId, @Nullable String preference) throws IndexMissingException, IndexShardMissingException {
+        responseCollector.retainNodes(clusterState.nodes());
         return preferenceShardIterator(shards(clusterState, index, shardId), clusterState.nodes().localNodeId(), preference);
     }
 
@@ -103,6 +112,7 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
         if (concreteIndices == null || concreteIndices.length == 0) {
             concreteIndices = clusterState.metaData().concreteAllIndices();
         }
+        responseCollector.retainNodes(clusterState.nodes());
 
         if (routing != null) {
             // we use set here and not list since we might get duplicates
@@ -138,6 +148,9 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
 
     private ShardIterator preferenceShardIterator(IndexShardRoutingTable indexShard, String nodeId, @Nullable String preference) {
         if (preference == null) {
+            if (responseCollector.enabled()) {
+                return rankedShardsIt(indexShard);
+            }
             return indexShard.shardsRandomIt();
         }
         if ("_local".equals(preference)) {
@@ -150,6 +163,39 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
         return indexShard.shardsIt(DjbHashFunction.DJB_HASH(preference));
     }
 
+    /**
+     * Orders the shard copies by the rank of the node they are allocated on (see {@link ResponseCollector#rank(String)}),
+     * copies with the same rank are kept in the (rotating) order of the random iterator.
+     */
+    private ShardIterator rankedShardsIt(IndexShardRoutingTable indexShard) {
+        ShardIterator randomIt = indexShard.shardsRandomIt();
+        int size = randomIt.size();
+        if (size <= 1) {
+            return randomIt;
+        }
+        ShardRouting[] shards = new ShardRouting[size];
+        double[] ranks = new double[size];
+        for (int i = 0; i < size; i++) {
+            ShardRouting shard = randomIt.next();
+            shards[i] = shard;
+            ranks[i] = shard.assignedToNode() ? responseCollector.rank(shard.currentNodeId()) : Double.MAX_VALUE;
+        }
+        // insertion sort, stable and there are only a few copies of each shard
+        for (int i = 1; i < size; i++) {
+            ShardRouting shard = shards[i];
+            double rank = ranks[i];
+            int j = i - 1;
+            while (j >= 0 && ranks[j] > rank) {
+                shards[j + 1] = shards[j];
+                ranks[j + 1] = ranks[j];
+                j--;
+            }
+            shards[j + 1] = shard;
+            ranks[j + 1] = rank;
+        }
+        return new PlainShardIterator(indexShard.shardId(), Arrays.asList(shards));
+    }
+
     public IndexMetaData indexMetaData(ClusterState clusterState, String index) {
         IndexMetaData indexMetaData = clusterState.metaData().index(index);
         if (indexMetaData == null) {
@@ -183,14 +229,28 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
     }
 
     private int shardId(ClusterState clusterState, String index, String type, @Nullable String id, @Nullable String routing) {
+        return shardId(indexMetaData(clusterState, index), type, id, routing);
+    }
+
+    @Override public int shardId(IndexMetaData indexMetaData, @Nullable String type, @Nullable String id, @Nullable String routing) {
         if (routing == null) {
             if (!useType) {
-                return Math.abs(hash(id)) % indexMetaData(clusterState, index).numberOfShards();
+                return shardId(indexMetaData, hash(id));
             } else {
-                return Math.abs(hash(type, id)) % indexMetaData(clusterState, index).numberOfShards();
+                return shardId(indexMetaData, hash(type, id));
             }
         }
-        return Math.abs(hash(routing)) % indexMetaData(clusterState, index).numberOfShards();
+        return shardId(indexMetaData, hash(routing));
+    }
+
+    /**
+     * The hash is first mapped to one of the routing shards, each shard owning a contiguous range of them, so
+     * splitting a shard by a factor that divides the number of routing shards it owns divides its range without
+     * moving documents across the other shards. With as many routing shards as shards, this is a plain modulo.
+     */
+    public static int shardId(IndexMetaData indexMetaData, int hash) {
+        int numberOfRoutingShards = indexMetaData.numberOfRoutingShards();
+        return (Math.abs(hash) % numberOfRoutingShards) / (numberOfRoutingShards / indexMetaData.numberOfShards());
     }
 
     protected int hash(String routing) {
@@ -0,0 +1,194 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.service;
+
+import org.elasticsearch.common.collect.Maps;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Stats of the cluster states published by the (master) node, with the time it took each node to
+ * acknowledge them (apply them).
+ */
+public class ClusterStatePublishStats implements Streamable, ToXContent {
+
+    public static class NodeEntry {
+
+        long acks;
+
+        long failures;
+
+        long lastLatencyInMillis;
+
+        long maxLatencyInMillis;
+
+        long totalLatencyInMillis;
+
+        /**
+         * The number of published cluster states acknowledged by the node.
+         */
+        public long acks() {
+            return acks;
+        }
+
+        /**
+         * The number of published cluster states that failed to be sent to or applied on the node.
+         */
+        public long failures() {
+            return failures;
+        }
+
+        /**
+         * The time it took the node to acknowledge the last published cluster state.
+         */
+        public TimeValue lastLatency() {
+            return new TimeValue(lastLatencyInMillis);
+        }
+
+        /**
+         * The maximum time it took the node to acknowledge a published cluster state.
+         */
+        public TimeValue maxLatency() {
+            return new TimeValue(maxLatencyInMillis);
+        }
+
+        /**
+         * The average time it took the node to acknowledge a published cluster state.
+         */
+        public TimeValue avgLatency() {
+            if (acks == 0) {
+                return new TimeValue(0);
+            }
+            return new TimeValue(totalLatencyInMillis / acks);
+        }
+    }
+
+    private long published;
+
+    private Map<String, NodeEntry> nodes = Maps.newHashMap();
+
+    ClusterStatePublishStats() {
+    }
+
+    public ClusterStatePublishStats(long published, Map<String, NodeEntry> nodes) {
+        this.published = published;
+        this.nodes = nodes;
+    }
+
+    /**
+     * The number of cluster states published.
+     */
+    public long published() {
+        return this.published;
+    }
+
+    public long getPublished() {
+        return published();
+    }
+
+    /**
+     * Per node (id) acknowledgement stats.
+     */
+    public Map<String, NodeEntry> nodes() {
+        return this.nodes;
+    }
+
+    public Map<String, NodeEntry> getNodes() {
+        return nodes();
+    }
+
+    public static ClusterStatePublishStats readClusterStatePublishStats(StreamInput in) throws IOException {
+        ClusterStatePublishStats stats = new ClusterStatePublishStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.CLUSTER_STATE_PUBLISH);
+        builder.field(Fields.PUBLISHED, published);
+        builder.startObject(Fields.NODES);
+        for (Map.Entry<String, NodeEntry> entry : nodes.entrySet()) {
+            builder.startObject(entry.getKey(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.ACKS, entry.getValue().acks);
+            builder.field(Fields.FAILURES, entry.getValue().failures);
+            builder.field(Fields.LAST_LATENCY, entry.getValue().lastLatency().toString());
+            builder.field(Fields.LAST_LATENCY_IN_MILLIS, entry.getValue().lastLatencyInMillis);
+            builder.field(Fields.AVG_LATENCY, entry.getValue().avgLatency().toString());
+            builder.field(Fields.AVG_LATENCY_IN_MILLIS, entry.getValue().avgLatency().millis());
+            builder.field(Fields.MAX_LATENCY, entry.getValue().maxLatency().toString());
+            builder.field(Fields.MAX_LATENCY_IN_MILLIS, entry.getValue().maxLatencyInMillis);
+            builder.endObject();
+        }
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString CLUSTER_STATE_PUBLISH = new XContentBuilderString("cluster_state_publish");
+        static final XContentBuilderString PUBLISHED = new XContentBuilderString("published");
+        static final XContentBuilderString NODES = new XContentBuilderString("nodes");
+        static final XContentBuilderString ACKS = new XContentBuilderString("acks");
+        static final XContentBuilderString FAILURES = new XContentBuilderString("failures");
+        static final XContentBuilderString LAST_LATENCY = new XContentBuilderString("last_latency");
+        static final XContentBuilderString LAST_LATENCY_IN_MILLIS = new XContentBuilderString("last_latency_in_millis");
+        static final XContentBuilderString AVG_LATENCY = new XContentBuilderString("avg_latency");
+        static final XContentBuilderString AVG_LATENCY_IN_MILLIS = new XContentBuilderString("avg_latency_in_millis");
+        static final XContentBuilderString MAX_LATENCY = new XContentBuilderString("max_latency");
+        static final XContentBuilderString MAX_LATENCY_IN_MILLIS = new XContentBuilderString("max_latency_in_millis");
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        published = in.readVLong();
+        int size = in.readVInt();
+        nodes = Maps.newHashMapWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            String nodeId = in.readUTF();
+            NodeEntry entry = new NodeEntry();
+            entry.acks = in.readVLong();
+            entry.failures = in.readVLong();
+            entry.lastLatencyInMillis = in.readVLong();
+            entry.maxLatencyInMillis = in.readVLong();
+            entry.totalLatencyInMillis = in.readVLong();
+            nodes.put(nodeId, entry);
+        }
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(published);
+        out.writeVInt(nodes.size());
+        for (Map.Entry<String, NodeEntry> entry : nodes.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeVLong(entry.getValue().acks);
+            out.writeVLong(entry.getValue().failures);
+            out.writeVLong(entry.getValue().lastLatencyInMillis);
+            out.writeVLong(entry.getValue().maxLatencyInMillis);
+            out.writeVLong(entry.getValue().totalLatencyInMillis);
+        }
+    }
+}
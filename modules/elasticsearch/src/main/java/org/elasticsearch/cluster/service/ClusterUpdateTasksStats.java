@@ -0,0 +1,167 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.cluster.service;
+
+import org.elasticsearch.common.collect.Maps;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Stats of the cluster state update tasks executed on a node, per batch key (tasks that are not batched are
+ * accounted under <tt>unbatched</tt>).
+ */
+public class ClusterUpdateTasksStats implements Streamable, ToXContent {
+
+    public static final String UNBATCHED = "unbatched";
+
+    public static class Entry {
+
+        long batches;
+
+        long tasks;
+
+        long maxBatchSize;
+
+        long computeTimeInMillis;
+
+        /**
+         * The number of batches (cluster state updates) executed.
+         */
+        public long batches() {
+            return batches;
+        }
+
+        /**
+         * The number of tasks executed.
+         */
+        public long tasks() {
+            return tasks;
+        }
+
+        /**
+         * The largest number of tasks executed in a single batch.
+         */
+        public long maxBatchSize() {
+            return maxBatchSize;
+        }
+
+        /**
+         * The average number of tasks executed per batch.
+         */
+        public double avgBatchSize() {
+            if (batches == 0) {
+                return 0;
+            }
+            return ((double) tasks) / batches;
+        }
+
+        /**
+         * The time spent computing the new cluster states (executing the tasks).
+         */
+        public TimeValue computeTime() {
+            return new TimeValue(computeTimeInMillis);
+        }
+
+        public long computeTimeInMillis() {
+            return computeTimeInMillis;
+        }
+    }
+
+    private Map<String, Entry> entries = Maps.newHashMap();
+
+    ClusterUpdateTasksStats() {
+    }
+
+    public ClusterUpdateTasksStats(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    public Map<String, Entry> entries() {
+        return this.entries;
+    }
+
+    public Map<String, Entry> getEntries() {
+        return entries();
+    }
+
+    public static ClusterUpdateTasksStats readClusterUpdateTasksStats(StreamInput in) throws IOException {
+        ClusterUpdateTasksStats stats = new ClusterUpdateTasksStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.CLUSTER_STATE_UPDATES);
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            builder.startObject(entry.getKey(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.BATCHES, entry.getValue().batches);
+            builder.field(Fields.TASKS, entry.getValue().tasks);
+            builder.field(Fields.AVG_BATCH_SIZE, entry.getValue().avgBatchSize());
+            builder.field(Fields.MAX_BATCH_SIZE, entry.getValue().maxBatchSize);
+            builder.field(Fields.COMPUTE_TIME, entry.getValue().computeTime().toString());
+            builder.field(Fields.COMPUTE_TIME_IN_MILLIS, entry.getValue().computeTimeInMillis);
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString CLUSTER_STATE_UPDATES = new XContentBuilderString("cluster_state_updates");
+        static final XContentBuilderString BATCHES = new XContentBuilderString("batches");
+        static final XContentBuilderString TASKS = new XContentBuilderString("tasks");
+        static final XContentBuilderString AVG_BATCH_SIZE = new XContentBuilderString("avg_batch_size");
+        static final XContentBuilderString MAX_BATCH_SIZE = new XContentBuilderString("max_batch_size");
+        static final XContentBuilderString COMPUTE_TIME = new XContentBuilderString("compute_time");
+        static final XContentBuilderString COMPUTE_TIME_IN_MILLIS = new XContentBuilderString("compute_time_in_millis");
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        entries = Maps.newHashMapWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            String key = in.readUTF();
+            Entry entry = new Entry();
+            entry.batches = in.readVLong();
+            entry.tasks = in.readVLong();
+            entry.maxBatchSize = in.readVLong();
+            entry.computeTimeInMillis = in.readVLong();
+            entries.put(key, entry);
+        }
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeVLong(entry.getValue().batches);
+            out.writeVLong(entry.getValue().tasks);
+            out.writeVLong(entry.getValue().maxBatchSize);
+            out.writeVLong(entry.getValue().computeTimeInMillis);
+        }
+    }
+}
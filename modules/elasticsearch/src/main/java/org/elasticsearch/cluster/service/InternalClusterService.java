@@ -21,11 +21,13 @@ package org.elasticsearch.cluster.service;
 
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.cluster.AckedClusterStateUpdateTask;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.cluster.FailableClusterStateUpdateTask;
 import org.elasticsearch.cluster.ProcessedClusterStateUpdateTask;
 import org.elasticsearch.cluster.TimeoutClusterStateListener;
 import org.elasticsearch.cluster.block.ClusterBlock;
@@ -35,6 +37,8 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -45,13 +49,17 @@ import org.elasticsearch.discovery.DiscoveryService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.concurrent.Executors.*;
 import static org.elasticsearch.cluster.ClusterState.*;
@@ -72,6 +80,10 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
 
     private final TimeValue reconnectInterval;
 
+    private final int maxBatchSize;
+
+    private final TimeValue slowPublishAck;
+
     private volatile ExecutorService updateTasksExecutor;
 
     private final List<ClusterStateListener> priorityClusterStateListeners = new CopyOnWriteArrayList<ClusterStateListener>();
@@ -79,6 +91,14 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
 
     private final Queue<NotifyTimeout> onGoingTimeouts = new LinkedTransferQueue<NotifyTimeout>();
 
+    private final Queue<UpdateTask> pendingUpdateTasks = new LinkedTransferQueue<UpdateTask>();
+
+    private final Map<String, ClusterUpdateTasksStats.Entry> updateTasksStats = Maps.newHashMap();
+
+    private final Map<String, ClusterStatePublishStats.NodeEntry> publishStats = Maps.newHashMap();
+
+    private long publishedStates;
+
     private volatile ClusterState clusterState = newClusterStateBuilder().build();
 
     private final ClusterBlocks.Builder initialBlocks = ClusterBlocks.builder().addGlobalBlock(Discovery.NO_MASTER_BLOCK);
@@ -93,6 +113,8 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
         this.threadPool = threadPool;
 
         this.reconnectInterval = componentSettings.getAsTime("reconnect_interval", TimeValue.timeValueSeconds(10));
+        this.maxBatchSize = componentSettings.getAsInt("max_batch_size", 1000);
+        this.slowPublishAck = componentSettings.getAsTime("slow_publish_ack", TimeValue.timeValueSeconds(10));
     }
 
     public void addInitialStateBlock(ClusterBlock block) throws ElasticSearchIllegalStateException {
@@ -174,111 +196,385 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
     }
 
     public void submitStateUpdateTask(final String source, final ClusterStateUpdateTask updateTask) {
+        submitStateUpdateTask(source, null, updateTask);
+    }
+
+    public void submitStateUpdateTask(final String source, @Nullable final String batchKey, final ClusterStateUpdateTask updateTask) {
         if (!lifecycle.started()) {
+            notifyFailure(source, updateTask, new ElasticSearchIllegalStateException("cluster service not started"));
             return;
         }
+        pendingUpdateTasks.add(new UpdateTask(source, batchKey, updateTask));
         updateTasksExecutor.execute(new Runnable() {
             @Override public void run() {
-                if (!lifecycle.started()) {
-                    logger.debug("processing [{}]: ignoring, cluster_service not started", source);
+                List<UpdateTask> batch = drainBatch();
+                if (batch.isEmpty()) {
+                    // already executed as part of a previous batch
                     return;
                 }
-                logger.debug("processing [{}]: execute", source);
-                ClusterState previousClusterState = clusterState;
-                try {
-                    clusterState = updateTask.execute(previousClusterState);
-                } catch (Exception e) {
-                    StringBuilder sb = new StringBuilder("failed to execute cluster state update, state:\nversion [").append(clusterState.version()).append("], source [").append(source).append("]\n");
-                    sb.append(clusterState.nodes().prettyPrint());
-                    sb.append(clusterState.routingTable().prettyPrint());
-                    sb.append(clusterState.readOnlyRoutingNodes().prettyPrint());
-                    logger.warn(sb.toString(), e);
-                    return;
+                runTasks(batch);
+            }
+        });
+    }
+
+    public ClusterStatePublishStats publishStats() {
+        Map<String, ClusterStatePublishStats.NodeEntry> nodes = Maps.newHashMap();
+        long published;
+        synchronized (publishStats) {
+            published = publishedStates;
+            for (Map.Entry<String, ClusterStatePublishStats.NodeEntry> entry : publishStats.entrySet()) {
+                ClusterStatePublishStats.NodeEntry copy = new ClusterStatePublishStats.NodeEntry();
+                copy.acks = entry.getValue().acks;
+                copy.failures = entry.getValue().failures;
+                copy.lastLatencyInMillis = entry.getValue().lastLatencyInMillis;
+                copy.maxLatencyInMillis = entry.getValue().maxLatencyInMillis;
+                copy.totalLatencyInMillis = entry.getValue().totalLatencyInMillis;
+                nodes.put(entry.getKey(), copy);
+            }
+        }
+        return new ClusterStatePublishStats(published, nodes);
+    }
+
+    public ClusterUpdateTasksStats updateTasksStats() {
+        Map<String, ClusterUpdateTasksStats.Entry> entries = Maps.newHashMap();
+        synchronized (updateTasksStats) {
+            for (Map.Entry<String, ClusterUpdateTasksStats.Entry> entry : updateTasksStats.entrySet()) {
+                ClusterUpdateTasksStats.Entry copy = new ClusterUpdateTasksStats.Entry();
+                copy.batches = entry.getValue().batches;
+                copy.tasks = entry.getValue().tasks;
+                copy.maxBatchSize = entry.getValue().maxBatchSize;
+                copy.computeTimeInMillis = entry.getValue().computeTimeInMillis;
+                entries.put(entry.getKey(), copy);
+            }
+        }
+        return new ClusterUpdateTasksStats(entries);
+    }
+
+    /**
+     * Drains the next task, along with the tasks submitted right after it with the same batch key. Only called
+     * from the (single) update tasks thread.
+     */
+    private List<UpdateTask> drainBatch() {
+        List<UpdateTask> batch = new ArrayList<UpdateTask>();
+        UpdateTask first = pendingUpdateTasks.poll();
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        if (first.batchKey == null) {
+            return batch;
+        }
+        while (batch.size() < maxBatchSize) {
+            UpdateTask next = pendingUpdateTasks.peek();
+            if (next == null || !first.batchKey.equals(next.batchKey)) {
+                break;
+            }
+            batch.add(pendingUpdateTasks.poll());
+        }
+        return batch;
+    }
+
+    private void runTasks(List<UpdateTask> batch) {
+        String source = batch.get(0).source;
+        if (batch.size() > 1) {
+            source = source + " (batched with " + (batch.size() - 1) + " more)";
+        }
+        if (!lifecycle.started()) {
+            logger.debug("processing [{}]: ignoring, cluster_service not started", source);
+            for (UpdateTask task : batch) {
+                notifyFailure(task.source, task.updateTask, new ElasticSearchIllegalStateException("cluster service not started"));
+            }
+            return;
+        }
+        logger.debug("processing [{}]: execute", source);
+        long computeStart = System.currentTimeMillis();
+        final ClusterState previousClusterState = clusterState;
+        ClusterState newClusterState = previousClusterState;
+        List<UpdateTask> executedTasks = new ArrayList<UpdateTask>(batch.size());
+        // apply all the tasks one after the other on the same state, it will be published once
+        for (UpdateTask task : batch) {
+            ClusterState taskPreviousClusterState = newClusterState;
+            ClusterState taskClusterState;
+            try {
+                taskClusterState = task.updateTask.execute(taskPreviousClusterState);
+            } catch (Exception e) {
+                StringBuilder sb = new StringBuilder("failed to execute cluster state update, state:\nversion [").append(taskPreviousClusterState.version()).append("], source [").append(task.source).append("]\n");
+                sb.append(taskPreviousClusterState.nodes().prettyPrint());
+                sb.append(taskPreviousClusterState.routingTable().prettyPrint());
+                sb.append(taskPreviousClusterState.readOnlyRoutingNodes().prettyPrint());
+                logger.warn(sb.toString(), e);
+                notifyFailure(task.source, task.updateTask, e);
+                continue;
+            }
+            if (taskClusterState == taskPreviousClusterState) {
+                continue;
+            }
+            if (!taskClusterState.nodes().localNodeMaster()) {
+                // we got this cluster state from the master, filter out based on versions (don't call listeners)
+                if (taskClusterState.version() < taskPreviousClusterState.version()) {
+                    logger.debug("got old cluster state [" + taskClusterState.version() + "<" + taskPreviousClusterState.version() + "] from source [" + task.source + "], ignoring");
+                    notifyFailure(task.source, task.updateTask, new ElasticSearchIllegalStateException("cluster state [" + taskClusterState.version() + "] is older than the current one [" + taskPreviousClusterState.version() + "]"));
+                    continue;
                 }
-                if (previousClusterState != clusterState) {
-                    if (clusterState.nodes().localNodeMaster()) {
-                        // only the master controls the version numbers
-                        Builder builder = ClusterState.builder().state(clusterState).version(clusterState.version() + 1);
-                        if (previousClusterState.routingTable() != clusterState.routingTable()) {
-                            builder.routingTable(RoutingTable.builder().routingTable(clusterState.routingTable()).version(clusterState.routingTable().version() + 1));
-                        }
-                        if (previousClusterState.metaData() != clusterState.metaData()) {
-                            builder.metaData(MetaData.builder().metaData(clusterState.metaData()).version(clusterState.metaData().version() + 1));
-                        }
-                        clusterState = builder.build();
-                    } else {
-                        // we got this cluster state from the master, filter out based on versions (don't call listeners)
-                        if (clusterState.version() < previousClusterState.version()) {
-                            logger.debug("got old cluster state [" + clusterState.version() + "<" + previousClusterState.version() + "] from source [" + source + "], ignoring");
-                            return;
-                        }
-                    }
+            }
+            newClusterState = taskClusterState;
+            executedTasks.add(task);
+        }
+        recordBatch(batch.get(0).batchKey, batch.size(), System.currentTimeMillis() - computeStart);
 
-                    if (logger.isTraceEnabled()) {
-                        StringBuilder sb = new StringBuilder("cluster state updated:\nversion [").append(clusterState.version()).append("], source [").append(source).append("]\n");
-                        sb.append(clusterState.nodes().prettyPrint());
-                        sb.append(clusterState.routingTable().prettyPrint());
-                        sb.append(clusterState.readOnlyRoutingNodes().prettyPrint());
-                        logger.trace(sb.toString());
-                    } else if (logger.isDebugEnabled()) {
-                        logger.debug("cluster state updated, version [{}], source [{}]", clusterState.version(), source);
-                    }
+        if (previousClusterState == newClusterState) {
+            logger.debug("processing [{}]: no change in cluster_state", source);
+            return;
+        }
 
-                    ClusterChangedEvent clusterChangedEvent = new ClusterChangedEvent(source, clusterState, previousClusterState);
-                    // new cluster state, notify all listeners
-                    final DiscoveryNodes.Delta nodesDelta = clusterChangedEvent.nodesDelta();
-                    if (nodesDelta.hasChanges() && logger.isInfoEnabled()) {
-                        String summary = nodesDelta.shortSummary();
-                        if (summary.length() > 0) {
-                            logger.info("{}, reason: {}", summary, source);
-                        }
+        clusterState = newClusterState;
+        if (clusterState.nodes().localNodeMaster()) {
+            // only the master controls the version numbers
+            Builder builder = ClusterState.builder().state(clusterState).version(clusterState.version() + 1);
+            if (previousClusterState.routingTable() != clusterState.routingTable()) {
+                builder.routingTable(RoutingTable.builder().routingTable(clusterState.routingTable()).version(clusterState.routingTable().version() + 1));
+            }
+            if (previousClusterState.metaData() != clusterState.metaData()) {
+                builder.metaData(MetaData.builder().metaData(clusterState.metaData()).version(clusterState.metaData().version() + 1));
+            }
+            clusterState = builder.build();
+        }
+
+        if (logger.isTraceEnabled()) {
+            StringBuilder sb = new StringBuilder("cluster state updated:\nversion [").append(clusterState.version()).append("], source [").append(source).append("]\n");
+            sb.append(clusterState.nodes().prettyPrint());
+            sb.append(clusterState.routingTable().prettyPrint());
+            sb.append(clusterState.readOnlyRoutingNodes().prettyPrint());
+            logger.trace(sb.toString());
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("cluster state updated, version [{}], source [{}]", clusterState.version(), source);
+        }
+
+        ClusterChangedEvent clusterChangedEvent = new ClusterChangedEvent(source, clusterState, previousClusterState);
+        // new cluster state, notify all listeners
+        final DiscoveryNodes.Delta nodesDelta = clusterChangedEvent.nodesDelta();
+        if (nodesDelta.hasChanges() && logger.isInfoEnabled()) {
+            String summary = nodesDelta.shortSummary();
+            if (summary.length() > 0) {
+                logger.info("{}, reason: {}", summary, source);
+            }
+        }
+
+        // TODO, do this in parallel (and wait)
+        for (DiscoveryNode node : nodesDelta.addedNodes()) {
+            if (!nodeRequiresConnection(node)) {
+                continue;
+            }
+            try {
+                transportService.connectToNode(node);
+            } catch (Exception e) {
+                // the fault detection will detect it as failed as well
+                logger.warn("failed to connect to node [" + node + "]", e);
+            }
+        }
+
+        for (ClusterStateListener listener : priorityClusterStateListeners) {
+            listener.clusterChanged(clusterChangedEvent);
+        }
+        for (ClusterStateListener listener : clusterStateListeners) {
+            listener.clusterChanged(clusterChangedEvent);
+        }
+
+        if (!nodesDelta.removedNodes().isEmpty()) {
+            threadPool.cached().execute(new Runnable() {
+                @Override public void run() {
+                    for (DiscoveryNode node : nodesDelta.removedNodes()) {
+                        transportService.disconnectFromNode(node);
                     }
+                }
+            });
+        }
 
-                    // TODO, do this in parallel (and wait)
-                    for (DiscoveryNode node : nodesDelta.addedNodes()) {
-                        if (!nodeRequiresConnection(node)) {
-                            continue;
-                        }
-                        try {
-                            transportService.connectToNode(node);
-                        } catch (Exception e) {
-                            // the fault detection will detect it as failed as well
-                            logger.warn("failed to connect to node [" + node + "]", e);
+        if (!nodesDelta.removedNodes().isEmpty()) {
+            synchronized (publishStats) {
+                for (DiscoveryNode node : nodesDelta.removedNodes()) {
+                    publishStats.remove(node.id());
+                }
+            }
+        }
+
+        List<AckedClusterStateUpdateTask> ackedTasks = new ArrayList<AckedClusterStateUpdateTask>();
+        for (UpdateTask task : executedTasks) {
+            if (task.updateTask instanceof AckedClusterStateUpdateTask) {
+                ackedTasks.add((AckedClusterStateUpdateTask) task.updateTask);
+            }
+        }
+
+        // if we are the master, publish the new state to all nodes
+        PublishAckListener ackListener = null;
+        if (clusterState.nodes().localNodeMaster()) {
+            ackListener = new PublishAckListener(ackedTasks);
+            discoveryService.publish(clusterState, ackListener);
+        }
+
+        for (UpdateTask task : executedTasks) {
+            if (task.updateTask instanceof ProcessedClusterStateUpdateTask) {
+                ((ProcessedClusterStateUpdateTask) task.updateTask).clusterStateProcessed(clusterState);
+            }
+        }
+
+        if (ackListener != null) {
+            // the local node has processed the new state as well
+            ackListener.countDown();
+        } else {
+            for (AckedClusterStateUpdateTask ackedTask : ackedTasks) {
+                ackedTask.onAllNodesAcked();
+            }
+        }
+
+        logger.debug("processing [{}]: done applying updated cluster_state", source);
+    }
+
+    private void notifyFailure(String source, ClusterStateUpdateTask updateTask, Throwable t) {
+        if (!(updateTask instanceof FailableClusterStateUpdateTask)) {
+            return;
+        }
+        try {
+            ((FailableClusterStateUpdateTask) updateTask).onFailure(source, t);
+        } catch (Exception e) {
+            logger.warn("failed to notify cluster state update task [{}] on failure", e, source);
+        }
+    }
+
+    private void recordBatch(@Nullable String batchKey, int batchSize, long computeTimeInMillis) {
+        if (batchKey == null) {
+            batchKey = ClusterUpdateTasksStats.UNBATCHED;
+        }
+        synchronized (updateTasksStats) {
+            ClusterUpdateTasksStats.Entry entry = updateTasksStats.get(batchKey);
+            if (entry == null) {
+                entry = new ClusterUpdateTasksStats.Entry();
+                updateTasksStats.put(batchKey, entry);
+            }
+            entry.batches++;
+            entry.tasks += batchSize;
+            entry.maxBatchSize = Math.max(entry.maxBatchSize, batchSize);
+            entry.computeTimeInMillis += computeTimeInMillis;
+        }
+    }
+
+    private void recordPublishAck(DiscoveryNode node, long latencyInMillis, @Nullable Throwable t) {
+        synchronized (publishStats) {
+            ClusterStatePublishStats.NodeEntry entry = publishStats.get(node.id());
+            if (entry == null) {
+                entry = new ClusterStatePublishStats.NodeEntry();
+                publishStats.put(node.id(), entry);
+            }
+            if (t != null) {
+                entry.failures++;
+                return;
+            }
+            entry.acks++;
+            entry.lastLatencyInMillis = latencyInMillis;
+            entry.maxLatencyInMillis = Math.max(entry.maxLatencyInMillis, latencyInMillis);
+            entry.totalLatencyInMillis += latencyInMillis;
+        }
+        if (t == null && latencyInMillis > slowPublishAck.millis()) {
+            logger.warn("node [{}] took [{}] to acknowledge the published cluster state", node, TimeValue.timeValueMillis(latencyInMillis));
+        }
+    }
+
+    /**
+     * Counts down the acks of a published cluster state, one for each node it was published to and one for the
+     * local node processing it, and notifies the acked tasks once done (or once their ack timeout expires).
+     */
+    private class PublishAckListener implements Discovery.AckListener {
+
+        private final long startTime = System.currentTimeMillis();
+
+        private final AtomicInteger countDown;
+
+        private final List<AckedTaskNotifier> notifiers;
+
+        PublishAckListener(List<AckedClusterStateUpdateTask> ackedTasks) {
+            // the local node, nodes the state is published to are added as it is sent to them
+            this.countDown = new AtomicInteger(1);
+            this.notifiers = new ArrayList<AckedTaskNotifier>(ackedTasks.size());
+            for (AckedClusterStateUpdateTask ackedTask : ackedTasks) {
+                final AckedTaskNotifier notifier = new AckedTaskNotifier(ackedTask);
+                if (ackedTask.ackTimeout() != null) {
+                    notifier.future = threadPool.schedule(ackedTask.ackTimeout(), ThreadPool.Names.SAME, new Runnable() {
+                        @Override public void run() {
+                            notifier.onAckTimeout();
                         }
-                    }
+                    });
+                }
+                notifiers.add(notifier);
+            }
+            synchronized (publishStats) {
+                publishedStates++;
+            }
+        }
 
-                    for (ClusterStateListener listener : priorityClusterStateListeners) {
-                        listener.clusterChanged(clusterChangedEvent);
-                    }
-                    for (ClusterStateListener listener : clusterStateListeners) {
-                        listener.clusterChanged(clusterChangedEvent);
-                    }
+        @Override public void onNodePublishing(DiscoveryNode node) {
+            countDown.incrementAndGet();
+        }
 
-                    if (!nodesDelta.removedNodes().isEmpty()) {
-                        threadPool.cached().execute(new Runnable() {
-                            @Override public void run() {
-                                for (DiscoveryNode node : nodesDelta.removedNodes()) {
-                                    transportService.disconnectFromNode(node);
-                                }
-                            }
-                        });
-                    }
+        @Override public void onNodeAck(DiscoveryNode node, @Nullable Throwable t) {
+            recordPublishAck(node, System.currentTimeMillis() - startTime, t);
+            countDown();
+        }
 
-                    // if we are the master, publish the new state to all nodes
-                    if (clusterState.nodes().localNodeMaster()) {
-                        discoveryService.publish(clusterState);
-                    }
+        void countDown() {
+            if (countDown.decrementAndGet() == 0) {
+                for (AckedTaskNotifier notifier : notifiers) {
+                    notifier.onAllNodesAcked();
+                }
+            }
+        }
+    }
 
-                    if (updateTask instanceof ProcessedClusterStateUpdateTask) {
-                        ((ProcessedClusterStateUpdateTask) updateTask).clusterStateProcessed(clusterState);
-                    }
+    private class AckedTaskNotifier {
+
+        private final AckedClusterStateUpdateTask ackedTask;
+
+        private final AtomicBoolean notified = new AtomicBoolean();
 
-                    logger.debug("processing [{}]: done applying updated cluster_state", source);
-                } else {
-                    logger.debug("processing [{}]: no change in cluster_state", source);
+        volatile ScheduledFuture future;
+
+        AckedTaskNotifier(AckedClusterStateUpdateTask ackedTask) {
+            this.ackedTask = ackedTask;
+        }
+
+        void onAllNodesAcked() {
+            if (notified.compareAndSet(false, true)) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+                try {
+                    ackedTask.onAllNodesAcked();
+                } catch (Exception e) {
+                    logger.warn("failed to notify acked cluster state update task", e);
                 }
             }
-        });
+        }
+
+        void onAckTimeout() {
+            if (notified.compareAndSet(false, true)) {
+                try {
+                    ackedTask.onAckTimeout();
+                } catch (Exception e) {
+                    logger.warn("failed to notify acked cluster state update task on timeout", e);
+                }
+            }
+        }
+    }
+
+    static class UpdateTask {
+        final String source;
+        final String batchKey;
+        final ClusterStateUpdateTask updateTask;
+
+        UpdateTask(String source, String batchKey, ClusterStateUpdateTask updateTask) {
+            this.source = source;
+            this.batchKey = batchKey;
+            this.updateTask = updateTask;
+        }
     }
 
     class NotifyTimeout implements Runnable {
@@ -118,6 +118,14 @@ public final class Numbers {
      */
     public static byte[] longToBytes(long val) {
         byte[] arr = new byte[8];
+        longToBytes(val, arr);
+        return arr;
+    }
+
+    /**
+     * Converts a long into the first 8 bytes of the provided byte array.
+     */
+    public static void longToBytes(long val, byte[] arr) {
         arr[0] = (byte) (val >>> 56);
         arr[1] = (byte) (val >>> 48);
         arr[2] = (byte) (val >>> 40);
@@ -126,7 +134,6 @@ public final class Numbers {
         arr[5] = (byte) (val >>> 16);
         arr[6] = (byte) (val >>> 8);
         arr[7] = (byte) (val);
-        return arr;
     }
 
     /**
@@ -0,0 +1,122 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.bloom;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.OpenBitSet;
+import org.elasticsearch.common.lucene.Directories;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes bloom filters to, and reads them from, files. Files kept on the file system are memory mapped
+ * (see {@link MappedBloomFilter}), others are read into the heap.
+ *
+ * <p>The format is a header of 24 bytes (version, hash count, number of buckets, number of words), followed
+ * by the words of the bits set. All values are big endian, and the words are aligned on 8 bytes.
+ */
+public class BloomFilters {
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 24;
+
+    /**
+     * Writes the provided bloom filter, as returned by {@link BloomFilterFactory}.
+     */
+    public static void write(BloomFilter filter, IndexOutput out) throws IOException {
+        if (!(filter instanceof ObsBloomFilter)) {
+            throw new IllegalArgumentException("can't write bloom filter of type [" + filter.getClass().getName() + "]");
+        }
+        ObsBloomFilter obsFilter = (ObsBloomFilter) filter;
+        OpenBitSet bitset = obsFilter.bitset();
+        out.writeInt(VERSION);
+        out.writeInt(obsFilter.hashCount());
+        out.writeLong(obsFilter.size());
+        out.writeInt(bitset.getNumWords());
+        out.writeInt(0); // padding, align the words
+        long[] bits = bitset.getBits();
+        for (int i = 0; i < bitset.getNumWords(); i++) {
+            out.writeLong(bits[i]);
+        }
+    }
+
+    /**
+     * Reads the bloom filter written to the provided file of the directory.
+     */
+    public static BloomFilter read(Directory directory, String name) throws IOException {
+        File file = Directories.file(directory, name);
+        if (file != null) {
+            return map(file);
+        }
+        IndexInput in = directory.openInput(name);
+        try {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported bloom filter version [" + version + "] for [" + name + "]");
+            }
+            int hashCount = in.readInt();
+            long size = in.readLong();
+            int numWords = in.readInt();
+            in.readInt(); // padding
+            long[] bits = new long[numWords];
+            for (int i = 0; i < numWords; i++) {
+                bits[i] = in.readLong();
+            }
+            return new ObsBloomFilter(hashCount, size, new OpenBitSet(bits, numWords));
+        } finally {
+            in.close();
+        }
+    }
+
+    private static BloomFilter map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            // the mapping stays valid once the channel is closed, and is released when garbage collected
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            int version = buffer.getInt(0);
+            if (version != VERSION) {
+                throw new IOException("unsupported bloom filter version [" + version + "] for [" + file + "]");
+            }
+            int hashCount = buffer.getInt(4);
+            long size = buffer.getLong(8);
+            int numWords = buffer.getInt(16);
+            if (raf.length() != HEADER_SIZE + ((long) numWords) * 8) {
+                throw new IOException("bloom filter [" + file + "] is corrupted, length [" + raf.length() + "] does not match [" + numWords + "] words");
+            }
+            buffer.position(HEADER_SIZE);
+            ByteBuffer words = buffer.slice();
+            return new MappedBloomFilter(hashCount, size, words.asLongBuffer());
+        } finally {
+            raf.close();
+        }
+    }
+
+    private BloomFilters() {
+
+    }
+}
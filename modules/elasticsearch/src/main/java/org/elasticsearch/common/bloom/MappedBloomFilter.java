@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.bloom;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A read only bloom filter over bits kept outside of the heap (memory mapped from a file written by
+ * {@link BloomFilters#write(BloomFilter, org.apache.lucene.store.IndexOutput)}). Uses the same hashing and bits
+ * layout as {@link ObsBloomFilter}.
+ */
+public class MappedBloomFilter implements BloomFilter {
+
+    private final int hashCount;
+
+    private final long size;
+
+    private final LongBuffer bits;
+
+    MappedBloomFilter(int hashCount, long size, LongBuffer bits) {
+        this.hashCount = hashCount;
+        this.size = size;
+        this.bits = bits;
+    }
+
+    @Override public void add(byte[] key, int offset, int length) {
+        throw new UnsupportedOperationException("mapped bloom filter is read only");
+    }
+
+    @Override public void add(ByteBuffer key) {
+        throw new UnsupportedOperationException("mapped bloom filter is read only");
+    }
+
+    @Override public boolean isPresent(byte[] key, int offset, int length) {
+        for (long bucketIndex : ObsBloomFilter.getHashBuckets(key, offset, length, hashCount, size)) {
+            if (!get(bucketIndex)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override public boolean isPresent(ByteBuffer key) {
+        for (long bucketIndex : ObsBloomFilter.getHashBuckets(key, hashCount, size)) {
+            if (!get(bucketIndex)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean get(long index) {
+        int i = (int) (index >> 6);
+        int bit = (int) index & 0x3f;
+        return (bits.get(i) & (1L << bit)) != 0;
+    }
+
+    /**
+     * The bits are not kept on the heap, so this is always <tt>0</tt>.
+     */
+    @Override public long sizeInBytes() {
+        return 0;
+    }
+}
@@ -32,11 +32,27 @@ public class ObsBloomFilter implements BloomFilter {
     private final long size;
 
     ObsBloomFilter(int hashCount, long size) {
+        this(hashCount, size, new OpenBitSet(size));
+    }
+
+    ObsBloomFilter(int hashCount, long size, OpenBitSet bitset) {
         this.hashCount = hashCount;
-        this.bitset = new OpenBitSet(size);
+        this.bitset = bitset;
         this.size = size;
     }
 
+    int hashCount() {
+        return hashCount;
+    }
+
+    long size() {
+        return size;
+    }
+
+    OpenBitSet bitset() {
+        return bitset;
+    }
+
     long emptyBuckets() {
         long n = 0;
         for (long i = 0; i < buckets(); i++) {
@@ -37,6 +37,9 @@ public class CompressedString implements Streamable {
 
     private byte[] bytes;
 
+    // lazily computed, the bytes never change once set
+    private int hashCode;
+
     CompressedString() {
     }
 
@@ -79,13 +82,20 @@ public class CompressedString implements Streamable {
 
         CompressedString that = (CompressedString) o;
 
+        // the (cached) hash codes allow to quickly tell different sources apart
+        if (hashCode() != that.hashCode()) return false;
         if (!Arrays.equals(bytes, that.bytes)) return false;
 
         return true;
     }
 
     @Override public int hashCode() {
-        return bytes != null ? Arrays.hashCode(bytes) : 0;
+        int hashCode = this.hashCode;
+        if (hashCode == 0 && bytes != null) {
+            hashCode = Arrays.hashCode(bytes);
+            this.hashCode = hashCode;
+        }
+        return hashCode;
     }
 
     @Override public String toString() {
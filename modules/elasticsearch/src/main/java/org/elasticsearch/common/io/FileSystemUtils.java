@@ -25,6 +25,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,6 +35,26 @@ import java.util.List;
  */
 public class FileSystemUtils {
 
+    // java.nio.file.Files#createLink and java.io.File#toPath, only available on Java 7 and above
+    private static final Method createLinkMethod;
+
+    private static final Method toPathMethod;
+
+    static {
+        Method createLink = null;
+        Method toPath = null;
+        try {
+            Class<?> pathClass = Class.forName("java.nio.file.Path");
+            createLink = Class.forName("java.nio.file.Files").getMethod("createLink", pathClass, pathClass);
+            toPath = File.class.getMethod("toPath");
+        } catch (Throwable e) {
+            createLink = null;
+            toPath = null;
+        }
+        createLinkMethod = createLink;
+        toPathMethod = toPath;
+    }
+
     public static int maxOpenFiles(File testDir) {
         boolean dirCreated = false;
         if (!testDir.exists()) {
@@ -150,6 +171,23 @@ public class FileSystemUtils {
         }
     }
 
+    /**
+     * Creates a hard link to the source file, returning <tt>false</tt> if it could not be created (hard links not
+     * supported by the JVM or the file system, files on different file systems, ...), in which case the caller
+     * should fall back to copying the file.
+     */
+    public static boolean hardLink(File sourceFile, File linkFile) {
+        if (createLinkMethod == null) {
+            return false;
+        }
+        try {
+            createLinkMethod.invoke(null, toPathMethod.invoke(linkFile), toPathMethod.invoke(sourceFile));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     public static void copyFile(File sourceFile, File destinationFile) throws IOException {
         FileInputStream sourceIs = null;
         FileChannel source = null;
@@ -19,11 +19,19 @@
 
 package org.elasticsearch.common.lucene;
 
+import org.apache.lucene.index.IndexFileNameFilter;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.store.DelegatingDirectory;
+import org.elasticsearch.common.lucene.store.SwitchDirectory;
 import org.elasticsearch.common.unit.ByteSizeValue;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * A set of utilities for Lucene {@link Directory}.
@@ -48,6 +56,83 @@ public class Directories {
         return new ByteSizeValue(estimatedSize);
     }
 
+    /**
+     * Returns the file system file backing the provided file of the {@link Directory}, or <tt>null</tt> if
+     * the file is not kept on the file system (for example, when in memory).
+     */
+    @Nullable public static File file(Directory directory, String name) {
+        while (true) {
+            if (directory instanceof FSDirectory) {
+                return new File(((FSDirectory) directory).getFile(), name);
+            } else if (directory instanceof SwitchDirectory) {
+                directory = ((SwitchDirectory) directory).getDirectory(name);
+            } else if (directory instanceof DelegatingDirectory) {
+                directory = ((DelegatingDirectory) directory).delegate();
+            } else {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Deletes the files written next to the files of a segment (<tt>[segment].[extension][suffix]</tt>) of
+     * segments that no longer exist in the directory. Files that fail to be deleted are left for a later call.
+     *
+     * <p>Only the Lucene index files tell that a segment exists, the other files written next to the segments
+     * (with other extensions) are not considered, otherwise they would keep each other from being deleted.
+     */
+    public static void deleteUnusedSegmentFiles(Directory directory, String extension) throws IOException {
+        String[] files = directory.listAll();
+        Set<String> segments = new HashSet<String>();
+        for (String file : files) {
+            if (isIndexFile(file)) {
+                segments.add(segmentName(file));
+            }
+        }
+        for (String file : files) {
+            if (hasSegmentExtension(file, extension) && !segments.contains(segmentName(file))) {
+                try {
+                    directory.deleteFile(file);
+                } catch (IOException e) {
+                    // ignore, will be deleted next time
+                }
+            }
+        }
+    }
+
+    /**
+     * Is the file a Lucene index file. They have a single extension, while the files written next to them might
+     * have more than one (when their suffix has dots).
+     */
+    private static boolean isIndexFile(String file) {
+        int index = file.indexOf('.');
+        if (index != -1 && file.indexOf('.', index + 1) != -1) {
+            return false;
+        }
+        return IndexFileNameFilter.getFilter().accept(null, file);
+    }
+
+    private static boolean hasSegmentExtension(String file, String extension) {
+        int index = file.indexOf('.');
+        return index != -1 && file.startsWith(extension, index + 1);
+    }
+
+    /**
+     * The name of the segment a file belongs to (<tt>_3</tt> for both <tt>_3.cfs</tt> and <tt>_3_1.del</tt>).
+     */
+    private static String segmentName(String file) {
+        int end = file.length();
+        int index = file.indexOf('.');
+        if (index != -1) {
+            end = index;
+        }
+        index = file.indexOf('_', 1);
+        if (index != -1 && index < end) {
+            end = index;
+        }
+        return file.substring(0, end);
+    }
+
     private Directories() {
 
     }
@@ -42,6 +42,10 @@ public final class AllTokenStream extends TokenFilter {
 
     private final PayloadAttribute payloadAttribute;
 
+    // the payload is copied when the token is indexed, so it can be reused across tokens
+    private final byte[] boostBytes = new byte[4];
+    private final Payload boostPayload = new Payload(boostBytes);
+
     AllTokenStream(TokenStream input, AllEntries allEntries) {
         super(input);
         this.allEntries = allEntries;
@@ -59,7 +63,8 @@ public final class AllTokenStream extends TokenFilter {
         if (allEntries.current() != null) {
             float boost = allEntries.current().boost();
             if (boost != 1.0f) {
-                payloadAttribute.setPayload(new Payload(encodeFloat(boost)));
+                encodeFloat(boost, boostBytes, 0);
+                payloadAttribute.setPayload(boostPayload);
             } else {
                 payloadAttribute.setPayload(null);
             }
@@ -107,7 +107,10 @@ public class SwitchDirectory extends Directory implements ForceSyncDirectory {
         return name.substring(i + 1, name.length());
     }
 
-    private Directory getDirectory(String name) {
+    /**
+     * The directory (primary or secondary) the provided file belongs to.
+     */
+    public Directory getDirectory(String name) {
         String ext = getExtension(name);
         if (primaryExtensions.contains(ext)) {
             return primaryDir;
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.lucene.store;
+
+import org.apache.lucene.store.IndexOutput;
+
+import java.io.IOException;
+import java.util.zip.Adler32;
+
+/**
+ * An index output that computes an Adler32 checksum of the bytes streamed through it, allowing to verify
+ * the content of a file as it is being copied (chunk by chunk) instead of reading it back once done.
+ *
+ * <p>Note, the checksum is only valid for outputs that are written sequentially, seeking is not allowed.
+ */
+public class VerifyingIndexOutput extends IndexOutput {
+
+    private static final long ADLER_BASE = 65521;
+
+    private final IndexOutput delegate;
+
+    private final Adler32 digest = new Adler32();
+
+    private long verificationTime;
+
+    public VerifyingIndexOutput(IndexOutput delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * The checksum of the bytes written so far, in the same format used by the store checksums.
+     */
+    public String checksum() {
+        return toString(digest.getValue());
+    }
+
+    /**
+     * Returns <tt>true</tt> if the bytes written so far match the provided checksum.
+     */
+    public boolean verify(String expectedChecksum) {
+        return checksum().equals(expectedChecksum);
+    }
+
+    /**
+     * The time (in nanos) spent on computing the checksum.
+     */
+    public long verificationTimeInNanos() {
+        return this.verificationTime;
+    }
+
+    @Override public void writeByte(byte b) throws IOException {
+        delegate.writeByte(b);
+        long start = System.nanoTime();
+        digest.update(b);
+        verificationTime += System.nanoTime() - start;
+    }
+
+    @Override public void writeBytes(byte[] b, int offset, int length) throws IOException {
+        delegate.writeBytes(b, offset, length);
+        long start = System.nanoTime();
+        digest.update(b, offset, length);
+        verificationTime += System.nanoTime() - start;
+    }
+
+    @Override public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override public long getFilePointer() {
+        return delegate.getFilePointer();
+    }
+
+    @Override public void seek(long pos) throws IOException {
+        throw new UnsupportedOperationException("seek is not supported on a verifying index output");
+    }
+
+    @Override public long length() throws IOException {
+        return delegate.length();
+    }
+
+    @Override public void setLength(long length) throws IOException {
+        delegate.setLength(length);
+    }
+
+    public static String toString(long checksum) {
+        return Long.toString(checksum, Character.MAX_RADIX);
+    }
+
+    /**
+     * Combines the Adler32 checksum of two consecutive byte sequences into the checksum of their concatenation,
+     * <tt>length2</tt> being the length of the second sequence (same as zlib <tt>adler32_combine</tt>).
+     */
+    public static long combine(long adler1, long adler2, long length2) {
+        long rem = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= (ADLER_BASE << 1)) {
+            sum2 -= (ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+}
@@ -83,25 +83,40 @@ public class UidField extends AbstractField {
     }
 
     /**
-     * Load the version for the uid from the reader, returning -1 if no doc exists, or -2 if
-     * no version is available (for backward comp.)
+     * Same as {@link #loadDocIdAndVersion(IndexReader, Term)}, reusing the provided term positions of the reader
+     * (seeking it to the term).
      */
-    public static long loadVersion(IndexReader reader, Term term) {
-        TermPositions uid = null;
+    public static DocIdAndVersion loadDocIdAndVersion(IndexReader reader, TermPositions uid, Term term) {
+        int docId = Lucene.NO_DOC;
         try {
-            uid = reader.termPositions(term);
+            uid.seek(term);
             if (!uid.next()) {
-                return -1;
+                return null; // no doc
             }
+            docId = uid.doc();
             uid.nextPosition();
             if (!uid.isPayloadAvailable()) {
-                return -2;
+                return new DocIdAndVersion(docId, -2, reader);
             }
             if (uid.getPayloadLength() < 8) {
-                return -2;
+                return new DocIdAndVersion(docId, -2, reader);
             }
             byte[] payload = uid.getPayload(new byte[8], 0);
-            return Numbers.bytesToLong(payload);
+            return new DocIdAndVersion(docId, Numbers.bytesToLong(payload), reader);
+        } catch (Exception e) {
+            return new DocIdAndVersion(docId, -2, reader);
+        }
+    }
+
+    /**
+     * Load the version for the uid from the reader, returning -1 if no doc exists, or -2 if
+     * no version is available (for backward comp.)
+     */
+    public static long loadVersion(IndexReader reader, Term term) {
+        TermPositions uid = null;
+        try {
+            uid = reader.termPositions();
+            return loadVersion(uid, term);
         } catch (Exception e) {
             return -2;
         } finally {
@@ -115,18 +130,47 @@ public class UidField extends AbstractField {
         }
     }
 
+    /**
+     * Same as {@link #loadVersion(IndexReader, Term)}, reusing the provided term positions (seeking it to the
+     * term). Seeking the same term positions to sorted terms keeps the terms dictionary lookups sequential.
+     */
+    public static long loadVersion(TermPositions uid, Term term) {
+        try {
+            uid.seek(term);
+            if (!uid.next()) {
+                return -1;
+            }
+            uid.nextPosition();
+            if (!uid.isPayloadAvailable()) {
+                return -2;
+            }
+            if (uid.getPayloadLength() < 8) {
+                return -2;
+            }
+            byte[] payload = uid.getPayload(new byte[8], 0);
+            return Numbers.bytesToLong(payload);
+        } catch (Exception e) {
+            return -2;
+        }
+    }
+
+    // the token stream is only consumed while the document is indexed, by the indexing thread, one field
+    // at a time, so a single stream per thread can be reused for all the uid fields it indexes
+    private static final ThreadLocal<UidPayloadTokenStream> cachedTokenStream = new ThreadLocal<UidPayloadTokenStream>() {
+        @Override protected UidPayloadTokenStream initialValue() {
+            return new UidPayloadTokenStream(null);
+        }
+    };
+
     private String uid;
 
     private long version;
 
-    private final UidPayloadTokenStream tokenStream;
-
     public UidField(String name, String uid, long version) {
         super(name, Field.Store.YES, Field.Index.ANALYZED, Field.TermVector.NO);
         this.uid = uid;
         this.version = version;
         this.omitTermFreqAndPositions = false;
-        this.tokenStream = new UidPayloadTokenStream(this);
     }
 
     @Override public void setOmitTermFreqAndPositions(boolean omitTermFreqAndPositions) {
@@ -154,7 +198,7 @@ public class UidField extends AbstractField {
     }
 
     @Override public TokenStream tokenStreamValue() {
-        return tokenStream;
+        return cachedTokenStream.get().field(this);
     }
 
     public static final class UidPayloadTokenStream extends TokenStream {
@@ -162,7 +206,11 @@ public class UidField extends AbstractField {
         private final PayloadAttribute payloadAttribute = addAttribute(PayloadAttribute.class);
         private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
 
-        private final UidField field;
+        // the payload is copied when the token is indexed, so it can be reused as well
+        private final byte[] payloadBytes = new byte[8];
+        private final Payload payload = new Payload(payloadBytes);
+
+        private UidField field;
 
         private boolean added = false;
 
@@ -170,6 +218,12 @@ public class UidField extends AbstractField {
             this.field = field;
         }
 
+        UidPayloadTokenStream field(UidField field) {
+            this.field = field;
+            this.added = false;
+            return this;
+        }
+
         @Override public void reset() throws IOException {
             added = false;
         }
@@ -180,7 +234,8 @@ public class UidField extends AbstractField {
             }
             termAtt.setLength(0);
             termAtt.append(field.uid);
-            payloadAttribute.setPayload(new Payload(Numbers.longToBytes(field.version())));
+            Numbers.longToBytes(field.version(), payloadBytes);
+            payloadAttribute.setPayload(payload);
             added = true;
             return true;
         }
@@ -66,6 +66,9 @@ public class ImmutableSettings implements Settings {
 
     private transient ClassLoader classLoader;
 
+    // lazily computed, settings are immutable
+    private transient int hashCode;
+
     private ImmutableSettings(Map<String, String> settings, ClassLoader classLoader) {
         this.settings = ImmutableMap.copyOf(settings);
         this.classLoader = classLoader == null ? buildClassLoader() : classLoader;
@@ -298,8 +301,12 @@ public class ImmutableSettings implements Settings {
 
     @Override
     public int hashCode() {
-        int result = settings != null ? settings.hashCode() : 0;
-        result = 31 * result + (classLoader != null ? classLoader.hashCode() : 0);
+        int result = hashCode;
+        if (result == 0) {
+            result = settings != null ? settings.hashCode() : 0;
+            result = 31 * result + (classLoader != null ? classLoader.hashCode() : 0);
+            hashCode = result;
+        }
         return result;
     }
 
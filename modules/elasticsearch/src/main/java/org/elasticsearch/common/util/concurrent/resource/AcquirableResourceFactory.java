@@ -27,7 +27,7 @@ import org.elasticsearch.common.lease.Releasable;
 public final class AcquirableResourceFactory {
 
     public static <T extends Releasable> AcquirableResource<T> newAcquirableResource(T resource) {
-        return new BlockingAcquirableResource<T>(resource);
+        return new NonBlockingAcquirableResource<T>(resource);
     }
 
     private AcquirableResourceFactory() {
@@ -22,7 +22,7 @@ package org.elasticsearch.common.util.concurrent.resource;
 import org.elasticsearch.common.lease.Releasable;
 
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicStampedReference;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A wrapper around a resource that can be released. Note, release should not be
@@ -31,13 +31,18 @@ import java.util.concurrent.atomic.AtomicStampedReference;
  * <p>Yea, I now, the fact that the resource itself is releasable basically means that
  * users of this class should take care... .
  *
+ * <p>The number of acquirers (low 32 bits) and the marked for close flag are kept in a single long, so
+ * acquire, release and mark for close are a single CAS without any locking or allocation.
+ *
  * @author kimchy (shay.banon)
  */
 public class NonBlockingAcquirableResource<T extends Releasable> implements AcquirableResource<T> {
 
+    private static final long MARKED_FOR_CLOSE = 1L << 32;
+
     private final T resource;
 
-    private AtomicStampedReference<Boolean> counter = new AtomicStampedReference<Boolean>(false, 0);
+    private final AtomicLong state = new AtomicLong();
 
     private final AtomicBoolean closed = new AtomicBoolean();
 
@@ -51,24 +56,22 @@ public class NonBlockingAcquirableResource<T extends Releasable> implements Acqu
 
     @Override public boolean acquire() {
         while (true) {
-            int stamp = counter.getStamp();
-            boolean result = counter.compareAndSet(false, false, stamp, stamp + 1);
-            if (result) {
-                return true;
-            }
-            if (counter.getReference()) {
+            long current = state.get();
+            if (marked(current)) {
                 return false;
             }
+            if (state.compareAndSet(current, state(false, count(current) + 1))) {
+                return true;
+            }
         }
     }
 
     @Override public void release() {
         while (true) {
-            boolean currentReference = counter.getReference();
-            int stamp = counter.getStamp();
-            boolean result = counter.compareAndSet(currentReference, currentReference, stamp, stamp - 1);
-            if (result) {
-                if (currentReference && (stamp <= 1)) {
+            long current = state.get();
+            int count = count(current) - 1;
+            if (state.compareAndSet(current, state(marked(current), count))) {
+                if (marked(current) && count <= 0) {
                     close();
                 }
                 return;
@@ -78,20 +81,22 @@ public class NonBlockingAcquirableResource<T extends Releasable> implements Acqu
 
     @Override public void markForClose() {
         while (true) {
-            int stamp = counter.getStamp();
-            boolean result = counter.compareAndSet(false, true, stamp, stamp);
-            if (result) {
-                if (stamp <= 0) {
+            long current = state.get();
+            if (marked(current)) {
+                return;
+            }
+            if (state.compareAndSet(current, current | MARKED_FOR_CLOSE)) {
+                if (count(current) <= 0) {
                     close();
                 }
                 return;
-            } else if (counter.getReference()) {
-                return;
             }
         }
     }
 
     @Override public void forceClose() {
+        // mark it as well, so it can no longer be acquired
+        markForClose();
         close();
     }
 
@@ -100,4 +105,16 @@ public class NonBlockingAcquirableResource<T extends Releasable> implements Acqu
             resource.release();
         }
     }
-}
\ No newline at end of file
+
+    private static boolean marked(long state) {
+        return (state & MARKED_FOR_CLOSE) != 0;
+    }
+
+    private static int count(long state) {
+        return (int) state;
+    }
+
+    private static long state(boolean marked, int count) {
+        return (marked ? MARKED_FOR_CLOSE : 0) | (count & 0xFFFFFFFFL);
+    }
+}
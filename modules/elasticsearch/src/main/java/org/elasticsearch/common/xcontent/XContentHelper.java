@@ -19,6 +19,8 @@
 
 package org.elasticsearch.common.xcontent;
 
+import org.elasticsearch.common.Unicode;
+
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -30,6 +32,25 @@ import java.util.Map;
  */
 public class XContentHelper {
 
+    /**
+     * Returns the provided (uncompressed) content as a json string, converting it if it is in a different (binary)
+     * format.
+     */
+    public static String convertToJson(byte[] data, int offset, int length) throws IOException {
+        if (XContentFactory.xContentType(data, offset, length) == XContentType.JSON) {
+            return Unicode.fromBytes(data, offset, length);
+        }
+        XContentParser parser = XContentFactory.xContent(data, offset, length).createParser(data, offset, length);
+        try {
+            parser.nextToken();
+            XContentBuilder builder = XContentFactory.jsonBuilder();
+            builder.copyCurrentStructure(parser);
+            return builder.string();
+        } finally {
+            parser.close();
+        }
+    }
+
     /**
      * Merges the defaults provided as the second parameter into the content of the first. Only does recursive merge
      * for inner maps.
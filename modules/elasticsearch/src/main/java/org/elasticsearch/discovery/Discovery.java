@@ -23,6 +23,7 @@ import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.block.ClusterBlock;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.LifecycleComponent;
 
 /**
@@ -47,6 +48,23 @@ public interface Discovery extends LifecycleComponent<Discovery> {
     /**
      * Publish all the changes to the cluster from the master (can be called just by the master). The publish
      * process should not publish this state to the master as well! (the master is sending it...).
+     *
+     * <p>The ack listener is notified (before returning) for each node the state is sent to, and then once it has
+     * been applied on that node (or failed to be sent or applied).
      */
-    void publish(ClusterState clusterState);
+    void publish(ClusterState clusterState, AckListener ackListener);
+
+    /**
+     * Listens for nodes acknowledging a published cluster state.
+     */
+    static interface AckListener {
+
+        /**
+         * Called before the state is sent to the node, {@link #onNodeAck(DiscoveryNode, Throwable)} will be called
+         * for it.
+         */
+        void onNodePublishing(DiscoveryNode node);
+
+        void onNodeAck(DiscoveryNode node, @Nullable Throwable t);
+    }
 }
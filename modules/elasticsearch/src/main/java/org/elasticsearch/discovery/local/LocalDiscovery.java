@@ -25,6 +25,7 @@ import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.cluster.FailableClusterStateUpdateTask;
 import org.elasticsearch.cluster.ProcessedClusterStateUpdateTask;
 import org.elasticsearch.cluster.block.ClusterBlocks;
 import org.elasticsearch.cluster.node.DiscoveryNode;
@@ -218,7 +219,7 @@ public class LocalDiscovery extends AbstractLifecycleComponent<Discovery> implem
         return clusterName.value() + "/" + localNode.id();
     }
 
-    @Override public void publish(ClusterState clusterState) {
+    @Override public void publish(ClusterState clusterState, final AckListener ackListener) {
         if (!master) {
             throw new ElasticSearchIllegalStateException("Shouldn't publish state when not master");
         }
@@ -230,15 +231,21 @@ public class LocalDiscovery extends AbstractLifecycleComponent<Discovery> implem
         try {
             // we do the marshaling intentionally, to check it works well...
             final byte[] clusterStateBytes = Builder.toBytes(clusterState);
-            for (LocalDiscovery discovery : clusterGroup.members()) {
+            for (final LocalDiscovery discovery : clusterGroup.members()) {
                 if (discovery.master) {
                     continue;
                 }
                 final ClusterState nodeSpecificClusterState = ClusterState.Builder.fromBytes(clusterStateBytes, discovery.localNode);
                 // ignore cluster state messages that do not include "me", not in the game yet...
                 if (nodeSpecificClusterState.nodes().localNode() != null) {
-                    discovery.clusterService.submitStateUpdateTask("local-disco-receive(from master)", new ProcessedClusterStateUpdateTask() {
+                    ackListener.onNodePublishing(discovery.localNode);
+                    discovery.clusterService.submitStateUpdateTask("local-disco-receive(from master)", new FailableClusterStateUpdateTask() {
                         @Override public ClusterState execute(ClusterState currentState) {
+                            if (nodeSpecificClusterState.version() < currentState.version()) {
+                                // already applied a newer state
+                                ackListener.onNodeAck(discovery.localNode, null);
+                                return currentState;
+                            }
                             ClusterState.Builder builder = ClusterState.builder().state(nodeSpecificClusterState);
                             // if the routing table did not change, use the original one
                             if (nodeSpecificClusterState.routingTable().version() == currentState.routingTable().version()) {
@@ -253,6 +260,11 @@ public class LocalDiscovery extends AbstractLifecycleComponent<Discovery> implem
 
                         @Override public void clusterStateProcessed(ClusterState clusterState) {
                             sendInitialStateEventIfNeeded();
+                            ackListener.onNodeAck(discovery.localNode, null);
+                        }
+
+                        @Override public void onFailure(String source, Throwable t) {
+                            ackListener.onNodeAck(discovery.localNode, t);
                         }
                     });
                 }
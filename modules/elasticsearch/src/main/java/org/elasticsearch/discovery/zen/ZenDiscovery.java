@@ -25,6 +25,7 @@ import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.cluster.FailableClusterStateUpdateTask;
 import org.elasticsearch.cluster.ProcessedClusterStateUpdateTask;
 import org.elasticsearch.cluster.block.ClusterBlocks;
 import org.elasticsearch.cluster.metadata.MetaData;
@@ -37,6 +38,7 @@ import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.component.Lifecycle;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.timer.HashedWheelTimer;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.discovery.InitialStateDiscoveryListener;
@@ -55,6 +57,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.elasticsearch.cluster.ClusterState.*;
@@ -62,6 +65,7 @@ import static org.elasticsearch.cluster.node.DiscoveryNode.*;
 import static org.elasticsearch.cluster.node.DiscoveryNodes.*;
 import static org.elasticsearch.common.collect.Lists.*;
 import static org.elasticsearch.common.unit.TimeValue.*;
+import static org.elasticsearch.common.util.concurrent.EsExecutors.*;
 
 /**
  * @author kimchy (shay.banon)
@@ -82,6 +86,9 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
 
     private final NodesFaultDetection nodesFD;
 
+    // a single timer wheel driving both the master and the nodes fault detection keepalives
+    private final HashedWheelTimer faultDetectionTimer;
+
     private final PublishClusterStateAction publishClusterState;
 
     private final MembershipAction membership;
@@ -125,12 +132,15 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
 
         this.electMaster = new ElectMasterService(settings);
 
-        this.masterFD = new MasterFaultDetection(settings, threadPool, transportService, this);
-        this.masterFD.addListener(new MasterNodeFailureListener());
+        this.faultDetectionTimer = new HashedWheelTimer(logger, daemonThreadFactory(settings, "discovery_zen_fd"),
+                componentSettings.getAsTime("fd.timer_tick", timeValueMillis(100)).millis(), TimeUnit.MILLISECONDS);
 
-        this.nodesFD = new NodesFaultDetection(settings, threadPool, transportService);
+        this.nodesFD = new NodesFaultDetection(settings, threadPool, transportService, faultDetectionTimer);
         this.nodesFD.addListener(new NodeFailureListener());
 
+        this.masterFD = new MasterFaultDetection(settings, threadPool, transportService, this, nodesFD, faultDetectionTimer);
+        this.masterFD.addListener(new MasterNodeFailureListener());
+
         this.publishClusterState = new PublishClusterStateAction(settings, transportService, this, new NewClusterStateListener());
         this.pingService.setNodesProvider(this);
         this.membership = new MembershipAction(settings, transportService, this, new MembershipListener());
@@ -188,6 +198,7 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
     @Override protected void doClose() throws ElasticSearchException {
         masterFD.close();
         nodesFD.close();
+        faultDetectionTimer.stop();
         publishClusterState.close();
         membership.close();
         pingService.close();
@@ -218,13 +229,13 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
         return newNodesBuilder().put(localNode).localNodeId(localNode.id()).build();
     }
 
-    @Override public void publish(ClusterState clusterState) {
+    @Override public void publish(ClusterState clusterState, AckListener ackListener) {
         if (!master) {
             throw new ElasticSearchIllegalStateException("Shouldn't publish state when not master");
         }
         latestDiscoNodes = clusterState.nodes();
         nodesFD.updateNodes(clusterState.nodes());
-        publishClusterState.publish(clusterState);
+        publishClusterState.publish(clusterState, ackListener);
     }
 
     private void asyncJoinCluster() {
@@ -439,19 +450,27 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
         });
     }
 
-    void handleNewClusterStateFromMaster(final ClusterState newState) {
+    void handleNewClusterStateFromMaster(final ClusterState newState, final PublishClusterStateAction.NewStateProcessed newStateProcessed) {
         if (master) {
             logger.warn("master should not receive new cluster state from [{}]", newState.nodes().masterNode());
+            newStateProcessed.onNewClusterStateProcessed();
         } else {
             if (newState.nodes().localNode() == null) {
                 logger.warn("received a cluster state from [{}] and not part of the cluster, should not happen", newState.nodes().masterNode());
+                newStateProcessed.onNewClusterStateProcessed();
             } else {
                 if (currentJoinThread != null) {
                     logger.debug("got a new state from master node, though we are already trying to rejoin the cluster");
                 }
 
-                clusterService.submitStateUpdateTask("zen-disco-receive(from master [" + newState.nodes().masterNode() + "])", new ProcessedClusterStateUpdateTask() {
+                clusterService.submitStateUpdateTask("zen-disco-receive(from master [" + newState.nodes().masterNode() + "])", new FailableClusterStateUpdateTask() {
                     @Override public ClusterState execute(ClusterState currentState) {
+                        if (newState.version() < currentState.version()) {
+                            // we already applied a newer state, the master will get it acknowledged as well
+                            logger.debug("got old cluster state [" + newState.version() + "<" + currentState.version() + "] from master, ignoring");
+                            newStateProcessed.onNewClusterStateProcessed();
+                            return currentState;
+                        }
 
                         // we don't need to do this, since we ping the master, and get notified when it has moved from being a master
                         // because it doesn't have enough master nodes...
@@ -481,6 +500,12 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
 
                     @Override public void clusterStateProcessed(ClusterState clusterState) {
                         sendInitialStateEventIfNeeded();
+                        newStateProcessed.onNewClusterStateProcessed();
+                    }
+
+                    @Override public void onFailure(String source, Throwable t) {
+                        logger.warn("failed to apply cluster state from master", t);
+                        newStateProcessed.onNewClusterStateFailed(t);
                     }
                 });
             }
@@ -603,8 +628,8 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
     }
 
     private class NewClusterStateListener implements PublishClusterStateAction.NewClusterStateListener {
-        @Override public void onNewClusterState(ClusterState clusterState) {
-            handleNewClusterStateFromMaster(clusterState);
+        @Override public void onNewClusterState(ClusterState clusterState, PublishClusterStateAction.NewStateProcessed newStateProcessed) {
+            handleNewClusterStateFromMaster(clusterState, newStateProcessed);
         }
     }
 
@@ -27,6 +27,9 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.timer.Timeout;
+import org.elasticsearch.common.timer.Timer;
+import org.elasticsearch.common.timer.TimerTask;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.discovery.zen.DiscoveryNodesProvider;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -40,6 +43,7 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.elasticsearch.common.unit.TimeValue.*;
@@ -48,6 +52,11 @@ import static org.elasticsearch.transport.TransportRequestOptions.*;
 /**
  * A fault detection that pings the master periodically to see if its alive.
  *
+ * <p>The master is not pinged if it pinged us (as part of its nodes fault detection) within the last
+ * <tt>ping_interval</tt>, since this means it is alive, still the master, and knows about us. A recent response
+ * from the master to any other request also counts as alive, but then a real ping is still sent at least once
+ * every <tt>ping_interval * ping_retries</tt> to verify we are still registered with it.
+ *
  * @author kimchy (shay.banon)
  */
 public class MasterFaultDetection extends AbstractComponent {
@@ -65,6 +74,10 @@ public class MasterFaultDetection extends AbstractComponent {
 
     private final DiscoveryNodesProvider nodesProvider;
 
+    private final NodesFaultDetection nodesFD;
+
+    private final Timer timer;
+
     private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
 
 
@@ -76,6 +89,8 @@ public class MasterFaultDetection extends AbstractComponent {
 
     private final int pingRetryCount;
 
+    private final long registrationCheckInterval;
+
     // used mainly for testing, should always be true
     private final boolean registerConnectionListener;
 
@@ -92,17 +107,21 @@ public class MasterFaultDetection extends AbstractComponent {
 
     private final AtomicBoolean notifiedMasterFailure = new AtomicBoolean();
 
-    public MasterFaultDetection(Settings settings, ThreadPool threadPool, TransportService transportService, DiscoveryNodesProvider nodesProvider) {
+    public MasterFaultDetection(Settings settings, ThreadPool threadPool, TransportService transportService, DiscoveryNodesProvider nodesProvider,
+                                NodesFaultDetection nodesFD, Timer timer) {
         super(settings);
         this.threadPool = threadPool;
         this.transportService = transportService;
         this.nodesProvider = nodesProvider;
+        this.nodesFD = nodesFD;
+        this.timer = timer;
 
         this.connectOnNetworkDisconnect = componentSettings.getAsBoolean("connect_on_network_disconnect", true);
         this.pingInterval = componentSettings.getAsTime("ping_interval", timeValueSeconds(1));
         this.pingRetryTimeout = componentSettings.getAsTime("ping_timeout", timeValueSeconds(30));
         this.pingRetryCount = componentSettings.getAsInt("ping_retries", 3);
         this.registerConnectionListener = componentSettings.getAsBoolean("register_connection_listener", true);
+        this.registrationCheckInterval = pingInterval.millis() * pingRetryCount;
 
         logger.debug("[master] uses ping_interval [{}], ping_timeout [{}], ping_retries [{}]", pingInterval, pingRetryTimeout, pingRetryCount);
 
@@ -163,7 +182,7 @@ public class MasterFaultDetection extends AbstractComponent {
         }
         this.masterPinger = new MasterPinger();
         // start the ping process
-        threadPool.schedule(pingInterval, ThreadPool.Names.SAME, masterPinger);
+        timer.newTimeout(masterPinger, pingInterval.millis(), TimeUnit.MILLISECONDS);
     }
 
     public void stop(String reason) {
@@ -207,7 +226,7 @@ public class MasterFaultDetection extends AbstractComponent {
                         masterPinger.stop();
                     }
                     this.masterPinger = new MasterPinger();
-                    threadPool.schedule(pingInterval, ThreadPool.Names.SAME, masterPinger);
+                    timer.newTimeout(masterPinger, pingInterval.millis(), TimeUnit.MILLISECONDS);
                 } catch (Exception e) {
                     logger.trace("[master] [{}] transport disconnected (with verified connect)", masterNode);
                     notifyMasterFailure(masterNode, "transport disconnected (with verified connect)");
@@ -251,15 +270,22 @@ public class MasterFaultDetection extends AbstractComponent {
         }
     }
 
-    private class MasterPinger implements Runnable {
+    private class MasterPinger implements TimerTask {
 
         private volatile boolean running = true;
 
+        // the last time the master confirmed it is still the master and that we are registered with it
+        private volatile long lastRegistrationCheck = -1;
+
         public void stop() {
             this.running = false;
         }
 
-        @Override public void run() {
+        private void reschedule() {
+            timer.newTimeout(MasterPinger.this, pingInterval.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override public void run(Timeout timeout) {
             if (!running) {
                 // return and don't spawn...
                 return;
@@ -267,7 +293,22 @@ public class MasterFaultDetection extends AbstractComponent {
             final DiscoveryNode masterToPing = masterNode;
             if (masterToPing == null) {
                 // master is null, should not happen, but we are still running, so reschedule
-                threadPool.schedule(pingInterval, ThreadPool.Names.SAME, MasterPinger.this);
+                reschedule();
+                return;
+            }
+            long now = threadPool.estimatedTimeInMillis();
+            long aliveThreshold = now - pingInterval.millis();
+            if (nodesFD.lastPingReceivedFrom(masterToPing.id()) >= aliveThreshold) {
+                // the master pinged us, its alive, still the master, and we are registered with it
+                MasterFaultDetection.this.retryCount = 0;
+                lastRegistrationCheck = now;
+                reschedule();
+                return;
+            }
+            if (transportService.lastResponseTime(masterToPing) >= aliveThreshold && (now - lastRegistrationCheck) < registrationCheckInterval) {
+                // the master responded to another request recently, its alive
+                MasterFaultDetection.this.retryCount = 0;
+                reschedule();
                 return;
             }
             transportService.sendRequest(masterToPing, MasterPingRequestHandler.ACTION, new MasterPingRequest(nodesProvider.nodes().localNode().id(), masterToPing.id()), options().withHighType().withTimeout(pingRetryTimeout),
@@ -282,6 +323,9 @@ public class MasterFaultDetection extends AbstractComponent {
                             }
                             // reset the counter, we got a good result
                             MasterFaultDetection.this.retryCount = 0;
+                            if (response.connectedToMaster) {
+                                lastRegistrationCheck = threadPool.estimatedTimeInMillis();
+                            }
                             // check if the master node did not get switched on us..., if it did, we simply return with no reschedule
                             if (masterToPing.equals(MasterFaultDetection.this.masterNode())) {
                                 if (!response.connectedToMaster) {
@@ -289,7 +333,7 @@ public class MasterFaultDetection extends AbstractComponent {
                                     notifyDisconnectedFromMaster();
                                 }
                                 // we don't stop on disconnection from master, we keep pinging it
-                                threadPool.schedule(pingInterval, ThreadPool.Names.SAME, MasterPinger.this);
+                                reschedule();
                             }
                         }
 
@@ -335,7 +379,7 @@ public class MasterFaultDetection extends AbstractComponent {
         }
     }
 
-    private class MasterPingRequestHandler extends BaseTransportRequestHandler<MasterPingRequest> {
+    class MasterPingRequestHandler extends BaseTransportRequestHandler<MasterPingRequest> {
 
         public static final String ACTION = "discovery/zen/fd/masterPing";
 
@@ -364,16 +408,16 @@ public class MasterFaultDetection extends AbstractComponent {
     }
 
 
-    private static class MasterPingRequest implements Streamable {
+    static class MasterPingRequest implements Streamable {
 
         private String nodeId;
 
         private String masterNodeId;
 
-        private MasterPingRequest() {
+        MasterPingRequest() {
         }
 
-        private MasterPingRequest(String nodeId, String masterNodeId) {
+        MasterPingRequest(String nodeId, String masterNodeId) {
             this.nodeId = nodeId;
             this.masterNodeId = masterNodeId;
         }
@@ -389,14 +433,14 @@ public class MasterFaultDetection extends AbstractComponent {
         }
     }
 
-    private static class MasterPingResponseResponse implements Streamable {
+    static class MasterPingResponseResponse implements Streamable {
 
         private boolean connectedToMaster;
 
-        private MasterPingResponseResponse() {
+        MasterPingResponseResponse() {
         }
 
-        private MasterPingResponseResponse(boolean connectedToMaster) {
+        MasterPingResponseResponse(boolean connectedToMaster) {
             this.connectedToMaster = connectedToMaster;
         }
 
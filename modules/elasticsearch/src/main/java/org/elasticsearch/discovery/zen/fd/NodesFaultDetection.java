@@ -27,13 +27,18 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.timer.Timeout;
+import org.elasticsearch.common.timer.Timer;
+import org.elasticsearch.common.timer.TimerTask;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import static org.elasticsearch.cluster.node.DiscoveryNodes.*;
 import static org.elasticsearch.common.unit.TimeValue.*;
@@ -43,6 +48,10 @@ import static org.elasticsearch.transport.TransportRequestOptions.*;
 /**
  * A fault detection of multiple nodes.
  *
+ * <p>All the monitored nodes are checked on a single periodic task running on the provided {@link Timer}. A node
+ * that responded to any request within the last <tt>ping_interval</tt> is considered alive and is not pinged, only
+ * idle nodes are sent a keepalive ping.
+ *
  * @author kimchy (shay.banon)
  */
 public class NodesFaultDetection extends AbstractComponent {
@@ -56,6 +65,7 @@ public class NodesFaultDetection extends AbstractComponent {
 
     private final TransportService transportService;
 
+    private final Timer timer;
 
     private final boolean connectOnNetworkDisconnect;
 
@@ -79,10 +89,18 @@ public class NodesFaultDetection extends AbstractComponent {
 
     private volatile boolean running = false;
 
-    public NodesFaultDetection(Settings settings, ThreadPool threadPool, TransportService transportService) {
+    private volatile Timeout keepAliveTimeout;
+
+    // the node that last pinged us (the master), and when, used by the master fault detection to avoid pinging it back
+    private volatile String lastPingSenderId;
+
+    private volatile long lastPingReceivedTime = -1;
+
+    public NodesFaultDetection(Settings settings, ThreadPool threadPool, TransportService transportService, Timer timer) {
         super(settings);
         this.threadPool = threadPool;
         this.transportService = transportService;
+        this.timer = timer;
 
         this.connectOnNetworkDisconnect = componentSettings.getAsBoolean("connect_on_network_disconnect", true);
         this.pingInterval = componentSettings.getAsTime("ping_interval", timeValueSeconds(1));
@@ -122,7 +140,6 @@ public class NodesFaultDetection extends AbstractComponent {
             }
             if (!nodesFD.containsKey(newNode)) {
                 nodesFD.put(newNode, new NodeFD());
-                threadPool.schedule(pingInterval, ThreadPool.Names.SAME, new SendPingRequest(newNode));
             }
         }
         for (DiscoveryNode removedNode : delta.removedNodes()) {
@@ -135,6 +152,7 @@ public class NodesFaultDetection extends AbstractComponent {
             return this;
         }
         running = true;
+        keepAliveTimeout = timer.newTimeout(new KeepAliveTask(), pingInterval.millis(), TimeUnit.MILLISECONDS);
         return this;
     }
 
@@ -143,6 +161,11 @@ public class NodesFaultDetection extends AbstractComponent {
             return this;
         }
         running = false;
+        Timeout keepAliveTimeout = this.keepAliveTimeout;
+        if (keepAliveTimeout != null) {
+            keepAliveTimeout.cancel();
+            this.keepAliveTimeout = null;
+        }
         return this;
     }
 
@@ -168,7 +191,6 @@ public class NodesFaultDetection extends AbstractComponent {
             try {
                 transportService.connectToNode(node);
                 nodesFD.put(node, new NodeFD());
-                threadPool.schedule(pingInterval, ThreadPool.Names.SAME, new SendPingRequest(node));
             } catch (Exception e) {
                 logger.trace("[node  ] [{}] transport disconnected (with verified connect)", node);
                 notifyNodeFailure(node, "transport disconnected (with verified connect)");
@@ -189,78 +211,107 @@ public class NodesFaultDetection extends AbstractComponent {
         });
     }
 
-    private class SendPingRequest implements Runnable {
-
-        private final DiscoveryNode node;
-
-        private SendPingRequest(DiscoveryNode node) {
-            this.node = node;
+    /**
+     * Returns the (estimated) time in milliseconds we were last pinged by the provided node, <tt>-1</tt> if the
+     * last ping was not sent by it.
+     */
+    public long lastPingReceivedFrom(String nodeId) {
+        long lastPingReceivedTime = this.lastPingReceivedTime;
+        if (!nodeId.equals(lastPingSenderId)) {
+            return -1;
         }
+        return lastPingReceivedTime;
+    }
 
-        @Override public void run() {
-            if (!running) {
+    /**
+     * Checks all the monitored nodes in one go, sending a keepalive ping only to the nodes we did not hear from
+     * within the last ping interval (and that don't already have a ping in flight).
+     */
+    private class KeepAliveTask implements TimerTask {
+
+        @Override public void run(Timeout timeout) throws Exception {
+            if (!running || timeout.isCancelled()) {
                 return;
             }
-            transportService.sendRequest(node, PingRequestHandler.ACTION, new PingRequest(node.id()), options().withHighType().withTimeout(pingRetryTimeout),
-                    new BaseTransportResponseHandler<PingResponse>() {
-                        @Override public PingResponse newInstance() {
-                            return new PingResponse();
-                        }
+            long aliveThreshold = threadPool.estimatedTimeInMillis() - pingInterval.millis();
+            for (Map.Entry<DiscoveryNode, NodeFD> entry : nodesFD.entrySet()) {
+                NodeFD nodeFD = entry.getValue();
+                if (!nodeFD.running || nodeFD.pingInFlight) {
+                    continue;
+                }
+                if (transportService.lastResponseTime(entry.getKey()) >= aliveThreshold) {
+                    // we got a response from it recently, no need to ping it
+                    nodeFD.retryCount = 0;
+                    continue;
+                }
+                nodeFD.pingInFlight = true;
+                sendPing(entry.getKey(), nodeFD);
+            }
+            if (running) {
+                keepAliveTimeout = timer.newTimeout(this, pingInterval.millis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
 
-                        @Override public void handleResponse(PingResponse response) {
-                            if (!running) {
-                                return;
-                            }
-                            NodeFD nodeFD = nodesFD.get(node);
-                            if (nodeFD != null) {
-                                if (!nodeFD.running) {
-                                    return;
-                                }
-                                nodeFD.retryCount = 0;
-                                threadPool.schedule(pingInterval, ThreadPool.Names.SAME, SendPingRequest.this);
-                            }
+    private void sendPing(final DiscoveryNode node, final NodeFD nodeFD) {
+        final long sentTime = threadPool.estimatedTimeInMillis();
+        transportService.sendRequest(node, PingRequestHandler.ACTION, new PingRequest(node.id(), latestNodes.localNodeId()), options().withHighType().withTimeout(pingRetryTimeout),
+                new BaseTransportResponseHandler<PingResponse>() {
+                    @Override public PingResponse newInstance() {
+                        return new PingResponse();
+                    }
+
+                    @Override public void handleResponse(PingResponse response) {
+                        nodeFD.retryCount = 0;
+                        nodeFD.pingInFlight = false;
+                    }
+
+                    @Override public void handleException(TransportException exp) {
+                        // check if the master node did not get switched on us...
+                        if (!running || !nodeFD.running) {
+                            nodeFD.pingInFlight = false;
+                            return;
                         }
-
-                        @Override public void handleException(TransportException exp) {
-                            // check if the master node did not get switched on us...
-                            if (!running) {
-                                return;
-                            }
-                            if (exp instanceof ConnectTransportException) {
-                                // ignore this one, we already handle it by registering a connection listener
-                                return;
-                            }
-                            NodeFD nodeFD = nodesFD.get(node);
-                            if (nodeFD != null) {
-                                if (!nodeFD.running) {
-                                    return;
-                                }
-                                int retryCount = ++nodeFD.retryCount;
-                                logger.trace("[node  ] failed to ping [{}], retry [{}] out of [{}]", exp, node, retryCount, pingRetryCount);
-                                if (retryCount >= pingRetryCount) {
-                                    logger.debug("[node  ] failed to ping [{}], tried [{}] times, each with  maximum [{}] timeout", node, pingRetryCount, pingRetryTimeout);
-                                    // not good, failure
-                                    if (nodesFD.remove(node) != null) {
-                                        notifyNodeFailure(node, "failed to ping, tried [" + pingRetryCount + "] times, each with maximum [" + pingRetryTimeout + "] timeout");
-                                    }
-                                } else {
-                                    // resend the request, not reschedule, rely on send timeout
-                                    transportService.sendRequest(node, PingRequestHandler.ACTION, new PingRequest(node.id()),
-                                            options().withHighType().withTimeout(pingRetryTimeout), this);
-                                }
+                        if (exp instanceof ConnectTransportException) {
+                            // ignore this one, we already handle it by registering a connection listener
+                            nodeFD.pingInFlight = false;
+                            return;
+                        }
+                        if (exp instanceof ReceiveTimeoutTransportException && transportService.lastResponseTime(node) >= sentTime) {
+                            // the ping timed out, but the node did respond to other requests meanwhile, so its alive
+                            nodeFD.retryCount = 0;
+                            nodeFD.pingInFlight = false;
+                            return;
+                        }
+                        if (nodesFD.get(node) != nodeFD) {
+                            nodeFD.pingInFlight = false;
+                            return;
+                        }
+                        int retryCount = ++nodeFD.retryCount;
+                        logger.trace("[node  ] failed to ping [{}], retry [{}] out of [{}]", exp, node, retryCount, pingRetryCount);
+                        if (retryCount >= pingRetryCount) {
+                            logger.debug("[node  ] failed to ping [{}], tried [{}] times, each with  maximum [{}] timeout", node, pingRetryCount, pingRetryTimeout);
+                            nodeFD.pingInFlight = false;
+                            // not good, failure
+                            if (nodesFD.remove(node) != null) {
+                                notifyNodeFailure(node, "failed to ping, tried [" + pingRetryCount + "] times, each with maximum [" + pingRetryTimeout + "] timeout");
                             }
+                        } else {
+                            // resend the request, not reschedule, rely on send timeout
+                            sendPing(node, nodeFD);
                         }
+                    }
 
-                        @Override public String executor() {
-                            return ThreadPool.Names.SAME;
-                        }
-                    });
-        }
+                    @Override public String executor() {
+                        return ThreadPool.Names.SAME;
+                    }
+                });
     }
 
     static class NodeFD {
         volatile int retryCount;
         volatile boolean running = true;
+        volatile boolean pingInFlight;
     }
 
     private class FDConnectionListener implements TransportConnectionListener {
@@ -287,6 +338,10 @@ public class NodesFaultDetection extends AbstractComponent {
             if (!latestNodes.localNodeId().equals(request.nodeId)) {
                 throw new ElasticSearchIllegalStateException("Got pinged as node [" + request.nodeId + "], but I am node [" + latestNodes.localNodeId() + "]");
             }
+            if (request.senderNodeId != null) {
+                lastPingSenderId = request.senderNodeId;
+                lastPingReceivedTime = threadPool.estimatedTimeInMillis();
+            }
             channel.sendResponse(new PingResponse());
         }
 
@@ -301,25 +356,38 @@ public class NodesFaultDetection extends AbstractComponent {
         // the (assumed) node id we are pinging
         private String nodeId;
 
+        // the node id sending the ping
+        private String senderNodeId;
+
         PingRequest() {
         }
 
-        PingRequest(String nodeId) {
+        PingRequest(String nodeId, String senderNodeId) {
             this.nodeId = nodeId;
+            this.senderNodeId = senderNodeId;
         }
 
         @Override public void readFrom(StreamInput in) throws IOException {
             nodeId = in.readUTF();
+            if (in.readBoolean()) {
+                senderNodeId = in.readUTF();
+            }
         }
 
         @Override public void writeTo(StreamOutput out) throws IOException {
             out.writeUTF(nodeId);
+            if (senderNodeId == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeUTF(senderNodeId);
+            }
         }
     }
 
-    private static class PingResponse implements Streamable {
+    static class PingResponse implements Streamable {
 
-        private PingResponse() {
+        PingResponse() {
         }
 
         @Override public void readFrom(StreamInput in) throws IOException {
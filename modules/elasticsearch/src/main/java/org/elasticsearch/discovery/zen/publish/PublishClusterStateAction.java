@@ -24,6 +24,8 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.io.stream.*;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.discovery.zen.DiscoveryNodesProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
@@ -36,7 +38,18 @@ import java.io.IOException;
 public class PublishClusterStateAction extends AbstractComponent {
 
     public static interface NewClusterStateListener {
-        void onNewClusterState(ClusterState clusterState);
+        void onNewClusterState(ClusterState clusterState, NewStateProcessed newStateProcessed);
+    }
+
+    /**
+     * Called by the {@link NewClusterStateListener} once the new cluster state has been applied (or failed to),
+     * acknowledging it back to the master.
+     */
+    public static interface NewStateProcessed {
+
+        void onNewClusterStateProcessed();
+
+        void onNewClusterStateFailed(Throwable t);
     }
 
     private final TransportService transportService;
@@ -45,12 +58,16 @@ public class PublishClusterStateAction extends AbstractComponent {
 
     private final NewClusterStateListener listener;
 
+    private final TimeValue publishTimeout;
+
     public PublishClusterStateAction(Settings settings, TransportService transportService, DiscoveryNodesProvider nodesProvider,
                                      NewClusterStateListener listener) {
         super(settings);
         this.transportService = transportService;
         this.nodesProvider = nodesProvider;
         this.listener = listener;
+        // bounds the wait for a node to apply (and ack) the state, it is counted as a failed ack once expired
+        this.publishTimeout = componentSettings.getAsTime("timeout", TimeValue.timeValueSeconds(30));
 
         transportService.registerHandler(PublishClusterStateRequestHandler.ACTION, new PublishClusterStateRequestHandler());
     }
@@ -59,10 +76,10 @@ public class PublishClusterStateAction extends AbstractComponent {
         transportService.removeHandler(PublishClusterStateRequestHandler.ACTION);
     }
 
-    public void publish(ClusterState clusterState) {
+    public void publish(ClusterState clusterState, final Discovery.AckListener ackListener) {
         DiscoveryNode localNode = nodesProvider.nodes().localNode();
 
-        // serialize the cluster state here, so we won't do it several times per node
+        // serialize the cluster state here, so we won't do it several times per node (all the nodes get the same bytes)
         CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
         byte[] clusterStateInBytes;
         try {
@@ -71,6 +88,7 @@ public class PublishClusterStateAction extends AbstractComponent {
             stream.flush();
             clusterStateInBytes = cachedEntry.bytes().copiedByteArray();
         } catch (Exception e) {
+            // not sent to any node, so no acks are expected
             logger.warn("failed to serialize cluster_state before publishing it to nodes", e);
             return;
         } finally {
@@ -82,13 +100,19 @@ public class PublishClusterStateAction extends AbstractComponent {
                 // no need to send to our self
                 continue;
             }
+            ackListener.onNodePublishing(node);
             transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
                     new PublishClusterStateRequest(clusterStateInBytes),
-                    TransportRequestOptions.options().withHighType().withCompress(false), // no need to compress, we already compressed the bytes
+                    TransportRequestOptions.options().withHighType().withCompress(false).withTimeout(publishTimeout), // no need to compress, we already compressed the bytes
 
                     new VoidTransportResponseHandler(ThreadPool.Names.SAME) {
+                        @Override public void handleResponse(VoidStreamable response) {
+                            ackListener.onNodeAck(node, null);
+                        }
+
                         @Override public void handleException(TransportException exp) {
-                            logger.debug("failed to send cluster state to [{}], should be detected as failed soon...", exp, node);
+                            logger.debug("failed to publish cluster state to [{}]", exp, node);
+                            ackListener.onNodeAck(node, exp);
                         }
                     });
         }
@@ -124,11 +148,27 @@ public class PublishClusterStateAction extends AbstractComponent {
             return new PublishClusterStateRequest();
         }
 
-        @Override public void messageReceived(PublishClusterStateRequest request, TransportChannel channel) throws Exception {
+        @Override public void messageReceived(PublishClusterStateRequest request, final TransportChannel channel) throws Exception {
             StreamInput in = CachedStreamInput.cachedHandlesLzf(new BytesStreamInput(request.clusterStateInBytes));
             ClusterState clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
-            listener.onNewClusterState(clusterState);
-            channel.sendResponse(VoidStreamable.INSTANCE);
+            // only respond once the state has been applied (or failed to), the response acts as the ack for the master
+            listener.onNewClusterState(clusterState, new NewStateProcessed() {
+                @Override public void onNewClusterStateProcessed() {
+                    try {
+                        channel.sendResponse(VoidStreamable.INSTANCE);
+                    } catch (Exception e) {
+                        logger.debug("failed to send response on cluster state processed", e);
+                    }
+                }
+
+                @Override public void onNewClusterStateFailed(Throwable t) {
+                    try {
+                        channel.sendResponse(t);
+                    } catch (Exception e) {
+                        logger.debug("failed to send failure response on cluster state processed", e);
+                    }
+                }
+            });
         }
 
         @Override public String executor() {
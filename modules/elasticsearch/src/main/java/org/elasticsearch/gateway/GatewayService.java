@@ -32,6 +32,7 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.IndexTemplateMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.metadata.MetaDataCreateIndexService;
+import org.elasticsearch.cluster.metadata.MetaDataSplitIndexService;
 import org.elasticsearch.cluster.metadata.MetaDataStateIndexService;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.IndexRoutingTable;
@@ -260,6 +261,10 @@ public class GatewayService extends AbstractLifecycleComponent<GatewayService> i
                         if (indexMetaData.state() == IndexMetaData.State.CLOSE) {
                             blocks.addIndexBlock(indexMetaData.index(), MetaDataStateIndexService.INDEX_CLOSED_BLOCK);
                         }
+                        if (indexMetaData.splitSource() != null && recoveredState.metaData().hasIndex(indexMetaData.splitSource())) {
+                            // the source of a split stays blocked for writes as long as it exists
+                            blocks.addIndexBlock(indexMetaData.splitSource(), MetaDataSplitIndexService.INDEX_SPLIT_BLOCK);
+                        }
                     }
 
                     // update the state to reflect the new metadata and routing
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.analysis;
+
+import org.apache.lucene.index.Payload;
+import org.elasticsearch.common.collect.MapMaker;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the tokens a field's index analyzer produced for recently indexed values, allowing to
+ * replay them (see {@link CachingAnalyzer}) instead of analyzing again values that repeat a lot.
+ */
+public class AnalysisCache {
+
+    /**
+     * Values longer than this are always analyzed (and not accounted for in the hits / misses).
+     */
+    public static final int MAX_VALUE_LENGTH = 1024;
+
+    private final int size;
+
+    private final ConcurrentMap<String, Tokens> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public AnalysisCache(int size) {
+        this.size = size;
+        this.cache = new MapMaker().maximumSize(size).makeMap();
+    }
+
+    /**
+     * The maximum number of values cached.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * The number of values currently cached.
+     */
+    public int count() {
+        return cache.size();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * The cached tokens of the value, <tt>null</tt> if they are not cached.
+     */
+    public Tokens get(String value) {
+        Tokens tokens = cache.get(value);
+        if (tokens == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return tokens;
+    }
+
+    public void put(String value, Tokens tokens) {
+        cache.put(value, tokens);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * The tokens (terms, position increments, offsets and payloads) a value was analyzed into. The terms
+     * are kept in a single char array.
+     */
+    public static class Tokens {
+
+        final int size;
+
+        final char[] termBuffer;
+
+        // the start of each term in the buffer, with an additional entry for the end of the last one
+        final int[] termStarts;
+
+        final int[] positionIncrements;
+
+        final int[] startOffsets;
+
+        final int[] endOffsets;
+
+        // null if none of the tokens have a payload
+        final Payload[] payloads;
+
+        final int finalOffset;
+
+        Tokens(int size, char[] termBuffer, int[] termStarts, int[] positionIncrements, int[] startOffsets, int[] endOffsets,
+               Payload[] payloads, int finalOffset) {
+            this.size = size;
+            this.termBuffer = termBuffer;
+            this.termStarts = termStarts;
+            this.positionIncrements = positionIncrements;
+            this.startOffsets = startOffsets;
+            this.endOffsets = endOffsets;
+            this.payloads = payloads;
+            this.finalOffset = finalOffset;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+}
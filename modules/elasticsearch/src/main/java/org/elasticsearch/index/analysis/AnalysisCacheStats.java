@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.analysis;
+
+import org.elasticsearch.common.collect.Maps;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Stats of the analysis caches (see {@link AnalysisCache}), per field index name (aggregated across the
+ * indices and types that have a field with that name).
+ */
+public class AnalysisCacheStats implements Streamable, ToXContent {
+
+    public static class Entry {
+
+        long hits;
+
+        long misses;
+
+        long count;
+
+        /**
+         * The number of values whose tokens were found in the cache.
+         */
+        public long hits() {
+            return hits;
+        }
+
+        /**
+         * The number of values that had to be analyzed.
+         */
+        public long misses() {
+            return misses;
+        }
+
+        /**
+         * The ratio of values whose tokens were found in the cache.
+         */
+        public double hitRate() {
+            if (hits + misses == 0) {
+                return 0;
+            }
+            return ((double) hits) / (hits + misses);
+        }
+
+        /**
+         * The number of values currently cached.
+         */
+        public long count() {
+            return count;
+        }
+    }
+
+    private Map<String, Entry> entries = Maps.newHashMap();
+
+    public AnalysisCacheStats() {
+    }
+
+    public void add(String field, AnalysisCache cache) {
+        Entry entry = entries.get(field);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(field, entry);
+        }
+        entry.hits += cache.hits();
+        entry.misses += cache.misses();
+        entry.count += cache.count();
+    }
+
+    public Map<String, Entry> entries() {
+        return this.entries;
+    }
+
+    public Map<String, Entry> getEntries() {
+        return entries();
+    }
+
+    public static AnalysisCacheStats readAnalysisCacheStats(StreamInput in) throws IOException {
+        AnalysisCacheStats stats = new AnalysisCacheStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.ANALYSIS_CACHE);
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            builder.startObject(entry.getKey(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.HITS, entry.getValue().hits);
+            builder.field(Fields.MISSES, entry.getValue().misses);
+            builder.field(Fields.HIT_RATE, entry.getValue().hitRate());
+            builder.field(Fields.COUNT, entry.getValue().count);
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString ANALYSIS_CACHE = new XContentBuilderString("analysis_cache");
+        static final XContentBuilderString HITS = new XContentBuilderString("hits");
+        static final XContentBuilderString MISSES = new XContentBuilderString("misses");
+        static final XContentBuilderString HIT_RATE = new XContentBuilderString("hit_rate");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        entries = Maps.newHashMapWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            String field = in.readUTF();
+            Entry entry = new Entry();
+            entry.hits = in.readVLong();
+            entry.misses = in.readVLong();
+            entry.count = in.readVLong();
+            entries.put(field, entry);
+        }
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeVLong(entry.getValue().hits);
+            out.writeVLong(entry.getValue().misses);
+            out.writeVLong(entry.getValue().count);
+        }
+    }
+}
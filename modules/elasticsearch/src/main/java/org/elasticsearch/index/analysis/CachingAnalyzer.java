@@ -0,0 +1,234 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.analysis;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.document.Fieldable;
+import org.apache.lucene.index.Payload;
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.common.io.FastStringReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * An analyzer wrapping the index analyzer of a field, replaying the tokens of values found in the field's
+ * {@link AnalysisCache} (through a reusable, per thread, token stream) and caching the tokens of the values
+ * that are not.
+ *
+ * <p>Only the reusable token stream (used when indexing) goes through the cache.
+ */
+public final class CachingAnalyzer extends Analyzer {
+
+    private final Analyzer analyzer;
+
+    private final AnalysisCache cache;
+
+    public CachingAnalyzer(Analyzer analyzer, AnalysisCache cache) {
+        this.analyzer = analyzer;
+        this.cache = cache;
+    }
+
+    public Analyzer analyzer() {
+        return this.analyzer;
+    }
+
+    public AnalysisCache cache() {
+        return this.cache;
+    }
+
+    @Override public TokenStream tokenStream(String fieldName, Reader reader) {
+        return analyzer.tokenStream(fieldName, reader);
+    }
+
+    @Override public TokenStream reusableTokenStream(String fieldName, Reader reader) throws IOException {
+        Holder holder = (Holder) getPreviousTokenStream();
+        if (holder == null) {
+            holder = new Holder();
+            setPreviousTokenStream(holder);
+        }
+        String value = holder.read(reader);
+        if (value.length() > AnalysisCache.MAX_VALUE_LENGTH) {
+            return analyzer.reusableTokenStream(fieldName, new FastStringReader(value));
+        }
+        AnalysisCache.Tokens tokens = cache.get(value);
+        if (tokens != null) {
+            holder.tokenStream.reset(tokens);
+            return holder.tokenStream;
+        }
+        return new RecordingTokenFilter(analyzer.reusableTokenStream(fieldName, new FastStringReader(value)), cache, value);
+    }
+
+    @Override public int getPositionIncrementGap(String fieldName) {
+        return analyzer.getPositionIncrementGap(fieldName);
+    }
+
+    @Override public int getOffsetGap(Fieldable field) {
+        return analyzer.getOffsetGap(field);
+    }
+
+    private static final class Holder {
+
+        final CachedTokenStream tokenStream = new CachedTokenStream();
+
+        char[] buffer = new char[128];
+
+        String read(Reader reader) throws IOException {
+            int length = 0;
+            while (true) {
+                if (length == buffer.length) {
+                    buffer = ArrayUtil.grow(buffer, length + 1);
+                }
+                int read = reader.read(buffer, length, buffer.length - length);
+                if (read == -1) {
+                    break;
+                }
+                length += read;
+            }
+            return new String(buffer, 0, length);
+        }
+    }
+
+    /**
+     * Replays cached tokens.
+     */
+    private static final class CachedTokenStream extends TokenStream {
+
+        private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+        private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+        private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+        private final PayloadAttribute payloadAtt = addAttribute(PayloadAttribute.class);
+
+        private AnalysisCache.Tokens tokens;
+
+        private int upto;
+
+        void reset(AnalysisCache.Tokens tokens) {
+            this.tokens = tokens;
+            this.upto = 0;
+        }
+
+        @Override public boolean incrementToken() throws IOException {
+            if (upto >= tokens.size) {
+                return false;
+            }
+            clearAttributes();
+            int start = tokens.termStarts[upto];
+            termAtt.copyBuffer(tokens.termBuffer, start, tokens.termStarts[upto + 1] - start);
+            posIncAtt.setPositionIncrement(tokens.positionIncrements[upto]);
+            offsetAtt.setOffset(tokens.startOffsets[upto], tokens.endOffsets[upto]);
+            if (tokens.payloads != null) {
+                payloadAtt.setPayload(tokens.payloads[upto]);
+            }
+            upto++;
+            return true;
+        }
+
+        @Override public void end() throws IOException {
+            offsetAtt.setOffset(tokens.finalOffset, tokens.finalOffset);
+        }
+    }
+
+    /**
+     * Records the tokens of the analyzed value, and caches them once the value was fully consumed.
+     */
+    private static final class RecordingTokenFilter extends TokenFilter {
+
+        private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+        private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+        private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+        private final PayloadAttribute payloadAtt = addAttribute(PayloadAttribute.class);
+
+        private final AnalysisCache cache;
+
+        private final String value;
+
+        private int size;
+
+        private char[] termBuffer = new char[32];
+
+        private int[] termStarts = new int[5];
+
+        private int[] positionIncrements = new int[4];
+
+        private int[] startOffsets = new int[4];
+
+        private int[] endOffsets = new int[4];
+
+        private Payload[] payloads;
+
+        RecordingTokenFilter(TokenStream input, AnalysisCache cache, String value) {
+            super(input);
+            this.cache = cache;
+            this.value = value;
+        }
+
+        @Override public boolean incrementToken() throws IOException {
+            if (!input.incrementToken()) {
+                return false;
+            }
+            if (size == positionIncrements.length) {
+                positionIncrements = ArrayUtil.grow(positionIncrements, size + 1);
+                startOffsets = ArrayUtil.grow(startOffsets, size + 1);
+                endOffsets = ArrayUtil.grow(endOffsets, size + 1);
+                if (payloads != null) {
+                    payloads = Arrays.copyOf(payloads, positionIncrements.length);
+                }
+            }
+            if (size + 2 > termStarts.length) {
+                termStarts = ArrayUtil.grow(termStarts, size + 2);
+            }
+            int start = termStarts[size];
+            int length = termAtt.length();
+            if (start + length > termBuffer.length) {
+                termBuffer = ArrayUtil.grow(termBuffer, start + length);
+            }
+            System.arraycopy(termAtt.buffer(), 0, termBuffer, start, length);
+            termStarts[size + 1] = start + length;
+            positionIncrements[size] = posIncAtt.getPositionIncrement();
+            startOffsets[size] = offsetAtt.startOffset();
+            endOffsets[size] = offsetAtt.endOffset();
+            Payload payload = payloadAtt.getPayload();
+            if (payload != null) {
+                if (payloads == null) {
+                    payloads = new Payload[positionIncrements.length];
+                }
+                // the payload instance might be reused by the token stream
+                payloads[size] = (Payload) payload.clone();
+            }
+            size++;
+            return true;
+        }
+
+        @Override public void end() throws IOException {
+            super.end();
+            cache.put(value, new AnalysisCache.Tokens(size, Arrays.copyOf(termBuffer, termStarts[size]), Arrays.copyOf(termStarts, size + 1),
+                    Arrays.copyOf(positionIncrements, size), Arrays.copyOf(startOffsets, size), Arrays.copyOf(endOffsets, size),
+                    payloads == null ? null : Arrays.copyOf(payloads, size), offsetAtt.endOffset()));
+        }
+    }
+}
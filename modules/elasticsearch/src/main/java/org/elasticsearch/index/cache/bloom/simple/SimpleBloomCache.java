@@ -20,17 +20,22 @@
 package org.elasticsearch.index.cache.bloom.simple;
 
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.index.TermEnum;
 import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.UnicodeUtil;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.bloom.BloomFilter;
 import org.elasticsearch.common.bloom.BloomFilterFactory;
+import org.elasticsearch.common.bloom.BloomFilters;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.Directories;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.SizeUnit;
 import org.elasticsearch.common.unit.SizeValue;
@@ -46,6 +51,15 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * A bloom cache loading the bloom filters of segments by iterating over their terms.
+ *
+ * <p>Unless <tt>index.cache.bloom.persist</tt> is set to <tt>false</tt>, once built, the bloom filter of a segment
+ * is written next to the segment files (<tt>[segment].bf[field]</tt>, a segment file never changes), and read
+ * (memory mapped when on the file system) instead of being rebuilt when the segment is opened again, for example
+ * after a restart. Bloom filters of merged segments are built (and written) by the merge itself (see
+ * {@link org.elasticsearch.index.engine.robin.RobinEngine}), so they are available as soon as the merged segment
+ * is visible. The files of segments that no longer exist are deleted.
+ *
  * @author kimchy (shay.banon)
  */
 public class SimpleBloomCache extends AbstractIndexComponent implements BloomCache, IndexReader.ReaderFinishedListener {
@@ -54,6 +68,8 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
 
     private final long maxSize;
 
+    private final boolean persist;
+
     private final ConcurrentMap<Object, ConcurrentMap<String, BloomFilterEntry>> cache;
 
     private final Object creationMutex = new Object();
@@ -63,6 +79,7 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
         this.threadPool = threadPool;
 
         this.maxSize = indexSettings.getAsSize("index.cache.bloom.max_size", new SizeValue(500, SizeUnit.MEGA)).singles();
+        this.persist = indexSettings.getAsBoolean("index.cache.bloom.persist", true);
         this.cache = ConcurrentCollections.newConcurrentMap();
     }
 
@@ -129,12 +146,17 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
             synchronized (fieldCache) {
                 filter = fieldCache.get(fieldName);
                 if (filter == null) {
+                    filter = readPersisted(reader, fieldName);
+                    if (filter != null) {
+                        fieldCache.put(fieldName, filter);
+                        return filter.filter;
+                    }
                     filter = new BloomFilterEntry(currentNumDocs, BloomFilter.NONE);
                     fieldCache.put(fieldName, filter);
                     // now, do the async load of it...
                     if (currentNumDocs < maxSize) {
                         filter.loading.set(true);
-                        BloomFilterLoader loader = new BloomFilterLoader(reader, fieldName);
+                        BloomFilterLoader loader = new BloomFilterLoader(reader, fieldName, persistable(reader));
                         if (asyncLoad) {
                             threadPool.cached().execute(loader);
                         } else {
@@ -146,10 +168,10 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
             }
         }
         // if we too many deletes, we need to reload the bloom filter so it will be more effective
-        if (filter.numDocs > 1000 && filter.numDocs < maxSize && (currentNumDocs / filter.numDocs) < 0.6) {
+        if (filter.numDocs > 1000 && filter.numDocs < maxSize && (((double) currentNumDocs) / filter.numDocs) < 0.6) {
             if (filter.loading.compareAndSet(false, true)) {
-                // do the async loading
-                BloomFilterLoader loader = new BloomFilterLoader(reader, fieldName);
+                // do the async loading, a filter without the deleted docs only applies to this reader, don't persist it
+                BloomFilterLoader loader = new BloomFilterLoader(reader, fieldName, false);
                 if (asyncLoad) {
                     threadPool.cached().execute(loader);
                 } else {
@@ -161,13 +183,77 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
         return filter.filter;
     }
 
+    private boolean persistable(IndexReader reader) {
+        return persist && reader instanceof SegmentReader;
+    }
+
+    static String persistedName(String segmentName, String fieldName) {
+        return segmentName + "." + PERSISTED_EXTENSION + fieldName;
+    }
+
+    static final String PERSISTED_EXTENSION = "bf";
+
+    private BloomFilterEntry readPersisted(IndexReader reader, String fieldName) {
+        if (!persistable(reader)) {
+            return null;
+        }
+        Directory directory = reader.directory();
+        String name = persistedName(((SegmentReader) reader).getSegmentName(), fieldName);
+        try {
+            if (!directory.fileExists(name)) {
+                return null;
+            }
+            // the persisted filter holds the deleted docs as well
+            return new BloomFilterEntry(reader.maxDoc(), BloomFilters.read(directory, name));
+        } catch (Exception e) {
+            logger.debug("failed to read bloom filter [{}], rebuilding it", e, name);
+            try {
+                directory.deleteFile(name);
+            } catch (IOException e1) {
+                // ignore
+            }
+            return null;
+        }
+    }
+
+    private void writePersisted(IndexReader reader, String fieldName, BloomFilter filter) {
+        Directory directory = reader.directory();
+        String name = persistedName(((SegmentReader) reader).getSegmentName(), fieldName);
+        try {
+            if (directory.fileExists(name)) {
+                return;
+            }
+            IndexOutput out = directory.createOutput(name);
+            try {
+                BloomFilters.write(filter, out);
+            } finally {
+                out.close();
+            }
+        } catch (Exception e) {
+            logger.debug("failed to write bloom filter [{}]", e, name);
+            try {
+                directory.deleteFile(name);
+            } catch (IOException e1) {
+                // ignore
+            }
+            return;
+        }
+        try {
+            Directories.deleteUnusedSegmentFiles(directory, PERSISTED_EXTENSION);
+        } catch (Exception e) {
+            logger.debug("failed to delete unused bloom filters", e);
+        }
+    }
+
     class BloomFilterLoader implements Runnable {
         private final IndexReader reader;
         private final String field;
+        private final boolean persist;
 
-        BloomFilterLoader(IndexReader reader, String field) {
+        BloomFilterLoader(IndexReader reader, String field, boolean persist) {
             this.reader = reader;
             this.field = StringHelper.intern(field);
+            this.persist = persist;
         }
 
         @SuppressWarnings({"StringEquality"})
@@ -175,7 +261,9 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
             TermDocs termDocs = null;
             TermEnum termEnum = null;
             try {
-                BloomFilter filter = BloomFilterFactory.getFilter(reader.numDocs(), 15);
+                // a persisted filter is kept for the lifetime of the segment, so it holds the deleted docs as well
+                int numDocs = persist ? reader.maxDoc() : reader.numDocs();
+                BloomFilter filter = BloomFilterFactory.getFilter(numDocs, 15);
                 termDocs = reader.termDocs();
                 termEnum = reader.terms(new Term(field));
                 do {
@@ -184,6 +272,11 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
 
                     // LUCENE MONITOR: 4.0, move to use bytes!
                     UnicodeUtil.UTF8Result utf8Result = Unicode.fromStringAsUtf8(term.text());
+                    if (persist) {
+                        // the term exists in the segment, regardless of the docs that got deleted since
+                        filter.add(utf8Result.result, 0, utf8Result.length);
+                        continue;
+                    }
                     termDocs.seek(termEnum);
                     while (termDocs.next()) {
                         // when traversing, make sure to ignore deleted docs, so the key->docId will be correct
@@ -192,10 +285,13 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
                         }
                     }
                 } while (termEnum.next());
+                if (persist) {
+                    writePersisted(reader, field, filter);
+                }
                 ConcurrentMap<String, BloomFilterEntry> fieldCache = cache.get(reader.getCoreCacheKey());
                 if (fieldCache != null) {
                     if (fieldCache.containsKey(field)) {
-                        BloomFilterEntry filterEntry = new BloomFilterEntry(reader.numDocs(), filter);
+                        BloomFilterEntry filterEntry = new BloomFilterEntry(numDocs, filter);
                         filterEntry.loading.set(false);
                         fieldCache.put(field, filterEntry);
                     }
@@ -63,6 +63,13 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void addFailedEngineListener(FailedEngineListener listener);
 
+    /**
+     * Marks the engine as recovering, or done recovering. While recovering, the recovered files and operations might
+     * already hold the documents with a generated id that are sent by the primary, so they are never appended without
+     * replacing a possible existing copy.
+     */
+    void updateRecovering(boolean recovering);
+
     /**
      * Starts the Engine.
      *
@@ -79,8 +86,19 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void delete(DeleteByQuery delete) throws EngineException;
 
+    /**
+     * Executes a batch of create, index and delete operations. A failure of one operation does not stop
+     * the others, and is recorded in {@link Bulk#failures()}.
+     */
+    void bulk(Bulk bulk) throws EngineException;
+
     GetResult get(Get get) throws EngineException;
 
+    /**
+     * Executes a batch of gets at once, see {@link MultiGet}.
+     */
+    void multiGet(MultiGet multiGet) throws EngineException;
+
     Searcher searcher() throws EngineException;
 
     List<Segment> segments();
@@ -316,6 +334,8 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         private long version;
         private VersionType versionType = VersionType.INTERNAL;
         private Origin origin = Origin.PRIMARY;
+        private long autoGeneratedIdTimestamp = -1;
+        private boolean canHaveDuplicates;
 
         public Create(DocumentMapper docMapper, Term uid, ParsedDocument doc) {
             this.docMapper = docMapper;
@@ -378,6 +398,31 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
             return this;
         }
 
+        /**
+         * The time the id of the document was generated at, or <tt>-1</tt> if the id was not generated. A document
+         * with a generated id can't exist yet, so it can be added without resolving its current version.
+         */
+        public long autoGeneratedIdTimestamp() {
+            return this.autoGeneratedIdTimestamp;
+        }
+
+        public Create autoGeneratedIdTimestamp(long autoGeneratedIdTimestamp) {
+            this.autoGeneratedIdTimestamp = autoGeneratedIdTimestamp;
+            return this;
+        }
+
+        /**
+         * Is this operation (with a generated id) a retry, which might have been applied already.
+         */
+        public boolean canHaveDuplicates() {
+            return this.canHaveDuplicates;
+        }
+
+        public Create canHaveDuplicates(boolean canHaveDuplicates) {
+            this.canHaveDuplicates = canHaveDuplicates;
+            return this;
+        }
+
         public String parent() {
             return this.doc.parent();
         }
@@ -557,6 +602,30 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         }
     }
 
+    static class Bulk {
+        private final Operation[] ops;
+        private final Throwable[] failures;
+
+        /**
+         * The operations to execute, <tt>null</tt> entries are skipped.
+         */
+        public Bulk(Operation[] ops) {
+            this.ops = ops;
+            this.failures = new Throwable[ops.length];
+        }
+
+        public Operation[] ops() {
+            return this.ops;
+        }
+
+        /**
+         * The failure of each operation, <tt>null</tt> if it was executed successfully (or skipped).
+         */
+        public Throwable[] failures() {
+            return this.failures;
+        }
+    }
+
     static class DeleteByQuery {
         private final Query query;
         private final byte[] source;
@@ -612,6 +681,51 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         }
     }
 
+    static class MultiGet {
+        private final Get[] gets;
+        private final GetResult[] results;
+        private Searcher searcher;
+
+        /**
+         * The gets to execute, <tt>null</tt> entries are skipped.
+         */
+        public MultiGet(Get[] gets) {
+            this.gets = gets;
+            this.results = new GetResult[gets.length];
+        }
+
+        public Get[] gets() {
+            return this.gets;
+        }
+
+        /**
+         * The result of each get. The results loaded from the index share the {@link #searcher()} of the multi
+         * get (their own {@link GetResult#searcher()} is <tt>null</tt>), so the multi get should be
+         * {@link #release() released} once they have been processed.
+         */
+        public GetResult[] results() {
+            return this.results;
+        }
+
+        /**
+         * The searcher the results were loaded with, <tt>null</tt> if none were loaded from the index.
+         */
+        public Searcher searcher() {
+            return this.searcher;
+        }
+
+        public void searcher(Searcher searcher) {
+            this.searcher = searcher;
+        }
+
+        public void release() {
+            if (searcher != null) {
+                searcher.release();
+                searcher = null;
+            }
+        }
+    }
+
     static class GetResult {
         private final boolean exists;
         private final long version;
@@ -27,6 +27,7 @@ import org.apache.lucene.index.SegmentInfo;
 import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermPositions;
 import org.apache.lucene.search.FilteredQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.store.AlreadyClosedException;
@@ -34,6 +35,7 @@ import org.apache.lucene.util.UnicodeUtil;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.BytesHolder;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Preconditions;
 import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.bloom.BloomFilter;
@@ -65,10 +67,13 @@ import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogStreams;
+import org.elasticsearch.index.warmer.IndexWarmer;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -76,11 +81,14 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.elasticsearch.common.lucene.Lucene.*;
@@ -127,6 +135,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private final boolean asyncLoadBloomFilter;
 
+    private volatile IndexWarmer indexWarmer;
+
     // no need for volatile, its always used under a lock
     private IndexWriter indexWriter;
 
@@ -152,7 +162,14 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private final ConcurrentMap<String, VersionValue> versionMap;
 
-    private final Object[] dirtyLocks;
+    // the versions of the operations of in flight bulks that are not in the translog yet, only used to resolve the
+    // versions of the following operations on their uids (see BulkContext)
+    private final ConcurrentMap<String, PendingVersionValue> pendingVersionMap = new ConcurrentHashMap<String, PendingVersionValue>();
+
+    // incremented before older version map entries are pruned, the versions a bulk resolved from the index before are stale
+    private final AtomicLong versionMapPrunes = new AtomicLong();
+
+    private final Lock[] dirtyLocks;
 
     private final Object refreshMutex = new Object();
 
@@ -164,6 +181,13 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private final AtomicLong translogIdGenerator = new AtomicLong();
 
+    // the highest generated id timestamp of the creates that might have been applied already (retries and recovered
+    // operations), creates with a generated id at or below it can't be appended without checking for duplicates
+    private final AtomicLong maxUnsafeAutoIdTimestamp = new AtomicLong(-1);
+
+    // while recovering, no create with a generated id is safe to append (see #updateRecovering(boolean))
+    private volatile boolean recovering;
+
     private SegmentInfos lastCommittedSegmentInfos;
 
     @Inject public RobinEngine(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool,
@@ -196,14 +220,19 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
         this.indexConcurrency = indexSettings.getAsInt("index.index_concurrency", IndexWriterConfig.DEFAULT_MAX_THREAD_STATES);
         this.versionMap = new ConcurrentHashMap<String, VersionValue>();
-        this.dirtyLocks = new Object[indexConcurrency * 10]; // we multiply it by 10 to have enough...
+        this.dirtyLocks = new Lock[indexConcurrency * 10]; // we multiply it by 10 to have enough...
         for (int i = 0; i < dirtyLocks.length; i++) {
-            dirtyLocks[i] = new Object();
+            dirtyLocks[i] = new ReentrantLock();
         }
 
         this.indexSettingsService.addListener(applySettings);
     }
 
+    @Inject(optional = true)
+    public void setIndexWarmer(@Nullable IndexWarmer indexWarmer) {
+        this.indexWarmer = indexWarmer;
+    }
+
     @Override public void updateIndexingBufferSize(ByteSizeValue indexingBufferSize) {
         ByteSizeValue preValue = this.indexingBufferSize;
         rwl.readLock().lock();
@@ -236,6 +265,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         failedEngineListeners.add(listener);
     }
 
+    @Override public void updateRecovering(boolean recovering) {
+        this.recovering = recovering;
+    }
+
     @Override public void start() throws EngineException {
         rwl.writeLock().lock();
         try {
@@ -297,50 +330,141 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     }
 
     public GetResult get(Get get) throws EngineException {
-        rwl.readLock().lock();
+        // no engine lock, the version map is concurrent, reading from the translog handles it being switched and
+        // the searcher is reference counted, so gets are not blocked by a concurrent flush
+        if (get.realtime()) {
+            VersionValue versionValue = versionMap.get(get.uid().text());
+            if (versionValue != null) {
+                if (versionValue.delete()) {
+                    return GetResult.NOT_EXISTS;
+                }
+                byte[] data = translog.read(versionValue.translogLocation());
+                if (data != null) {
+                    try {
+                        BytesHolder source = TranslogStreams.readSource(data);
+                        return new GetResult(true, versionValue.version(), source);
+                    } catch (IOException e) {
+                        // switched on us, read it from the reader
+                    }
+                }
+            }
+        }
+
+        // no version, get the version from the index, we know that we refresh on flush
+        Searcher searcher = searcher();
         try {
+            UnicodeUtil.UTF8Result utf8 = Unicode.fromStringAsUtf8(get.uid().text());
+            for (IndexReader reader : searcher.searcher().subReaders()) {
+                BloomFilter filter = bloomCache.filter(reader, UidFieldMapper.NAME, asyncLoadBloomFilter);
+                // we know that its not there...
+                if (!filter.isPresent(utf8.result, 0, utf8.length)) {
+                    continue;
+                }
+                UidField.DocIdAndVersion docIdAndVersion = UidField.loadDocIdAndVersion(reader, get.uid());
+                if (docIdAndVersion != null && docIdAndVersion.docId != Lucene.NO_DOC) {
+                    return new GetResult(searcher, docIdAndVersion);
+                }
+            }
+        } catch (Exception e) {
+            searcher.release();
+            //TODO: A better exception goes here
+            throw new EngineException(shardId(), "failed to load document", e);
+        }
+
+        // not found, release the searcher so the holder can be closed once retired
+        searcher.release();
+        return GetResult.NOT_EXISTS;
+    }
+
+    @Override public void multiGet(MultiGet multiGet) throws EngineException {
+        final Get[] gets = multiGet.gets();
+        GetResult[] results = multiGet.results();
+        // first, serve the realtime gets that can be served from the version map and the translog
+        Integer[] pending = new Integer[gets.length];
+        int numberOfPending = 0;
+        for (int i = 0; i < gets.length; i++) {
+            Get get = gets[i];
+            if (get == null) {
+                continue;
+            }
             if (get.realtime()) {
                 VersionValue versionValue = versionMap.get(get.uid().text());
                 if (versionValue != null) {
                     if (versionValue.delete()) {
-                        return GetResult.NOT_EXISTS;
+                        results[i] = GetResult.NOT_EXISTS;
+                        continue;
                     }
                     byte[] data = translog.read(versionValue.translogLocation());
                     if (data != null) {
                         try {
-                            BytesHolder source = TranslogStreams.readSource(data);
-                            return new GetResult(true, versionValue.version(), source);
+                            results[i] = new GetResult(true, versionValue.version(), TranslogStreams.readSource(data));
+                            continue;
                         } catch (IOException e) {
                             // switched on us, read it from the reader
                         }
                     }
                 }
             }
+            pending[numberOfPending++] = i;
+        }
+        if (numberOfPending == 0) {
+            return;
+        }
 
-            // no version, get the version from the index, we know that we refresh on flush
-            Searcher searcher = searcher();
+        // then, visit each segment once, seeking a single term positions to the sorted uids
+        Arrays.sort(pending, 0, numberOfPending, new Comparator<Integer>() {
+            @Override public int compare(Integer o1, Integer o2) {
+                return gets[o1].uid().compareTo(gets[o2].uid());
+            }
+        });
+        UnicodeUtil.UTF8Result[] utf8s = new UnicodeUtil.UTF8Result[numberOfPending];
+        for (int i = 0; i < numberOfPending; i++) {
+            utf8s[i] = Unicode.fromStringAsUtf8(gets[pending[i]].uid().text());
+        }
+        Searcher searcher = searcher();
+        multiGet.searcher(searcher);
+        for (IndexReader reader : searcher.searcher().subReaders()) {
+            BloomFilter filter = bloomCache.filter(reader, UidFieldMapper.NAME, asyncLoadBloomFilter);
+            TermPositions termPositions = null;
             try {
-                UnicodeUtil.UTF8Result utf8 = Unicode.fromStringAsUtf8(get.uid().text());
-                for (IndexReader reader : searcher.searcher().subReaders()) {
-                    BloomFilter filter = bloomCache.filter(reader, UidFieldMapper.NAME, asyncLoadBloomFilter);
-                    // we know that its not there...
-                    if (!filter.isPresent(utf8.result, 0, utf8.length)) {
+                for (int i = 0; i < numberOfPending; i++) {
+                    int slot = pending[i];
+                    // already found it in a former segment, or we know that its not there...
+                    if (results[slot] != null || !filter.isPresent(utf8s[i].result, 0, utf8s[i].length)) {
                         continue;
                     }
-                    UidField.DocIdAndVersion docIdAndVersion = UidField.loadDocIdAndVersion(reader, get.uid());
+                    if (termPositions == null) {
+                        termPositions = reader.termPositions();
+                    }
+                    UidField.DocIdAndVersion docIdAndVersion = UidField.loadDocIdAndVersion(reader, termPositions, gets[slot].uid());
                     if (docIdAndVersion != null && docIdAndVersion.docId != Lucene.NO_DOC) {
-                        return new GetResult(searcher, docIdAndVersion);
+                        results[slot] = new GetResult(null, docIdAndVersion);
+                    }
+                }
+            } catch (IOException e) {
+                multiGet.release();
+                throw new EngineException(shardId, "failed to load documents", e);
+            } finally {
+                if (termPositions != null) {
+                    try {
+                        termPositions.close();
+                    } catch (IOException e) {
+                        // ignore
                     }
                 }
-            } catch (Exception e) {
-                searcher.release();
-                //TODO: A better exception goes here
-                throw new EngineException(shardId(), "failed to load document", e);
             }
-
-            return GetResult.NOT_EXISTS;
-        } finally {
-            rwl.readLock().unlock();
+        }
+        boolean found = false;
+        for (int i = 0; i < numberOfPending; i++) {
+            if (results[pending[i]] == null) {
+                results[pending[i]] = GetResult.NOT_EXISTS;
+            } else {
+                found = true;
+            }
+        }
+        if (!found) {
+            // no result needs the searcher
+            multiGet.release();
         }
     }
 
@@ -351,7 +475,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             if (writer == null) {
                 throw new EngineClosedException(shardId, failedEngine);
             }
-            innerCreate(create, writer);
+            innerCreate(create, writer, null);
             dirty = true;
             possibleMergeNeeded = true;
             flushNeeded = true;
@@ -365,23 +489,34 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    private void innerCreate(Create create, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(create.uid())) {
+    private void innerCreate(Create create, IndexWriter writer, @Nullable BulkContext bulk) throws IOException {
+        if (create.autoGeneratedIdTimestamp() != -1) {
+            if (create.origin() == Operation.Origin.RECOVERY || create.canHaveDuplicates()) {
+                updateMaxUnsafeAutoIdTimestamp(create.autoGeneratedIdTimestamp());
+            }
+            if (create.origin() != Operation.Origin.RECOVERY && (create.origin() == Operation.Origin.REPLICA || create.canHaveDuplicates() ||
+                    (create.version() == 0 && create.versionType() == VersionType.INTERNAL))) {
+                // the original request might also arrive after its retry, so check against the timestamp as well, and
+                // a delayed replica operation might arrive once the recovered files already hold the document
+                boolean appendOnly = !recovering && !create.canHaveDuplicates() && create.autoGeneratedIdTimestamp() > maxUnsafeAutoIdTimestamp.get();
+                innerCreateWithGeneratedId(create, writer, appendOnly, bulk);
+                return;
+            }
+        }
+        Lock dirtyLock = lockUid(create.uid(), bulk);
+        try {
             UidField uidField = create.uidField();
             if (create.origin() == Operation.Origin.RECOVERY) {
                 uidField.version(create.version());
                 // we use update doc and not addDoc since we might get duplicates when using transient translog
                 writer.updateDocument(create.uid(), create.doc(), create.analyzer());
-                Translog.Location translogLocation = translog.add(new Translog.Create(create));
                 // on recovery, we get the actual version we want to use
-                if (create.version() != 0) {
-                    versionMap.put(create.uid().text(), new VersionValue(create.version(), false, threadPool.estimatedTimeInMillis(), translogLocation));
-                }
+                addToTranslog(new Translog.Create(create), create.version() != 0 ? create.uid().text() : null, create.version(), false, bulk);
             } else {
                 long currentVersion;
-                VersionValue versionValue = versionMap.get(create.uid().text());
+                VersionValue versionValue = versionValue(create.uid(), bulk);
                 if (versionValue == null) {
-                    currentVersion = loadCurrentVersionFromIndex(create.uid());
+                    currentVersion = loadCurrentVersion(create.uid(), bulk);
                 } else {
                     if (versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
                         currentVersion = -1; // deleted, and GC
@@ -447,9 +582,37 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 create.version(updatedVersion);
 
                 writer.addDocument(create.doc(), create.analyzer());
-                Translog.Location translogLocation = translog.add(new Translog.Create(create));
+                addToTranslog(new Translog.Create(create), create.uid().text(), updatedVersion, false, bulk);
+            }
+        } finally {
+            dirtyLock.unlock();
+        }
+    }
 
-                versionMap.put(create.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+    /**
+     * Creates a document with a generated id, which can't exist yet unless the create is retried, so there is no
+     * need to resolve its current version (no version map, bloom filter or segments lookups). When it can't be
+     * a duplicate, the document is simply appended, otherwise it replaces the possible previous copy. The version
+     * map entry is still added, so later operations on the id (and realtime gets) see it before a refresh.
+     */
+    private void innerCreateWithGeneratedId(Create create, IndexWriter writer, boolean appendOnly, @Nullable BulkContext bulk) throws IOException {
+        // replicas already hold the version of the primary
+        long updatedVersion = create.origin() == Operation.Origin.PRIMARY ? 1 : create.version();
+        create.uidField().version(updatedVersion);
+        create.version(updatedVersion);
+        if (appendOnly) {
+            writer.addDocument(create.doc(), create.analyzer());
+        } else {
+            writer.updateDocument(create.uid(), create.doc(), create.analyzer());
+        }
+        addToTranslog(new Translog.Create(create), create.uid().text(), updatedVersion, false, bulk);
+    }
+
+    private void updateMaxUnsafeAutoIdTimestamp(long timestamp) {
+        while (true) {
+            long current = maxUnsafeAutoIdTimestamp.get();
+            if (current >= timestamp || maxUnsafeAutoIdTimestamp.compareAndSet(current, timestamp)) {
+                return;
             }
         }
     }
@@ -462,7 +625,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 throw new EngineClosedException(shardId, failedEngine);
             }
 
-            innerIndex(index, writer);
+            innerIndex(index, writer, null);
             dirty = true;
             possibleMergeNeeded = true;
             flushNeeded = true;
@@ -476,22 +639,20 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    private void innerIndex(Index index, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(index.uid())) {
+    private void innerIndex(Index index, IndexWriter writer, @Nullable BulkContext bulk) throws IOException {
+        Lock dirtyLock = lockUid(index.uid(), bulk);
+        try {
             UidField uidField = index.uidField();
             if (index.origin() == Operation.Origin.RECOVERY) {
                 uidField.version(index.version());
                 writer.updateDocument(index.uid(), index.doc(), index.analyzer());
-                Translog.Location translogLocation = translog.add(new Translog.Index(index));
                 // on recovery, we get the actual version we want to use
-                if (index.version() != 0) {
-                    versionMap.put(index.uid().text(), new VersionValue(index.version(), false, threadPool.estimatedTimeInMillis(), translogLocation));
-                }
+                addToTranslog(new Translog.Index(index), index.version() != 0 ? index.uid().text() : null, index.version(), false, bulk);
             } else {
                 long currentVersion;
-                VersionValue versionValue = versionMap.get(index.uid().text());
+                VersionValue versionValue = versionValue(index.uid(), bulk);
                 if (versionValue == null) {
-                    currentVersion = loadCurrentVersionFromIndex(index.uid());
+                    currentVersion = loadCurrentVersion(index.uid(), bulk);
                 } else {
                     if (versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
                         currentVersion = -1; // deleted, and GC
@@ -551,10 +712,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 } else {
                     writer.updateDocument(index.uid(), index.doc(), index.analyzer());
                 }
-                Translog.Location translogLocation = translog.add(new Translog.Index(index));
-
-                versionMap.put(index.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+                addToTranslog(new Translog.Index(index), index.uid().text(), updatedVersion, false, bulk);
             }
+        } finally {
+            dirtyLock.unlock();
         }
     }
 
@@ -565,7 +726,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             if (writer == null) {
                 throw new EngineClosedException(shardId, failedEngine);
             }
-            innerDelete(delete, writer);
+            innerDelete(delete, writer, null);
             dirty = true;
             possibleMergeNeeded = true;
             flushNeeded = true;
@@ -579,20 +740,18 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    private void innerDelete(Delete delete, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(delete.uid())) {
+    private void innerDelete(Delete delete, IndexWriter writer, @Nullable BulkContext bulk) throws IOException {
+        Lock dirtyLock = lockUid(delete.uid(), bulk);
+        try {
             if (delete.origin() == Operation.Origin.RECOVERY) {
                 writer.deleteDocuments(delete.uid());
-                Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
                 // update the version with the exact version from recovery, assuming we have it
-                if (delete.version() != 0) {
-                    versionMap.put(delete.uid().text(), new VersionValue(delete.version(), true, threadPool.estimatedTimeInMillis(), translogLocation));
-                }
+                addToTranslog(new Translog.Delete(delete), delete.version() != 0 ? delete.uid().text() : null, delete.version(), true, bulk);
             } else {
                 long currentVersion;
-                VersionValue versionValue = versionMap.get(delete.uid().text());
+                VersionValue versionValue = versionValue(delete.uid(), bulk);
                 if (versionValue == null) {
-                    currentVersion = loadCurrentVersionFromIndex(delete.uid());
+                    currentVersion = loadCurrentVersion(delete.uid(), bulk);
                 } else {
                     if (versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
                         currentVersion = -1; // deleted, and GC
@@ -647,10 +806,93 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 } else {
                     delete.version(updatedVersion);
                     writer.deleteDocuments(delete.uid());
-                    Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                    versionMap.put(delete.uid().text(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+                    addToTranslog(new Translog.Delete(delete), delete.uid().text(), updatedVersion, true, bulk);
+                }
+            }
+        } finally {
+            dirtyLock.unlock();
+        }
+    }
+
+    @Override public void bulk(Bulk bulk) throws EngineException {
+        rwl.readLock().lock();
+        try {
+            IndexWriter writer = this.indexWriter;
+            if (writer == null) {
+                throw new EngineClosedException(shardId, failedEngine);
+            }
+            Operation[] ops = bulk.ops();
+            Throwable[] failures = bulk.failures();
+            // each operation only locks its own uid, its translog operation is written with the others of the bulk
+            BulkContext context = new BulkContext(failures);
+            try {
+                context.versions = loadCurrentVersionsFromIndex(ops);
+                for (int i = 0; i < ops.length; i++) {
+                    Operation op = ops[i];
+                    if (op == null) {
+                        continue;
+                    }
+                    context.currentOp = i;
+                    try {
+                        if (op.opType() == Operation.Type.CREATE) {
+                            innerCreate((Create) op, writer, context);
+                        } else if (op.opType() == Operation.Type.INDEX) {
+                            innerIndex((Index) op, writer, context);
+                        } else {
+                            innerDelete((Delete) op, writer, context);
+                        }
+                        // the version we resolved upfront is now stale
+                        context.versions.remove(uid(op).text());
+                    } catch (IOException e) {
+                        failures[i] = operationFailed(op, e);
+                    } catch (OutOfMemoryError e) {
+                        failEngine(e);
+                        failures[i] = operationFailed(op, e);
+                    } catch (Exception e) {
+                        failures[i] = e;
+                    }
                 }
+            } finally {
+                context.execute();
             }
+            dirty = true;
+            possibleMergeNeeded = true;
+            flushNeeded = true;
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
+    private EngineException operationFailed(Operation op, Throwable t) {
+        if (op.opType() == Operation.Type.CREATE) {
+            return new CreateFailedEngineException(shardId, (Create) op, t);
+        } else if (op.opType() == Operation.Type.INDEX) {
+            return new IndexFailedEngineException(shardId, (Index) op, t);
+        }
+        return new DeleteFailedEngineException(shardId, (Delete) op, t);
+    }
+
+    private static Term uid(Operation op) {
+        if (op.opType() == Operation.Type.CREATE) {
+            return ((Create) op).uid();
+        } else if (op.opType() == Operation.Type.INDEX) {
+            return ((Index) op).uid();
+        }
+        return ((Delete) op).uid();
+    }
+
+    /**
+     * Adds the operation to the translog, and updates the version map of the uid (if provided) to point to it. Within
+     * a bulk, the translog is written once all its operations have been applied (see {@link BulkContext#execute()}).
+     */
+    private void addToTranslog(Translog.Operation operation, @Nullable String uid, long version, boolean delete, @Nullable BulkContext bulk) {
+        if (bulk != null) {
+            bulk.addToTranslog(operation, uid, version, delete);
+            return;
+        }
+        Translog.Location translogLocation = translog.add(operation);
+        if (uid != null) {
+            versionMap.put(uid, new VersionValue(version, delete, threadPool.estimatedTimeInMillis(), translogLocation));
         }
     }
 
@@ -688,6 +930,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             if (holder.acquire()) {
                 break;
             }
+            // the holder was marked for close, a new one is (or is about to be) published, unless we are closed
+            if (closed) {
+                throw new EngineClosedException(shardId, failedEngine);
+            }
             Thread.yield();
         }
         return new RobinSearchResult(holder);
@@ -724,6 +970,18 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                         AcquirableResource<ReaderSearcherHolder> current = nrtResource;
                         IndexReader newReader = current.resource().reader().reopen(true);
                         if (newReader != current.resource().reader()) {
+                            // warm the new segments before they become visible to searches
+                            IndexWarmer indexWarmer = this.indexWarmer;
+                            if (indexWarmer != null) {
+                                indexWarmer.warmSegments(newReader);
+                            }
+                            // start loading the bloom filters of the new (flushed) segments, they get persisted once built
+                            IndexReader[] subReaders = newReader.getSequentialSubReaders();
+                            if (subReaders != null) {
+                                for (IndexReader subReader : subReaders) {
+                                    bloomCache.filter(subReader, UidFieldMapper.NAME, asyncLoadBloomFilter);
+                                }
+                            }
                             ExtendedIndexSearcher indexSearcher = new ExtendedIndexSearcher(newReader);
                             indexSearcher.setSimilarity(similarityService.defaultSearchSimilarity());
                             nrtResource = newAcquirableResource(new ReaderSearcherHolder(indexSearcher));
@@ -850,9 +1108,12 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         if (searcher != null) {
             indexingSearcher.set(null);
         }
+        versionMapPrunes.incrementAndGet();
         for (Map.Entry<String, VersionValue> entry : versionMap.entrySet()) {
             String id = entry.getKey();
-            synchronized (dirtyLock(id)) { // can we do it without this lock on each value? maybe batch to a set and get the lock once per set?
+            Lock dirtyLock = dirtyLock(id);
+            dirtyLock.lock();
+            try { // can we do it without this lock on each value? maybe batch to a set and get the lock once per set?
                 VersionValue versionValue = versionMap.get(id);
                 if (versionValue == null) {
                     continue;
@@ -867,6 +1128,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 } else {
                     versionMap.remove(id);
                 }
+            } finally {
+                dirtyLock.unlock();
             }
         }
         if (searcher != null) {
@@ -1161,17 +1424,54 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    private Object dirtyLock(String id) {
-        return dirtyLocks[Math.abs(id.hashCode()) % dirtyLocks.length];
+    private int dirtyLockIndex(String id) {
+        return Math.abs(id.hashCode()) % dirtyLocks.length;
+    }
+
+    private Lock dirtyLock(String id) {
+        return dirtyLocks[dirtyLockIndex(id)];
     }
 
-    private Object dirtyLock(Term uid) {
+    private Lock dirtyLock(Term uid) {
         return dirtyLock(uid.text());
     }
 
-    private long loadCurrentVersionFromIndex(Term uid) {
-        UnicodeUtil.UTF8Result utf8 = Unicode.fromStringAsUtf8(uid.text());
-        // no version, get the version from the index
+    /**
+     * Locks the uid once the operations of other bulks on it are in the translog, so the operations on a uid are
+     * applied and written to the translog in order. A bulk first executes the operations it applied, so bulks never
+     * wait on each other while holding pending operations.
+     */
+    private Lock lockUid(Term uid, @Nullable BulkContext bulk) {
+        while (true) {
+            Lock dirtyLock = dirtyLock(uid);
+            dirtyLock.lock();
+            PendingVersionValue pending = pendingVersionMap.get(uid.text());
+            if (pending == null || pending.bulk() == bulk) {
+                return dirtyLock;
+            }
+            dirtyLock.unlock();
+            if (bulk != null) {
+                bulk.execute();
+            }
+            pending.awaitDone();
+        }
+    }
+
+    /**
+     * The version map entry of the (locked) uid, or the pending version of an earlier operation of the bulk on it.
+     */
+    private VersionValue versionValue(Term uid, @Nullable BulkContext bulk) {
+        if (bulk != null) {
+            // only the bulk can have a pending version on the uid once locked (see #lockUid)
+            VersionValue pending = pendingVersionMap.get(uid.text());
+            if (pending != null) {
+                return pending;
+            }
+        }
+        return versionMap.get(uid.text());
+    }
+
+    private Searcher indexingSearcher() {
         Searcher searcher = indexingSearcher.get();
         if (searcher == null) {
             Searcher tmpSearcher = searcher();
@@ -1183,6 +1483,88 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             // under a readLock, while the indexSearcher gets nullified on a writeLock
             searcher = indexingSearcher.get();
         }
+        return searcher;
+    }
+
+    private long loadCurrentVersion(Term uid, @Nullable BulkContext bulk) {
+        if (bulk != null && bulk.versionMapPrunes == versionMapPrunes.get()) {
+            Long version = bulk.versions.get(uid.text());
+            if (version != null) {
+                return version;
+            }
+        }
+        return loadCurrentVersionFromIndex(uid);
+    }
+
+    /**
+     * Loads the current versions of the uids of the operations that will need them (they have no version map entry).
+     * Each segment is visited once, seeking a single term positions to the sorted uids, so the terms dictionary
+     * lookups are sequential. The uids are not locked, an operation on one of them since then adds a version map
+     * entry, which takes precedence, until it is pruned (see {@link #loadCurrentVersion(Term, BulkContext)}).
+     */
+    private Map<String, Long> loadCurrentVersionsFromIndex(Operation[] ops) {
+        List<Term> uids = new ArrayList<Term>(ops.length);
+        for (Operation op : ops) {
+            if (op == null || op.origin() == Operation.Origin.RECOVERY) {
+                continue;
+            }
+            if (op.opType() == Operation.Type.CREATE && ((Create) op).autoGeneratedIdTimestamp() != -1) {
+                continue; // no need to resolve the version of a generated id
+            }
+            Term uid = uid(op);
+            if (!versionMap.containsKey(uid.text())) {
+                uids.add(uid);
+            }
+        }
+        Map<String, Long> versions = new HashMap<String, Long>(uids.size());
+        if (uids.isEmpty()) {
+            return versions;
+        }
+        Collections.sort(uids);
+        UnicodeUtil.UTF8Result[] utf8s = new UnicodeUtil.UTF8Result[uids.size()];
+        for (int i = 0; i < utf8s.length; i++) {
+            utf8s[i] = Unicode.fromStringAsUtf8(uids.get(i).text());
+        }
+        long[] currentVersions = new long[uids.size()];
+        Arrays.fill(currentVersions, -1);
+        for (IndexReader reader : indexingSearcher().searcher().subReaders()) {
+            BloomFilter filter = bloomCache.filter(reader, UidFieldMapper.NAME, asyncLoadBloomFilter);
+            TermPositions termPositions = null;
+            try {
+                for (int i = 0; i < currentVersions.length; i++) {
+                    // already found it in a former segment, or we know that its not there...
+                    if (currentVersions[i] != -1 || !filter.isPresent(utf8s[i].result, 0, utf8s[i].length)) {
+                        continue;
+                    }
+                    if (termPositions == null) {
+                        termPositions = reader.termPositions();
+                    }
+                    // either -1 (not there), -2 (its there, but no version associated), or an actual version
+                    currentVersions[i] = UidField.loadVersion(termPositions, uids.get(i));
+                }
+            } catch (IOException e) {
+                // leave the uids unresolved, they get loaded one by one
+                return versions;
+            } finally {
+                if (termPositions != null) {
+                    try {
+                        termPositions.close();
+                    } catch (IOException e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < currentVersions.length; i++) {
+            versions.put(uids.get(i).text(), currentVersions[i]);
+        }
+        return versions;
+    }
+
+    private long loadCurrentVersionFromIndex(Term uid) {
+        UnicodeUtil.UTF8Result utf8 = Unicode.fromStringAsUtf8(uid.text());
+        // no version, get the version from the index
+        Searcher searcher = indexingSearcher();
         for (IndexReader reader : searcher.searcher().subReaders()) {
             BloomFilter filter = bloomCache.filter(reader, UidFieldMapper.NAME, asyncLoadBloomFilter);
             // we know that its not there...
@@ -1217,6 +1599,17 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             config.setTermIndexInterval(termIndexInterval);
             config.setReaderTermsIndexDivisor(termIndexDivisor);
             config.setMaxThreadStates(indexConcurrency);
+            final IndexWarmer indexWarmer = this.indexWarmer;
+            // warm merged segments before the merge is committed, so they are never exposed cold on refresh, the
+            // bloom filter of the merged segment is built (and persisted) as part of the merge
+            config.setMergedSegmentWarmer(new IndexWriter.IndexReaderWarmer() {
+                @Override public void warm(IndexReader reader) throws IOException {
+                    bloomCache.filter(reader, UidFieldMapper.NAME, false);
+                    if (indexWarmer != null && indexWarmer.enabled()) {
+                        indexWarmer.warm(reader);
+                    }
+                }
+            });
 
             indexWriter = new IndexWriter(store.directory(), config);
         } catch (IOException e) {
@@ -1301,6 +1694,94 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    /**
+     * The state of a bulk execution: the current versions of its uids resolved upfront, and the translog operations of
+     * the operations applied since it was last executed, written at once (see {@link #execute()}).
+     */
+    private class BulkContext {
+
+        final Throwable[] failures;
+
+        final long versionMapPrunes;
+
+        Map<String, Long> versions;
+
+        final List<Translog.Operation> translogOps = new ArrayList<Translog.Operation>();
+
+        // per translog operation: the bulk operation it belongs to, and its uid and pending version (if any)
+        final List<Integer> translogOpIndices = new ArrayList<Integer>();
+        final List<String> uids = new ArrayList<String>();
+        final List<PendingVersionValue> versionValues = new ArrayList<PendingVersionValue>();
+
+        int currentOp;
+
+        BulkContext(Throwable[] failures) {
+            this.failures = failures;
+            // before resolving the versions
+            this.versionMapPrunes = RobinEngine.this.versionMapPrunes.get();
+        }
+
+        void addToTranslog(Translog.Operation operation, @Nullable String uid, long version, boolean delete) {
+            PendingVersionValue versionValue = null;
+            if (uid != null) {
+                versionValue = new PendingVersionValue(version, delete, threadPool.estimatedTimeInMillis(), this);
+                pendingVersionMap.put(uid, versionValue);
+            }
+            translogOps.add(operation);
+            translogOpIndices.add(currentOp);
+            uids.add(uid);
+            versionValues.add(versionValue);
+        }
+
+        /**
+         * Writes the translog operations using a single write, and only then publishes their version map entries.
+         * The operations are already in the index, so if the translog can't be written, the engine is failed.
+         */
+        void execute() {
+            if (translogOps.isEmpty()) {
+                return;
+            }
+            try {
+                Translog.Location[] locations = null;
+                try {
+                    locations = translog.add(translogOps.toArray(new Translog.Operation[translogOps.size()]));
+                } catch (Exception e) {
+                    failEngine(e);
+                    for (int opIndex : translogOpIndices) {
+                        failures[opIndex] = e;
+                    }
+                }
+                for (int i = 0; i < uids.size(); i++) {
+                    String uid = uids.get(i);
+                    if (uid == null) {
+                        continue;
+                    }
+                    PendingVersionValue versionValue = versionValues.get(i);
+                    Lock dirtyLock = dirtyLock(uid);
+                    dirtyLock.lock();
+                    try {
+                        // a later operation on the same uid within the bulk replaces it
+                        if (pendingVersionMap.remove(uid, versionValue) && locations != null) {
+                            versionMap.put(uid, new VersionValue(versionValue.version(), versionValue.delete(), versionValue.time(), locations[i]));
+                        }
+                    } finally {
+                        dirtyLock.unlock();
+                    }
+                }
+            } finally {
+                for (PendingVersionValue versionValue : versionValues) {
+                    if (versionValue != null) {
+                        versionValue.done();
+                    }
+                }
+                translogOps.clear();
+                translogOpIndices.clear();
+                uids.clear();
+                versionValues.clear();
+            }
+        }
+    }
+
     static class VersionValue {
         private final long version;
         private final boolean delete;
@@ -1330,4 +1811,41 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             return this.translogLocation;
         }
     }
+
+    /**
+     * The version of an operation of a bulk that is not in the translog yet. It is only kept in the pending version
+     * map, the version map only holds versions that have a translog location.
+     */
+    static class PendingVersionValue extends VersionValue {
+        private final BulkContext bulk;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        PendingVersionValue(long version, boolean delete, long time, BulkContext bulk) {
+            super(version, delete, time, null);
+            this.bulk = bulk;
+        }
+
+        public BulkContext bulk() {
+            return this.bulk;
+        }
+
+        void done() {
+            done.countDown();
+        }
+
+        void awaitDone() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
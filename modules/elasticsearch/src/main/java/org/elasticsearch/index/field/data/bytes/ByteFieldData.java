@@ -25,6 +25,7 @@ import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.trove.list.array.TByteArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
+import org.elasticsearch.index.field.data.support.DocValues;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
 
 import java.io.IOException;
@@ -144,5 +145,9 @@ public abstract class ByteFieldData extends NumericFieldData<ByteDocFieldData> {
         @Override public ByteFieldData buildMultiValue(String field, int[][] ordinals) {
             return new MultiValueByteFieldData(field, ordinals, terms.toArray());
         }
+
+        @Override public ByteFieldData buildDocValues(String field, DocValues ordinals) {
+            return new DocValuesByteFieldData(field, ordinals, terms.toArray());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.field.data.doubles;
+
+import org.elasticsearch.common.thread.ThreadLocals;
+import org.elasticsearch.index.field.data.support.DocValues;
+
+/**
+ * Single valued field data reading the ordinals of the docs from a {@link DocValues} column.
+ */
+public class DocValuesDoubleFieldData extends DoubleFieldData {
+
+    private ThreadLocal<ThreadLocals.CleanableValue<double[]>> valuesCache = new ThreadLocal<ThreadLocals.CleanableValue<double[]>>() {
+        @Override protected ThreadLocals.CleanableValue<double[]> initialValue() {
+            return new ThreadLocals.CleanableValue<double[]>(new double[1]);
+        }
+    };
+
+    // order with value 0 indicates no value
+    private final DocValues ordinals;
+
+    public DocValuesDoubleFieldData(String fieldName, DocValues ordinals, double[] values) {
+        super(fieldName, values);
+        this.ordinals = ordinals;
+    }
+
+    @Override protected long computeSizeInBytes() {
+        return super.computeSizeInBytes() + ordinals.sizeInBytes();
+    }
+
+    @Override public boolean multiValued() {
+        return false;
+    }
+
+    @Override public boolean hasValue(int docId) {
+        return ordinals.ordinal(docId) != 0;
+    }
+
+    @Override public void forEachValueInDoc(int docId, StringValueInDocProc proc) {
+        int loc = ordinals.ordinal(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, Double.toString(values[loc]));
+    }
+
+    @Override public void forEachValueInDoc(int docId, DoubleValueInDocProc proc) {
+        int loc = ordinals.ordinal(docId);
+        if (loc == 0) {
+            return;
+        }
+        proc.onValue(docId, values[loc]);
+    }
+
+    @Override public void forEachValueInDoc(int docId, LongValueInDocProc proc) {
+        int loc = ordinals.ordinal(docId);
+        if (loc == 0) {
+            return;
+        }
+        proc.onValue(docId, (long) values[loc]);
+    }
+
+    @Override public void forEachValueInDoc(int docId, MissingDoubleValueInDocProc proc) {
+        int loc = ordinals.ordinal(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, values[loc]);
+    }
+
+    @Override public void forEachValueInDoc(int docId, MissingLongValueInDocProc proc) {
+        int loc = ordinals.ordinal(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, (long) values[loc]);
+    }
+
+    @Override public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+        int loc = ordinals.ordinal(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, values[loc]);
+    }
+
+    @Override public void forEachOrdinalInDoc(int docId, OrdinalInDocProc proc) {
+        proc.onOrdinal(docId, ordinals.ordinal(docId));
+    }
+
+    @Override public double[] doubleValues(int docId) {
+        return values(docId);
+    }
+
+    @Override public double value(int docId) {
+        return values[ordinals.ordinal(docId)];
+    }
+
+    @Override public double[] values(int docId) {
+        int loc = ordinals.ordinal(docId);
+        if (loc == 0) {
+            return EMPTY_DOUBLE_ARRAY;
+        }
+        double[] ret = valuesCache.get().get();
+        ret[0] = values[loc];
+        return ret;
+    }
+}
\ No newline at end of file
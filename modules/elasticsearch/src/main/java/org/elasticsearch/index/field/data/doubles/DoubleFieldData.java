@@ -25,6 +25,7 @@ import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.trove.list.array.TDoubleArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
+import org.elasticsearch.index.field.data.support.DocValues;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
 
 import java.io.IOException;
@@ -144,5 +145,9 @@ public abstract class DoubleFieldData extends NumericFieldData<DoubleDocFieldDat
         @Override public DoubleFieldData buildMultiValue(String field, int[][] ordinals) {
             return new MultiValueDoubleFieldData(field, ordinals, terms.toArray());
         }
+
+        @Override public DoubleFieldData buildDocValues(String field, DocValues ordinals) {
+            return new DocValuesDoubleFieldData(field, ordinals, terms.toArray());
+        }
     }
 }
\ No newline at end of file
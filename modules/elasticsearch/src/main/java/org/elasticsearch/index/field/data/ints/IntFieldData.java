@@ -25,6 +25,7 @@ import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.trove.list.array.TIntArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
+import org.elasticsearch.index.field.data.support.DocValues;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
 
 import java.io.IOException;
@@ -144,5 +145,9 @@ public abstract class IntFieldData extends NumericFieldData<IntDocFieldData> {
         @Override public IntFieldData buildMultiValue(String field, int[][] ordinals) {
             return new MultiValueIntFieldData(field, ordinals, terms.toArray());
         }
+
+        @Override public IntFieldData buildDocValues(String field, DocValues ordinals) {
+            return new DocValuesIntFieldData(field, ordinals, terms.toArray());
+        }
     }
 }
\ No newline at end of file
@@ -28,6 +28,7 @@ import org.elasticsearch.common.thread.ThreadLocals;
 import org.elasticsearch.common.trove.list.array.TLongArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
+import org.elasticsearch.index.field.data.support.DocValues;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
 
 import java.io.IOException;
@@ -174,5 +175,9 @@ public abstract class LongFieldData extends NumericFieldData<LongDocFieldData> {
         @Override public LongFieldData buildMultiValue(String field, int[][] ordinals) {
             return new MultiValueLongFieldData(field, ordinals, terms.toArray());
         }
+
+        @Override public LongFieldData buildDocValues(String field, DocValues ordinals) {
+            return new DocValuesLongFieldData(field, ordinals, terms.toArray());
+        }
     }
 }
\ No newline at end of file
@@ -25,6 +25,7 @@ import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.trove.list.array.TShortArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
+import org.elasticsearch.index.field.data.support.DocValues;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
 
 import java.io.IOException;
@@ -144,5 +145,9 @@ public abstract class ShortFieldData extends NumericFieldData<ShortDocFieldData>
         @Override public ShortFieldData buildMultiValue(String field, int[][] ordinals) {
             return new MultiValueShortFieldData(field, ordinals, terms.toArray());
         }
+
+        @Override public ShortFieldData buildDocValues(String field, DocValues ordinals) {
+            return new DocValuesShortFieldData(field, ordinals, terms.toArray());
+        }
     }
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ import org.apache.lucene.index.IndexReader;
 import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.field.data.FieldDataType;
+import org.elasticsearch.index.field.data.support.DocValues;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
 
 import java.io.IOException;
@@ -105,5 +106,9 @@ public abstract class StringFieldData extends FieldData<StringDocFieldData> {
         @Override public StringFieldData buildMultiValue(String field, int[][] ordinals) {
             return new MultiValueStringFieldData(field, ordinals, terms.toArray(new String[terms.size()]));
         }
+
+        @Override public StringFieldData buildDocValues(String field, DocValues ordinals) {
+            return new DocValuesStringFieldData(field, ordinals, terms.toArray(new String[terms.size()]));
+        }
     }
 }
@@ -24,6 +24,7 @@ import org.apache.lucene.search.FieldComparator;
 import org.elasticsearch.index.cache.field.data.FieldDataCache;
 import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.field.data.FieldDataType;
+import org.elasticsearch.index.field.data.support.DocValues;
 
 import java.io.IOException;
 
@@ -42,6 +43,8 @@ public class StringOrdValFieldDataComparator extends FieldComparator {
     private int currentReaderGen = -1;
     private String[] lookup;
     private int[] order;
+    // set instead of the order when the ordinals are read from a doc values column
+    private DocValues docValuesOrder;
     private final String field;
 
     private int bottomSlot = -1;
@@ -79,12 +82,12 @@ public class StringOrdValFieldDataComparator extends FieldComparator {
         assert bottomSlot != -1;
         if (bottomSameReader) {
             // ord is precisely comparable, even in the equal case
-            return bottomOrd - this.order[doc];
+            return bottomOrd - order(doc);
         } else {
             // ord is only approx comparable: if they are not
             // equal, we can use that; if they are equal, we
             // must fallback to compare by value
-            final int order = this.order[doc];
+            final int order = order(doc);
             final int cmp = bottomOrd - order;
             if (cmp != 0) {
                 return cmp;
@@ -106,7 +109,7 @@ public class StringOrdValFieldDataComparator extends FieldComparator {
     }
 
     @Override public void copy(int slot, int doc) {
-        final int ord = order[doc];
+        final int ord = order(doc);
         ords[slot] = ord;
         assert ord >= 0;
         values[slot] = lookup[ord];
@@ -118,16 +121,31 @@ public class StringOrdValFieldDataComparator extends FieldComparator {
         if (cleanFieldData instanceof MultiValueStringFieldData) {
             throw new IOException("Can't sort on string types with more than one value per doc, or more than one token per field");
         }
-        SingleValueStringFieldData fieldData = (SingleValueStringFieldData) cleanFieldData;
         currentReaderGen++;
-        order = fieldData.ordinals();
-        lookup = fieldData.values();
+        if (cleanFieldData instanceof DocValuesStringFieldData) {
+            DocValuesStringFieldData fieldData = (DocValuesStringFieldData) cleanFieldData;
+            order = null;
+            docValuesOrder = fieldData.ordinals();
+            lookup = fieldData.values();
+        } else {
+            SingleValueStringFieldData fieldData = (SingleValueStringFieldData) cleanFieldData;
+            order = fieldData.ordinals();
+            docValuesOrder = null;
+            lookup = fieldData.values();
+        }
         assert lookup.length > 0;
         if (bottomSlot != -1) {
             setBottom(bottomSlot);
         }
     }
 
+    private int order(int doc) {
+        if (order != null) {
+            return order[doc];
+        }
+        return docValuesOrder.ordinal(doc);
+    }
+
     @Override public void setBottom(final int bottom) {
         bottomSlot = bottom;
 
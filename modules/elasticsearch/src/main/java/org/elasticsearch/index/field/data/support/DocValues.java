@@ -0,0 +1,250 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.field.data.support;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.Directories;
+import org.elasticsearch.index.field.data.FieldData;
+import org.elasticsearch.index.field.data.FieldDataType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A per segment column holding the field data ordinal of each doc of a field (<tt>0</tt> for docs with no value),
+ * written next to the segment files (<tt>[segment].dv[field]</tt>) for fields mapped with <tt>doc_values</tt>
+ * enabled. Loading the ordinals from the column saves walking the postings of every term of the field, which is
+ * most of the cost of loading field data. On the file system the column is memory mapped, so it costs no heap. The
+ * values are still loaded from the terms of the segment (see {@link FieldDataLoader}).
+ *
+ * <p>Only fields with (at most) a single value per doc in the segment get a column. A segment never changes, so the
+ * column is valid for the lifetime of the segment (deleted docs don't matter).
+ *
+ * <p>The format is a header of 16 bytes (version, max doc, number of values, bytes per ordinal), followed by the
+ * ordinal of each doc, on 1, 2 or 4 bytes depending on the number of values. All values are big endian.
+ */
+public class DocValues {
+
+    public static final String EXTENSION = "dv";
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 16;
+
+    private final ByteBuffer ordinals;
+
+    private final int maxDoc;
+
+    private final int numValues;
+
+    private final int bytesPerOrdinal;
+
+    private final boolean mapped;
+
+    DocValues(ByteBuffer ordinals, int maxDoc, int numValues, int bytesPerOrdinal, boolean mapped) {
+        this.ordinals = ordinals;
+        this.maxDoc = maxDoc;
+        this.numValues = numValues;
+        this.bytesPerOrdinal = bytesPerOrdinal;
+        this.mapped = mapped;
+    }
+
+    /**
+     * The ordinal of the value of the doc, <tt>0</tt> if the doc has no value.
+     */
+    public int ordinal(int docId) {
+        switch (bytesPerOrdinal) {
+            case 1:
+                return ordinals.get(docId) & 0xFF;
+            case 2:
+                return ordinals.getShort(docId << 1) & 0xFFFF;
+            default:
+                return ordinals.getInt(docId << 2);
+        }
+    }
+
+    public int maxDoc() {
+        return this.maxDoc;
+    }
+
+    /**
+     * The number of (distinct) values of the field in the segment, the ordinals range from <tt>1</tt> to it.
+     */
+    public int numValues() {
+        return this.numValues;
+    }
+
+    /**
+     * The heap used by the ordinals, <tt>0</tt> when they are memory mapped.
+     */
+    public long sizeInBytes() {
+        return mapped ? 0 : ordinals.capacity();
+    }
+
+    public static String fileName(String segmentName, String field) {
+        return segmentName + "." + EXTENSION + field;
+    }
+
+    /**
+     * Reads the column of the field, <tt>null</tt> if the segment has none.
+     */
+    @Nullable public static DocValues read(IndexReader reader, String field) throws IOException {
+        if (!(reader instanceof SegmentReader)) {
+            return null;
+        }
+        Directory directory = reader.directory();
+        String name = fileName(((SegmentReader) reader).getSegmentName(), field);
+        if (!directory.fileExists(name)) {
+            return null;
+        }
+        File file = Directories.file(directory, name);
+        if (file != null) {
+            return map(file, reader.maxDoc());
+        }
+        IndexInput in = directory.openInput(name);
+        try {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported doc values version [" + version + "] for [" + name + "]");
+            }
+            int maxDoc = in.readInt();
+            int numValues = in.readInt();
+            int bytesPerOrdinal = in.readInt();
+            verify(name, maxDoc, reader.maxDoc(), bytesPerOrdinal, in.length());
+            byte[] ordinals = new byte[maxDoc * bytesPerOrdinal];
+            in.readBytes(ordinals, 0, ordinals.length);
+            return new DocValues(ByteBuffer.wrap(ordinals), maxDoc, numValues, bytesPerOrdinal, false);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static DocValues map(File file, int expectedMaxDoc) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            // the mapping stays valid once the channel is closed, and is released when garbage collected
+            ByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            int version = buffer.getInt(0);
+            if (version != VERSION) {
+                throw new IOException("unsupported doc values version [" + version + "] for [" + file + "]");
+            }
+            int maxDoc = buffer.getInt(4);
+            int numValues = buffer.getInt(8);
+            int bytesPerOrdinal = buffer.getInt(12);
+            verify(file.getName(), maxDoc, expectedMaxDoc, bytesPerOrdinal, raf.length());
+            buffer.position(HEADER_SIZE);
+            return new DocValues(buffer.slice(), maxDoc, numValues, bytesPerOrdinal, true);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void verify(String name, int maxDoc, int expectedMaxDoc, int bytesPerOrdinal, long length) throws IOException {
+        if (maxDoc != expectedMaxDoc) {
+            throw new IOException("doc values [" + name + "] hold [" + maxDoc + "] docs, segment has [" + expectedMaxDoc + "]");
+        }
+        if (length != HEADER_SIZE + ((long) maxDoc) * bytesPerOrdinal) {
+            throw new IOException("doc values [" + name + "] are corrupted, length [" + length + "] does not match [" + maxDoc + "] docs");
+        }
+    }
+
+    /**
+     * Writes the column of the field for the provided segment, if it does not exist yet. The ordinals are taken from
+     * the (heap based) field data of the segment, loaded using the provided type. Returns <tt>false</tt> if no column
+     * can be written, when the reader is not a segment reader, or when docs of the segment have more than one value.
+     */
+    public static boolean write(IndexReader reader, String field, FieldDataType fieldDataType) throws IOException {
+        if (!(reader instanceof SegmentReader)) {
+            return false;
+        }
+        Directory directory = reader.directory();
+        String name = fileName(((SegmentReader) reader).getSegmentName(), field);
+        if (directory.fileExists(name)) {
+            return true;
+        }
+        FieldData fieldData = fieldDataType.load(reader, field);
+        if (fieldData.multiValued()) {
+            return false;
+        }
+        final int[] numValues = new int[1];
+        fieldData.forEachValue(new FieldData.StringValueProc() {
+            @Override public void onValue(String value) {
+                numValues[0]++;
+            }
+        });
+        final int maxDoc = reader.maxDoc();
+        final int[] ordinals = new int[maxDoc];
+        FieldData.OrdinalInDocProc proc = new FieldData.OrdinalInDocProc() {
+            @Override public void onOrdinal(int docId, int ordinal) {
+                ordinals[docId] = ordinal;
+            }
+        };
+        for (int docId = 0; docId < maxDoc; docId++) {
+            fieldData.forEachOrdinalInDoc(docId, proc);
+        }
+        int bytesPerOrdinal = numValues[0] <= 0xFF ? 1 : numValues[0] <= 0xFFFF ? 2 : 4;
+        IndexOutput out = directory.createOutput(name);
+        try {
+            out.writeInt(VERSION);
+            out.writeInt(maxDoc);
+            out.writeInt(numValues[0]);
+            out.writeInt(bytesPerOrdinal);
+            for (int ordinal : ordinals) {
+                if (bytesPerOrdinal == 1) {
+                    out.writeByte((byte) ordinal);
+                } else if (bytesPerOrdinal == 2) {
+                    out.writeByte((byte) (ordinal >> 8));
+                    out.writeByte((byte) ordinal);
+                } else {
+                    out.writeInt(ordinal);
+                }
+            }
+            out.close();
+            out = null;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                try {
+                    directory.deleteFile(name);
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+        try {
+            Directories.deleteUnusedSegmentFiles(directory, EXTENSION);
+        } catch (IOException e) {
+            // ignore, will be deleted next time
+        }
+        return true;
+    }
+}
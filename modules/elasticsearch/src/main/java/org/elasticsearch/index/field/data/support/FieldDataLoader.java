@@ -40,6 +40,18 @@ public class FieldDataLoader {
         loader.init();
 
         field = StringHelper.intern(field);
+
+        DocValues docValues = DocValues.read(reader, field);
+        if (docValues != null) {
+            // the ordinals are in the column, only the values need to be loaded from the terms
+            int numValues = collectTerms(reader, field, loader);
+            if (numValues != docValues.numValues()) {
+                // can only happen when the column was written using a different field data type
+                throw new IOException("doc values of [" + field + "] hold [" + docValues.numValues() + "] values, loaded [" + numValues + "]");
+            }
+            return loader.buildDocValues(field, docValues);
+        }
+
         ArrayList<int[]> ordinals = new ArrayList<int[]>();
         ordinals.add(new int[reader.maxDoc()]);
 
@@ -96,6 +108,29 @@ public class FieldDataLoader {
         }
     }
 
+    @SuppressWarnings({"StringEquality"})
+    private static int collectTerms(IndexReader reader, String field, TypeLoader loader) throws IOException {
+        int numTerms = 0;
+        TermEnum termEnum = reader.terms(new Term(field));
+        try {
+            do {
+                Term term = termEnum.term();
+                if (term == null || term.field() != field) break;
+                loader.collectTerm(term.text());
+                numTerms++;
+            } while (termEnum.next());
+        } catch (RuntimeException e) {
+            if (e.getClass().getName().endsWith("StopFillCacheException")) {
+                // all is well, in case numeric parsers are used.
+            } else {
+                throw e;
+            }
+        } finally {
+            termEnum.close();
+        }
+        return numTerms;
+    }
+
     public static interface TypeLoader<T extends FieldData> {
 
         void init();
@@ -105,6 +140,11 @@ public class FieldDataLoader {
         T buildSingleValue(String fieldName, int[] ordinals);
 
         T buildMultiValue(String fieldName, int[][] ordinals);
+
+        /**
+         * Builds the field data of a segment holding the ordinals in a {@link DocValues} column.
+         */
+        T buildDocValues(String fieldName, DocValues ordinals);
     }
 
     public static abstract class FreqsTypeLoader<T extends FieldData> implements TypeLoader<T> {
@@ -37,12 +37,18 @@ public class CommitPoint {
         private final String physicalName;
         private final long length;
         private final String checksum;
+        private final String contentChecksum;
 
         public FileInfo(String name, String physicalName, long length, String checksum) {
+            this(name, physicalName, length, checksum, null);
+        }
+
+        public FileInfo(String name, String physicalName, long length, String checksum, String contentChecksum) {
             this.name = name;
             this.physicalName = physicalName;
             this.length = length;
             this.checksum = checksum;
+            this.contentChecksum = contentChecksum;
         }
 
         public String name() {
@@ -61,6 +67,14 @@ public class CommitPoint {
             return checksum;
         }
 
+        /**
+         * The checksum of the actual file content (as opposed to {@link #checksum()}, which is computed while the
+         * file is written and might not match its content), used to verify the file when it is recovered.
+         */
+        @Nullable public String contentChecksum() {
+            return contentChecksum;
+        }
+
         public boolean isSame(StoreFileMetaData md) {
             if (checksum == null || md.checksum() == null) {
                 return false;
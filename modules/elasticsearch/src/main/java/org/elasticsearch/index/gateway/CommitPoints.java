@@ -100,6 +100,9 @@ public class CommitPoints implements Iterable<CommitPoint> {
             if (fileInfo.checksum() != null) {
                 builder.field("checksum", fileInfo.checksum());
             }
+            if (fileInfo.contentChecksum() != null) {
+                builder.field("content_checksum", fileInfo.contentChecksum());
+            }
             builder.endObject();
         }
         builder.endObject();
@@ -151,6 +154,7 @@ public class CommitPoints implements Iterable<CommitPoint> {
                             String physicalName = null;
                             long size = -1;
                             String checksum = null;
+                            String contentChecksum = null;
                             while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
                                 if (token == XContentParser.Token.FIELD_NAME) {
                                     currentFieldName = parser.currentName();
@@ -161,6 +165,8 @@ public class CommitPoints implements Iterable<CommitPoint> {
                                         size = parser.longValue();
                                     } else if ("checksum".equals(currentFieldName)) {
                                         checksum = parser.text();
+                                    } else if ("content_checksum".equals(currentFieldName) || "contentChecksum".equals(currentFieldName)) {
+                                        contentChecksum = parser.text();
                                     }
                                 }
                             }
@@ -170,7 +176,7 @@ public class CommitPoints implements Iterable<CommitPoint> {
                             if (size == -1) {
                                 throw new IOException("Malformed commit, missing length for [" + fileName + "]");
                             }
-                            files.add(new CommitPoint.FileInfo(fileName, physicalName, size, checksum));
+                            files.add(new CommitPoint.FileInfo(fileName, physicalName, size, checksum, contentChecksum));
                         }
                     }
                 } else if (token.isValue()) {
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.gateway;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -116,6 +117,8 @@ public class RecoveryStatus {
         private int numberOfReusedFiles = 0;
         private long reusedTotalSize = 0;
         private AtomicLong currentFilesSize = new AtomicLong();
+        private AtomicLong verificationTime = new AtomicLong();
+        private AtomicInteger retriedFiles = new AtomicInteger();
 
         public long startTime() {
             return this.startTime;
@@ -179,5 +182,24 @@ public class RecoveryStatus {
         public void addCurrentFilesSize(long updatedSize) {
             this.currentFilesSize.addAndGet(updatedSize);
         }
+
+        /**
+         * The time (in millis) spent verifying the checksum of the recovered files.
+         */
+        public long verificationTime() {
+            return this.verificationTime.get() / 1000000;
+        }
+
+        public void addVerificationTimeInNanos(long verificationTime) {
+            this.verificationTime.addAndGet(verificationTime);
+        }
+
+        public int retriedFiles() {
+            return this.retriedFiles.get();
+        }
+
+        public void incrementRetriedFiles() {
+            this.retriedFiles.incrementAndGet();
+        }
     }
 }
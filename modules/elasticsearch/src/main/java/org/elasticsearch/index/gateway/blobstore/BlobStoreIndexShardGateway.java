@@ -22,7 +22,6 @@ package org.elasticsearch.index.gateway.blobstore;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IndexInput;
-import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.blobstore.*;
 import org.elasticsearch.common.collect.ImmutableMap;
@@ -33,8 +32,10 @@ import org.elasticsearch.common.io.FastByteArrayOutputStream;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.lucene.store.ThreadSafeInputStreamIndexInput;
+import org.elasticsearch.common.lucene.store.VerifyingIndexOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.gateway.*;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -42,6 +43,7 @@ import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.store.ChecksumMismatchException;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
@@ -52,11 +54,16 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Adler32;
+import java.util.zip.CheckedInputStream;
 
 /**
  * @author kimchy (shay.banon)
@@ -77,6 +84,8 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 
     protected final ImmutableBlobContainer blobContainer;
 
+    protected final int fileRetries;
+
     private volatile RecoveryStatus recoveryStatus;
 
     private volatile SnapshotStatus lastSnapshotStatus;
@@ -99,6 +108,8 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 
         this.blobContainer = blobStore.immutableBlobContainer(shardPath);
 
+        this.fileRetries = componentSettings.getAsInt("file_retries", 3);
+
         this.recoveryStatus = new RecoveryStatus();
     }
 
@@ -187,6 +198,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         final CountDownLatch indexLatch = new CountDownLatch(snapshotIndexCommit.getFiles().length);
         final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
         final List<CommitPoint.FileInfo> indexCommitPointFiles = Lists.newArrayList();
+        final ConcurrentMap<String, String> contentChecksums = ConcurrentCollections.newConcurrentMap();
 
         int indexNumberOfFiles = 0;
         long indexTotalFilesSize = 0;
@@ -216,7 +228,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                 try {
                     CommitPoint.FileInfo snapshotFileInfo = new CommitPoint.FileInfo(fileNameFromGeneration(++generation), fileName, md.length(), md.checksum());
                     indexCommitPointFiles.add(snapshotFileInfo);
-                    snapshotFile(snapshotIndexCommit.getDirectory(), snapshotFileInfo, indexLatch, failures);
+                    snapshotFile(snapshotIndexCommit.getDirectory(), snapshotFileInfo, contentChecksums, indexLatch, failures);
                 } catch (IOException e) {
                     failures.add(e);
                     indexLatch.countDown();
@@ -236,6 +248,14 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         if (!failures.isEmpty()) {
             throw new IndexShardGatewaySnapshotFailedException(shardId(), "Failed to perform snapshot (index files)", failures.get(failures.size() - 1));
         }
+        // add the content checksums computed while snapshotting the files, used to verify them on recovery
+        for (int i = 0; i < indexCommitPointFiles.size(); i++) {
+            CommitPoint.FileInfo fileInfo = indexCommitPointFiles.get(i);
+            String contentChecksum = contentChecksums.get(fileInfo.name());
+            if (contentChecksum != null) {
+                indexCommitPointFiles.set(i, new CommitPoint.FileInfo(fileInfo.name(), fileInfo.physicalName(), fileInfo.length(), fileInfo.checksum(), contentChecksum));
+            }
+        }
 
         currentSnapshotStatus.index().time(System.currentTimeMillis() - currentSnapshotStatus.index().startTime());
 
@@ -613,11 +633,16 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
     }
 
     private void recoverFile(final CommitPoint.FileInfo fileInfo, final ImmutableMap<String, BlobMetaData> blobs, final CountDownLatch latch, final List<Throwable> failures) {
-        final IndexOutput indexOutput;
+        recoverFile(fileInfo, blobs, 0, latch, failures);
+    }
+
+    private void recoverFile(final CommitPoint.FileInfo fileInfo, final ImmutableMap<String, BlobMetaData> blobs, final int retry, final CountDownLatch latch, final List<Throwable> failures) {
+        final VerifyingIndexOutput indexOutput;
         try {
             // we create an output with no checksum, this is because the pure binary data of the file is not
-            // the checksum (because of seek). We will create the checksum file once copying is done
-            indexOutput = store.createOutputWithNoChecksum(fileInfo.physicalName());
+            // the checksum (because of seek). We will create the checksum file once copying is done.
+            // The content itself is verified as it streams in against the content checksum (if we have one)
+            indexOutput = new VerifyingIndexOutput(store.createOutputWithNoChecksum(fileInfo.physicalName()));
         } catch (IOException e) {
             failures.add(e);
             latch.countDown();
@@ -654,6 +679,24 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                     // we are done...
                     try {
                         indexOutput.close();
+                        recoveryStatus.index().addVerificationTimeInNanos(indexOutput.verificationTimeInNanos());
+                        if (fileInfo.contentChecksum() != null && !indexOutput.verify(fileInfo.contentChecksum())) {
+                            recoveryStatus.index().addCurrentFilesSize(-fileInfo.length());
+                            try {
+                                store.directory().deleteFile(fileInfo.physicalName());
+                            } catch (IOException e) {
+                                // ignore, will be overridden
+                            }
+                            ChecksumMismatchException failure = new ChecksumMismatchException(shardId, fileInfo.physicalName(), fileInfo.contentChecksum(), indexOutput.checksum());
+                            if (retry < fileRetries) {
+                                logger.debug("failed to verify [{}]/[{}], recovering it again ([{}]/[{}])", failure, fileInfo.name(), fileInfo.physicalName(), retry + 1, fileRetries);
+                                recoveryStatus.index().incrementRetriedFiles();
+                                recoverFile(fileInfo, blobs, retry + 1, latch, failures);
+                                return;
+                            }
+                            onFailure(failure);
+                            return;
+                        }
                         // write the checksum
                         if (fileInfo.checksum() != null) {
                             store.writeChecksum(fileInfo.physicalName(), fileInfo.checksum());
@@ -707,7 +750,8 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 //        }
     }
 
-    private void snapshotFile(Directory dir, final CommitPoint.FileInfo fileInfo, final CountDownLatch latch, final List<Throwable> failures) throws IOException {
+    private void snapshotFile(Directory dir, final CommitPoint.FileInfo fileInfo, final ConcurrentMap<String, String> contentChecksums,
+                              final CountDownLatch latch, final List<Throwable> failures) throws IOException {
         long chunkBytes = Long.MAX_VALUE;
         if (chunkSize != null) {
             chunkBytes = chunkSize.bytes();
@@ -723,7 +767,11 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         }
 
         final long fNumberOfChunks = numberOfChunks;
+        final long fChunkBytes = chunkBytes;
         final AtomicLong counter = new AtomicLong(numberOfChunks);
+        // the checksum of each part, combined into the checksum of the file content once all parts are written
+        final AtomicLongArray partChecksums = new AtomicLongArray((int) numberOfChunks);
+        final AtomicBoolean failed = new AtomicBoolean();
         for (long i = 0; i < fNumberOfChunks; i++) {
             final long partNumber = i;
 
@@ -732,6 +780,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                 indexInput = dir.openInput(fileInfo.physicalName());
                 indexInput.seek(partNumber * chunkBytes);
                 InputStreamIndexInput is = new ThreadSafeInputStreamIndexInput(indexInput, chunkBytes);
+                final CheckedInputStream checkedIs = new CheckedInputStream(is, new Adler32());
 
                 String blobName = fileInfo.name();
                 if (fNumberOfChunks > 1) {
@@ -740,14 +789,18 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                 }
 
                 final IndexInput fIndexInput = indexInput;
-                blobContainer.writeBlob(blobName, is, is.actualSizeToRead(), new ImmutableBlobContainer.WriterListener() {
+                blobContainer.writeBlob(blobName, checkedIs, is.actualSizeToRead(), new ImmutableBlobContainer.WriterListener() {
                     @Override public void onCompleted() {
                         try {
                             fIndexInput.close();
                         } catch (IOException e) {
                             // ignore
                         }
+                        partChecksums.set((int) partNumber, checkedIs.getChecksum().getValue());
                         if (counter.decrementAndGet() == 0) {
+                            if (!failed.get()) {
+                                contentChecksums.put(fileInfo.name(), combinePartChecksums(partChecksums, fileInfo.length(), fChunkBytes));
+                            }
                             latch.countDown();
                         }
                     }
@@ -758,6 +811,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                         } catch (IOException e) {
                             // ignore
                         }
+                        failed.set(true);
                         failures.add(t);
                         if (counter.decrementAndGet() == 0) {
                             latch.countDown();
@@ -772,12 +826,22 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                         // ignore
                     }
                 }
+                failed.set(true);
                 failures.add(e);
                 latch.countDown();
             }
         }
     }
 
+    private String combinePartChecksums(AtomicLongArray partChecksums, long totalLength, long chunkBytes) {
+        long checksum = partChecksums.get(0);
+        for (int i = 1; i < partChecksums.length(); i++) {
+            long partLength = Math.min(chunkBytes, totalLength - i * chunkBytes);
+            checksum = VerifyingIndexOutput.combine(checksum, partChecksums.get(i), partLength);
+        }
+        return VerifyingIndexOutput.toString(checksum);
+    }
+
     private boolean commitPointExistsInBlobs(CommitPoint commitPoint, ImmutableMap<String, BlobMetaData> blobs) {
         for (CommitPoint.FileInfo fileInfo : Iterables.concat(commitPoint.indexFiles(), commitPoint.translogFiles())) {
             if (!commitPointFileExistsInBlobs(fileInfo, blobs)) {
@@ -23,6 +23,7 @@ import org.apache.lucene.analysis.Analyzer;
 import org.elasticsearch.common.collect.*;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.util.concurrent.Immutable;
+import org.elasticsearch.index.analysis.CachingAnalyzer;
 import org.elasticsearch.index.analysis.FieldNameAnalyzer;
 
 import java.util.Map;
@@ -78,7 +79,10 @@ public class DocumentFieldMappers implements Iterable<FieldMapper> {
             }
             tempFullNameFieldMappers.put(fieldMapper.names().fullName(), mappers);
 
-            if (fieldMapper.indexAnalyzer() != null) {
+            if (fieldMapper.analysisCache() != null) {
+                Analyzer indexAnalyzer = fieldMapper.indexAnalyzer() != null ? fieldMapper.indexAnalyzer() : docMapper.indexAnalyzer();
+                indexAnalyzers.put(fieldMapper.names().indexName(), new CachingAnalyzer(indexAnalyzer, fieldMapper.analysisCache()));
+            } else if (fieldMapper.indexAnalyzer() != null) {
                 indexAnalyzers.put(fieldMapper.names().indexName(), fieldMapper.indexAnalyzer());
             }
             if (fieldMapper.searchAnalyzer() != null) {
@@ -31,6 +31,7 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.analysis.AnalysisService;
@@ -44,6 +45,8 @@ import org.elasticsearch.index.mapper.object.RootObjectMapper;
 import org.elasticsearch.index.settings.IndexSettings;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.elasticsearch.common.xcontent.support.XContentMapValues.*;
@@ -63,6 +66,14 @@ public class DocumentMapperParser extends AbstractIndexComponent {
 
     private volatile ImmutableMap<String, Mapper.TypeParser> typeParsers;
 
+    // indices are usually created from the same templates, so the (json) parsing of identical mapping sources
+    // is shared across all the indices on the node, the mappers themselves are still built per index
+    private static final Map<DefinitionKey, Tuple<String, Map<String, Object>>> sharedDefinitions = Collections.synchronizedMap(new LinkedHashMap<DefinitionKey, Tuple<String, Map<String, Object>>>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<DefinitionKey, Tuple<String, Map<String, Object>>> eldest) {
+            return size() > 100;
+        }
+    });
+
     public DocumentMapperParser(Index index, AnalysisService analysisService) {
         this(index, ImmutableSettings.Builder.EMPTY_SETTINGS, analysisService);
     }
@@ -111,26 +122,9 @@ public class DocumentMapperParser extends AbstractIndexComponent {
 
     @SuppressWarnings({"unchecked"})
     public DocumentMapper parse(@Nullable String type, String source, String defaultSource) throws MapperParsingException {
-        Map<String, Object> mapping = null;
-        if (source != null) {
-            Tuple<String, Map<String, Object>> t = extractMapping(type, source);
-            type = t.v1();
-            mapping = t.v2();
-        }
-        if (mapping == null) {
-            mapping = Maps.newHashMap();
-        }
-
-        if (type == null) {
-            throw new MapperParsingException("Failed to derive type");
-        }
-
-        if (defaultSource != null) {
-            Tuple<String, Map<String, Object>> t = extractMapping(MapperService.DEFAULT_MAPPING, defaultSource);
-            if (t.v2() != null) {
-                XContentHelper.mergeDefaults(mapping, t.v2());
-            }
-        }
+        Tuple<String, Map<String, Object>> definition = mappingDefinition(type, source, defaultSource);
+        type = definition.v1();
+        Map<String, Object> mapping = definition.v2();
 
         Mapper.TypeParser.ParserContext parserContext = new Mapper.TypeParser.ParserContext(analysisService, typeParsers);
 
@@ -309,6 +303,12 @@ public class DocumentMapperParser extends AbstractIndexComponent {
                     builder.compressThreshold(ByteSizeValue.parseBytesSizeValue(fieldNode.toString()).bytes());
                     builder.compress(true);
                 }
+            } else if (fieldName.equals("format") && fieldNode != null) {
+                XContentType format = XContentType.fromRestContentType(fieldNode.toString());
+                if (format == null) {
+                    throw new MapperParsingException("unknown _source format [" + fieldNode + "]");
+                }
+                builder.format(format);
             }
         }
         return builder;
@@ -328,6 +328,48 @@ public class DocumentMapperParser extends AbstractIndexComponent {
         return builder;
     }
 
+    /**
+     * The mapping definition (with the default mapping merged into it), shared across the indices on this node
+     * for identical sources. The returned definition must not be modified.
+     */
+    private Tuple<String, Map<String, Object>> mappingDefinition(@Nullable String type, String source, String defaultSource) throws MapperParsingException {
+        DefinitionKey key = null;
+        if (source != null) {
+            key = new DefinitionKey(type, source, defaultSource);
+            Tuple<String, Map<String, Object>> definition = sharedDefinitions.get(key);
+            if (definition != null) {
+                return definition;
+            }
+        }
+
+        Map<String, Object> mapping = null;
+        if (source != null) {
+            Tuple<String, Map<String, Object>> t = extractMapping(type, source);
+            type = t.v1();
+            mapping = t.v2();
+        }
+        if (mapping == null) {
+            mapping = Maps.newHashMap();
+        }
+
+        if (type == null) {
+            throw new MapperParsingException("Failed to derive type");
+        }
+
+        if (defaultSource != null) {
+            Tuple<String, Map<String, Object>> t = extractMapping(MapperService.DEFAULT_MAPPING, defaultSource);
+            if (t.v2() != null) {
+                XContentHelper.mergeDefaults(mapping, t.v2());
+            }
+        }
+
+        Tuple<String, Map<String, Object>> definition = new Tuple<String, Map<String, Object>>(type, mapping);
+        if (key != null) {
+            sharedDefinitions.put(key, definition);
+        }
+        return definition;
+    }
+
     @SuppressWarnings({"unchecked"})
     private Tuple<String, Map<String, Object>> extractMapping(String type, String source) throws MapperParsingException {
         Map<String, Object> root;
@@ -355,4 +397,43 @@ public class DocumentMapperParser extends AbstractIndexComponent {
 
         return new Tuple<String, Map<String, Object>>(type, (Map<String, Object>) root.get(rootName));
     }
+
+    private static class DefinitionKey {
+
+        private final String type;
+
+        private final String source;
+
+        private final String defaultSource;
+
+        private final int hashCode;
+
+        DefinitionKey(String type, String source, String defaultSource) {
+            this.type = type;
+            this.source = source;
+            this.defaultSource = defaultSource;
+            int result = type != null ? type.hashCode() : 0;
+            result = 31 * result + source.hashCode();
+            result = 31 * result + (defaultSource != null ? defaultSource.hashCode() : 0);
+            this.hashCode = result;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            DefinitionKey that = (DefinitionKey) o;
+
+            if (hashCode != that.hashCode) return false;
+            if (type != null ? !type.equals(that.type) : that.type != null) return false;
+            if (!source.equals(that.source)) return false;
+            if (defaultSource != null ? !defaultSource.equals(that.defaultSource) : that.defaultSource != null) return false;
+
+            return true;
+        }
+
+        @Override public int hashCode() {
+            return hashCode;
+        }
+    }
 }
@@ -27,6 +27,7 @@ import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.common.util.concurrent.Immutable;
 import org.elasticsearch.common.util.concurrent.ThreadSafe;
+import org.elasticsearch.index.analysis.AnalysisCache;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.query.QueryParseContext;
 
@@ -173,4 +174,16 @@ public interface FieldMapper<T> {
     Filter rangeFilter(String lowerTerm, String upperTerm, boolean includeLower, boolean includeUpper);
 
     FieldDataType fieldDataType();
+
+    /**
+     * Should the field data ordinals of the field be written to a per segment column (see
+     * {@link org.elasticsearch.index.field.data.support.DocValues}).
+     */
+    boolean docValues();
+
+    /**
+     * The cache of the tokens recently indexed values were analyzed into, <tt>null</tt> if values of the
+     * field are not cached.
+     */
+    AnalysisCache analysisCache();
 }
@@ -96,7 +96,13 @@ public class ParseContext {
         this.parsedIdState = ParsedIdState.NO;
         this.mappersAdded = false;
         this.listener = listener == null ? DocumentMapper.ParseListener.EMPTY : listener;
-        this.allEntries = new AllEntries();
+        if (docMapper.allFieldMapper().enabled()) {
+            // the entries are read when the document is indexed, so each document needs its own
+            this.allEntries = new AllEntries();
+        } else {
+            // nothing gets added to them, no need to allocate new ones
+            this.allEntries.clear();
+        }
         this.ignoredValues.clear();
     }
 
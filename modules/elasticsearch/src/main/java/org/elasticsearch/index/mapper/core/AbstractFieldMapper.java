@@ -32,6 +32,7 @@ import org.apache.lucene.search.TermRangeQuery;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.TermFilter;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.analysis.AnalysisCache;
 import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.mapper.FieldMapper;
@@ -418,6 +419,14 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
         return FieldDataType.DefaultTypes.STRING;
     }
 
+    @Override public boolean docValues() {
+        return false;
+    }
+
+    @Override public AnalysisCache analysisCache() {
+        return null;
+    }
+
     @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(names.name());
         doXContentBody(builder);
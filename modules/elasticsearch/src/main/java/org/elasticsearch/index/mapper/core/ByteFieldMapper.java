@@ -77,6 +77,7 @@ public class ByteFieldMapper extends NumberFieldMapper<Byte> {
             ByteFieldMapper fieldMapper = new ByteFieldMapper(buildNames(context),
                     precisionStep, fuzzyFactor, index, store, boost, omitNorms, omitTermFreqAndPositions, nullValue);
             fieldMapper.includeInAll(includeInAll);
+            fieldMapper.docValues(docValues);
             return fieldMapper;
         }
     }
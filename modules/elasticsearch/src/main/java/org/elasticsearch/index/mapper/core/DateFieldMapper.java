@@ -88,6 +88,7 @@ public class DateFieldMapper extends NumberFieldMapper<Long> {
             DateFieldMapper fieldMapper = new DateFieldMapper(buildNames(context), dateTimeFormatter,
                     precisionStep, fuzzyFactor, index, store, boost, omitNorms, omitTermFreqAndPositions, nullValue);
             fieldMapper.includeInAll(includeInAll);
+            fieldMapper.docValues(docValues);
             return fieldMapper;
         }
     }
@@ -77,6 +77,7 @@ public class DoubleFieldMapper extends NumberFieldMapper<Double> {
             DoubleFieldMapper fieldMapper = new DoubleFieldMapper(buildNames(context),
                     precisionStep, fuzzyFactor, index, store, boost, omitNorms, omitTermFreqAndPositions, nullValue);
             fieldMapper.includeInAll(includeInAll);
+            fieldMapper.docValues(docValues);
             return fieldMapper;
         }
     }
@@ -78,6 +78,7 @@ public class FloatFieldMapper extends NumberFieldMapper<Float> {
             FloatFieldMapper fieldMapper = new FloatFieldMapper(buildNames(context),
                     precisionStep, fuzzyFactor, index, store, boost, omitNorms, omitTermFreqAndPositions, nullValue);
             fieldMapper.includeInAll(includeInAll);
+            fieldMapper.docValues(docValues);
             return fieldMapper;
         }
     }
@@ -78,6 +78,7 @@ public class IntegerFieldMapper extends NumberFieldMapper<Integer> {
             IntegerFieldMapper fieldMapper = new IntegerFieldMapper(buildNames(context),
                     precisionStep, fuzzyFactor, index, store, boost, omitNorms, omitTermFreqAndPositions, nullValue);
             fieldMapper.includeInAll(includeInAll);
+            fieldMapper.docValues(docValues);
             return fieldMapper;
         }
     }
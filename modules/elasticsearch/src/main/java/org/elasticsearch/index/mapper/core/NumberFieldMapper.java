@@ -27,6 +27,7 @@ import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.cache.field.data.FieldDataCache;
 import org.elasticsearch.index.field.data.FieldDataType;
@@ -36,6 +37,7 @@ import org.elasticsearch.index.mapper.MergeMappingException;
 import org.elasticsearch.index.mapper.internal.AllFieldMapper;
 import org.elasticsearch.index.query.QueryParseContext;
 
+import java.io.IOException;
 import java.io.Reader;
 
 /**
@@ -49,6 +51,7 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
         public static final boolean OMIT_NORMS = true;
         public static final boolean OMIT_TERM_FREQ_AND_POSITIONS = true;
         public static final String FUZZY_FACTOR = null;
+        public static final boolean DOC_VALUES = false;
     }
 
     public abstract static class Builder<T extends Builder, Y extends NumberFieldMapper> extends AbstractFieldMapper.Builder<T, Y> {
@@ -57,6 +60,8 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
 
         protected String fuzzyFactor = Defaults.FUZZY_FACTOR;
 
+        protected boolean docValues = Defaults.DOC_VALUES;
+
         public Builder(String name) {
             super(name);
             this.index = Defaults.INDEX;
@@ -89,6 +94,11 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
             this.fuzzyFactor = fuzzyFactor;
             return builder;
         }
+
+        public T docValues(boolean docValues) {
+            this.docValues = docValues;
+            return builder;
+        }
     }
 
     protected int precisionStep;
@@ -99,6 +109,8 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
 
     protected Boolean includeInAll;
 
+    protected boolean docValues = Defaults.DOC_VALUES;
+
     private ThreadLocal<NumericTokenStream> tokenStream = new ThreadLocal<NumericTokenStream>() {
         @Override protected NumericTokenStream initialValue() {
             return new NumericTokenStream(precisionStep);
@@ -126,6 +138,14 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
         return Double.parseDouble(fuzzyFactor);
     }
 
+    public void docValues(boolean docValues) {
+        this.docValues = docValues;
+    }
+
+    @Override public boolean docValues() {
+        return this.docValues;
+    }
+
     @Override public void includeInAll(Boolean includeInAll) {
         if (includeInAll != null) {
             this.includeInAll = includeInAll;
@@ -202,6 +222,14 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
             this.includeInAll = ((NumberFieldMapper) mergeWith).includeInAll;
             this.fuzzyFactor = ((NumberFieldMapper) mergeWith).fuzzyFactor;
             this.dFuzzyFactor = parseFuzzyFactor(this.fuzzyFactor);
+            this.docValues = ((NumberFieldMapper) mergeWith).docValues;
+        }
+    }
+
+    @Override protected void doXContentBody(XContentBuilder builder) throws IOException {
+        super.doXContentBody(builder);
+        if (docValues != Defaults.DOC_VALUES) {
+            builder.field("doc_values", docValues);
         }
     }
 
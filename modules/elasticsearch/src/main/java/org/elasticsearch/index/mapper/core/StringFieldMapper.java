@@ -24,6 +24,7 @@ import org.apache.lucene.document.Fieldable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.analysis.AnalysisCache;
 import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.mapper.Mapper;
 import org.elasticsearch.index.mapper.MapperParsingException;
@@ -35,6 +36,7 @@ import org.elasticsearch.index.mapper.internal.AllFieldMapper;
 import java.io.IOException;
 import java.util.Map;
 
+import static org.elasticsearch.common.xcontent.support.XContentMapValues.*;
 import static org.elasticsearch.index.mapper.MapperBuilders.*;
 import static org.elasticsearch.index.mapper.core.TypeParsers.*;
 
@@ -48,12 +50,18 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
     public static class Defaults extends AbstractFieldMapper.Defaults {
         // NOTE, when adding defaults here, make sure you add them in the builder
         public static final String NULL_VALUE = null;
+        public static final boolean DOC_VALUES = false;
+        public static final int ANALYSIS_CACHE_SIZE = 0;
     }
 
     public static class Builder extends AbstractFieldMapper.OpenBuilder<Builder, StringFieldMapper> {
 
         protected String nullValue = Defaults.NULL_VALUE;
 
+        protected boolean docValues = Defaults.DOC_VALUES;
+
+        protected int analysisCacheSize = Defaults.ANALYSIS_CACHE_SIZE;
+
         public Builder(String name) {
             super(name);
             builder = this;
@@ -64,6 +72,20 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
             return this;
         }
 
+        public Builder docValues(boolean docValues) {
+            this.docValues = docValues;
+            return this;
+        }
+
+        /**
+         * The number of recently indexed values to cache the analyzed tokens of, <tt>0</tt> (the default) to
+         * not cache them.
+         */
+        public Builder analysisCacheSize(int analysisCacheSize) {
+            this.analysisCacheSize = analysisCacheSize;
+            return this;
+        }
+
         @Override public Builder includeInAll(Boolean includeInAll) {
             this.includeInAll = includeInAll;
             return this;
@@ -74,6 +96,8 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
                     index, store, termVector, boost, omitNorms, omitTermFreqAndPositions, nullValue,
                     indexAnalyzer, searchAnalyzer);
             fieldMapper.includeInAll(includeInAll);
+            fieldMapper.docValues(docValues);
+            fieldMapper.analysisCacheSize(analysisCacheSize);
             return fieldMapper;
         }
     }
@@ -87,6 +111,10 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
                 Object propNode = entry.getValue();
                 if (propName.equals("null_value")) {
                     builder.nullValue(propNode.toString());
+                } else if (propName.equals("doc_values")) {
+                    builder.docValues(nodeBooleanValue(propNode));
+                } else if (propName.equals("analysis_cache_size")) {
+                    builder.analysisCacheSize(nodeIntegerValue(propNode));
                 }
             }
             return builder;
@@ -97,6 +125,10 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
 
     private Boolean includeInAll;
 
+    private boolean docValues = Defaults.DOC_VALUES;
+
+    private AnalysisCache analysisCache;
+
     protected StringFieldMapper(Names names, Field.Index index, Field.Store store, Field.TermVector termVector,
                                 float boost, boolean omitNorms, boolean omitTermFreqAndPositions,
                                 String nullValue, NamedAnalyzer indexAnalyzer, NamedAnalyzer searchAnalyzer) {
@@ -104,6 +136,22 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
         this.nullValue = nullValue;
     }
 
+    public void docValues(boolean docValues) {
+        this.docValues = docValues;
+    }
+
+    @Override public boolean docValues() {
+        return this.docValues;
+    }
+
+    public void analysisCacheSize(int analysisCacheSize) {
+        this.analysisCache = analysisCacheSize > 0 ? new AnalysisCache(analysisCacheSize) : null;
+    }
+
+    @Override public AnalysisCache analysisCache() {
+        return this.analysisCache;
+    }
+
     @Override public void includeInAll(Boolean includeInAll) {
         if (includeInAll != null) {
             this.includeInAll = includeInAll;
@@ -187,9 +235,14 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
         if (!this.getClass().equals(mergeWith.getClass())) {
             return;
         }
+        AnalysisCache mergeWithAnalysisCache = ((StringFieldMapper) mergeWith).analysisCache;
+        if ((analysisCache == null ? 0 : analysisCache.size()) != (mergeWithAnalysisCache == null ? 0 : mergeWithAnalysisCache.size())) {
+            mergeContext.addConflict("mapper [" + names.fullName() + "] has different analysis_cache_size values");
+        }
         if (!mergeContext.mergeFlags().simulate()) {
             this.includeInAll = ((StringFieldMapper) mergeWith).includeInAll;
             this.nullValue = ((StringFieldMapper) mergeWith).nullValue;
+            this.docValues = ((StringFieldMapper) mergeWith).docValues;
         }
     }
 
@@ -216,5 +269,11 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
         if (includeInAll != null) {
             builder.field("include_in_all", includeInAll);
         }
+        if (docValues != Defaults.DOC_VALUES) {
+            builder.field("doc_values", docValues);
+        }
+        if (analysisCache != null) {
+            builder.field("analysis_cache_size", analysisCache.size());
+        }
     }
 }
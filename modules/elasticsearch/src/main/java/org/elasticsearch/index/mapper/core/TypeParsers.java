@@ -46,6 +46,8 @@ public class TypeParsers {
                 builder.precisionStep(nodeIntegerValue(propNode));
             } else if (propName.equals("fuzzy_factor")) {
                 builder.fuzzyFactor(propNode.toString());
+            } else if (propName.equals("doc_values")) {
+                builder.docValues(nodeBooleanValue(propNode));
             }
         }
     }
@@ -26,6 +26,7 @@ import org.elasticsearch.common.trove.list.array.TDoubleArrayList;
 import org.elasticsearch.common.unit.DistanceUnit;
 import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.field.data.FieldDataType;
+import org.elasticsearch.index.field.data.support.DocValues;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
 import org.elasticsearch.index.search.geo.GeoDistance;
 import org.elasticsearch.index.search.geo.GeoHashUtils;
@@ -178,5 +179,9 @@ public abstract class GeoPointFieldData extends FieldData<GeoPointDocFieldData>
         @Override public GeoPointFieldData buildMultiValue(String field, int[][] ordinals) {
             return new MultiValueGeoPointFieldData(field, ordinals, lat.toArray(), lon.toArray());
         }
+
+        @Override public GeoPointFieldData buildDocValues(String field, DocValues ordinals) {
+            throw new UnsupportedOperationException("doc values are not supported for geo points");
+        }
     }
 }
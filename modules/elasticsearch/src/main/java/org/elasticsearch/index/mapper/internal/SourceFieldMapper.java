@@ -31,6 +31,9 @@ import org.elasticsearch.common.compress.lzf.LZFEncoder;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.mapper.InternalMapper;
 import org.elasticsearch.index.mapper.Mapper;
 import org.elasticsearch.index.mapper.MergeContext;
@@ -53,6 +56,7 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
         public static final String NAME = SourceFieldMapper.NAME;
         public static final boolean ENABLED = true;
         public static final long COMPRESS_THRESHOLD = -1;
+        public static final XContentType FORMAT = null;
         public static final Field.Index INDEX = Field.Index.NO;
         public static final Field.Store STORE = Field.Store.YES;
         public static final boolean OMIT_NORMS = true;
@@ -67,6 +71,8 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
 
         private Boolean compress = null;
 
+        private XContentType format = Defaults.FORMAT;
+
         public Builder() {
             super(Defaults.NAME);
         }
@@ -86,8 +92,16 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
             return this;
         }
 
+        /**
+         * The format the source is stored in, <tt>null</tt> (the default) to store it as provided.
+         */
+        public Builder format(XContentType format) {
+            this.format = format;
+            return this;
+        }
+
         @Override public SourceFieldMapper build(BuilderContext context) {
-            return new SourceFieldMapper(name, enabled, compress, compressThreshold);
+            return new SourceFieldMapper(name, enabled, compress, compressThreshold, format);
         }
     }
 
@@ -97,18 +111,21 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
 
     private long compressThreshold;
 
+    private XContentType format;
+
     private final SourceFieldSelector fieldSelector;
 
     public SourceFieldMapper() {
-        this(Defaults.NAME, Defaults.ENABLED, null, -1);
+        this(Defaults.NAME, Defaults.ENABLED, null, -1, Defaults.FORMAT);
     }
 
-    protected SourceFieldMapper(String name, boolean enabled, Boolean compress, long compressThreshold) {
+    protected SourceFieldMapper(String name, boolean enabled, Boolean compress, long compressThreshold, XContentType format) {
         super(new Names(name, name, name, name), Defaults.INDEX, Defaults.STORE, Defaults.TERM_VECTOR, Defaults.BOOST,
                 Defaults.OMIT_NORMS, Defaults.OMIT_TERM_FREQ_AND_POSITIONS, Lucene.KEYWORD_ANALYZER, Lucene.KEYWORD_ANALYZER);
         this.enabled = enabled;
         this.compress = compress;
         this.compressThreshold = compressThreshold;
+        this.format = format;
         this.fieldSelector = new SourceFieldSelector(names.indexName());
     }
 
@@ -120,6 +137,10 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
         return this.fieldSelector;
     }
 
+    public XContentType format() {
+        return this.format;
+    }
+
     @Override protected Field parseCreateField(ParseContext context) throws IOException {
         if (!enabled) {
             return null;
@@ -131,6 +152,10 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
             return null;
         }
         byte[] data = context.source();
+        if (format != null) {
+            data = convert(data, format);
+            context.source(data);
+        }
         if (compress != null && compress && !LZF.isCompressed(data)) {
             if (compressThreshold == -1 || data.length > compressThreshold) {
                 data = LZFEncoder.encode(data, data.length);
@@ -140,6 +165,29 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
         return new Field(names().indexName(), data);
     }
 
+    /**
+     * Converts the source to the provided format, returns the source as is if it is already in that format. With
+     * smile, repeated field names (across the objects of an array for example) are stored as back references.
+     */
+    private static byte[] convert(byte[] data, XContentType format) throws IOException {
+        byte[] source = data;
+        if (LZF.isCompressed(source)) {
+            source = LZFDecoder.decode(source);
+        }
+        if (XContentFactory.xContentType(source) == format) {
+            return data;
+        }
+        XContentParser parser = XContentFactory.xContent(source).createParser(source);
+        try {
+            XContentBuilder builder = XContentFactory.unCachedContentBuilder(format);
+            parser.nextToken();
+            builder.copyCurrentStructure(parser);
+            return builder.copiedBytes();
+        } finally {
+            parser.close();
+        }
+    }
+
     public byte[] value(Document document) {
         Fieldable field = document.getFieldable(names.indexName());
         return field == null ? null : value(field);
@@ -198,7 +246,7 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
 
     @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         // all are defaults, no need to write it at all
-        if (enabled == Defaults.ENABLED && compress == null && compressThreshold == -1) {
+        if (enabled == Defaults.ENABLED && compress == null && compressThreshold == -1 && format == Defaults.FORMAT) {
             return builder;
         }
         builder.startObject(contentType());
@@ -211,6 +259,9 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
         if (compressThreshold != -1) {
             builder.field("compress_threshold", new ByteSizeValue(compressThreshold).toString());
         }
+        if (format != Defaults.FORMAT) {
+            builder.field("format", format.name().toLowerCase());
+        }
         builder.endObject();
         return builder;
     }
@@ -224,6 +275,9 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
             if (sourceMergeWith.compressThreshold != -1) {
                 this.compressThreshold = sourceMergeWith.compressThreshold;
             }
+            if (sourceMergeWith.format != Defaults.FORMAT) {
+                this.format = sourceMergeWith.format;
+            }
         }
     }
 }
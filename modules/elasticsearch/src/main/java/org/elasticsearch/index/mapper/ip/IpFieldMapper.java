@@ -110,6 +110,7 @@ public class IpFieldMapper extends NumberFieldMapper<Long> {
             IpFieldMapper fieldMapper = new IpFieldMapper(buildNames(context),
                     precisionStep, index, store, boost, omitNorms, omitTermFreqAndPositions, nullValue);
             fieldMapper.includeInAll(includeInAll);
+            fieldMapper.docValues(docValues);
             return fieldMapper;
         }
     }
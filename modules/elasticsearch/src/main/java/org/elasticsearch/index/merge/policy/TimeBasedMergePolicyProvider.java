@@ -0,0 +1,238 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.TimeBasedMergePolicy;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.settings.IndexSettingsService;
+import org.elasticsearch.index.shard.AbstractIndexShardComponent;
+import org.elasticsearch.index.store.Store;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * A merge policy provider for time based indices, see {@link TimeBasedMergePolicy}. Use it by setting
+ * <tt>index.merge.policy.type</tt> to <tt>time_based</tt>, and <tt>index.merge.policy.time_field</tt> to
+ * the (date) field holding the time of each document.
+ */
+public class TimeBasedMergePolicyProvider extends AbstractIndexShardComponent implements MergePolicyProvider<TimeBasedMergePolicy> {
+
+    private final IndexSettingsService indexSettingsService;
+
+    private final Set<CustomTimeBasedMergePolicy> policies = new CopyOnWriteArraySet<CustomTimeBasedMergePolicy>();
+
+    private volatile boolean compoundFormat;
+    private volatile double expungeDeletesPctAllowed;
+    private volatile ByteSizeValue floorSegment;
+    private volatile int maxMergeAtOnce;
+    private volatile int maxMergeAtOnceExplicit;
+    private volatile ByteSizeValue maxMergedSegment;
+    private volatile double segmentsPerTier;
+    private final String timeField;
+    private final int timeFieldShift;
+    private volatile TimeValue maxMergeAge;
+    private volatile double frozenExpungeDeletesPctAllowed;
+    private volatile double reclaimDeletesWeight;
+    private boolean asyncMerge;
+
+    private final ApplySettings applySettings = new ApplySettings();
+
+    @Inject public TimeBasedMergePolicyProvider(Store store, IndexSettingsService indexSettingsService) {
+        super(store.shardId(), store.indexSettings());
+        this.indexSettingsService = indexSettingsService;
+
+        this.compoundFormat = indexSettings.getAsBoolean("index.compound_format", store.suggestUseCompoundFile());
+        this.asyncMerge = indexSettings.getAsBoolean("index.merge.async", true);
+        this.expungeDeletesPctAllowed = componentSettings.getAsDouble("expunge_deletes_allowed", 10d); // percentage
+        this.floorSegment = componentSettings.getAsBytesSize("floor_segment", new ByteSizeValue(2, ByteSizeUnit.MB));
+        this.maxMergeAtOnce = componentSettings.getAsInt("max_merge_at_once", 10);
+        this.maxMergeAtOnceExplicit = componentSettings.getAsInt("max_merge_at_once_explicit", 30);
+        this.maxMergedSegment = componentSettings.getAsBytesSize("max_merge_segment", new ByteSizeValue(5, ByteSizeUnit.GB));
+        this.segmentsPerTier = componentSettings.getAsDouble("segments_per_tier", 10d);
+        this.timeField = componentSettings.get("time_field");
+        // the default date precision step is 4, so shift 16 means the time range is accurate to ~65 seconds
+        this.timeFieldShift = componentSettings.getAsInt("time_field_shift", 16);
+        if (timeFieldShift < 0 || timeFieldShift > 63) {
+            throw new ElasticSearchIllegalArgumentException("[time_field_shift] must be between 0 and 63, got [" + timeFieldShift + "]");
+        }
+        this.maxMergeAge = componentSettings.getAsTime("max_merge_age", TimeValue.timeValueMillis(-1));
+        this.frozenExpungeDeletesPctAllowed = componentSettings.getAsDouble("frozen_expunge_deletes_allowed", 30d); // percentage
+        this.reclaimDeletesWeight = componentSettings.getAsDouble("reclaim_deletes_weight", 2d);
+
+        logger.debug("using [time_based] merge policy with time_field[{}], time_field_shift[{}], max_merge_age[{}], frozen_expunge_deletes_allowed[{}], reclaim_deletes_weight[{}], floor_segment[{}], max_merge_at_once[{}], max_merge_segment[{}], segments_per_tier[{}], async_merge[{}]",
+                timeField, timeFieldShift, maxMergeAge, frozenExpungeDeletesPctAllowed, reclaimDeletesWeight, floorSegment, maxMergeAtOnce, maxMergedSegment, segmentsPerTier, asyncMerge);
+
+        indexSettingsService.addListener(applySettings);
+    }
+
+    @Override public TimeBasedMergePolicy newMergePolicy() {
+        CustomTimeBasedMergePolicy mergePolicy;
+        if (asyncMerge) {
+            mergePolicy = new EnableMergeTimeBasedMergePolicy(this);
+        } else {
+            mergePolicy = new CustomTimeBasedMergePolicy(this);
+        }
+        mergePolicy.setUseCompoundFile(compoundFormat);
+        mergePolicy.setExpungeDeletesPctAllowed(expungeDeletesPctAllowed);
+        mergePolicy.setFloorSegmentMB(floorSegment.mbFrac());
+        mergePolicy.setMaxMergeAtOnce(maxMergeAtOnce);
+        mergePolicy.setMaxMergeAtOnceExplicit(maxMergeAtOnceExplicit);
+        mergePolicy.setMaxMergedSegmentMB(maxMergedSegment.mbFrac());
+        mergePolicy.setSegmentsPerTier(segmentsPerTier);
+        mergePolicy.setTimeField(timeField);
+        mergePolicy.setTimeFieldShift(timeFieldShift);
+        mergePolicy.setMaxMergeAgeInMillis(maxMergeAge.millis());
+        mergePolicy.setFrozenExpungeDeletesPctAllowed(frozenExpungeDeletesPctAllowed);
+        mergePolicy.setReclaimDeletesWeight(reclaimDeletesWeight);
+        policies.add(mergePolicy);
+        return mergePolicy;
+    }
+
+    @Override public void close(boolean delete) throws ElasticSearchException {
+        indexSettingsService.removeListener(applySettings);
+    }
+
+    static {
+        IndexMetaData.addDynamicSettings(
+                "index.merge.policy.max_merge_age",
+                "index.merge.policy.frozen_expunge_deletes_allowed",
+                "index.merge.policy.reclaim_deletes_weight"
+        );
+    }
+
+    class ApplySettings implements IndexSettingsService.Listener {
+        @Override public void onRefreshSettings(Settings settings) {
+            TimeValue maxMergeAge = settings.getAsTime("index.merge.policy.max_merge_age", TimeBasedMergePolicyProvider.this.maxMergeAge);
+            if (!maxMergeAge.equals(TimeBasedMergePolicyProvider.this.maxMergeAge)) {
+                logger.info("updating [max_merge_age] from [{}] to [{}]", TimeBasedMergePolicyProvider.this.maxMergeAge, maxMergeAge);
+                TimeBasedMergePolicyProvider.this.maxMergeAge = maxMergeAge;
+                for (CustomTimeBasedMergePolicy policy : policies) {
+                    policy.setMaxMergeAgeInMillis(maxMergeAge.millis());
+                }
+            }
+
+            double frozenExpungeDeletesPctAllowed = settings.getAsDouble("index.merge.policy.frozen_expunge_deletes_allowed", TimeBasedMergePolicyProvider.this.frozenExpungeDeletesPctAllowed);
+            if (frozenExpungeDeletesPctAllowed != TimeBasedMergePolicyProvider.this.frozenExpungeDeletesPctAllowed) {
+                logger.info("updating [frozen_expunge_deletes_allowed] from [{}] to [{}]", TimeBasedMergePolicyProvider.this.frozenExpungeDeletesPctAllowed, frozenExpungeDeletesPctAllowed);
+                TimeBasedMergePolicyProvider.this.frozenExpungeDeletesPctAllowed = frozenExpungeDeletesPctAllowed;
+                for (CustomTimeBasedMergePolicy policy : policies) {
+                    policy.setFrozenExpungeDeletesPctAllowed(frozenExpungeDeletesPctAllowed);
+                }
+            }
+
+            double reclaimDeletesWeight = settings.getAsDouble("index.merge.policy.reclaim_deletes_weight", TimeBasedMergePolicyProvider.this.reclaimDeletesWeight);
+            if (reclaimDeletesWeight != TimeBasedMergePolicyProvider.this.reclaimDeletesWeight) {
+                logger.info("updating [reclaim_deletes_weight] from [{}] to [{}]", TimeBasedMergePolicyProvider.this.reclaimDeletesWeight, reclaimDeletesWeight);
+                TimeBasedMergePolicyProvider.this.reclaimDeletesWeight = reclaimDeletesWeight;
+                for (CustomTimeBasedMergePolicy policy : policies) {
+                    policy.setReclaimDeletesWeight(reclaimDeletesWeight);
+                }
+            }
+        }
+    }
+
+    public static class CustomTimeBasedMergePolicy extends TimeBasedMergePolicy {
+
+        private final TimeBasedMergePolicyProvider provider;
+
+        private volatile boolean shiftMismatchLogged;
+
+        public CustomTimeBasedMergePolicy(TimeBasedMergePolicyProvider provider) {
+            super();
+            this.provider = provider;
+        }
+
+        @Override protected void onTimeFieldShiftMismatch(SegmentInfo info, String timeField, int shift) {
+            if (!shiftMismatchLogged) {
+                shiftMismatchLogged = true;
+                provider.logger.warn("[time_field_shift] [{}] is not a multiple of the precision step of [{}] (segment [{}]), segments are not ordered by time", shift, timeField, info.name);
+            }
+        }
+
+        @Override public void close() {
+            super.close();
+            provider.policies.remove(this);
+        }
+    }
+
+    public static class EnableMergeTimeBasedMergePolicy extends CustomTimeBasedMergePolicy implements EnableMergePolicy {
+
+        private final ThreadLocal<Boolean> enableMerge = new ThreadLocal<Boolean>() {
+            @Override protected Boolean initialValue() {
+                return Boolean.FALSE;
+            }
+        };
+
+        public EnableMergeTimeBasedMergePolicy(TimeBasedMergePolicyProvider provider) {
+            super(provider);
+        }
+
+        @Override public void enableMerge() {
+            enableMerge.set(Boolean.TRUE);
+        }
+
+        @Override public void disableMerge() {
+            enableMerge.set(Boolean.FALSE);
+        }
+
+        @Override public boolean isMergeEnabled() {
+            return enableMerge.get() == Boolean.TRUE;
+        }
+
+        @Override public void close() {
+            enableMerge.remove();
+            super.close();
+        }
+
+        @Override public MergePolicy.MergeSpecification findMerges(SegmentInfos infos) throws IOException {
+            if (enableMerge.get() == Boolean.FALSE) {
+                return null;
+            }
+            return super.findMerges(infos);
+        }
+
+        @Override public MergePolicy.MergeSpecification findMergesToExpungeDeletes(SegmentInfos segmentInfos) throws CorruptIndexException, IOException {
+            if (enableMerge.get() == Boolean.FALSE) {
+                return null;
+            }
+            return super.findMergesToExpungeDeletes(segmentInfos);
+        }
+
+        @Override public MergePolicy.MergeSpecification findMergesForOptimize(SegmentInfos infos, int maxNumSegments, Set<SegmentInfo> segmentsToOptimize) throws IOException {
+            if (enableMerge.get() == Boolean.FALSE) {
+                return null;
+            }
+            return super.findMergesForOptimize(infos, maxNumSegments, segmentsToOptimize);
+        }
+    }
+}
@@ -37,18 +37,20 @@ class RecoveryFileChunkRequest implements Streamable {
     private long position;
     private long length;
     private String checksum;
+    private String contentChecksum;
     private byte[] content;
     private int contentLength;
 
     RecoveryFileChunkRequest() {
     }
 
-    RecoveryFileChunkRequest(ShardId shardId, String name, long position, long length, String checksum, byte[] content, int contentLength) {
+    RecoveryFileChunkRequest(ShardId shardId, String name, long position, long length, String checksum, @Nullable String contentChecksum, byte[] content, int contentLength) {
         this.shardId = shardId;
         this.name = name;
         this.position = position;
         this.length = length;
         this.checksum = checksum;
+        this.contentChecksum = contentChecksum;
         this.content = content;
         this.contentLength = contentLength;
     }
@@ -69,6 +71,13 @@ class RecoveryFileChunkRequest implements Streamable {
         return this.checksum;
     }
 
+    /**
+     * The checksum of the full file content as read by the source, only sent with the last chunk.
+     */
+    @Nullable public String contentChecksum() {
+        return this.contentChecksum;
+    }
+
     public long length() {
         return length;
     }
@@ -95,6 +104,9 @@ class RecoveryFileChunkRequest implements Streamable {
         if (in.readBoolean()) {
             checksum = in.readUTF();
         }
+        if (in.readBoolean()) {
+            contentChecksum = in.readUTF();
+        }
         contentLength = in.readVInt();
         content = new byte[contentLength];
         in.readFully(content);
@@ -111,6 +123,12 @@ class RecoveryFileChunkRequest implements Streamable {
             out.writeBoolean(true);
             out.writeUTF(checksum);
         }
+        if (contentChecksum == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeUTF(contentChecksum);
+        }
         out.writeVInt(contentLength);
         out.writeBytes(content, 0, contentLength);
     }
@@ -0,0 +1,274 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.shard.recovery;
+
+import org.elasticsearch.common.collect.Maps;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.DynamicExecutors;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A node level scheduler for shard recoveries. On the target side, it caps the number of recoveries running
+ * concurrently on the node and starts pending ones by priority (primaries first, then replicas of red indices,
+ * then replicas, and last relocations done for rebalancing). On the source side, it provides the single bounded
+ * pool used to send file chunks and a throughput budget shared by all the recoveries the node serves.
+ */
+public class RecoveryScheduler extends AbstractComponent {
+
+    public static enum Priority {
+        /**
+         * A primary shard recovering from the gateway.
+         */
+        PRIMARY,
+        /**
+         * A replica of an index that has some of its primaries not active.
+         */
+        RED_REPLICA,
+        /**
+         * A replica recovering from its primary.
+         */
+        REPLICA,
+        /**
+         * A shard relocating to this node (rebalancing).
+         */
+        RELOCATION
+    }
+
+    private final ThreadPool threadPool;
+
+    private final int concurrentRecoveries;
+
+    private final int concurrentStreams;
+
+    private final ExecutorService concurrentStreamPool;
+
+    private final ByteSizeValue maxSizePerSec;
+
+    private final double nanosPerByte;
+
+    private final Object throttleMutex = new Object();
+
+    private long throttleNextNanos;
+
+    private final AtomicLong throttleTime = new AtomicLong();
+
+    private final PriorityQueue<ScheduledRecovery> pending = new PriorityQueue<ScheduledRecovery>();
+
+    // the shard instance of each running recovery
+    private final Map<ShardId, Object> running = Maps.newHashMap();
+
+    private long seq;
+
+    @Inject public RecoveryScheduler(Settings settings, ThreadPool threadPool) {
+        super(settings);
+        this.threadPool = threadPool;
+
+        // by default, allow as many recoveries as the allocation can throttle to, so we only order them
+        int allocationRecoveries = settings.getAsInt("cluster.routing.allocation.node_concurrent_recoveries", 2) + settings.getAsInt("cluster.routing.allocation.node_initial_primaries_recoveries", 4);
+        this.concurrentRecoveries = componentSettings.getAsInt("concurrent_recoveries", allocationRecoveries);
+
+        this.concurrentStreams = componentSettings.getAsInt("concurrent_streams", 5);
+        this.concurrentStreamPool = DynamicExecutors.newScalingThreadPool(1, concurrentStreams, TimeValue.timeValueSeconds(5).millis(), EsExecutors.daemonThreadFactory(settings, "[recovery_stream]"));
+
+        this.maxSizePerSec = componentSettings.getAsBytesSize("max_size_per_sec", new ByteSizeValue(0));
+        if (maxSizePerSec.bytes() <= 0) {
+            this.nanosPerByte = 0;
+        } else {
+            this.nanosPerByte = ((double) TimeValue.timeValueSeconds(1).nanos()) / maxSizePerSec.bytes();
+        }
+
+        logger.debug("using concurrent_recoveries [{}], concurrent_streams [{}], max_size_per_sec [{}]", concurrentRecoveries, concurrentStreams, maxSizePerSec);
+    }
+
+    public void close() {
+        concurrentStreamPool.shutdown();
+    }
+
+    /**
+     * The pool used to send recovery files chunks, shared by all the recoveries this node is the source of.
+     */
+    public ExecutorService streamPool() {
+        return this.concurrentStreamPool;
+    }
+
+    /**
+     * Schedules a recovery of the provided shard instance. The recovery is executed (on the cached thread pool) once
+     * there is a free slot, with higher priorities executed first. {@link #recoveryDone(ShardId, Object)} must be
+     * called once the recovery is done (regardless if it failed or not) to free its slot.
+     *
+     * <p>Returns <tt>false</tt> if a recovery for the same shard instance is already pending or running, in which case
+     * the provided one is ignored. A recovery of a former instance of the shard (closed and created again on this
+     * node) is stale: it is dropped if still pending, and the provided one starts once it is done if running.
+     */
+    public boolean schedule(ShardId shardId, Object shard, Priority priority, Runnable recovery) {
+        synchronized (pending) {
+            Object runningShard = running.get(shardId);
+            if (runningShard == shard) {
+                return false;
+            }
+            for (Iterator<ScheduledRecovery> it = pending.iterator(); it.hasNext(); ) {
+                ScheduledRecovery scheduledRecovery = it.next();
+                if (!scheduledRecovery.shardId.equals(shardId)) {
+                    continue;
+                }
+                if (scheduledRecovery.shard == shard) {
+                    return false;
+                }
+                logger.debug("[{}][{}] dropping pending recovery of a former instance of the shard", shardId.index().name(), shardId.id());
+                it.remove();
+            }
+            pending.add(new ScheduledRecovery(shardId, shard, priority, seq++, recovery));
+            if (logger.isTraceEnabled()) {
+                logger.trace("[{}][{}] scheduled recovery with priority [{}], running [{}], pending [{}]", shardId.index().name(), shardId.id(), priority, running.size(), pending.size());
+            }
+        }
+        startPending();
+        return true;
+    }
+
+    /**
+     * Frees the slot the recovery of the provided shard instance took, starting the next pending recovery.
+     */
+    public void recoveryDone(ShardId shardId, Object shard) {
+        synchronized (pending) {
+            if (running.get(shardId) != shard) {
+                return;
+            }
+            running.remove(shardId);
+        }
+        startPending();
+    }
+
+    public int runningRecoveries() {
+        synchronized (pending) {
+            return running.size();
+        }
+    }
+
+    public int pendingRecoveries() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void startPending() {
+        while (true) {
+            ScheduledRecovery next = null;
+            synchronized (pending) {
+                if (running.size() >= concurrentRecoveries) {
+                    return;
+                }
+                // the highest priority recovery of a shard that has no (stale) recovery running
+                for (ScheduledRecovery scheduledRecovery : pending) {
+                    if (running.containsKey(scheduledRecovery.shardId)) {
+                        continue;
+                    }
+                    if (next == null || scheduledRecovery.compareTo(next) < 0) {
+                        next = scheduledRecovery;
+                    }
+                }
+                if (next == null) {
+                    return;
+                }
+                pending.remove(next);
+                running.put(next.shardId, next.shard);
+            }
+            try {
+                threadPool.cached().execute(next.recovery);
+            } catch (Exception e) {
+                logger.warn("[{}][{}] failed to start scheduled recovery", e, next.shardId.index().name(), next.shardId.id());
+                synchronized (pending) {
+                    running.remove(next.shardId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Throttles the calling thread so that all the recovery bytes sent by this node stay within the
+     * <tt>max_size_per_sec</tt> budget. Returns the time (in millis) the calling thread waited.
+     */
+    public long throttle(long bytes) throws InterruptedException {
+        if (nanosPerByte == 0) {
+            return 0;
+        }
+        long pauseNanos;
+        synchronized (throttleMutex) {
+            long now = System.nanoTime();
+            // don't accumulate budget when no recovery is sending data
+            long start = Math.max(throttleNextNanos, now);
+            throttleNextNanos = start + (long) (bytes * nanosPerByte);
+            pauseNanos = start - now;
+        }
+        if (pauseNanos <= 0) {
+            return 0;
+        }
+        Thread.sleep(pauseNanos / 1000000, (int) (pauseNanos % 1000000));
+        throttleTime.addAndGet(pauseNanos);
+        return pauseNanos / 1000000;
+    }
+
+    /**
+     * The total time (in millis) recoveries sent by this node waited on the throughput budget.
+     */
+    public long throttleTime() {
+        return throttleTime.get() / 1000000;
+    }
+
+    static class ScheduledRecovery implements Comparable<ScheduledRecovery> {
+
+        final ShardId shardId;
+
+        final Object shard;
+
+        final Priority priority;
+
+        final long seq;
+
+        final Runnable recovery;
+
+        ScheduledRecovery(ShardId shardId, Object shard, Priority priority, long seq, Runnable recovery) {
+            this.shardId = shardId;
+            this.shard = shard;
+            this.priority = priority;
+            this.seq = seq;
+            this.recovery = recovery;
+        }
+
+        @Override public int compareTo(ScheduledRecovery o) {
+            int cmp = priority.compareTo(o.priority);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return seq < o.seq ? -1 : (seq == o.seq ? 0 : 1);
+        }
+    }
+}
@@ -21,23 +21,23 @@ package org.elasticsearch.index.shard.recovery;
 
 import org.apache.lucene.store.IndexInput;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.Sets;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.store.VerifyingIndexOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
-import org.elasticsearch.common.unit.TimeValue;
-import org.elasticsearch.common.util.concurrent.DynamicExecutors;
-import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.IllegalIndexShardStateException;
 import org.elasticsearch.index.shard.IndexShardClosedException;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.store.ChecksumMismatchException;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndicesService;
@@ -48,8 +48,9 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Adler32;
 
 /**
  * The source recovery accepts recovery requests from other peer shards and start the recovery process from this
@@ -77,32 +78,30 @@ public class RecoverySource extends AbstractComponent {
     private final int translogOps;
     private final ByteSizeValue translogSize;
 
-    private final ExecutorService concurrentStreamPool;
+    private final int fileRetries;
 
-    @Inject public RecoverySource(Settings settings, ThreadPool threadPool, TransportService transportService, IndicesService indicesService) {
+    private final RecoveryScheduler recoveryScheduler;
+
+    @Inject public RecoverySource(Settings settings, ThreadPool threadPool, TransportService transportService, IndicesService indicesService,
+                                  RecoveryScheduler recoveryScheduler) {
         super(settings);
         this.threadPool = threadPool;
         this.transportService = transportService;
         this.indicesService = indicesService;
-
-        int concurrentStreams = componentSettings.getAsInt("concurrent_streams", 5);
-        this.concurrentStreamPool = DynamicExecutors.newScalingThreadPool(1, concurrentStreams, TimeValue.timeValueSeconds(5).millis(), EsExecutors.daemonThreadFactory(settings, "[recovery_stream]"));
+        this.recoveryScheduler = recoveryScheduler;
 
         this.fileChunkSize = componentSettings.getAsBytesSize("file_chunk_size", new ByteSizeValue(100, ByteSizeUnit.KB));
         this.translogOps = componentSettings.getAsInt("translog_ops", 1000);
         this.translogSize = componentSettings.getAsBytesSize("translog_size", new ByteSizeValue(100, ByteSizeUnit.KB));
         this.compress = componentSettings.getAsBoolean("compress", true);
+        this.fileRetries = componentSettings.getAsInt("file_retries", 3);
 
-        logger.debug("using concurrent_streams [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
-                concurrentStreams, fileChunkSize, translogSize, translogOps, compress);
+        logger.debug("using file_chunk_size [{}], translog_size [{}], translog_ops [{}], file_retries [{}], and compress [{}]",
+                fileChunkSize, translogSize, translogOps, fileRetries, compress);
 
         transportService.registerHandler(Actions.START_RECOVERY, new StartRecoveryTransportRequestHandler());
     }
 
-    public void close() {
-        concurrentStreamPool.shutdown();
-    }
-
     private RecoveryResponse recover(final StartRecoveryRequest request) {
         final InternalIndexShard shard = (InternalIndexShard) indicesService.indexServiceSafe(request.shardId().index().name()).shardSafe(request.shardId().id());
         logger.trace("[{}][{}] starting recovery to {}, mark_as_relocated {}", request.shardId().index().name(), request.shardId().id(), request.targetNode(), request.markAsRelocated());
@@ -151,14 +150,38 @@ public class RecoverySource extends AbstractComponent {
 
                     final CountDownLatch latch = new CountDownLatch(response.phase1FileNames.size());
                     final AtomicReference<Exception> lastException = new AtomicReference<Exception>();
+                    final AtomicLong throttlingWaitTime = new AtomicLong();
                     for (final String name : response.phase1FileNames) {
-                        concurrentStreamPool.execute(new Runnable() {
+                        recoveryScheduler.streamPool().execute(new Runnable() {
                             @Override public void run() {
+                                try {
+                                    int retries = 0;
+                                    while (true) {
+                                        try {
+                                            sendFile(name);
+                                            break;
+                                        } catch (Exception e) {
+                                            if (!(ExceptionsHelper.unwrapCause(e) instanceof ChecksumMismatchException) || ++retries > fileRetries) {
+                                                throw e;
+                                            }
+                                            logger.debug("[{}][{}] recovery [phase1] to {}: file [{}] failed checksum verification, sending it again ([{}]/[{}])", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name, retries, fileRetries);
+                                        }
+                                    }
+                                } catch (Exception e) {
+                                    lastException.set(e);
+                                } finally {
+                                    latch.countDown();
+                                }
+                            }
+
+                            private void sendFile(String name) throws Exception {
                                 IndexInput indexInput = null;
                                 try {
                                     final int BUFFER_SIZE = (int) fileChunkSize.bytes();
                                     byte[] buf = new byte[BUFFER_SIZE];
                                     StoreFileMetaData md = shard.store().metaData(name);
+                                    // compute the checksum of the content as we read it, so the target can verify the file as it streams in
+                                    Adler32 digest = new Adler32();
                                     indexInput = snapshot.getDirectory().openInput(name);
                                     long len = indexInput.length();
                                     long readCount = 0;
@@ -169,13 +192,17 @@ public class RecoverySource extends AbstractComponent {
                                         int toRead = readCount + BUFFER_SIZE > len ? (int) (len - readCount) : BUFFER_SIZE;
                                         long position = indexInput.getFilePointer();
                                         indexInput.readBytes(buf, 0, toRead, false);
-                                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, new RecoveryFileChunkRequest(request.shardId(), name, position, len, md.checksum(), buf, toRead),
+                                        digest.update(buf, 0, toRead);
+                                        // all the recoveries this node is the source of share the same throughput budget
+                                        throttlingWaitTime.addAndGet(recoveryScheduler.throttle(toRead));
+                                        String contentChecksum = null;
+                                        if (readCount + toRead == len) {
+                                            contentChecksum = VerifyingIndexOutput.toString(digest.getValue());
+                                        }
+                                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, new RecoveryFileChunkRequest(request.shardId(), name, position, len, md.checksum(), contentChecksum, buf, toRead),
                                                 TransportRequestOptions.options().withCompress(compress).withLowType(), VoidTransportResponseHandler.INSTANCE_SAME).txGet();
                                         readCount += toRead;
                                     }
-                                    indexInput.close();
-                                } catch (Exception e) {
-                                    lastException.set(e);
                                 } finally {
                                     if (indexInput != null) {
                                         try {
@@ -184,13 +211,13 @@ public class RecoverySource extends AbstractComponent {
                                             // ignore
                                         }
                                     }
-                                    latch.countDown();
                                 }
                             }
                         });
                     }
 
                     latch.await();
+                    response.phase1ThrottlingWaitTime = throttlingWaitTime.get();
 
                     if (lastException.get() != null) {
                         throw lastException.get();
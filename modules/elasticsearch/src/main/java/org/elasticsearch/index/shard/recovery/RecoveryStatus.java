@@ -19,11 +19,12 @@
 
 package org.elasticsearch.index.shard.recovery;
 
-import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.lucene.store.VerifyingIndexOutput;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -39,7 +40,7 @@ public class RecoveryStatus {
         DONE
     }
 
-    ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
+    ConcurrentMap<String, VerifyingIndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
 
     final long startTime = System.currentTimeMillis();
     long time;
@@ -53,6 +54,8 @@ public class RecoveryStatus {
     volatile Stage stage = Stage.INIT;
     volatile long currentTranslogOperations = 0;
     AtomicLong currentFilesSize = new AtomicLong();
+    AtomicLong verificationTime = new AtomicLong();
+    AtomicInteger retriedFiles = new AtomicInteger();
 
     public long startTime() {
         return startTime;
@@ -81,4 +84,18 @@ public class RecoveryStatus {
     public long currentFilesSize() {
         return currentFilesSize.get();
     }
+
+    /**
+     * The time (in millis) spent verifying the checksum of the recovered files.
+     */
+    public long verificationTime() {
+        return verificationTime.get() / 1000000;
+    }
+
+    /**
+     * The number of files that failed checksum verification and were sent again.
+     */
+    public int retriedFiles() {
+        return retriedFiles.get();
+    }
 }
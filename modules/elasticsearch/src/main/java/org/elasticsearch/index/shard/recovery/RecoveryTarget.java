@@ -19,13 +19,13 @@
 
 package org.elasticsearch.index.shard.recovery;
 
-import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.VoidStreamable;
+import org.elasticsearch.common.lucene.store.VerifyingIndexOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
@@ -36,6 +36,7 @@ import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.*;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.store.ChecksumMismatchException;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndexMissingException;
 import org.elasticsearch.indices.IndicesLifecycle;
@@ -75,14 +76,17 @@ public class RecoveryTarget extends AbstractComponent {
 
     private final IndicesService indicesService;
 
+    private final RecoveryScheduler recoveryScheduler;
+
     private final ConcurrentMap<ShardId, RecoveryStatus> onGoingRecoveries = ConcurrentCollections.newConcurrentMap();
 
     @Inject public RecoveryTarget(Settings settings, ThreadPool threadPool, TransportService transportService, IndicesService indicesService,
-                                  IndicesLifecycle indicesLifecycle) {
+                                  IndicesLifecycle indicesLifecycle, RecoveryScheduler recoveryScheduler) {
         super(settings);
         this.threadPool = threadPool;
         this.transportService = transportService;
         this.indicesService = indicesService;
+        this.recoveryScheduler = recoveryScheduler;
 
         transportService.registerHandler(Actions.FILES_INFO, new FilesInfoRequestHandler());
         transportService.registerHandler(Actions.FILE_CHUNK, new FileChunkTransportRequestHandler());
@@ -110,7 +114,7 @@ public class RecoveryTarget extends AbstractComponent {
         return peerRecoveryStatus;
     }
 
-    public void startRecovery(final StartRecoveryRequest request, final boolean fromRetry, final RecoveryListener listener) {
+    public void startRecovery(final StartRecoveryRequest request, final RecoveryScheduler.Priority priority, final boolean fromRetry, final RecoveryListener listener) {
         if (request.sourceNode() == null) {
             listener.onIgnoreRecovery(false, "No node to recover from, retry on next cluster state update");
             return;
@@ -141,11 +145,22 @@ public class RecoveryTarget extends AbstractComponent {
             listener.onIgnoreRecovery(false, "local shard closed, stop recovery");
             return;
         }
-        threadPool.cached().execute(new Runnable() {
+        // the recovery will start once the node has a free recovery slot, ordered by its priority
+        boolean scheduled = recoveryScheduler.schedule(request.shardId(), shard, priority, new Runnable() {
             @Override public void run() {
-                doRecovery(shard, request, fromRetry, listener);
+                try {
+                    doRecovery(shard, request, fromRetry, listener);
+                } finally {
+                    recoveryScheduler.recoveryDone(request.shardId(), shard);
+                }
             }
         });
+        if (!scheduled) {
+            // a recovery of this shard instance is already pending or running, it will notify its own listener, ignore this one
+            if (logger.isTraceEnabled()) {
+                logger.trace("[{}][{}] recovery already pending or running, ignoring", request.shardId().index().name(), request.shardId().id());
+            }
+        }
     }
 
     private void doRecovery(final InternalIndexShard shard, final StartRecoveryRequest request, final boolean fromRetry, final RecoveryListener listener) {
@@ -155,10 +170,11 @@ public class RecoveryTarget extends AbstractComponent {
             return;
         }
 
-        RecoveryStatus recovery;
+        RecoveryStatus recovery = null;
         if (fromRetry) {
             recovery = onGoingRecoveries.get(request.shardId());
-        } else {
+        }
+        if (recovery == null) {
             recovery = new RecoveryStatus();
             onGoingRecoveries.put(request.shardId(), recovery);
         }
@@ -260,7 +276,7 @@ public class RecoveryTarget extends AbstractComponent {
         RecoveryStatus peerRecoveryStatus = onGoingRecoveries.remove(shardId);
         if (peerRecoveryStatus != null) {
             // clean open index outputs
-            for (Map.Entry<String, IndexOutput> entry : peerRecoveryStatus.openIndexOutputs.entrySet()) {
+            for (Map.Entry<String, VerifyingIndexOutput> entry : peerRecoveryStatus.openIndexOutputs.entrySet()) {
                 synchronized (entry.getValue()) {
                     try {
                         entry.getValue().close();
@@ -422,7 +438,7 @@ public class RecoveryTarget extends AbstractComponent {
                 // shard is getting closed on us
                 throw new IndexShardClosedException(shard.shardId());
             }
-            IndexOutput indexOutput;
+            VerifyingIndexOutput indexOutput;
             if (request.position() == 0) {
                 // first request
                 indexOutput = onGoingRecovery.openIndexOutputs.remove(request.name());
@@ -434,8 +450,9 @@ public class RecoveryTarget extends AbstractComponent {
                     }
                 }
                 // we create an output with no checksum, this is because the pure binary data of the file is not
-                // the checksum (because of seek). We will create the checksum file once copying is done
-                indexOutput = shard.store().createOutputWithNoChecksum(request.name());
+                // the checksum (because of seek). We will create the checksum file once copying is done.
+                // The content itself is verified as it streams in against the checksum computed by the source
+                indexOutput = new VerifyingIndexOutput(shard.store().createOutputWithNoChecksum(request.name()));
                 onGoingRecovery.openIndexOutputs.put(request.name(), indexOutput);
             } else {
                 indexOutput = onGoingRecovery.openIndexOutputs.get(request.name());
@@ -451,12 +468,24 @@ public class RecoveryTarget extends AbstractComponent {
                     if (indexOutput.getFilePointer() == request.length()) {
                         // we are done
                         indexOutput.close();
+                        onGoingRecovery.openIndexOutputs.remove(request.name());
+                        onGoingRecovery.verificationTime.addAndGet(indexOutput.verificationTimeInNanos());
+                        if (request.contentChecksum() != null && !indexOutput.verify(request.contentChecksum())) {
+                            // corrupted on the wire or on write, delete it and let the source send this file again
+                            onGoingRecovery.retriedFiles.incrementAndGet();
+                            onGoingRecovery.currentFilesSize.addAndGet(-request.length());
+                            try {
+                                shard.store().directory().deleteFile(request.name());
+                            } catch (IOException e) {
+                                // ignore, will be overridden
+                            }
+                            throw new ChecksumMismatchException(shard.shardId(), request.name(), request.contentChecksum(), indexOutput.checksum());
+                        }
                         // write the checksum
                         if (request.checksum() != null) {
                             shard.store().writeChecksum(request.name(), request.checksum());
                         }
                         shard.store().directory().sync(Collections.singleton(request.name()));
-                        onGoingRecovery.openIndexOutputs.remove(request.name());
                     }
                 } catch (IOException e) {
                     onGoingRecovery.openIndexOutputs.remove(request.name());
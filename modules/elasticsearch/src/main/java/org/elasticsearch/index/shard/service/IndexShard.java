@@ -45,6 +45,21 @@ public interface IndexShard extends IndexShardComponent {
 
     RefreshStats refreshStats();
 
+    /**
+     * The number of index, create and delete operations executed on the shard.
+     */
+    long indexingCount();
+
+    /**
+     * The number of searches executed on the shard.
+     */
+    long searchCount();
+
+    /**
+     * Marks the start of a search executed on the shard, see {@link #searchCount()}.
+     */
+    void incrementSearchCount();
+
     IndexShardState state();
 
     Engine.Create prepareCreate(SourceToParse source) throws ElasticSearchException;
@@ -59,10 +74,20 @@ public interface IndexShard extends IndexShardComponent {
 
     void delete(Engine.Delete delete) throws ElasticSearchException;
 
+    /**
+     * Executes a batch of create, index and delete operations, see {@link Engine#bulk(Engine.Bulk)}.
+     */
+    void bulk(Engine.Bulk bulk) throws ElasticSearchException;
+
     void deleteByQuery(byte[] querySource, @Nullable String[] filteringAliases, String... types) throws ElasticSearchException;
 
     Engine.GetResult get(Engine.Get get) throws ElasticSearchException;
 
+    /**
+     * Executes a batch of gets, see {@link Engine#multiGet(Engine.MultiGet)}.
+     */
+    void multiGet(Engine.MultiGet multiGet) throws ElasticSearchException;
+
     long count(float minScore, byte[] querySource, @Nullable String[] filteringAliases, String... types) throws ElasticSearchException;
 
     long count(float minScore, byte[] querySource, int querySourceOffset, int querySourceLength, @Nullable String[] filteringAliases, String... types) throws ElasticSearchException;
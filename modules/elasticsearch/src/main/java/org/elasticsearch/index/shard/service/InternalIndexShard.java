@@ -110,6 +110,13 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     private TimeValue refreshInterval;
     private final TimeValue mergeInterval;
 
+    // when adaptive, the scheduled refresh is delayed based on the cost of the last refresh (reopen and warmup)
+    private final boolean adaptiveRefresh;
+    private final int refreshCostFactor;
+    // null when not explicitly set, in which case it follows the (possibly updated) refresh interval
+    private final TimeValue maxRefreshInterval;
+    private volatile long lastScheduledRefreshTook;
+
     private volatile ScheduledFuture refreshScheduledFuture;
 
     private volatile ScheduledFuture mergeScheduleFuture;
@@ -125,6 +132,9 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     private final AtomicLong totalRefresh = new AtomicLong();
     private final AtomicLong totalRefreshTime = new AtomicLong();
 
+    private final AtomicLong indexingCount = new AtomicLong();
+    private final AtomicLong searchCount = new AtomicLong();
+
     @Inject public InternalIndexShard(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService, IndicesLifecycle indicesLifecycle, Store store, Engine engine, MergeSchedulerProvider mergeScheduler, Translog translog,
                                       ThreadPool threadPool, MapperService mapperService, IndexQueryParserService queryParserService, IndexCache indexCache, IndexAliasesService indexAliasesService) {
         super(shardId, indexSettings);
@@ -143,6 +153,9 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
 
         this.refreshInterval = indexSettings.getAsTime("engine.robin.refresh_interval", indexSettings.getAsTime("index.refresh_interval", engine.defaultRefreshInterval()));
         this.mergeInterval = indexSettings.getAsTime("index.merge.async_interval", TimeValue.timeValueSeconds(1));
+        this.adaptiveRefresh = indexSettings.getAsBoolean("index.refresh.adaptive", false);
+        this.refreshCostFactor = indexSettings.getAsInt("index.refresh.cost_factor", 10);
+        this.maxRefreshInterval = indexSettings.getAsTime("index.refresh.max_interval", null);
 
         indexSettingsService.addListener(applyRefreshSettings);
 
@@ -281,6 +294,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
             logger.trace("index {}", create.doc());
         }
         engine.create(create);
+        indexingCount.incrementAndGet();
         return create.parsedDoc();
     }
 
@@ -301,6 +315,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
             logger.trace("index {}", index.doc());
         }
         engine.index(index);
+        indexingCount.incrementAndGet();
         return index.parsedDoc();
     }
 
@@ -320,6 +335,36 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
             logger.trace("delete [{}]", delete.uid().text());
         }
         engine.delete(delete);
+        indexingCount.incrementAndGet();
+    }
+
+    @Override public void bulk(Engine.Bulk bulk) throws ElasticSearchException {
+        writeAllowed();
+        Engine.Operation[] ops = bulk.ops();
+        if (listeners != null) {
+            for (int i = 0; i < ops.length; i++) {
+                for (OperationListener listener : listeners) {
+                    if (ops[i] instanceof Engine.Create) {
+                        ops[i] = listener.beforeCreate((Engine.Create) ops[i]);
+                    } else if (ops[i] instanceof Engine.Index) {
+                        ops[i] = listener.beforeIndex((Engine.Index) ops[i]);
+                    } else if (ops[i] instanceof Engine.Delete) {
+                        ops[i] = listener.beforeDelete((Engine.Delete) ops[i]);
+                    }
+                }
+            }
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("bulk of [{}] operations", ops.length);
+        }
+        engine.bulk(bulk);
+        int executed = 0;
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i] != null && bulk.failures()[i] == null) {
+                executed++;
+            }
+        }
+        indexingCount.addAndGet(executed);
     }
 
     @Override public void deleteByQuery(byte[] querySource, @Nullable String[] filteringAliases, String... types) throws ElasticSearchException {
@@ -348,6 +393,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return engine.get(get);
     }
 
+    @Override public void multiGet(Engine.MultiGet multiGet) throws ElasticSearchException {
+        readAllowed();
+        engine.multiGet(multiGet);
+    }
+
     @Override public long count(float minScore, byte[] querySource, @Nullable String[] filteringAliases, String... types) throws ElasticSearchException {
         return count(minScore, querySource, 0, querySource.length, filteringAliases, types);
     }
@@ -390,6 +440,18 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return new RefreshStats(totalRefresh.get(), totalRefreshTime.get());
     }
 
+    @Override public long indexingCount() {
+        return indexingCount.get();
+    }
+
+    @Override public long searchCount() {
+        return searchCount.get();
+    }
+
+    @Override public void incrementSearchCount() {
+        searchCount.incrementAndGet();
+    }
+
     @Override public void flush(Engine.Flush flush) throws ElasticSearchException {
         writeAllowed();
         if (logger.isTraceEnabled()) {
@@ -458,6 +520,8 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         if (checkIndex) {
             checkIndex(true);
         }
+        // operations from the primary might arrive once started, for documents the recovered files hold already
+        engine.updateRecovering(true);
         engine.start();
     }
 
@@ -480,6 +544,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         // clear unreferenced files
         translog.clearUnreferenced();
         engine.refresh(new Engine.Refresh(true));
+        engine.updateRecovering(false);
         synchronized (mutex) {
             logger.debug("state: [{}]->[{}], reason [post recovery]", state, IndexShardState.STARTED);
             state = IndexShardState.STARTED;
@@ -497,6 +562,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
                 Translog.Create create = (Translog.Create) operation;
                 engine.create(prepareCreate(source(create.source()).type(create.type()).id(create.id())
                         .routing(create.routing()).parent(create.parent())).version(create.version())
+                        .autoGeneratedIdTimestamp(create.autoGeneratedIdTimestamp())
                         .origin(Engine.Operation.Origin.RECOVERY));
                 break;
             case SAVE:
@@ -609,7 +675,9 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
                 @Override public void run() {
                     try {
                         if (engine.refreshNeeded()) {
+                            long time = System.currentTimeMillis();
                             refresh(new Engine.Refresh(false));
+                            lastScheduledRefreshTook = System.currentTimeMillis() - time;
                         }
                     } catch (EngineClosedException e) {
                         // we are being closed, ignore
@@ -628,12 +696,45 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
                     }
                     synchronized (mutex) {
                         if (state != IndexShardState.CLOSED) {
-                            refreshScheduledFuture = threadPool.schedule(refreshInterval, ThreadPool.Names.SAME, EngineRefresher.this);
+                            refreshScheduledFuture = threadPool.schedule(nextRefreshInterval(), ThreadPool.Names.SAME, EngineRefresher.this);
                         }
                     }
                 }
             });
         }
+
+        /**
+         * The interval until the next scheduled refresh. When adaptive, and reopening the searcher (including warming
+         * new segments) takes a noticeable portion of the refresh interval, which happens with high indexing rates or
+         * after big merges, we back off so refresh takes at most <tt>1/cost_factor</tt> of the time.
+         */
+        private TimeValue nextRefreshInterval() {
+            TimeValue refreshInterval = InternalIndexShard.this.refreshInterval;
+            if (!adaptiveRefresh) {
+                return refreshInterval;
+            }
+            long maxRefreshInterval = InternalIndexShard.this.maxRefreshInterval == null ? refreshInterval.millis() * 5 : InternalIndexShard.this.maxRefreshInterval.millis();
+            long delay = adaptiveRefreshDelay(refreshInterval.millis(), maxRefreshInterval, lastScheduledRefreshTook, refreshCostFactor);
+            if (delay == refreshInterval.millis()) {
+                return refreshInterval;
+            }
+            if (logger.isTraceEnabled()) {
+                logger.trace("last refresh took [{}ms], delaying next refresh to [{}ms]", lastScheduledRefreshTook, delay);
+            }
+            return TimeValue.timeValueMillis(delay);
+        }
+    }
+
+    /**
+     * The delay (in millis) until the next refresh, so a refresh that took <tt>lastRefreshTook</tt> millis takes at
+     * most <tt>1/costFactor</tt> of the time, never less than the refresh interval nor more than the max interval.
+     */
+    static long adaptiveRefreshDelay(long refreshInterval, long maxRefreshInterval, long lastRefreshTook, int costFactor) {
+        long delay = lastRefreshTook * costFactor;
+        if (delay <= refreshInterval) {
+            return refreshInterval;
+        }
+        return Math.min(delay, Math.max(refreshInterval, maxRefreshInterval));
     }
 
     private class EngineMerger implements Runnable {
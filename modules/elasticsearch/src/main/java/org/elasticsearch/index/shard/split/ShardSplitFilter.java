@@ -0,0 +1,142 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard.split;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.OpenBitSet;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.common.lucene.document.SingleFieldSelector;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.internal.RoutingFieldMapper;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+
+import java.io.IOException;
+
+/**
+ * Matches the documents that do not belong to the provided shard of the (split) index, based on their
+ * <tt>_routing</tt> value when indexed with one, and on their <tt>_uid</tt> otherwise. The <tt>_routing</tt> values
+ * are read from the terms when the field is indexed, and from the stored fields when it is only stored.
+ */
+public class ShardSplitFilter extends Filter {
+
+    private final OperationRouting operationRouting;
+
+    private final IndexMetaData indexMetaData;
+
+    private final int shardId;
+
+    private final boolean routingIndexed;
+
+    public ShardSplitFilter(OperationRouting operationRouting, IndexMetaData indexMetaData, int shardId, boolean routingIndexed) {
+        this.operationRouting = operationRouting;
+        this.indexMetaData = indexMetaData;
+        this.shardId = shardId;
+        this.routingIndexed = routingIndexed;
+    }
+
+    @Override public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+        OpenBitSet result = new OpenBitSet(reader.maxDoc());
+        // the documents routed by their routing value, and not by their uid
+        OpenBitSet routed = new OpenBitSet(reader.maxDoc());
+        if (!routingIndexed) {
+            loadStoredRouting(reader, routed, result);
+        }
+        TermDocs termDocs = reader.termDocs();
+        try {
+            TermEnum termEnum;
+            if (routingIndexed) {
+                termEnum = reader.terms(new Term(RoutingFieldMapper.Defaults.NAME, ""));
+                try {
+                    do {
+                        Term term = termEnum.term();
+                        if (term == null || term.field() != RoutingFieldMapper.Defaults.NAME) {
+                            break;
+                        }
+                        boolean otherShard = operationRouting.shardId(indexMetaData, null, null, term.text()) != shardId;
+                        termDocs.seek(termEnum);
+                        while (termDocs.next()) {
+                            routed.fastSet(termDocs.doc());
+                            if (otherShard) {
+                                result.fastSet(termDocs.doc());
+                            }
+                        }
+                    } while (termEnum.next());
+                } finally {
+                    termEnum.close();
+                }
+            }
+
+            termEnum = reader.terms(new Term(UidFieldMapper.NAME, ""));
+            try {
+                do {
+                    Term term = termEnum.term();
+                    if (term == null || term.field() != UidFieldMapper.NAME) {
+                        break;
+                    }
+                    Uid uid = Uid.createUid(term.text());
+                    if (operationRouting.shardId(indexMetaData, uid.type(), uid.id(), null) == shardId) {
+                        continue;
+                    }
+                    termDocs.seek(termEnum);
+                    while (termDocs.next()) {
+                        if (!routed.fastGet(termDocs.doc())) {
+                            result.fastSet(termDocs.doc());
+                        }
+                    }
+                } while (termEnum.next());
+            } finally {
+                termEnum.close();
+            }
+        } finally {
+            termDocs.close();
+        }
+        return result;
+    }
+
+    private void loadStoredRouting(IndexReader reader, OpenBitSet routed, OpenBitSet result) throws IOException {
+        SingleFieldSelector fieldSelector = new SingleFieldSelector(RoutingFieldMapper.Defaults.NAME);
+        int maxDoc = reader.maxDoc();
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (reader.isDeleted(doc)) {
+                continue;
+            }
+            Document document = reader.document(doc, fieldSelector);
+            String routing = document.get(RoutingFieldMapper.Defaults.NAME);
+            if (routing == null) {
+                continue;
+            }
+            routed.fastSet(doc);
+            if (operationRouting.shardId(indexMetaData, null, null, routing) != shardId) {
+                result.fastSet(doc);
+            }
+        }
+    }
+
+    @Override public String toString() {
+        return "shard_split([" + indexMetaData.index() + "][" + shardId + "])";
+    }
+}
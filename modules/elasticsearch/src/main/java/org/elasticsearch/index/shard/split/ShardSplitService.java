@@ -0,0 +1,263 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard.split;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.EngineException;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.internal.RoutingFieldMapper;
+import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.index.shard.IllegalIndexShardStateException;
+import org.elasticsearch.index.shard.IndexShardClosedException;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Recovers the primary shards of an index created by splitting another index, out of the shard they were split
+ * from, which is required to be started on the same node (see
+ * {@link org.elasticsearch.cluster.routing.allocation.SplitNodeAllocation}).
+ *
+ * <p>The files of the last commit point of the source shard are hard linked (copied when not possible) into the
+ * shard, the documents that belong to the other shards the source shard was split into are deleted (the space
+ * is reclaimed by the regular merges, in the background), and the operations of the source shard translog that
+ * belong to the shard are replayed. No document is reindexed.
+ */
+public class ShardSplitService extends AbstractComponent {
+
+    /**
+     * Marks a shard store as holding a split that has not completed yet.
+     */
+    static final String SPLIT_PENDING_FILE = "split.pending";
+
+    public static interface Listener {
+
+        void onSplitDone();
+
+        void onIgnoreSplit(String reason);
+
+        void onSplitFailed(ShardSplitFailedException e);
+    }
+
+    private final ThreadPool threadPool;
+
+    private final IndicesService indicesService;
+
+    private final OperationRouting operationRouting;
+
+    @Inject public ShardSplitService(Settings settings, ThreadPool threadPool, IndicesService indicesService, OperationRouting operationRouting) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.indicesService = indicesService;
+        this.operationRouting = operationRouting;
+    }
+
+    /**
+     * Should the provided primary shard be recovered by splitting its source shard. This is the case for the shards
+     * of split indices that have no index yet (when their source shard is started on this node), or whose split
+     * has not completed.
+     */
+    public boolean shouldSplit(MetaData metaData, InternalIndexShard indexShard) throws IOException {
+        IndexMetaData indexMetaData = metaData.index(indexShard.shardId().index().name());
+        if (indexMetaData == null || indexMetaData.splitSource() == null) {
+            return false;
+        }
+        if (indexShard.store().directory().fileExists(SPLIT_PENDING_FILE)) {
+            return true;
+        }
+        if (IndexReader.indexExists(indexShard.store().directory())) {
+            return false;
+        }
+        return sourceShard(metaData, indexMetaData, indexShard.shardId().id()) != null;
+    }
+
+    /**
+     * Recovers the provided primary shard by splitting its source shard, asynchronously.
+     */
+    public void split(MetaData metaData, final InternalIndexShard indexShard, final Listener listener) {
+        final IndexMetaData indexMetaData = metaData.index(indexShard.shardId().index().name());
+        final InternalIndexShard sourceShard = sourceShard(metaData, indexMetaData, indexShard.shardId().id());
+        if (sourceShard == null) {
+            listener.onSplitFailed(new ShardSplitFailedException(indexShard.shardId(), "source shard of index [" + indexMetaData.splitSource() + "] is not started on this node"));
+            return;
+        }
+        try {
+            indexShard.recovering("from split of " + sourceShard.shardId());
+        } catch (IllegalIndexShardStateException e) {
+            // that's fine, since we might be called concurrently, just ignore this, we are already recovering
+            listener.onIgnoreSplit("already in recovering process, " + e.getMessage());
+            return;
+        }
+
+        threadPool.cached().execute(new Runnable() {
+            @Override public void run() {
+                try {
+                    long startTime = System.currentTimeMillis();
+                    int operations = split(indexMetaData, sourceShard, indexShard);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("{} split from {}, replayed [{}] translog operations, took [{}]", indexShard.shardId(), sourceShard.shardId(),
+                                operations, TimeValue.timeValueMillis(System.currentTimeMillis() - startTime));
+                    }
+                    listener.onSplitDone();
+                } catch (IndexShardClosedException e) {
+                    listener.onIgnoreSplit("shard closed");
+                } catch (Exception e) {
+                    if (indexShard.state() == IndexShardState.CLOSED) {
+                        // got closed on us, just ignore this split
+                        listener.onIgnoreSplit("shard closed");
+                        return;
+                    }
+                    if (e instanceof ShardSplitFailedException) {
+                        listener.onSplitFailed((ShardSplitFailedException) e);
+                    } else {
+                        listener.onSplitFailed(new ShardSplitFailedException(indexShard.shardId(), "failed to split from " + sourceShard.shardId(), e));
+                    }
+                }
+            }
+        });
+    }
+
+    private int split(final IndexMetaData indexMetaData, final InternalIndexShard sourceShard, final InternalIndexShard indexShard) {
+        final boolean routingIndexed = routingIndexed(sourceShard);
+        // writes to the source index are blocked, flush so its last commit point holds (almost) all of its operations
+        sourceShard.flush(new Engine.Flush());
+        return sourceShard.snapshot(new Engine.SnapshotHandler<Integer>() {
+            @Override public Integer snapshot(SnapshotIndexCommit snapshotIndexCommit, Translog.Snapshot translogSnapshot) throws EngineException {
+                Store store = indexShard.store();
+                try {
+                    store.deleteContent();
+                    store.directory().createOutput(SPLIT_PENDING_FILE).close();
+                    for (String name : snapshotIndexCommit.getFiles()) {
+                        store.linkFrom(sourceShard.store(), name);
+                    }
+                    deleteOtherShardsDocs(indexMetaData, store, routingIndexed, snapshotIndexCommit.getUserData());
+                } catch (IOException e) {
+                    throw new ShardSplitFailedException(indexShard.shardId(), "failed to link files from " + sourceShard.shardId(), e);
+                }
+
+                indexShard.performRecoveryPrepareForTranslog();
+                int operations = 0;
+                while (translogSnapshot.hasNext()) {
+                    Translog.Operation operation = translogSnapshot.next();
+                    if (belongsToShard(indexMetaData, indexShard.shardId().id(), operation)) {
+                        indexShard.performRecoveryOperation(operation);
+                        operations++;
+                    }
+                }
+                indexShard.performRecoveryFinalization(true);
+
+                try {
+                    store.directory().deleteFile(SPLIT_PENDING_FILE);
+                } catch (IOException e) {
+                    throw new ShardSplitFailedException(indexShard.shardId(), "failed to mark split as done", e);
+                }
+                return operations;
+            }
+        });
+    }
+
+    private void deleteOtherShardsDocs(IndexMetaData indexMetaData, Store store, boolean routingIndexed, Map<String, String> commitUserData) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER);
+        config.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+        // don't merge now, the engine merges will reclaim the deleted documents once the shard is started
+        config.setMergePolicy(NoMergePolicy.NO_COMPOUND_FILES);
+        IndexWriter indexWriter = new IndexWriter(store.directory(), config);
+        try {
+            indexWriter.deleteDocuments(new ConstantScoreQuery(new ShardSplitFilter(operationRouting, indexMetaData, store.shardId().id(), routingIndexed)));
+            // keep the translog id of the source commit point
+            indexWriter.commit(commitUserData);
+        } finally {
+            indexWriter.close();
+        }
+    }
+
+    /**
+     * Is the <tt>_routing</tt> field indexed for all the types of the source shard. If it is not, the routing values
+     * are read from the stored fields, and the split fails if they are not stored either.
+     */
+    private boolean routingIndexed(InternalIndexShard sourceShard) {
+        boolean indexed = true;
+        for (DocumentMapper documentMapper : indicesService.indexServiceSafe(sourceShard.shardId().index().name()).mapperService()) {
+            RoutingFieldMapper routingFieldMapper = documentMapper.routingFieldMapper();
+            if (routingFieldMapper.index() == Field.Index.NO) {
+                if (routingFieldMapper.store() == Field.Store.NO) {
+                    throw new ShardSplitFailedException(sourceShard.shardId(), "can't split, [_routing] of type [" + documentMapper.type() + "] is neither indexed nor stored");
+                }
+                indexed = false;
+            }
+        }
+        return indexed;
+    }
+
+    private boolean belongsToShard(IndexMetaData indexMetaData, int shardId, Translog.Operation operation) {
+        switch (operation.opType()) {
+            case CREATE:
+                Translog.Create create = (Translog.Create) operation;
+                return operationRouting.shardId(indexMetaData, create.type(), create.id(), create.routing()) == shardId;
+            case SAVE:
+                Translog.Index index = (Translog.Index) operation;
+                return operationRouting.shardId(indexMetaData, index.type(), index.id(), index.routing()) == shardId;
+            default:
+                // deletes of documents that don't exist in this shard are no-ops
+                return true;
+        }
+    }
+
+    private InternalIndexShard sourceShard(MetaData metaData, IndexMetaData indexMetaData, int shardId) {
+        IndexMetaData sourceMetaData = metaData.index(indexMetaData.splitSource());
+        if (sourceMetaData == null) {
+            return null;
+        }
+        IndexService sourceIndexService = indicesService.indexService(sourceMetaData.index());
+        if (sourceIndexService == null) {
+            return null;
+        }
+        int sourceShardId = shardId / (indexMetaData.numberOfShards() / sourceMetaData.numberOfShards());
+        if (!sourceIndexService.hasShard(sourceShardId)) {
+            return null;
+        }
+        InternalIndexShard sourceShard = (InternalIndexShard) sourceIndexService.shardSafe(sourceShardId);
+        if (sourceShard.state() != IndexShardState.STARTED) {
+            return null;
+        }
+        return sourceShard;
+    }
+}
@@ -27,6 +27,7 @@ import org.elasticsearch.common.inject.Module;
 import org.elasticsearch.common.inject.Modules;
 import org.elasticsearch.common.inject.SpawnModules;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.store.fs.CachedNioFsIndexStoreModule;
 import org.elasticsearch.index.store.fs.MmapFsIndexStoreModule;
 import org.elasticsearch.index.store.fs.NioFsIndexStoreModule;
 import org.elasticsearch.index.store.fs.SimpleFsIndexStoreModule;
@@ -66,6 +67,8 @@ public class IndexStoreModule extends AbstractModule implements SpawnModules {
             indexStoreModule = NioFsIndexStoreModule.class;
         } else if ("mmapfs".equalsIgnoreCase(storeType) || "mmap_fs".equalsIgnoreCase(storeType)) {
             indexStoreModule = MmapFsIndexStoreModule.class;
+        } else if ("cached_niofs".equalsIgnoreCase(storeType) || "cached_nio_fs".equalsIgnoreCase(storeType)) {
+            indexStoreModule = CachedNioFsIndexStoreModule.class;
         } else if (storeType != null) {
             indexStoreModule = settings.getAsClass("index.store.type", indexStoreModule, "org.elasticsearch.index.store.", "IndexStoreModule");
         }
@@ -43,6 +43,12 @@ public interface Store extends IndexShardComponent {
 
     StoreFileMetaData metaData(String name) throws IOException;
 
+    /**
+     * Adds the provided file of another store (keeping its checksum) to this store, as a hard link when both
+     * stores keep their files on the same file system, or by copying it otherwise.
+     */
+    void linkFrom(Store source, String name) throws IOException;
+
     ImmutableMap<String, StoreFileMetaData> list() throws IOException;
 
     /**
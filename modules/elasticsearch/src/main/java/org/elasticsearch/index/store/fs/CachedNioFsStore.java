@@ -0,0 +1,78 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store.fs;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.LockFactory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.elasticsearch.cache.memory.BlockCache;
+import org.elasticsearch.cache.memory.BlockCacheDirectory;
+import org.elasticsearch.cache.memory.BlockCacheStats;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.IndexStore;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A nio file system store, with reads served through the node level {@link BlockCache}.
+ */
+public class CachedNioFsStore extends FsStore {
+
+    private final NIOFSDirectory fsDirectory;
+
+    private final BlockCacheDirectory blockCacheDirectory;
+
+    private final Directory directory;
+
+    @Inject public CachedNioFsStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, BlockCache blockCache) throws IOException {
+        super(shardId, indexSettings, indexStore);
+        LockFactory lockFactory = buildLockFactory();
+        File location = ((FsIndexStore) indexStore).shardIndexLocation(shardId);
+        location.mkdirs();
+        this.fsDirectory = new NIOFSDirectory(location, lockFactory);
+        this.blockCacheDirectory = new BlockCacheDirectory(fsDirectory, blockCache);
+        this.directory = wrapDirectory(blockCacheDirectory);
+        logger.debug("using [cached_nio_fs] store with path [{}], block_size [{}]", fsDirectory.getDirectory(), blockCache.blockSize());
+    }
+
+    @Override public FSDirectory fsDirectory() {
+        return fsDirectory;
+    }
+
+    @Override public Directory directory() {
+        return directory;
+    }
+
+    /**
+     * The block cache stats of this shard store.
+     */
+    public BlockCacheStats blockCacheStats() {
+        return blockCacheDirectory.stats();
+    }
+
+    @Override public boolean suggestUseCompoundFile() {
+        return DEFAULT_SUGGEST_USE_COMPOUND_FILE;
+    }
+}
@@ -24,7 +24,9 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.lucene.Directories;
+import org.elasticsearch.common.lucene.store.DelegatingDirectory;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -34,6 +36,7 @@ import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Collection;
@@ -202,10 +205,46 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
         }
     }
 
+    @Override public void linkFrom(Store source, String name) throws IOException {
+        StoreFileMetaData sourceMetaData = source.metaData(name);
+        if (sourceMetaData == null) {
+            throw new FileNotFoundException(name);
+        }
+        Directory directory = ((StoreDirectory) directory()).delegate();
+        Directory sourceDirectory = source.directory() instanceof StoreDirectory ? ((StoreDirectory) source.directory()).delegate() : source.directory();
+        if (directory instanceof FSDirectory && sourceDirectory instanceof FSDirectory) {
+            File file = new File(((FSDirectory) directory).getFile(), name);
+            if (FileSystemUtils.hardLink(new File(((FSDirectory) sourceDirectory).getFile(), name), file)) {
+                synchronized (mutex) {
+                    StoreFileMetaData md = new StoreFileMetaData(name, file.length(), file.lastModified(), sourceMetaData.checksum());
+                    filesMetadata = MapBuilder.newMapBuilder(filesMetadata).put(name, md).immutableMap();
+                    files = filesMetadata.keySet().toArray(new String[filesMetadata.size()]);
+                }
+                return;
+            }
+        }
+        IndexInput input = source.directory().openInput(name);
+        try {
+            IndexOutput output = createOutputWithNoChecksum(name);
+            try {
+                output.copyBytes(input, input.length());
+            } finally {
+                output.close();
+            }
+        } finally {
+            input.close();
+        }
+        synchronized (mutex) {
+            StoreFileMetaData md = filesMetadata.get(name);
+            md = new StoreFileMetaData(md.name(), md.length(), md.lastModified(), sourceMetaData.checksum());
+            filesMetadata = MapBuilder.newMapBuilder(filesMetadata).put(name, md).immutableMap();
+        }
+    }
+
     /**
      * The idea of the store directory is to cache file level meta data, as well as md5 of it
      */
-    class StoreDirectory extends Directory implements ForceSyncDirectory {
+    class StoreDirectory extends Directory implements DelegatingDirectory, ForceSyncDirectory {
 
         private final Directory delegate;
 
@@ -243,7 +282,7 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
             }
         }
 
-        public Directory delegate() {
+        @Override public Directory delegate() {
             return delegate;
         }
 
@@ -92,6 +92,12 @@ public interface Translog extends IndexShardComponent {
      */
     Location add(Operation operation) throws TranslogException;
 
+    /**
+     * Adds a batch of operations to the transaction log using a single write, returning the location
+     * of each operation.
+     */
+    Location[] add(Operation[] operations) throws TranslogException;
+
     byte[] read(Location location);
 
     /**
@@ -228,6 +234,7 @@ public interface Translog extends IndexShardComponent {
         private String routing;
         private String parent;
         private long version;
+        private long autoGeneratedIdTimestamp = -1;
 
         public Create() {
         }
@@ -237,6 +244,7 @@ public interface Translog extends IndexShardComponent {
             this.routing = create.routing();
             this.parent = create.parent();
             this.version = create.version();
+            this.autoGeneratedIdTimestamp = create.autoGeneratedIdTimestamp();
         }
 
         public Create(String type, String id, byte[] source) {
@@ -277,6 +285,10 @@ public interface Translog extends IndexShardComponent {
             return this.version;
         }
 
+        public long autoGeneratedIdTimestamp() {
+            return this.autoGeneratedIdTimestamp;
+        }
+
         @Override public BytesHolder readSource(BytesStreamInput in) throws IOException {
             int version = in.readVInt(); // version
             id = in.readUTF();
@@ -306,10 +318,13 @@ public interface Translog extends IndexShardComponent {
             if (version >= 3) {
                 this.version = in.readLong();
             }
+            if (version >= 4) {
+                this.autoGeneratedIdTimestamp = in.readLong();
+            }
         }
 
         @Override public void writeTo(StreamOutput out) throws IOException {
-            out.writeVInt(3); // version
+            out.writeVInt(4); // version
             out.writeUTF(id);
             out.writeUTF(type);
             out.writeVInt(source.length);
@@ -327,6 +342,7 @@ public interface Translog extends IndexShardComponent {
                 out.writeUTF(parent);
             }
             out.writeLong(version);
+            out.writeLong(autoGeneratedIdTimestamp);
         }
     }
 
@@ -190,6 +190,44 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         }
     }
 
+    @Override public Location[] add(Operation[] operations) throws TranslogException {
+        CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
+        try {
+            BytesStreamOutput out = cachedEntry.cachedBytes();
+            int[] sizes = new int[operations.length];
+            for (int i = 0; i < operations.length; i++) {
+                int start = out.size();
+                out.writeInt(0); // marker for the size...
+                TranslogStreams.writeTranslogOperation(out, operations[i]);
+                out.flush();
+
+                int end = out.size();
+                out.seek(start);
+                out.writeInt(end - start - 4);
+                out.seek(end);
+                sizes[i] = end - start;
+            }
+
+            Location[] locations = current.add(out.unsafeByteArray(), 0, out.size(), sizes);
+            if (syncOnEachOperation) {
+                current.sync();
+            }
+            FsTranslogFile trans = this.trans;
+            if (trans != null) {
+                try {
+                    locations = trans.add(out.unsafeByteArray(), 0, out.size(), sizes);
+                } catch (ClosedChannelException e) {
+                    // ignore
+                }
+            }
+            return locations;
+        } catch (Exception e) {
+            throw new TranslogException(shardId, "Failed to write [" + operations.length + "] operations", e);
+        } finally {
+            CachedStreamOutput.pushEntry(cachedEntry);
+        }
+    }
+
     @Override public FsChannelSnapshot snapshot() throws TranslogException {
         while (true) {
             FsChannelSnapshot snapshot = current.snapshot();
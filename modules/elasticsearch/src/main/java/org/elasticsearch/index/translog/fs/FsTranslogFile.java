@@ -68,6 +68,23 @@ public class FsTranslogFile {
         return new Translog.Location(id, position, size);
     }
 
+    /**
+     * Adds several operations serialized one after the other (each prefixed with its size) using a single
+     * write, returning their locations.
+     */
+    public Translog.Location[] add(byte[] data, int from, int size, int[] sizes) throws IOException {
+        long position = lastPosition.getAndAdd(size);
+        raf.channel().write(ByteBuffer.wrap(data, from, size), position);
+        lastWrittenPosition.getAndAdd(size);
+        operationCounter.addAndGet(sizes.length);
+        Translog.Location[] locations = new Translog.Location[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            locations[i] = new Translog.Location(id, position, sizes[i]);
+            position += sizes[i];
+        }
+        return locations;
+    }
+
     public byte[] read(Translog.Location location) throws IOException {
         ByteBuffer buffer = ByteBuffer.allocate(location.size);
         raf.channel().read(buffer, location.translogLocation);
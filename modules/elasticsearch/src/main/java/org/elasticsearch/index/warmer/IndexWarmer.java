@@ -0,0 +1,187 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.warmer;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.IndexCache;
+import org.elasticsearch.index.field.data.support.DocValues;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.query.IndexQueryParserService;
+import org.elasticsearch.index.settings.IndexSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms up segment readers before they are exposed to searches. Warming loads the field data of the
+ * configured <tt>index.warmer.fields</tt>, and executes the configured <tt>index.warmer.queries</tt>
+ * (query source, same as the <tt>query</tt> element of a search request) against the segment.
+ *
+ * <p>Warming also writes the doc values columns of the fields mapped with <tt>doc_values</tt> enabled (see
+ * {@link DocValues}), before any field data is loaded, so the field data of the segment is read from them.
+ *
+ * <p>Each segment is warmed only once, so merged segments warmed by the index writer are not warmed
+ * again when they become visible on refresh.
+ */
+public class IndexWarmer extends AbstractIndexComponent {
+
+    private final IndexQueryParserService queryParserService;
+
+    private final MapperService mapperService;
+
+    private final IndexCache indexCache;
+
+    private final boolean enabled;
+
+    private final String[] queries;
+
+    private final String[] fields;
+
+    private final Map<Object, Boolean> warmedSegments = new WeakHashMap<Object, Boolean>();
+
+    private final AtomicLong totalWarm = new AtomicLong();
+
+    private final AtomicLong totalWarmTime = new AtomicLong();
+
+    @Inject public IndexWarmer(Index index, @IndexSettings Settings indexSettings, IndexQueryParserService queryParserService,
+                               MapperService mapperService, IndexCache indexCache) {
+        super(index, indexSettings);
+        this.queryParserService = queryParserService;
+        this.mapperService = mapperService;
+        this.indexCache = indexCache;
+
+        this.enabled = indexSettings.getAsBoolean("index.warmer.enabled", true);
+        this.queries = indexSettings.getAsArray("index.warmer.queries", Strings.EMPTY_ARRAY);
+        this.fields = indexSettings.getAsArray("index.warmer.fields", Strings.EMPTY_ARRAY);
+    }
+
+    /**
+     * Returns <tt>true</tt> if there is anything to warm.
+     */
+    public boolean enabled() {
+        return enabled && (queries.length > 0 || fields.length > 0 || !docValuesFields().isEmpty());
+    }
+
+    private List<FieldMapper> docValuesFields() {
+        List<FieldMapper> docValuesFields = null;
+        for (DocumentMapper documentMapper : mapperService) {
+            for (FieldMapper mapper : documentMapper.mappers()) {
+                if (mapper.docValues()) {
+                    if (docValuesFields == null) {
+                        docValuesFields = new ArrayList<FieldMapper>();
+                    }
+                    docValuesFields.add(mapper);
+                }
+            }
+        }
+        if (docValuesFields == null) {
+            return Collections.emptyList();
+        }
+        return docValuesFields;
+    }
+
+    public long totalWarm() {
+        return totalWarm.get();
+    }
+
+    public long totalWarmTimeInMillis() {
+        return totalWarmTime.get();
+    }
+
+    /**
+     * Warms all the segment readers of the provided reader that were not warmed yet.
+     */
+    public void warmSegments(IndexReader reader) {
+        if (!enabled()) {
+            return;
+        }
+        IndexReader[] subReaders = reader.getSequentialSubReaders();
+        if (subReaders == null) {
+            warm(reader);
+            return;
+        }
+        for (IndexReader subReader : subReaders) {
+            warm(subReader);
+        }
+    }
+
+    /**
+     * Warms a single segment reader (if it was not warmed already).
+     */
+    public void warm(IndexReader reader) {
+        if (!enabled()) {
+            return;
+        }
+        synchronized (warmedSegments) {
+            if (warmedSegments.put(reader.getFieldCacheKey(), Boolean.TRUE) != null) {
+                return;
+            }
+        }
+        long time = System.currentTimeMillis();
+        for (FieldMapper mapper : docValuesFields()) {
+            try {
+                DocValues.write(reader, mapper.names().indexName(), mapper.fieldDataType());
+            } catch (Exception e) {
+                logger.warn("failed to write doc values for [{}]", e, mapper.names().fullName());
+            }
+        }
+        for (String field : fields) {
+            FieldMapper mapper = mapperService.smartNameFieldMapper(field);
+            if (mapper == null) {
+                continue;
+            }
+            try {
+                indexCache.fieldData().cache(mapper.fieldDataType(), reader, mapper.names().indexName());
+            } catch (Exception e) {
+                logger.warn("failed to warm field data for [{}]", e, field);
+            }
+        }
+        if (queries.length > 0) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            for (String querySource : queries) {
+                try {
+                    Query query = queryParserService.parse(querySource).query();
+                    searcher.search(query, 10);
+                } catch (Exception e) {
+                    logger.warn("failed to execute warmer query [{}]", e, querySource);
+                }
+            }
+        }
+        long took = System.currentTimeMillis() - time;
+        totalWarm.incrementAndGet();
+        totalWarmTime.addAndGet(took);
+        if (logger.isTraceEnabled()) {
+            logger.trace("warmed segment [{}] with maxDoc [{}], took [{}ms]", reader, reader.maxDoc(), took);
+        }
+    }
+}
@@ -24,8 +24,10 @@ import org.elasticsearch.common.inject.AbstractModule;
 import org.elasticsearch.common.inject.Module;
 import org.elasticsearch.common.inject.SpawnModules;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.recovery.RecoveryScheduler;
 import org.elasticsearch.index.shard.recovery.RecoverySource;
 import org.elasticsearch.index.shard.recovery.RecoveryTarget;
+import org.elasticsearch.index.shard.split.ShardSplitService;
 import org.elasticsearch.indices.analysis.IndicesAnalysisModule;
 import org.elasticsearch.indices.cache.filter.IndicesNodeFilterCache;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService;
@@ -53,8 +55,10 @@ public class IndicesModule extends AbstractModule implements SpawnModules {
 
         bind(IndicesService.class).to(InternalIndicesService.class).asEagerSingleton();
 
+        bind(RecoveryScheduler.class).asEagerSingleton();
         bind(RecoveryTarget.class).asEagerSingleton();
         bind(RecoverySource.class).asEagerSingleton();
+        bind(ShardSplitService.class).asEagerSingleton();
 
         bind(IndicesClusterStateService.class).asEagerSingleton();
         bind(IndexingMemoryBufferController.class).asEagerSingleton();
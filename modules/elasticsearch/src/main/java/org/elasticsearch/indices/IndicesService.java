@@ -40,6 +40,11 @@ public interface IndicesService extends Iterable<IndexService>, LifecycleCompone
 
     NodeIndicesStats stats();
 
+    /**
+     * The load (indexing and search rates, store size) of each started shard allocated on this node.
+     */
+    ShardsLoadStats shardsLoadStats();
+
     boolean hasIndex(String index);
 
     IndicesLifecycle indicesLifecycle();
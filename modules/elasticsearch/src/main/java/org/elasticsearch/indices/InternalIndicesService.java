@@ -44,6 +44,7 @@ import org.elasticsearch.index.IndexNameModule;
 import org.elasticsearch.index.IndexServiceManagement;
 import org.elasticsearch.index.LocalNodeIdModule;
 import org.elasticsearch.index.aliases.IndexAliasesServiceModule;
+import org.elasticsearch.index.analysis.AnalysisCacheStats;
 import org.elasticsearch.index.analysis.AnalysisModule;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.CacheStats;
@@ -54,6 +55,8 @@ import org.elasticsearch.index.engine.IndexEngine;
 import org.elasticsearch.index.engine.IndexEngineModule;
 import org.elasticsearch.index.gateway.IndexGateway;
 import org.elasticsearch.index.gateway.IndexGatewayModule;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.MapperServiceModule;
 import org.elasticsearch.index.merge.MergeStats;
@@ -65,10 +68,12 @@ import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.service.InternalIndexService;
 import org.elasticsearch.index.settings.IndexSettingsModule;
 import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
 import org.elasticsearch.index.similarity.SimilarityModule;
 import org.elasticsearch.index.store.IndexStoreModule;
+import org.elasticsearch.index.warmer.IndexWarmerModule;
 import org.elasticsearch.indices.analysis.IndicesAnalysisService;
 import org.elasticsearch.indices.store.IndicesStore;
 import org.elasticsearch.plugins.IndexPluginsModule;
@@ -77,6 +82,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -85,6 +91,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
+import static org.elasticsearch.common.collect.Lists.*;
 import static org.elasticsearch.common.collect.MapBuilder.*;
 import static org.elasticsearch.common.collect.Maps.*;
 import static org.elasticsearch.common.collect.Sets.*;
@@ -114,6 +121,9 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
 
     private volatile ImmutableMap<String, IndexService> indices = ImmutableMap.of();
 
+    // guarded by this (see shardsLoadStats)
+    private final Map<ShardId, ShardLoadSample> loadSamples = new HashMap<ShardId, ShardLoadSample>();
+
     @Inject public InternalIndicesService(Settings settings, NodeEnvironment nodeEnv, ThreadPool threadPool, IndicesLifecycle indicesLifecycle, IndicesAnalysisService indicesAnalysisService, IndicesStore indicesStore, Injector injector) {
         super(settings);
         this.nodeEnv = nodeEnv;
@@ -173,6 +183,7 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
         long numberOfDocs = 0;
         CacheStats cacheStats = new CacheStats();
         MergeStats mergeStats = new MergeStats();
+        AnalysisCacheStats analysisCacheStats = new AnalysisCacheStats();
         for (IndexService indexService : indices.values()) {
             for (IndexShard indexShard : indexService) {
                 try {
@@ -192,8 +203,46 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
                 mergeStats.add(((InternalIndexShard) indexShard).mergeScheduler().stats());
             }
             cacheStats.add(indexService.cache().stats());
+            for (DocumentMapper documentMapper : indexService.mapperService()) {
+                for (FieldMapper fieldMapper : documentMapper.mappers()) {
+                    if (fieldMapper.analysisCache() != null) {
+                        analysisCacheStats.add(fieldMapper.names().indexName(), fieldMapper.analysisCache());
+                    }
+                }
+            }
+        }
+        return new NodeIndicesStats(new ByteSizeValue(storeTotalSize), numberOfDocs, cacheStats, mergeStats, analysisCacheStats);
+    }
+
+    @Override public synchronized ShardsLoadStats shardsLoadStats() {
+        long now = System.currentTimeMillis();
+        List<ShardsLoadStats.Entry> entries = newArrayList();
+        Set<ShardId> shardIds = newHashSet();
+        for (IndexService indexService : indices.values()) {
+            for (IndexShard indexShard : indexService) {
+                if (indexShard.state() != IndexShardState.STARTED) {
+                    continue;
+                }
+                shardIds.add(indexShard.shardId());
+                ShardLoadSample sample = loadSamples.get(indexShard.shardId());
+                if (sample == null) {
+                    sample = new ShardLoadSample(now, indexShard.indexingCount(), indexShard.searchCount());
+                    loadSamples.put(indexShard.shardId(), sample);
+                } else {
+                    sample.update(now, indexShard.indexingCount(), indexShard.searchCount());
+                }
+                long storeSize = 0;
+                try {
+                    storeSize = ((InternalIndexShard) indexShard).store().estimateSize().bytes();
+                } catch (IOException e) {
+                    // ignore
+                }
+                entries.add(new ShardsLoadStats.Entry(indexShard.shardId(), indexShard.routingEntry().primary(),
+                        sample.indexingRate, sample.searchRate, storeSize));
+            }
         }
-        return new NodeIndicesStats(new ByteSizeValue(storeTotalSize), numberOfDocs, cacheStats, mergeStats);
+        loadSamples.keySet().retainAll(shardIds);
+        return new ShardsLoadStats(entries.toArray(new ShardsLoadStats.Entry[entries.size()]));
     }
 
     /**
@@ -204,6 +253,41 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
         return lifecycle.started();
     }
 
+    /**
+     * The last sample of the counters of a shard, the rates are computed between samples that are at least
+     * a second apart, so frequent stats calls don't skew them.
+     */
+    static class ShardLoadSample {
+
+        long time;
+
+        long indexingCount;
+
+        long searchCount;
+
+        double indexingRate;
+
+        double searchRate;
+
+        ShardLoadSample(long time, long indexingCount, long searchCount) {
+            this.time = time;
+            this.indexingCount = indexingCount;
+            this.searchCount = searchCount;
+        }
+
+        void update(long now, long indexingCount, long searchCount) {
+            long elapsed = now - time;
+            if (elapsed < 1000) {
+                return;
+            }
+            this.indexingRate = ((double) (indexingCount - this.indexingCount)) * 1000 / elapsed;
+            this.searchRate = ((double) (searchCount - this.searchCount)) * 1000 / elapsed;
+            this.time = now;
+            this.indexingCount = indexingCount;
+            this.searchCount = searchCount;
+        }
+    }
+
     @Override public UnmodifiableIterator<IndexService> iterator() {
         return indices.values().iterator();
     }
@@ -261,6 +345,7 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
         modules.add(new IndexQueryParserModule(indexSettings));
         modules.add(new MapperServiceModule());
         modules.add(new IndexAliasesServiceModule());
+        modules.add(new IndexWarmerModule());
         modules.add(new IndexGatewayModule(indexSettings, injector.getInstance(Gateway.class)));
         modules.add(new IndexModule());
         modules.add(new PercolatorModule());
@@ -26,6 +26,7 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.index.analysis.AnalysisCacheStats;
 import org.elasticsearch.index.cache.CacheStats;
 import org.elasticsearch.index.merge.MergeStats;
 
@@ -47,14 +48,17 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
 
     private MergeStats mergeStats;
 
+    private AnalysisCacheStats analysisCacheStats;
+
     NodeIndicesStats() {
     }
 
-    public NodeIndicesStats(ByteSizeValue storeSize, long numDocs, CacheStats cacheStats, MergeStats mergeStats) {
+    public NodeIndicesStats(ByteSizeValue storeSize, long numDocs, CacheStats cacheStats, MergeStats mergeStats, AnalysisCacheStats analysisCacheStats) {
         this.storeSize = storeSize;
         this.numDocs = numDocs;
         this.cacheStats = cacheStats;
         this.mergeStats = mergeStats;
+        this.analysisCacheStats = analysisCacheStats;
     }
 
     /**
@@ -101,6 +105,17 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         return this.mergeStats;
     }
 
+    /**
+     * The stats of the analysis caches of the fields that have one.
+     */
+    public AnalysisCacheStats analysisCache() {
+        return this.analysisCacheStats;
+    }
+
+    public AnalysisCacheStats getAnalysisCache() {
+        return analysisCache();
+    }
+
     public static NodeIndicesStats readIndicesStats(StreamInput in) throws IOException {
         NodeIndicesStats stats = new NodeIndicesStats();
         stats.readFrom(in);
@@ -112,6 +127,7 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         numDocs = in.readVLong();
         cacheStats = CacheStats.readCacheStats(in);
         mergeStats = MergeStats.readMergeStats(in);
+        analysisCacheStats = AnalysisCacheStats.readAnalysisCacheStats(in);
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
@@ -119,6 +135,7 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         out.writeVLong(numDocs);
         cacheStats.writeTo(out);
         mergeStats.writeTo(out);
+        analysisCacheStats.writeTo(out);
     }
 
     @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
@@ -133,6 +150,7 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
 
         cacheStats.toXContent(builder, params);
         mergeStats.toXContent(builder, params);
+        analysisCacheStats.toXContent(builder, params);
 
         builder.endObject();
         return builder;
@@ -0,0 +1,167 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.io.IOException;
+
+/**
+ * The load of each shard allocated (and started) on a node: the rate of indexing operations and searches
+ * executed on it, and its store size.
+ */
+public class ShardsLoadStats implements Streamable, ToXContent {
+
+    public static class Entry {
+
+        ShardId shardId;
+
+        boolean primary;
+
+        double indexingRate;
+
+        double searchRate;
+
+        long storeSizeInBytes;
+
+        Entry() {
+        }
+
+        public Entry(ShardId shardId, boolean primary, double indexingRate, double searchRate, long storeSizeInBytes) {
+            this.shardId = shardId;
+            this.primary = primary;
+            this.indexingRate = indexingRate;
+            this.searchRate = searchRate;
+            this.storeSizeInBytes = storeSizeInBytes;
+        }
+
+        public ShardId shardId() {
+            return shardId;
+        }
+
+        public boolean primary() {
+            return primary;
+        }
+
+        /**
+         * The number of index, create and delete operations per second.
+         */
+        public double indexingRate() {
+            return indexingRate;
+        }
+
+        /**
+         * The number of searches per second.
+         */
+        public double searchRate() {
+            return searchRate;
+        }
+
+        public ByteSizeValue storeSize() {
+            return new ByteSizeValue(storeSizeInBytes);
+        }
+
+        public long storeSizeInBytes() {
+            return storeSizeInBytes;
+        }
+    }
+
+    private Entry[] entries;
+
+    ShardsLoadStats() {
+    }
+
+    public ShardsLoadStats(Entry[] entries) {
+        this.entries = entries;
+    }
+
+    public Entry[] entries() {
+        return this.entries;
+    }
+
+    public Entry[] getEntries() {
+        return entries();
+    }
+
+    public static ShardsLoadStats readShardsLoadStats(StreamInput in) throws IOException {
+        ShardsLoadStats stats = new ShardsLoadStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startArray(Fields.SHARDS_LOAD);
+        for (Entry entry : entries) {
+            builder.startObject();
+            builder.field(Fields.INDEX, entry.shardId.index().name());
+            builder.field(Fields.SHARD, entry.shardId.id());
+            builder.field(Fields.PRIMARY, entry.primary);
+            builder.field(Fields.INDEXING_RATE, entry.indexingRate);
+            builder.field(Fields.SEARCH_RATE, entry.searchRate);
+            builder.field(Fields.STORE_SIZE, entry.storeSize().toString());
+            builder.field(Fields.STORE_SIZE_IN_BYTES, entry.storeSizeInBytes);
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString SHARDS_LOAD = new XContentBuilderString("shards_load");
+        static final XContentBuilderString INDEX = new XContentBuilderString("index");
+        static final XContentBuilderString SHARD = new XContentBuilderString("shard");
+        static final XContentBuilderString PRIMARY = new XContentBuilderString("primary");
+        static final XContentBuilderString INDEXING_RATE = new XContentBuilderString("indexing_rate");
+        static final XContentBuilderString SEARCH_RATE = new XContentBuilderString("search_rate");
+        static final XContentBuilderString STORE_SIZE = new XContentBuilderString("store_size");
+        static final XContentBuilderString STORE_SIZE_IN_BYTES = new XContentBuilderString("store_size_in_bytes");
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        entries = new Entry[in.readVInt()];
+        for (int i = 0; i < entries.length; i++) {
+            Entry entry = new Entry();
+            entry.shardId = ShardId.readShardId(in);
+            entry.primary = in.readBoolean();
+            entry.indexingRate = in.readDouble();
+            entry.searchRate = in.readDouble();
+            entry.storeSizeInBytes = in.readVLong();
+            entries[i] = entry;
+        }
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(entries.length);
+        for (Entry entry : entries) {
+            entry.shardId.writeTo(out);
+            out.writeBoolean(entry.primary);
+            out.writeDouble(entry.indexingRate);
+            out.writeDouble(entry.searchRate);
+            out.writeVLong(entry.storeSizeInBytes);
+        }
+    }
+}
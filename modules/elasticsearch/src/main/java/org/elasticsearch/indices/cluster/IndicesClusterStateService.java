@@ -25,14 +25,13 @@ import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.action.index.NodeAliasesUpdatedAction;
-import org.elasticsearch.cluster.action.index.NodeIndexCreatedAction;
 import org.elasticsearch.cluster.action.index.NodeIndexDeletedAction;
-import org.elasticsearch.cluster.action.index.NodeMappingCreatedAction;
 import org.elasticsearch.cluster.action.index.NodeMappingRefreshAction;
 import org.elasticsearch.cluster.action.shard.ShardStateAction;
 import org.elasticsearch.cluster.metadata.AliasMetaData;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
@@ -40,6 +39,7 @@ import org.elasticsearch.cluster.routing.MutableShardRouting;
 import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
@@ -48,6 +48,8 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.DynamicExecutors;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.IndexShardAlreadyExistsException;
 import org.elasticsearch.index.IndexShardMissingException;
 import org.elasticsearch.index.aliases.IndexAlias;
@@ -62,19 +64,26 @@ import org.elasticsearch.index.settings.IndexSettingsService;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.recovery.RecoveryFailedException;
-import org.elasticsearch.index.shard.recovery.RecoverySource;
+import org.elasticsearch.index.shard.recovery.RecoveryScheduler;
 import org.elasticsearch.index.shard.recovery.RecoveryTarget;
 import org.elasticsearch.index.shard.recovery.StartRecoveryRequest;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.shard.split.ShardSplitFailedException;
+import org.elasticsearch.index.shard.split.ShardSplitService;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.elasticsearch.ExceptionsHelper.*;
+import static org.elasticsearch.common.collect.Maps.*;
 import static org.elasticsearch.common.collect.Sets.*;
 
 /**
@@ -88,48 +97,59 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
 
     private final ThreadPool threadPool;
 
-    private final RecoverySource recoverySource;
+    private final RecoveryScheduler recoveryScheduler;
 
     private final RecoveryTarget recoveryTarget;
 
-    private final ShardStateAction shardStateAction;
+    private final ShardSplitService shardSplitService;
 
-    private final NodeIndexCreatedAction nodeIndexCreatedAction;
+    private final ShardStateAction shardStateAction;
 
     private final NodeIndexDeletedAction nodeIndexDeletedAction;
 
-    private final NodeMappingCreatedAction nodeMappingCreatedAction;
-
     private final NodeMappingRefreshAction nodeMappingRefreshAction;
 
     private final NodeAliasesUpdatedAction nodeAliasesUpdatedAction;
 
-    // a map of mappings type we have seen per index due to cluster state
+    // a map of mappings type we have seen per index due to cluster state, with the last mapping source applied
     // we need this so we won't remove types automatically created as part of the indexing process
-    private final ConcurrentMap<Tuple<String, String>, Boolean> seenMappings = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<Tuple<String, String>, CompressedString> seenMappings = ConcurrentCollections.newConcurrentMap();
+
+    private final int concurrentIndexUpdates;
+
+    private final TimeValue slowApplyThreshold;
+
+    private final ExecutorService executor;
 
     private final Object mutex = new Object();
 
     private final FailedEngineHandler failedEngineHandler = new FailedEngineHandler();
 
     @Inject public IndicesClusterStateService(Settings settings, IndicesService indicesService, ClusterService clusterService,
-                                              ThreadPool threadPool, RecoveryTarget recoveryTarget, RecoverySource recoverySource,
-                                              ShardStateAction shardStateAction,
-                                              NodeIndexCreatedAction nodeIndexCreatedAction, NodeIndexDeletedAction nodeIndexDeletedAction,
-                                              NodeMappingCreatedAction nodeMappingCreatedAction, NodeMappingRefreshAction nodeMappingRefreshAction,
+                                              ThreadPool threadPool, RecoveryTarget recoveryTarget, RecoveryScheduler recoveryScheduler,
+                                              ShardSplitService shardSplitService, ShardStateAction shardStateAction,
+                                              NodeIndexDeletedAction nodeIndexDeletedAction, NodeMappingRefreshAction nodeMappingRefreshAction,
                                               NodeAliasesUpdatedAction nodeAliasesUpdatedAction) {
         super(settings);
         this.indicesService = indicesService;
         this.clusterService = clusterService;
         this.threadPool = threadPool;
-        this.recoverySource = recoverySource;
+        this.recoveryScheduler = recoveryScheduler;
         this.recoveryTarget = recoveryTarget;
+        this.shardSplitService = shardSplitService;
         this.shardStateAction = shardStateAction;
-        this.nodeIndexCreatedAction = nodeIndexCreatedAction;
         this.nodeIndexDeletedAction = nodeIndexDeletedAction;
-        this.nodeMappingCreatedAction = nodeMappingCreatedAction;
         this.nodeMappingRefreshAction = nodeMappingRefreshAction;
         this.nodeAliasesUpdatedAction = nodeAliasesUpdatedAction;
+
+        this.concurrentIndexUpdates = componentSettings.getAsInt("concurrent_index_updates", Runtime.getRuntime().availableProcessors());
+        this.slowApplyThreshold = componentSettings.getAsTime("slow_apply_threshold", TimeValue.timeValueSeconds(1));
+        if (concurrentIndexUpdates > 1) {
+            this.executor = DynamicExecutors.newScalingThreadPool(1, concurrentIndexUpdates, TimeValue.timeValueSeconds(60).millis(),
+                    EsExecutors.daemonThreadFactory(settings, "indices_cluster_state"));
+        } else {
+            this.executor = null;
+        }
     }
 
     @Override protected void doStart() throws ElasticSearchException {
@@ -141,7 +161,10 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
     }
 
     @Override protected void doClose() throws ElasticSearchException {
-        recoverySource.close();
+        recoveryScheduler.close();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
     }
 
     @Override public void clusterChanged(final ClusterChangedEvent event) {
@@ -172,14 +195,117 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
                 return;
             }
 
-            applyNewIndices(event);
-            applyMappings(event);
-            applyAliases(event);
-            applyNewOrUpdatedShards(event);
+            StepsTimer timer = new StepsTimer();
+            applyIndices(event, timer);
+            timer.step("indices");
             applyDeletedIndices(event);
+            timer.step("deleted_indices");
             applyDeletedShards(event);
+            timer.step("deleted_shards");
             applyCleanedIndices(event);
+            timer.step("cleaned_indices");
             applySettings(event);
+            timer.step("settings");
+            if (timer.totalTime() > slowApplyThreshold.millis()) {
+                logger.warn("applying cluster state version [{}] took [{}], steps {}", event.state().version(), TimeValue.timeValueMillis(timer.totalTime()), timer);
+            } else if (logger.isTraceEnabled()) {
+                logger.trace("applying cluster state version [{}] took [{}], steps {}", event.state().version(), TimeValue.timeValueMillis(timer.totalTime()), timer);
+            }
+        }
+    }
+
+    /**
+     * Applies the new indices, mappings, aliases and new or updated shards of the new cluster state. Each index is
+     * handled by its own task, executed concurrently on the (bounded) cluster state thread pool, and this method
+     * waits for all of them to be done, so the cluster state is only considered applied once all the indices are.
+     */
+    private void applyIndices(final ClusterChangedEvent event, final StepsTimer timer) {
+        // we only create indices for shards that are allocated
+        RoutingNode routingNode = event.state().readOnlyRoutingNodes().nodesToShards().get(event.state().nodes().localNodeId());
+        final Map<String, List<ShardRouting>> shardsPerIndex = newHashMap();
+        if (routingNode != null) {
+            for (MutableShardRouting shard : routingNode) {
+                List<ShardRouting> shards = shardsPerIndex.get(shard.index());
+                if (shards == null) {
+                    shards = Lists.newArrayList();
+                    shardsPerIndex.put(shard.index(), shards);
+                }
+                shards.add(shard);
+            }
+        }
+        final Set<String> indices = newHashSet(shardsPerIndex.keySet());
+        for (String index : indicesService.indices()) {
+            if (event.state().metaData().hasIndex(index)) {
+                indices.add(index);
+            }
+        }
+        final boolean aliasesChanged = aliasesChanged(event);
+
+        if (indices.size() <= 1 || concurrentIndexUpdates <= 1) {
+            for (String index : indices) {
+                applyIndex(event, index, shardsPerIndex.get(index), aliasesChanged, timer);
+            }
+        } else {
+            final CountDownLatch latch = new CountDownLatch(indices.size());
+            for (final String index : indices) {
+                try {
+                    executor.execute(new Runnable() {
+                        @Override public void run() {
+                            try {
+                                applyIndex(event, index, shardsPerIndex.get(index), aliasesChanged, timer);
+                            } finally {
+                                latch.countDown();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // we are shutting down
+                    latch.countDown();
+                }
+            }
+            // keep waiting even if interrupted, the next steps (deletions) must not run concurrently with the index tasks
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    latch.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (aliasesChanged) {
+            // Notify client that alias changes were applied
+            nodeAliasesUpdatedAction.nodeAliasesUpdated(
+                    new NodeAliasesUpdatedAction.NodeAliasesUpdatedResponse(event.state().nodes().localNodeId(), event.state().version()));
+        }
+    }
+
+    private void applyIndex(ClusterChangedEvent event, String index, @Nullable List<ShardRouting> shards, boolean aliasesChanged, StepsTimer timer) {
+        long start = System.currentTimeMillis();
+        try {
+            IndexMetaData indexMetaData = event.state().metaData().index(index);
+            if (indexMetaData == null) {
+                return;
+            }
+            if (!indicesService.hasIndex(index)) {
+                applyNewIndex(event, indexMetaData);
+            }
+            applyMappings(event, indexMetaData);
+            if (aliasesChanged) {
+                applyAliases(indexMetaData);
+            }
+            if (shards != null) {
+                applyNewOrUpdatedShards(event, shards);
+            }
+        } catch (Exception e) {
+            logger.warn("[{}] failed to apply cluster state version [{}]", e, index, event.state().version());
+        } finally {
+            timer.index(index, System.currentTimeMillis() - start);
         }
     }
 
@@ -279,26 +405,11 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         }
     }
 
-    private void applyNewIndices(final ClusterChangedEvent event) {
-        // we only create indices for shards that are allocated
-        RoutingNode routingNode = event.state().readOnlyRoutingNodes().nodesToShards().get(event.state().nodes().localNodeId());
-        if (routingNode == null) {
-            return;
-        }
-        for (MutableShardRouting shard : routingNode) {
-            if (!indicesService.hasIndex(shard.index())) {
-                final IndexMetaData indexMetaData = event.state().metaData().index(shard.index());
-                if (logger.isDebugEnabled()) {
-                    logger.debug("[{}] creating index", indexMetaData.index());
-                }
-                indicesService.createIndex(indexMetaData.index(), indexMetaData.settings(), event.state().nodes().localNode().id());
-                threadPool.cached().execute(new Runnable() {
-                    @Override public void run() {
-                        nodeIndexCreatedAction.nodeIndexCreated(indexMetaData.index(), event.state().nodes().localNodeId());
-                    }
-                });
-            }
+    private void applyNewIndex(final ClusterChangedEvent event, final IndexMetaData indexMetaData) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("[{}] creating index", indexMetaData.index());
         }
+        indicesService.createIndex(indexMetaData.index(), indexMetaData.settings(), event.state().nodes().localNode().id());
     }
 
     private void applySettings(ClusterChangedEvent event) {
@@ -315,54 +426,51 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
     }
 
 
-    private void applyMappings(ClusterChangedEvent event) {
+    private void applyMappings(ClusterChangedEvent event, IndexMetaData indexMetaData) {
         // go over and update mappings
-        for (IndexMetaData indexMetaData : event.state().metaData()) {
-            if (!indicesService.hasIndex(indexMetaData.index())) {
-                // we only create / update here
+        List<String> typesToRefresh = null;
+        String index = indexMetaData.index();
+        IndexService indexService = indicesService.indexServiceSafe(index);
+        MapperService mapperService = indexService.mapperService();
+        // first, go over and update the _default_ mapping (if exists)
+        if (indexMetaData.mappings().containsKey(MapperService.DEFAULT_MAPPING)) {
+            processMapping(event, index, mapperService, MapperService.DEFAULT_MAPPING, indexMetaData.mapping(MapperService.DEFAULT_MAPPING).source());
+        }
+
+        // go over and add the relevant mappings (or update them)
+        for (MappingMetaData mappingMd : indexMetaData.mappings().values()) {
+            String mappingType = mappingMd.type();
+            CompressedString mappingSource = mappingMd.source();
+            if (mappingType.equals(MapperService.DEFAULT_MAPPING)) { // we processed _default_ first
                 continue;
             }
-            List<String> typesToRefresh = null;
-            String index = indexMetaData.index();
-            IndexService indexService = indicesService.indexServiceSafe(index);
-            MapperService mapperService = indexService.mapperService();
-            // first, go over and update the _default_ mapping (if exists)
-            if (indexMetaData.mappings().containsKey(MapperService.DEFAULT_MAPPING)) {
-                processMapping(event, index, mapperService, MapperService.DEFAULT_MAPPING, indexMetaData.mapping(MapperService.DEFAULT_MAPPING).source());
-            }
-
-            // go over and add the relevant mappings (or update them)
-            for (MappingMetaData mappingMd : indexMetaData.mappings().values()) {
-                String mappingType = mappingMd.type();
-                CompressedString mappingSource = mappingMd.source();
-                if (mappingType.equals(MapperService.DEFAULT_MAPPING)) { // we processed _default_ first
-                    continue;
-                }
-                boolean requireRefresh = processMapping(event, index, mapperService, mappingType, mappingSource);
-                if (requireRefresh) {
-                    if (typesToRefresh == null) {
-                        typesToRefresh = Lists.newArrayList();
-                    }
-                    typesToRefresh.add(mappingType);
+            boolean requireRefresh = processMapping(event, index, mapperService, mappingType, mappingSource);
+            if (requireRefresh) {
+                if (typesToRefresh == null) {
+                    typesToRefresh = Lists.newArrayList();
                 }
+                typesToRefresh.add(mappingType);
             }
-            if (typesToRefresh != null) {
-                nodeMappingRefreshAction.nodeMappingRefresh(new NodeMappingRefreshAction.NodeMappingRefreshRequest(index, typesToRefresh.toArray(new String[typesToRefresh.size()]), event.state().nodes().localNodeId()));
-            }
-            // go over and remove mappings
-            for (DocumentMapper documentMapper : mapperService) {
-                if (seenMappings.containsKey(new Tuple<String, String>(index, documentMapper.type())) && !indexMetaData.mappings().containsKey(documentMapper.type())) {
-                    // we have it in our mappings, but not in the metadata, and we have seen it in the cluster state, remove it
-                    mapperService.remove(documentMapper.type());
-                    seenMappings.remove(new Tuple<String, String>(index, documentMapper.type()));
-                }
+        }
+        if (typesToRefresh != null) {
+            nodeMappingRefreshAction.nodeMappingRefresh(new NodeMappingRefreshAction.NodeMappingRefreshRequest(index, typesToRefresh.toArray(new String[typesToRefresh.size()]), event.state().nodes().localNodeId()));
+        }
+        // go over and remove mappings
+        for (DocumentMapper documentMapper : mapperService) {
+            if (seenMappings.containsKey(new Tuple<String, String>(index, documentMapper.type())) && !indexMetaData.mappings().containsKey(documentMapper.type())) {
+                // we have it in our mappings, but not in the metadata, and we have seen it in the cluster state, remove it
+                mapperService.remove(documentMapper.type());
+                seenMappings.remove(new Tuple<String, String>(index, documentMapper.type()));
             }
         }
     }
 
     private boolean processMapping(ClusterChangedEvent event, String index, MapperService mapperService, String mappingType, CompressedString mappingSource) {
-        if (!seenMappings.containsKey(new Tuple<String, String>(index, mappingType))) {
-            seenMappings.put(new Tuple<String, String>(index, mappingType), true);
+        Tuple<String, String> key = new Tuple<String, String>(index, mappingType);
+        CompressedString appliedSource = seenMappings.get(key);
+        if (mappingSource.equals(appliedSource) && mapperService.hasMapping(mappingType)) {
+            // we already applied this exact mapping source (the hash is compared first), no need to parse it again
+            return false;
         }
 
         boolean requiresRefresh = false;
@@ -377,7 +485,6 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
                     logger.debug("[{}] parsed mapping [{}], and got different sources\noriginal:\n{}\nparsed:\n{}", index, mappingType, mappingSource, mapperService.documentMapper(mappingType).mappingSource());
                     requiresRefresh = true;
                 }
-                nodeMappingCreatedAction.nodeMappingCreated(new NodeMappingCreatedAction.NodeMappingCreatedResponse(index, mappingType, event.state().nodes().localNodeId()));
             } else {
                 DocumentMapper existingMapper = mapperService.documentMapper(mappingType);
                 if (!mappingSource.equals(existingMapper.mappingSource())) {
@@ -391,10 +498,12 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
                         // this might happen when upgrading from 0.15 to 0.16
                         logger.debug("[{}] parsed mapping [{}], and got different sources\noriginal:\n{}\nparsed:\n{}", index, mappingType, mappingSource, mapperService.documentMapper(mappingType).mappingSource());
                     }
-                    nodeMappingCreatedAction.nodeMappingCreated(new NodeMappingCreatedAction.NodeMappingCreatedResponse(index, mappingType, event.state().nodes().localNodeId()));
                 }
             }
+            seenMappings.put(key, mappingSource);
         } catch (Exception e) {
+            // mark it as seen, a failed new mapping will still be retried since it won't exist in the mapper service
+            seenMappings.putIfAbsent(key, mappingSource);
             logger.warn("[{}] failed to add mapping [{}], source [{}]", e, index, mappingType, mappingSource);
         }
         return requiresRefresh;
@@ -404,32 +513,20 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         return !event.state().metaData().aliases().equals(event.previousState().metaData().aliases());
     }
 
-    private void applyAliases(ClusterChangedEvent event) {
-        // check if aliases changed
-        if (aliasesChanged(event)) {
-            // go over and update aliases
-            for (IndexMetaData indexMetaData : event.state().metaData()) {
-                if (!indicesService.hasIndex(indexMetaData.index())) {
-                    // we only create / update here
-                    continue;
-                }
-                String index = indexMetaData.index();
-                IndexService indexService = indicesService.indexService(index);
-                IndexAliasesService indexAliasesService = indexService.aliasesService();
-                for (AliasMetaData aliasesMd : indexMetaData.aliases().values()) {
-                    processAlias(index, aliasesMd.alias(), aliasesMd.filter(), indexAliasesService);
-                }
-                // go over and remove aliases
-                for (IndexAlias indexAlias : indexAliasesService) {
-                    if (!indexMetaData.aliases().containsKey(indexAlias.alias())) {
-                        // we have it in our aliases, but not in the metadata, remove it
-                        indexAliasesService.remove(indexAlias.alias());
-                    }
-                }
+    private void applyAliases(IndexMetaData indexMetaData) {
+        // go over and update aliases
+        String index = indexMetaData.index();
+        IndexService indexService = indicesService.indexServiceSafe(index);
+        IndexAliasesService indexAliasesService = indexService.aliasesService();
+        for (AliasMetaData aliasesMd : indexMetaData.aliases().values()) {
+            processAlias(index, aliasesMd.alias(), aliasesMd.filter(), indexAliasesService);
+        }
+        // go over and remove aliases
+        for (IndexAlias indexAlias : indexAliasesService) {
+            if (!indexMetaData.aliases().containsKey(indexAlias.alias())) {
+                // we have it in our aliases, but not in the metadata, remove it
+                indexAliasesService.remove(indexAlias.alias());
             }
-            // Notify client that alias changes were applied
-            nodeAliasesUpdatedAction.nodeAliasesUpdated(
-                    new NodeAliasesUpdatedAction.NodeAliasesUpdatedResponse(event.state().nodes().localNodeId(), event.state().version()));
         }
     }
 
@@ -455,19 +552,14 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
 
     }
 
-    private void applyNewOrUpdatedShards(final ClusterChangedEvent event) throws ElasticSearchException {
+    private void applyNewOrUpdatedShards(final ClusterChangedEvent event, List<ShardRouting> shards) throws ElasticSearchException {
         if (!indicesService.changesAllowed())
             return;
 
         RoutingTable routingTable = event.state().routingTable();
-        RoutingNode routingNodes = event.state().readOnlyRoutingNodes().nodesToShards().get(event.state().nodes().localNodeId());
-        if (routingNodes == null) {
-            return;
-        }
         DiscoveryNodes nodes = event.state().nodes();
 
-
-        for (final ShardRouting shardRouting : routingNodes) {
+        for (final ShardRouting shardRouting : shards) {
             final IndexService indexService = indicesService.indexService(shardRouting.index());
             if (indexService == null) {
                 // got deleted on us, ignore
@@ -492,12 +584,12 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
             }
 
             if (shardRouting.initializing()) {
-                applyInitializingShard(routingTable, nodes, shardRouting);
+                applyInitializingShard(event.state().metaData(), routingTable, nodes, shardRouting);
             }
         }
     }
 
-    private void applyInitializingShard(final RoutingTable routingTable, final DiscoveryNodes nodes, final ShardRouting shardRouting) throws ElasticSearchException {
+    private void applyInitializingShard(final MetaData metaData, final RoutingTable routingTable, final DiscoveryNodes nodes, final ShardRouting shardRouting) throws ElasticSearchException {
         final IndexService indexService = indicesService.indexServiceSafe(shardRouting.index());
         final int shardId = shardRouting.id();
 
@@ -571,28 +663,82 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
                     try {
                         // we are recovering a backup from a primary, so no need to mark it as relocated
                         final StartRecoveryRequest request = new StartRecoveryRequest(indexShard.shardId(), sourceNode, nodes.localNode(), false, indexShard.store().list());
-                        recoveryTarget.startRecovery(request, false, new PeerRecoveryListener(request, shardRouting, indexService));
+                        RecoveryScheduler.Priority priority;
+                        if (shardRouting.relocatingNodeId() != null) {
+                            priority = RecoveryScheduler.Priority.RELOCATION;
+                        } else if (!routingTable.index(shardRouting.index()).allPrimaryShardsActive()) {
+                            priority = RecoveryScheduler.Priority.RED_REPLICA;
+                        } else {
+                            priority = RecoveryScheduler.Priority.REPLICA;
+                        }
+                        recoveryTarget.startRecovery(request, priority, false, new PeerRecoveryListener(request, priority, shardRouting, indexService));
                     } catch (Exception e) {
-                        handleRecoveryFailure(indexService, shardRouting, true, e);
+                        innerHandleRecoveryFailure(indexService, shardRouting, true, e);
                         break;
                     }
                     break;
                 }
             }
         } else {
-            if (shardRouting.relocatingNodeId() == null) {
-                // we are the first primary, recover from the gateway
-                IndexShardGatewayService shardGatewayService = indexService.shardInjector(shardId).getInstance(IndexShardGatewayService.class);
-                shardGatewayService.recover(new IndexShardGatewayService.RecoveryListener() {
-                    @Override public void onRecoveryDone() {
-                        shardStateAction.shardStarted(shardRouting, "after recovery from gateway");
-                    }
-
-                    @Override public void onIgnoreRecovery(String reason) {
+            boolean split;
+            try {
+                split = shardRouting.relocatingNodeId() == null && shardSplitService.shouldSplit(metaData, indexShard);
+            } catch (Exception e) {
+                innerHandleRecoveryFailure(indexService, shardRouting, true, e);
+                return;
+            }
+            if (split) {
+                // the first primary of a split index, recover from the shard it was split from (allocated on this node)
+                recoveryScheduler.schedule(indexShard.shardId(), indexShard, RecoveryScheduler.Priority.PRIMARY, new Runnable() {
+                    @Override public void run() {
+                        try {
+                            shardSplitService.split(metaData, indexShard, new ShardSplitService.Listener() {
+                                @Override public void onSplitDone() {
+                                    recoveryScheduler.recoveryDone(indexShard.shardId(), indexShard);
+                                    shardStateAction.shardStarted(shardRouting, "after split");
+                                }
+
+                                @Override public void onIgnoreSplit(String reason) {
+                                    recoveryScheduler.recoveryDone(indexShard.shardId(), indexShard);
+                                }
+
+                                @Override public void onSplitFailed(ShardSplitFailedException e) {
+                                    recoveryScheduler.recoveryDone(indexShard.shardId(), indexShard);
+                                    handleRecoveryFailure(indexService, shardRouting, true, e);
+                                }
+                            });
+                        } catch (Exception e) {
+                            recoveryScheduler.recoveryDone(indexShard.shardId(), indexShard);
+                            handleRecoveryFailure(indexService, shardRouting, true, e);
+                        }
                     }
-
-                    @Override public void onRecoveryFailed(IndexShardGatewayRecoveryException e) {
-                        handleRecoveryFailure(indexService, shardRouting, true, e);
+                });
+            } else if (shardRouting.relocatingNodeId() == null) {
+                // we are the first primary, recover from the gateway
+                final IndexShardGatewayService shardGatewayService = indexService.shardInjector(shardId).getInstance(IndexShardGatewayService.class);
+                // primaries are recovered first, ahead of any pending peer recovery on this node
+                recoveryScheduler.schedule(indexShard.shardId(), indexShard, RecoveryScheduler.Priority.PRIMARY, new Runnable() {
+                    @Override public void run() {
+                        try {
+                            shardGatewayService.recover(new IndexShardGatewayService.RecoveryListener() {
+                                @Override public void onRecoveryDone() {
+                                    recoveryScheduler.recoveryDone(indexShard.shardId(), indexShard);
+                                    shardStateAction.shardStarted(shardRouting, "after recovery from gateway");
+                                }
+
+                                @Override public void onIgnoreRecovery(String reason) {
+                                    recoveryScheduler.recoveryDone(indexShard.shardId(), indexShard);
+                                }
+
+                                @Override public void onRecoveryFailed(IndexShardGatewayRecoveryException e) {
+                                    recoveryScheduler.recoveryDone(indexShard.shardId(), indexShard);
+                                    handleRecoveryFailure(indexService, shardRouting, true, e);
+                                }
+                            });
+                        } catch (Exception e) {
+                            recoveryScheduler.recoveryDone(indexShard.shardId(), indexShard);
+                            handleRecoveryFailure(indexService, shardRouting, true, e);
+                        }
                     }
                 });
             } else {
@@ -602,9 +748,9 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
                     // we don't mark this one as relocated at the end, requests in any case are routed to both when its relocating
                     // and that way we handle the edge case where its mark as relocated, and we might need to roll it back...
                     final StartRecoveryRequest request = new StartRecoveryRequest(indexShard.shardId(), sourceNode, nodes.localNode(), false, indexShard.store().list());
-                    recoveryTarget.startRecovery(request, false, new PeerRecoveryListener(request, shardRouting, indexService));
+                    recoveryTarget.startRecovery(request, RecoveryScheduler.Priority.RELOCATION, false, new PeerRecoveryListener(request, RecoveryScheduler.Priority.RELOCATION, shardRouting, indexService));
                 } catch (Exception e) {
-                    handleRecoveryFailure(indexService, shardRouting, true, e);
+                    innerHandleRecoveryFailure(indexService, shardRouting, true, e);
                 }
             }
         }
@@ -614,12 +760,15 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
 
         private final StartRecoveryRequest request;
 
+        private final RecoveryScheduler.Priority priority;
+
         private final ShardRouting shardRouting;
 
         private final IndexService indexService;
 
-        private PeerRecoveryListener(StartRecoveryRequest request, ShardRouting shardRouting, IndexService indexService) {
+        private PeerRecoveryListener(StartRecoveryRequest request, RecoveryScheduler.Priority priority, ShardRouting shardRouting, IndexService indexService) {
             this.request = request;
+            this.priority = priority;
             this.shardRouting = shardRouting;
             this.indexService = indexService;
         }
@@ -631,7 +780,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         @Override public void onRetryRecovery(TimeValue retryAfter) {
             threadPool.schedule(retryAfter, ThreadPool.Names.CACHED, new Runnable() {
                 @Override public void run() {
-                    recoveryTarget.startRecovery(request, true, PeerRecoveryListener.this);
+                    recoveryTarget.startRecovery(request, priority, true, PeerRecoveryListener.this);
                 }
             });
         }
@@ -662,23 +811,31 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
     }
 
     private void handleRecoveryFailure(IndexService indexService, ShardRouting shardRouting, boolean sendShardFailure, Throwable failure) {
-        logger.warn("[{}][{}] failed to start shard", failure, indexService.index().name(), shardRouting.shardId().id());
         synchronized (mutex) {
-            if (indexService.hasShard(shardRouting.shardId().id())) {
-                try {
-                    indexService.removeShard(shardRouting.shardId().id(), "recovery failure [" + ExceptionsHelper.detailedMessage(failure) + "]");
-                } catch (IndexShardMissingException e) {
-                    // the node got closed on us, ignore it
-                } catch (Exception e1) {
-                    logger.warn("[{}][{}] failed to delete shard after failed startup", e1, indexService.index().name(), shardRouting.shardId().id());
-                }
+            innerHandleRecoveryFailure(indexService, shardRouting, sendShardFailure, failure);
+        }
+    }
+
+    /**
+     * Handles a recovery failure without acquiring the mutex, used when failing while applying a cluster state
+     * (the mutex is then held by the cluster state thread, waiting for the indices to be applied).
+     */
+    private void innerHandleRecoveryFailure(IndexService indexService, ShardRouting shardRouting, boolean sendShardFailure, Throwable failure) {
+        logger.warn("[{}][{}] failed to start shard", failure, indexService.index().name(), shardRouting.shardId().id());
+        if (indexService.hasShard(shardRouting.shardId().id())) {
+            try {
+                indexService.removeShard(shardRouting.shardId().id(), "recovery failure [" + ExceptionsHelper.detailedMessage(failure) + "]");
+            } catch (IndexShardMissingException e) {
+                // the node got closed on us, ignore it
+            } catch (Exception e1) {
+                logger.warn("[{}][{}] failed to delete shard after failed startup", e1, indexService.index().name(), shardRouting.shardId().id());
             }
-            if (sendShardFailure) {
-                try {
-                    shardStateAction.shardFailed(shardRouting, "Failed to start shard, message [" + detailedMessage(failure) + "]");
-                } catch (Exception e1) {
-                    logger.warn("[{}][{}] failed to mark shard as failed after a failed start", e1, indexService.index().name(), shardRouting.id());
-                }
+        }
+        if (sendShardFailure) {
+            try {
+                shardStateAction.shardFailed(shardRouting, "Failed to start shard, message [" + detailedMessage(failure) + "]");
+            } catch (Exception e1) {
+                logger.warn("[{}][{}] failed to mark shard as failed after a failed start", e1, indexService.index().name(), shardRouting.id());
             }
         }
     }
@@ -720,4 +877,47 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
             });
         }
     }
+
+    /**
+     * Times the steps of applying a cluster state, and the slowest index handled.
+     */
+    static class StepsTimer {
+
+        private final long startTime = System.currentTimeMillis();
+
+        private final StringBuilder steps = new StringBuilder();
+
+        private long lastStepTime = startTime;
+
+        private String slowestIndex;
+
+        private long slowestIndexTime = -1;
+
+        void step(String name) {
+            long now = System.currentTimeMillis();
+            if (steps.length() > 0) {
+                steps.append(", ");
+            }
+            steps.append(name).append(" [").append(TimeValue.timeValueMillis(now - lastStepTime)).append(']');
+            lastStepTime = now;
+        }
+
+        synchronized void index(String index, long time) {
+            if (time > slowestIndexTime) {
+                slowestIndex = index;
+                slowestIndexTime = time;
+            }
+        }
+
+        long totalTime() {
+            return lastStepTime - startTime;
+        }
+
+        @Override public synchronized String toString() {
+            if (slowestIndex == null) {
+                return "[" + steps + "]";
+            }
+            return "[" + steps + "], slowest index [" + slowestIndex + "] took [" + TimeValue.timeValueMillis(slowestIndexTime) + "]";
+        }
+    }
 }
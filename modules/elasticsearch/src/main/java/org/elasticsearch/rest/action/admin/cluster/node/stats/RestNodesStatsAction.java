@@ -83,6 +83,18 @@ public class RestNodesStatsAction extends BaseRestHandler {
                         if (nodeStats.network() != null) {
                             nodeStats.network().toXContent(builder, request);
                         }
+                        if (nodeStats.clusterUpdateTasks() != null) {
+                            nodeStats.clusterUpdateTasks().toXContent(builder, request);
+                        }
+                        if (nodeStats.clusterStatePublish() != null) {
+                            nodeStats.clusterStatePublish().toXContent(builder, request);
+                        }
+                        if (nodeStats.replicaSelection() != null) {
+                            nodeStats.replicaSelection().toXContent(builder, request);
+                        }
+                        if (nodeStats.shardsLoad() != null) {
+                            nodeStats.shardsLoad().toXContent(builder, request);
+                        }
 
                         builder.endObject();
                     }
@@ -21,6 +21,8 @@ package org.elasticsearch.search.action;
 
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.operation.ResponseCollector;
+import org.elasticsearch.cluster.routing.operation.ServiceTimedResponse;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.LongStreamable;
@@ -69,13 +71,17 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
     private final SearchService searchService;
 
+    private final ResponseCollector responseCollector;
+
     private final FreeContextResponseHandler freeContextResponseHandler = new FreeContextResponseHandler(logger);
 
-    @Inject public SearchServiceTransportAction(Settings settings, TransportService transportService, ClusterService clusterService, SearchService searchService) {
+    @Inject public SearchServiceTransportAction(Settings settings, TransportService transportService, ClusterService clusterService, SearchService searchService,
+                                                ResponseCollector responseCollector) {
         super(settings);
         this.transportService = transportService;
         this.clusterService = clusterService;
         this.searchService = searchService;
+        this.responseCollector = responseCollector;
 
         transportService.registerHandler(SearchFreeContextTransportHandler.ACTION, new SearchFreeContextTransportHandler());
         transportService.registerHandler(SearchDfsTransportHandler.ACTION, new SearchDfsTransportHandler());
@@ -98,26 +104,32 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteDfs(DiscoveryNode node, final InternalSearchRequest request, final SearchServiceListener<DfsSearchResult> listener) {
+    public void sendExecuteDfs(final DiscoveryNode node, final InternalSearchRequest request, final SearchServiceListener<DfsSearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
+                long start = System.nanoTime();
                 DfsSearchResult result = searchService.executeDfsPhase(request);
+                responseCollector.localResponse(node.id(), System.nanoTime() - start);
                 listener.onResult(result);
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
-            transportService.sendRequest(node, SearchDfsTransportHandler.ACTION, request, new BaseTransportResponseHandler<DfsSearchResult>() {
+            final long start = System.nanoTime();
+            responseCollector.requestSent(node.id());
+            transportService.sendRequest(node, SearchDfsTransportHandler.ACTION, request, new BaseTransportResponseHandler<ServiceTimedResponse<DfsSearchResult>>() {
 
-                @Override public DfsSearchResult newInstance() {
-                    return new DfsSearchResult();
+                @Override public ServiceTimedResponse<DfsSearchResult> newInstance() {
+                    return new ServiceTimedResponse<DfsSearchResult>(new DfsSearchResult());
                 }
 
-                @Override public void handleResponse(DfsSearchResult response) {
-                    listener.onResult(response);
+                @Override public void handleResponse(ServiceTimedResponse<DfsSearchResult> response) {
+                    responseCollector.responseReceived(node.id(), System.nanoTime() - start, response.serviceTimeInNanos());
+                    listener.onResult(response.response());
                 }
 
                 @Override public void handleException(TransportException exp) {
+                    responseCollector.requestFailed(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -128,26 +140,32 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteQuery(DiscoveryNode node, final InternalSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteQuery(final DiscoveryNode node, final InternalSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
+                long start = System.nanoTime();
                 QuerySearchResult result = searchService.executeQueryPhase(request);
+                responseCollector.localResponse(node.id(), System.nanoTime() - start);
                 listener.onResult(result);
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
-            transportService.sendRequest(node, SearchQueryTransportHandler.ACTION, request, new BaseTransportResponseHandler<QuerySearchResult>() {
+            final long start = System.nanoTime();
+            responseCollector.requestSent(node.id());
+            transportService.sendRequest(node, SearchQueryTransportHandler.ACTION, request, new BaseTransportResponseHandler<ServiceTimedResponse<QuerySearchResult>>() {
 
-                @Override public QuerySearchResult newInstance() {
-                    return new QuerySearchResult();
+                @Override public ServiceTimedResponse<QuerySearchResult> newInstance() {
+                    return new ServiceTimedResponse<QuerySearchResult>(new QuerySearchResult());
                 }
 
-                @Override public void handleResponse(QuerySearchResult response) {
-                    listener.onResult(response);
+                @Override public void handleResponse(ServiceTimedResponse<QuerySearchResult> response) {
+                    responseCollector.responseReceived(node.id(), System.nanoTime() - start, response.serviceTimeInNanos());
+                    listener.onResult(response.response());
                 }
 
                 @Override public void handleException(TransportException exp) {
+                    responseCollector.requestFailed(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -218,26 +236,32 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final InternalSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
+    public void sendExecuteFetch(final DiscoveryNode node, final InternalSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
+                long start = System.nanoTime();
                 QueryFetchSearchResult result = searchService.executeFetchPhase(request);
+                responseCollector.localResponse(node.id(), System.nanoTime() - start);
                 listener.onResult(result);
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
-            transportService.sendRequest(node, SearchQueryFetchTransportHandler.ACTION, request, new BaseTransportResponseHandler<QueryFetchSearchResult>() {
+            final long start = System.nanoTime();
+            responseCollector.requestSent(node.id());
+            transportService.sendRequest(node, SearchQueryFetchTransportHandler.ACTION, request, new BaseTransportResponseHandler<ServiceTimedResponse<QueryFetchSearchResult>>() {
 
-                @Override public QueryFetchSearchResult newInstance() {
-                    return new QueryFetchSearchResult();
+                @Override public ServiceTimedResponse<QueryFetchSearchResult> newInstance() {
+                    return new ServiceTimedResponse<QueryFetchSearchResult>(new QueryFetchSearchResult());
                 }
 
-                @Override public void handleResponse(QueryFetchSearchResult response) {
-                    listener.onResult(response);
+                @Override public void handleResponse(ServiceTimedResponse<QueryFetchSearchResult> response) {
+                    responseCollector.responseReceived(node.id(), System.nanoTime() - start, response.serviceTimeInNanos());
+                    listener.onResult(response.response());
                 }
 
                 @Override public void handleException(TransportException exp) {
+                    responseCollector.requestFailed(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -338,26 +362,32 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteScan(DiscoveryNode node, final InternalSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteScan(final DiscoveryNode node, final InternalSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
+                long start = System.nanoTime();
                 QuerySearchResult result = searchService.executeScan(request);
+                responseCollector.localResponse(node.id(), System.nanoTime() - start);
                 listener.onResult(result);
             } catch (Exception e) {
                 listener.onFailure(e);
             }
         } else {
-            transportService.sendRequest(node, SearchScanTransportHandler.ACTION, request, new BaseTransportResponseHandler<QuerySearchResult>() {
+            final long start = System.nanoTime();
+            responseCollector.requestSent(node.id());
+            transportService.sendRequest(node, SearchScanTransportHandler.ACTION, request, new BaseTransportResponseHandler<ServiceTimedResponse<QuerySearchResult>>() {
 
-                @Override public QuerySearchResult newInstance() {
-                    return new QuerySearchResult();
+                @Override public ServiceTimedResponse<QuerySearchResult> newInstance() {
+                    return new ServiceTimedResponse<QuerySearchResult>(new QuerySearchResult());
                 }
 
-                @Override public void handleResponse(QuerySearchResult response) {
-                    listener.onResult(response);
+                @Override public void handleResponse(ServiceTimedResponse<QuerySearchResult> response) {
+                    responseCollector.responseReceived(node.id(), System.nanoTime() - start, response.serviceTimeInNanos());
+                    listener.onResult(response.response());
                 }
 
                 @Override public void handleException(TransportException exp) {
+                    responseCollector.requestFailed(node.id());
                     listener.onFailure(exp);
                 }
 
@@ -426,8 +456,9 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
 
         @Override public void messageReceived(InternalSearchRequest request, TransportChannel channel) throws Exception {
+            long start = System.nanoTime();
             DfsSearchResult result = searchService.executeDfsPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(new ServiceTimedResponse<DfsSearchResult>(result, System.nanoTime() - start));
         }
 
         @Override public String executor() {
@@ -444,8 +475,9 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
 
         @Override public void messageReceived(InternalSearchRequest request, TransportChannel channel) throws Exception {
+            long start = System.nanoTime();
             QuerySearchResult result = searchService.executeQueryPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(new ServiceTimedResponse<QuerySearchResult>(result, System.nanoTime() - start));
         }
 
         @Override public String executor() {
@@ -498,8 +530,9 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
 
         @Override public void messageReceived(InternalSearchRequest request, TransportChannel channel) throws Exception {
+            long start = System.nanoTime();
             QueryFetchSearchResult result = searchService.executeFetchPhase(request);
-            channel.sendResponse(result);
+            channel.sendResponse(new ServiceTimedResponse<QueryFetchSearchResult>(result, System.nanoTime() - start));
         }
 
         @Override public String executor() {
@@ -570,8 +603,9 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
 
         @Override public void messageReceived(InternalSearchRequest request, TransportChannel channel) throws Exception {
+            long start = System.nanoTime();
             QuerySearchResult result = searchService.executeScan(request);
-            channel.sendResponse(result);
+            channel.sendResponse(new ServiceTimedResponse<QuerySearchResult>(result, System.nanoTime() - start));
         }
 
         @Override public String executor() {
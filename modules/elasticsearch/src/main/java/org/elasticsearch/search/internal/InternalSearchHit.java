@@ -23,7 +23,6 @@ import org.apache.lucene.search.Explanation;
 import org.elasticsearch.ElasticSearchParseException;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
-import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.compress.lzf.LZF;
 import org.elasticsearch.common.compress.lzf.LZFDecoder;
@@ -32,6 +31,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.rest.action.support.RestXContentBuilder;
 import org.elasticsearch.search.SearchHit;
@@ -175,7 +175,12 @@ public class InternalSearchHit implements SearchHit {
         if (source == null) {
             return null;
         }
-        return Unicode.fromBytes(source());
+        byte[] source = source();
+        try {
+            return XContentHelper.convertToJson(source, 0, source.length);
+        } catch (IOException e) {
+            throw new ElasticSearchParseException("failed to convert source to a json string", e);
+        }
     }
 
     @SuppressWarnings({"unchecked"})
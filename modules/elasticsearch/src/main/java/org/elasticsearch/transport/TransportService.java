@@ -36,6 +36,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicLong;
@@ -58,6 +59,10 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
     final AtomicLong requestIds = new AtomicLong();
 
+    // the (estimated) time the last response was received from each node, any response (including a remote failure)
+    // indicates that the node is alive, allowing fault detection to skip pinging busy nodes
+    final ConcurrentMap<DiscoveryNode, AtomicLong> lastResponseTimes = ConcurrentCollections.newConcurrentMap();
+
     final CopyOnWriteArrayList<TransportConnectionListener> connectionListeners = new CopyOnWriteArrayList<TransportConnectionListener>();
 
     // An LRU (don't really care about concurrency here) that holds the latest timed out requests so if they
@@ -125,6 +130,18 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
         transport.disconnectFromNode(node);
     }
 
+    /**
+     * The (estimated) time in milliseconds a response was last received from the provided node, <tt>-1</tt>
+     * if no response was received from it since it got connected.
+     */
+    public long lastResponseTime(DiscoveryNode node) {
+        AtomicLong lastResponseTime = lastResponseTimes.get(node);
+        if (lastResponseTime == null) {
+            return -1;
+        }
+        return lastResponseTime.get();
+    }
+
     public void addConnectionListener(TransportConnectionListener listener) {
         connectionListeners.add(listener);
     }
@@ -243,6 +260,15 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
                 return null;
             }
             holder.cancel();
+            AtomicLong lastResponseTime = lastResponseTimes.get(holder.node());
+            if (lastResponseTime == null) {
+                AtomicLong newLastResponseTime = new AtomicLong();
+                lastResponseTime = lastResponseTimes.putIfAbsent(holder.node(), newLastResponseTime);
+                if (lastResponseTime == null) {
+                    lastResponseTime = newLastResponseTime;
+                }
+            }
+            lastResponseTime.lazySet(threadPool.estimatedTimeInMillis());
             return holder.handler();
         }
 
@@ -257,6 +283,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
         }
 
         @Override public void raiseNodeDisconnected(final DiscoveryNode node) {
+            lastResponseTimes.remove(node);
             threadPool.cached().execute(new Runnable() {
                 @Override public void run() {
                     for (TransportConnectionListener connectionListener : connectionListeners) {
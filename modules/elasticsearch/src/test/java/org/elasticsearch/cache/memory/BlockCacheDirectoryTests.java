@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cache.memory;
+
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class BlockCacheDirectoryTests {
+
+    @Test public void testReadThroughCache() throws IOException {
+        BlockCache blockCache = new BlockCache(16, 64, false);
+        BlockCacheDirectory dir = new BlockCacheDirectory(new RAMDirectory(), blockCache);
+        writeFile(dir, "test", 100);
+
+        IndexInput input = dir.openInput("test");
+        assertThat(input.length(), equalTo(100l));
+        for (int i = 0; i < 100; i++) {
+            assertThat(input.readByte(), equalTo((byte) i));
+        }
+        assertThat(dir.stats().misses(), greaterThan(0l));
+        // only 4 blocks fit in the cache, the rest were evicted
+        assertThat(dir.stats().evictions(), greaterThan(0l));
+        assertThat(dir.stats().sizeInBytes(), lessThanOrEqualTo(64l));
+
+        // the last block is still cached, a fresh input should be served from the cache
+        long hits = dir.stats().hits();
+        IndexInput other = dir.openInput("test");
+        other.seek(96);
+        for (int i = 96; i < 100; i++) {
+            assertThat(other.readByte(), equalTo((byte) i));
+        }
+        assertThat(dir.stats().hits(), greaterThan(hits));
+        other.close();
+
+        IndexInput clone = (IndexInput) input.clone();
+        clone.seek(10);
+        byte[] bytes = new byte[50];
+        clone.readBytes(bytes, 0, bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            assertThat(bytes[i], equalTo((byte) (i + 10)));
+        }
+        input.close();
+    }
+
+    @Test public void testDeleteInvalidatesBlocks() throws IOException {
+        BlockCache blockCache = new BlockCache(16, 1024, false);
+        BlockCacheDirectory dir = new BlockCacheDirectory(new RAMDirectory(), blockCache);
+        writeFile(dir, "test", 40);
+
+        IndexInput input = dir.openInput("test");
+        byte[] bytes = new byte[40];
+        input.readBytes(bytes, 0, bytes.length);
+        input.close();
+        assertThat(dir.stats().sizeInBytes(), equalTo(40l));
+
+        dir.deleteFile("test");
+        assertThat(dir.stats().sizeInBytes(), equalTo(0l));
+
+        dir.close();
+    }
+
+    private void writeFile(BlockCacheDirectory dir, String name, int size) throws IOException {
+        IndexOutput output = dir.createOutput(name);
+        for (int i = 0; i < size; i++) {
+            output.writeByte((byte) i);
+        }
+        output.close();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cache.memory;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class BlockCacheTests {
+
+    @Test public void testInvalidateFileOnlyRemovesItsBlocks() {
+        BlockCache blockCache = new BlockCache(16, 16 * 10, false);
+        BlockCache.Owner owner = new BlockCache.Owner();
+        long fileId1 = blockCache.newFileId();
+        long fileId2 = blockCache.newFileId();
+        for (int block = 0; block < 3; block++) {
+            blockCache.put(owner, fileId1, block, block(fileId1, block), 0, 16);
+        }
+        for (int block = 0; block < 2; block++) {
+            blockCache.put(owner, fileId2, block, block(fileId2, block), 0, 16);
+        }
+        assertThat(owner.cachedBlocks.get(), equalTo(5l));
+
+        blockCache.invalidate(fileId1);
+        assertThat(owner.cachedBlocks.get(), equalTo(2l));
+        assertThat(owner.cachedBytes.get(), equalTo(32l));
+        byte[] bytes = new byte[16];
+        for (int block = 0; block < 3; block++) {
+            assertThat(blockCache.read(owner, fileId1, block, 0, bytes, 0, 16), equalTo(false));
+        }
+        for (int block = 0; block < 2; block++) {
+            assertThat(blockCache.read(owner, fileId2, block, 0, bytes, 0, 16), equalTo(true));
+            assertThat(bytes, equalTo(block(fileId2, block)));
+        }
+
+        // the invalidated slots are reused before anything gets evicted
+        for (int block = 0; block < 8; block++) {
+            blockCache.put(owner, fileId1, block, block(fileId1, block), 0, 16);
+        }
+        assertThat(owner.cachedBlocks.get(), equalTo(10l));
+        assertThat(owner.evictions.get(), equalTo(0l));
+
+        blockCache.invalidate(owner);
+        assertThat(owner.cachedBlocks.get(), equalTo(0l));
+        assertThat(owner.cachedBytes.get(), equalTo(0l));
+        blockCache.close();
+    }
+
+    @Test public void testConcurrentPutsReadsAndInvalidations() throws Exception {
+        final BlockCache blockCache = new BlockCache(16, 16 * 8, false);
+        final BlockCache.Owner owner = new BlockCache.Owner();
+        final long[] fileIds = new long[4];
+        for (int i = 0; i < fileIds.length; i++) {
+            fileIds[i] = blockCache.newFileId();
+        }
+        final AtomicInteger corruptedReads = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            final int threadId = t;
+            new Thread() {
+                @Override public void run() {
+                    Random random = new Random(threadId);
+                    byte[] bytes = new byte[16];
+                    try {
+                        for (int i = 0; i < 10000; i++) {
+                            long fileId = fileIds[random.nextInt(fileIds.length)];
+                            if (threadId == 0 && i % 100 == 0) {
+                                blockCache.invalidate(fileId);
+                                continue;
+                            }
+                            int block = random.nextInt(16);
+                            if (blockCache.read(owner, fileId, block, 0, bytes, 0, 16)) {
+                                if (!Arrays.equals(bytes, block(fileId, block))) {
+                                    corruptedReads.incrementAndGet();
+                                }
+                            } else {
+                                blockCache.put(owner, fileId, block, block(fileId, block), 0, 16);
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+        latch.await();
+
+        assertThat(corruptedReads.get(), equalTo(0));
+        assertThat(owner.cachedBlocks.get(), lessThanOrEqualTo(8l));
+        assertThat(owner.cachedBytes.get(), equalTo(owner.cachedBlocks.get() * 16));
+        // every cached block is tracked under its file
+        for (long fileId : fileIds) {
+            blockCache.invalidate(fileId);
+        }
+        assertThat(owner.cachedBlocks.get(), equalTo(0l));
+        assertThat(owner.cachedBytes.get(), equalTo(0l));
+        blockCache.close();
+    }
+
+    private static byte[] block(long fileId, int block) {
+        byte[] bytes = new byte[16];
+        Arrays.fill(bytes, (byte) (fileId * 31 + block));
+        return bytes;
+    }
+}
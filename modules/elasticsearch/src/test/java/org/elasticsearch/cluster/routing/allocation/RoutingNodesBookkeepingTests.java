@@ -0,0 +1,295 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation;
+
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.routing.MutableShardRouting;
+import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.cluster.routing.RoutingNodes;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.collect.ImmutableSet;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.ShardId;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.cluster.ClusterState.*;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
+import static org.elasticsearch.cluster.metadata.MetaData.*;
+import static org.elasticsearch.cluster.node.DiscoveryNodes.*;
+import static org.elasticsearch.cluster.routing.RoutingBuilders.*;
+import static org.elasticsearch.cluster.routing.ShardRoutingState.*;
+import static org.elasticsearch.cluster.routing.allocation.RoutingAllocationTests.*;
+import static org.elasticsearch.common.collect.Maps.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Checks the shard counts maintained incrementally by {@link RoutingNodes} and {@link RoutingNode} against a
+ * full recount, and that the results cached in {@link RoutingAllocation} only live for a single reroute.
+ */
+@Test
+public class RoutingNodesBookkeepingTests {
+
+    private final ESLogger logger = Loggers.getLogger(RoutingNodesBookkeepingTests.class);
+
+    @Test public void testIncrementalCountsMatchRecount() {
+        Settings settings = settingsBuilder()
+                .put("cluster.routing.allocation.concurrent_recoveries", 10)
+                .put("cluster.routing.allocation.node_initial_primaries_recoveries", 10)
+                .put("cluster.routing.allocation.allow_rebalance", "always")
+                .build();
+        ProbeNodeAllocation probe = new ProbeNodeAllocation(settings);
+        ShardsAllocation strategy = newStrategy(settings, probe);
+
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test1").numberOfShards(5).numberOfReplicas(1))
+                .put(newIndexMetaDataBuilder("test2").numberOfShards(3).numberOfReplicas(2))
+                .build();
+        RoutingTable routingTable = routingTable()
+                .add(indexRoutingTable("test1").initializeEmpty(metaData.index("test1")))
+                .add(indexRoutingTable("test2").initializeEmpty(metaData.index("test2")))
+                .build();
+        ClusterState clusterState = newClusterStateBuilder().metaData(metaData).routingTable(routingTable).build();
+
+        logger.info("adding three nodes and allocating");
+        clusterState = newClusterStateBuilder().state(clusterState).nodes(newNodesBuilder().put(newNode("node1")).put(newNode("node2")).put(newNode("node3"))).build();
+        probe.reset();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        assertBookkeeping(probe.routingNodes);
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+        assertThat(routingTable.shardsWithState(INITIALIZING).size(), greaterThan(0));
+
+        clusterState = startInitializingShards(strategy, probe, clusterState);
+        assertThat(clusterState.routingTable().shardsWithState(STARTED).size(), equalTo(19));
+
+        logger.info("adding a fourth node, shards get relocated to it");
+        clusterState = newClusterStateBuilder().state(clusterState).nodes(newNodesBuilder().putAll(clusterState.nodes()).put(newNode("node4"))).build();
+        probe.reset();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        assertBookkeeping(probe.routingNodes);
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+        assertThat(routingTable.shardsWithState(RELOCATING).size(), greaterThan(0));
+        assertBookkeeping(clusterState.routingNodes());
+
+        clusterState = startInitializingShards(strategy, probe, clusterState);
+        assertThat(clusterState.routingTable().shardsWithState(RELOCATING).size(), equalTo(0));
+
+        logger.info("failing a primary and a replica");
+        List<ShardRouting> failedShards = new ArrayList<ShardRouting>();
+        failedShards.add(clusterState.routingTable().index("test1").shard(0).primaryShard());
+        failedShards.add(clusterState.routingTable().index("test2").shard(1).replicaShards().get(0));
+        probe.reset();
+        routingTable = strategy.applyFailedShards(clusterState, failedShards).routingTable();
+        assertBookkeeping(probe.routingNodes);
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+        assertBookkeeping(clusterState.routingNodes());
+
+        clusterState = startInitializingShards(strategy, probe, clusterState);
+
+        logger.info("removing a node");
+        clusterState = newClusterStateBuilder().state(clusterState).nodes(newNodesBuilder().putAll(clusterState.nodes()).remove("node1")).build();
+        probe.reset();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        assertBookkeeping(probe.routingNodes);
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+        assertBookkeeping(clusterState.routingNodes());
+
+        clusterState = startInitializingShards(strategy, probe, clusterState);
+        assertThat(clusterState.routingTable().shardsWithState(STARTED).size(), equalTo(19));
+    }
+
+    @Test public void testDecisionCacheClearedBetweenReroutes() {
+        Settings settings = settingsBuilder()
+                .put("cluster.routing.allocation.concurrent_recoveries", 2)
+                .put("cluster.routing.allocation.node_initial_primaries_recoveries", 2)
+                .build();
+        ProbeNodeAllocation probe = new ProbeNodeAllocation(settings);
+        ShardsAllocation strategy = newStrategy(settings, probe);
+
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test").numberOfShards(10).numberOfReplicas(0))
+                .build();
+        RoutingTable routingTable = routingTable()
+                .add(indexRoutingTable("test").initializeEmpty(metaData.index("test")))
+                .build();
+        ClusterState clusterState = newClusterStateBuilder().metaData(metaData).routingTable(routingTable)
+                .nodes(newNodesBuilder().put(newNode("node1"))).build();
+
+        logger.info("first reroute, the node gets throttled after two primaries");
+        probe.reset();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+        // all the decisions of the reroute share a single cache
+        assertThat(probe.decisions, greaterThan(1));
+        assertThat(probe.cacheMisses, equalTo(1));
+        assertThat(routingTable.shardsWithState(INITIALIZING).size(), equalTo(2));
+
+        for (int started = 2; started < 10; started += 2) {
+            probe.reset();
+            routingTable = strategy.applyStartedShards(clusterState, routingTable.shardsWithState(INITIALIZING)).routingTable();
+            clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+            // the started shards are applied on the allocation before the reroute, which then starts with an empty cache
+            assertThat(probe.cacheMisses, equalTo(2));
+            // the node got throttled in the previous reroute, but is not anymore
+            assertThat(routingTable.shardsWithState(STARTED).size(), equalTo(started));
+            assertThat(routingTable.shardsWithState(INITIALIZING).size(), equalTo(2));
+        }
+    }
+
+    private ShardsAllocation newStrategy(Settings settings, ProbeNodeAllocation probe) {
+        return new ShardsAllocation(settings, new NodeAllocations(settings, ImmutableSet.<NodeAllocation>builder()
+                .add(probe)
+                .add(new SameShardNodeAllocation(settings))
+                .add(new ReplicaAfterPrimaryActiveNodeAllocation(settings))
+                .add(new ThrottlingNodeAllocation(settings))
+                .add(new RebalanceOnlyWhenActiveNodeAllocation(settings))
+                .add(new ClusterRebalanceNodeAllocation(settings))
+                .add(new ConcurrentRebalanceNodeAllocation(settings))
+                .add(new ShardsLoadNodeAllocation(settings))
+                .add(new SplitNodeAllocation(settings))
+                .build()));
+    }
+
+    private ClusterState startInitializingShards(ShardsAllocation strategy, ProbeNodeAllocation probe, ClusterState clusterState) {
+        while (!clusterState.routingTable().shardsWithState(INITIALIZING).isEmpty()) {
+            probe.reset();
+            RoutingTable routingTable = strategy.applyStartedShards(clusterState, clusterState.routingTable().shardsWithState(INITIALIZING)).routingTable();
+            assertBookkeeping(probe.routingNodes);
+            clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+        }
+        assertBookkeeping(clusterState.routingNodes());
+        return clusterState;
+    }
+
+    /**
+     * Recounts the shards of each node, and the assigned shards of each shard id, and compares them with
+     * the incrementally maintained ones.
+     */
+    private void assertBookkeeping(RoutingNodes routingNodes) {
+        assertThat(routingNodes, notNullValue());
+        Map<ShardId, List<MutableShardRouting>> assignedShards = newHashMap();
+        for (RoutingNode routingNode : routingNodes) {
+            Map<String, Integer> shardsPerIndex = newHashMap();
+            for (MutableShardRouting shard : routingNode) {
+                Integer count = shardsPerIndex.get(shard.index());
+                shardsPerIndex.put(shard.index(), count == null ? 1 : count + 1);
+                List<MutableShardRouting> shards = assignedShards.get(shard.shardId());
+                if (shards == null) {
+                    shards = new ArrayList<MutableShardRouting>();
+                    assignedShards.put(shard.shardId(), shards);
+                }
+                shards.add(shard);
+            }
+            for (String index : routingNodes.metaData().indices().keySet()) {
+                Integer count = shardsPerIndex.get(index);
+                assertThat("shards of [" + index + "] on [" + routingNode.nodeId() + "]", routingNode.numberOfShardsOfIndex(index), equalTo(count == null ? 0 : count));
+            }
+        }
+        for (IndexMetaData indexMetaData : routingNodes.metaData().indices().values()) {
+            for (int i = 0; i < indexMetaData.numberOfShards(); i++) {
+                ShardId shardId = new ShardId(indexMetaData.index(), i);
+                List<MutableShardRouting> expected = assignedShards.get(shardId);
+                List<MutableShardRouting> actual = routingNodes.assignedShards(shardId);
+                if (expected == null) {
+                    assertThat("assigned shards of " + shardId, actual.isEmpty(), equalTo(true));
+                    continue;
+                }
+                assertThat("assigned shards of " + shardId, actual.size(), equalTo(expected.size()));
+                for (MutableShardRouting shard : expected) {
+                    boolean found = false;
+                    for (MutableShardRouting assignedShard : actual) {
+                        if (assignedShard == shard) {
+                            found = true;
+                            break;
+                        }
+                    }
+                    assertThat("assigned shards of " + shardId + " contain " + shard, found, equalTo(true));
+                }
+            }
+        }
+    }
+
+    /**
+     * A node allocation that allows everything, recording the routing nodes of the current allocation and how many
+     * times it had to compute a (cached) result.
+     */
+    static class ProbeNodeAllocation extends NodeAllocation {
+
+        private static final String CACHE_KEY = "probe";
+
+        RoutingNodes routingNodes;
+
+        int decisions;
+
+        int cacheMisses;
+
+        ProbeNodeAllocation(Settings settings) {
+            super(settings);
+        }
+
+        void reset() {
+            routingNodes = null;
+            decisions = 0;
+            cacheMisses = 0;
+        }
+
+        @Override public void applyStartedShards(NodeAllocations nodeAllocations, StartedRerouteAllocation allocation) {
+            probe(allocation);
+        }
+
+        @Override public void applyFailedShards(NodeAllocations nodeAllocations, FailedRerouteAllocation allocation) {
+            probe(allocation);
+        }
+
+        @Override public boolean allocateUnassigned(NodeAllocations nodeAllocations, RoutingAllocation allocation) {
+            probe(allocation);
+            return false;
+        }
+
+        @Override public boolean canRebalance(ShardRouting shardRouting, RoutingAllocation allocation) {
+            probe(allocation);
+            return true;
+        }
+
+        @Override public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
+            probe(allocation);
+            return Decision.YES;
+        }
+
+        private void probe(RoutingAllocation allocation) {
+            routingNodes = allocation.routingNodes();
+            decisions++;
+            if (allocation.cached(CACHE_KEY) == null) {
+                cacheMisses++;
+                allocation.cache(CACHE_KEY, Boolean.TRUE);
+            }
+        }
+    }
+}
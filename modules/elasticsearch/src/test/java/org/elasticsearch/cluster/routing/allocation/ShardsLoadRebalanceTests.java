@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation;
+
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.routing.MutableShardRouting;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.index.shard.ShardId;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.elasticsearch.cluster.ClusterState.*;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
+import static org.elasticsearch.cluster.metadata.MetaData.*;
+import static org.elasticsearch.cluster.node.DiscoveryNodes.*;
+import static org.elasticsearch.cluster.routing.RoutingBuilders.*;
+import static org.elasticsearch.cluster.routing.ShardRoutingState.*;
+import static org.elasticsearch.cluster.routing.allocation.RoutingAllocationTests.*;
+import static org.elasticsearch.common.collect.Maps.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@Test
+public class ShardsLoadRebalanceTests {
+
+    private final ESLogger logger = Loggers.getLogger(ShardsLoadRebalanceTests.class);
+
+    @Test public void testHotShardsSpreadAcrossNodes() {
+        ShardsAllocation strategy = new ShardsAllocation(settingsBuilder()
+                .put("cluster.routing.allocation.allow_rebalance", "always")
+                .build());
+
+        logger.info("Building initial routing table");
+
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test").numberOfShards(4).numberOfReplicas(0))
+                .build();
+
+        RoutingTable routingTable = routingTable()
+                .add(indexRoutingTable("test").initializeEmpty(metaData.index("test")))
+                .build();
+
+        ClusterState clusterState = newClusterStateBuilder().metaData(metaData).routingTable(routingTable).build();
+
+        logger.info("start two nodes and fully start the shards");
+        clusterState = newClusterStateBuilder().state(clusterState).nodes(newNodesBuilder().put(newNode("node1")).put(newNode("node2"))).build();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        assertThat(clusterState.routingNodes().node("node1").numberOfShardsWithState(STARTED), equalTo(2));
+        assertThat(clusterState.routingNodes().node("node2").numberOfShardsWithState(STARTED), equalTo(2));
+
+        logger.info("even load, no relocation should happen");
+        Map<ShardId, Double> weights = newHashMap();
+        for (ShardRouting shard : routingTable.shardsWithState(STARTED)) {
+            weights.put(shard.shardId(), 3d);
+        }
+        strategy.shardsLoad(new ShardsLoad(weights, 3, 0.2));
+        routingTable = strategy.reroute(clusterState).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+        assertThat(routingTable.shardsWithState(RELOCATING).size(), equalTo(0));
+
+        logger.info("the shards on node1 become hot, one of them should move to node2");
+        weights = newHashMap();
+        for (MutableShardRouting shard : clusterState.routingNodes().node("node1")) {
+            weights.put(shard.shardId(), 10d);
+        }
+        for (MutableShardRouting shard : clusterState.routingNodes().node("node2")) {
+            weights.put(shard.shardId(), 1d);
+        }
+        strategy.shardsLoad(new ShardsLoad(weights, 3, 0.2));
+        routingTable = strategy.reroute(clusterState).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        assertThat(routingTable.shardsWithState(RELOCATING).size(), equalTo(1));
+        ShardRouting relocating = routingTable.shardsWithState(RELOCATING).get(0);
+        assertThat(relocating.currentNodeId(), equalTo("node1"));
+        assertThat(relocating.relocatingNodeId(), equalTo("node2"));
+        assertThat(weights.get(relocating.shardId()), equalTo(10d));
+
+        logger.info("finish the relocations, the hot shards should end up on different nodes");
+        for (int i = 0; i < 5 && !clusterState.routingNodes().shardsWithState(INITIALIZING).isEmpty(); i++) {
+            routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+            clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+        }
+        assertThat(routingTable.shardsWithState(RELOCATING).size(), equalTo(0));
+
+        for (String nodeId : new String[]{"node1", "node2"}) {
+            int hotShards = 0;
+            for (MutableShardRouting shard : clusterState.routingNodes().node(nodeId)) {
+                if (weights.get(shard.shardId()) == 10d) {
+                    hotShards++;
+                }
+            }
+            assertThat(hotShards, equalTo(1));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class ResponseCollectorTests {
+
+    @Test public void testRanking() {
+        ResponseCollector collector = new ResponseCollector(EMPTY_SETTINGS);
+
+        // unknown nodes are ranked first
+        assertThat(collector.rank("node1"), equalTo(0d));
+
+        collector.requestSent("node1");
+        collector.responseReceived("node1", 10000, 8000);
+        collector.requestSent("node2");
+        collector.responseReceived("node2", 50000, 40000);
+        assertThat(collector.rank("node1"), lessThan(collector.rank("node2")));
+
+        // in flight requests penalize the node
+        for (int i = 0; i < 3; i++) {
+            collector.requestSent("node1");
+        }
+        assertThat(collector.rank("node1"), greaterThan(collector.rank("node2")));
+        assertThat(collector.stats().entries().get("node1").inFlight(), equalTo(3));
+
+        for (int i = 0; i < 3; i++) {
+            collector.requestFailed("node1");
+        }
+        assertThat(collector.rank("node1"), lessThan(collector.rank("node2")));
+    }
+
+    @Test public void testRetainNodes() {
+        ResponseCollector collector = new ResponseCollector(EMPTY_SETTINGS);
+        collector.localResponse("node1", 1000);
+        collector.localResponse("node2", 1000);
+
+        DiscoveryNodes nodes = DiscoveryNodes.newNodesBuilder().put(new DiscoveryNode("node1", DummyTransportAddress.INSTANCE)).build();
+        collector.retainNodes(nodes);
+
+        assertThat(collector.stats().entries().size(), equalTo(1));
+        assertThat(collector.stats().entries().containsKey("node1"), equalTo(true));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.routing.operation.plain.PlainOperationRouting;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@Test
+public class ShardSplitRoutingTests {
+
+    @Test public void testNoRoutingShardsIsModulo() {
+        IndexMetaData indexMetaData = newIndexMetaDataBuilder("test").numberOfShards(5).numberOfReplicas(0).build();
+        assertThat(indexMetaData.numberOfRoutingShards(), equalTo(5));
+        Random random = new Random();
+        for (int i = 0; i < 1000; i++) {
+            int hash = random.nextInt();
+            assertThat(PlainOperationRouting.shardId(indexMetaData, hash), equalTo(Math.abs(hash) % 5));
+        }
+    }
+
+    @Test public void testSplitKeepsDocsWithinSourceShardRange() {
+        IndexMetaData source = newIndexMetaDataBuilder("source").numberOfShards(3).numberOfRoutingShards(24).numberOfReplicas(0).build();
+        IndexMetaData splitByTwo = newIndexMetaDataBuilder("target").numberOfShards(6).numberOfRoutingShards(24).numberOfReplicas(0).build();
+        IndexMetaData splitByEight = newIndexMetaDataBuilder("target").numberOfShards(24).numberOfRoutingShards(24).numberOfReplicas(0).build();
+        Random random = new Random();
+        int[] docsPerShard = new int[6];
+        for (int i = 0; i < 10000; i++) {
+            int hash = random.nextInt();
+            int sourceShard = PlainOperationRouting.shardId(source, hash);
+            int targetShard = PlainOperationRouting.shardId(splitByTwo, hash);
+            assertThat(targetShard / 2, equalTo(sourceShard));
+            assertThat(PlainOperationRouting.shardId(splitByEight, hash) / 8, equalTo(sourceShard));
+            docsPerShard[targetShard]++;
+        }
+        for (int docs : docsPerShard) {
+            assertThat(docs, greaterThan(0));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRoutingShardsMustBeMultipleOfShards() {
+        newIndexMetaDataBuilder("test").numberOfShards(3).numberOfRoutingShards(8).numberOfReplicas(0).build();
+    }
+}
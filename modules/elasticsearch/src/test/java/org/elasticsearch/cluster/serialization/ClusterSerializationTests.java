@@ -88,6 +88,28 @@ public class ClusterSerializationTests {
         assertThat(target.prettyPrint(), equalTo(source.prettyPrint()));
     }
 
+    @Test public void testMetaDataSerializationSharesSettingsAndMappings() throws Exception {
+        String mapping = "{\"type1\":{\"properties\":{\"field1\":{\"type\":\"string\"}}}}";
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test1").numberOfShards(2).numberOfReplicas(1).putMapping("type1", mapping))
+                .put(newIndexMetaDataBuilder("test2").numberOfShards(2).numberOfReplicas(1).putMapping("type1", mapping))
+                .put(newIndexMetaDataBuilder("test3").numberOfShards(3).numberOfReplicas(1))
+                .build();
+
+        assertThat(metaData.index("test1").settings(), sameInstance(metaData.index("test2").settings()));
+        assertThat(metaData.index("test1").mapping("type1"), sameInstance(metaData.index("test2").mapping("type1")));
+
+        BytesStreamOutput outStream = new BytesStreamOutput();
+        MetaData.Builder.writeTo(metaData, outStream);
+        MetaData target = MetaData.Builder.readFrom(new BytesStreamInput(outStream.copiedByteArray()));
+
+        assertThat(target.index("test1").settings(), sameInstance(target.index("test2").settings()));
+        assertThat(target.index("test1").mapping("type1"), sameInstance(target.index("test2").mapping("type1")));
+        assertThat(target.index("test1").mapping("type1").source().string(), equalTo(metaData.index("test1").mapping("type1").source().string()));
+        assertThat(target.index("test3").numberOfShards(), equalTo(3));
+        assertThat(target.index("test3").mappings().isEmpty(), equalTo(true));
+    }
+
     private DiscoveryNode newNode(String nodeId) {
         return new DiscoveryNode(nodeId, DummyTransportAddress.INSTANCE);
     }
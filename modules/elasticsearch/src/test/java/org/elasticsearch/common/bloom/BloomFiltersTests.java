@@ -0,0 +1,79 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.bloom;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.base.Charsets;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@Test
+public class BloomFiltersTests {
+
+    @AfterClass public void cleanup() {
+        FileSystemUtils.deleteRecursively(new File("work/bloom-filters"), true);
+    }
+
+    @Test public void testReadFromMemory() throws Exception {
+        BloomFilter read = writeAndRead(new RAMDirectory());
+        assertThat(read, instanceOf(ObsBloomFilter.class));
+    }
+
+    @Test public void testMappedFromFileSystem() throws Exception {
+        BloomFilter read = writeAndRead(FSDirectory.open(new File("work/bloom-filters")));
+        assertThat(read, instanceOf(MappedBloomFilter.class));
+    }
+
+    private BloomFilter writeAndRead(Directory directory) throws Exception {
+        BloomFilter filter = BloomFilterFactory.getFilter(1000, 15);
+        for (int i = 0; i < 1000; i++) {
+            byte[] key = bytes("key" + i);
+            filter.add(key, 0, key.length);
+        }
+        IndexOutput out = directory.createOutput("_1.bf_uid");
+        BloomFilters.write(filter, out);
+        out.close();
+
+        BloomFilter read = BloomFilters.read(directory, "_1.bf_uid");
+        for (int i = 0; i < 1000; i++) {
+            byte[] key = bytes("key" + i);
+            assertThat(read.isPresent(key, 0, key.length), equalTo(true));
+        }
+        // same bits, so same answers (including the false positives) for keys that were not added
+        for (int i = 0; i < 10000; i++) {
+            byte[] key = bytes("other" + i);
+            assertThat(read.isPresent(key, 0, key.length), equalTo(filter.isPresent(key, 0, key.length)));
+        }
+        return read;
+    }
+
+    private byte[] bytes(String key) {
+        return key.getBytes(Charsets.UTF_8);
+    }
+}
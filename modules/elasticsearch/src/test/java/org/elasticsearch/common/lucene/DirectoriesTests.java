@@ -0,0 +1,71 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene;
+
+import org.apache.lucene.store.RAMDirectory;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class DirectoriesTests {
+
+    @Test public void testDeleteUnusedSegmentFiles() throws IOException {
+        RAMDirectory dir = new RAMDirectory();
+        // a live segment, with its bloom filter and doc values files
+        touch(dir, "segments_2", "segments.gen", "_1.cfs", "_1_1.del", "_1.bf_uid", "_1.dvfield1", "_1.dvobj.field2");
+        // a merged away segment, its bloom filter and doc values files are left
+        touch(dir, "_0.bf_uid", "_0.dvfield1", "_0.dvobj.field2");
+
+        Directories.deleteUnusedSegmentFiles(dir, "bf");
+        assertThat(files(dir), equalTo(files("segments_2", "segments.gen", "_1.cfs", "_1_1.del", "_1.bf_uid", "_1.dvfield1", "_1.dvobj.field2", "_0.dvfield1", "_0.dvobj.field2")));
+
+        Directories.deleteUnusedSegmentFiles(dir, "dv");
+        assertThat(files(dir), equalTo(files("segments_2", "segments.gen", "_1.cfs", "_1_1.del", "_1.bf_uid", "_1.dvfield1", "_1.dvobj.field2")));
+    }
+
+    @Test public void testSidecarFilesDontKeepEachOtherAlive() throws IOException {
+        RAMDirectory dir = new RAMDirectory();
+        touch(dir, "segments_1", "_2.bf_uid", "_2.dvfield1");
+
+        Directories.deleteUnusedSegmentFiles(dir, "dv");
+        Directories.deleteUnusedSegmentFiles(dir, "bf");
+        assertThat(files(dir), equalTo(files("segments_1")));
+    }
+
+    private static void touch(RAMDirectory dir, String... names) throws IOException {
+        for (String name : names) {
+            dir.createOutput(name).close();
+        }
+    }
+
+    private static Set<String> files(RAMDirectory dir) throws IOException {
+        return files(dir.listAll());
+    }
+
+    private static Set<String> files(String... names) {
+        return new HashSet<String>(Arrays.asList(names));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.lucene.store;
+
+import org.apache.lucene.store.RAMDirectory;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.zip.Adler32;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class VerifyingIndexOutputTests {
+
+    @Test public void testVerifyChunks() throws IOException {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Adler32 adler = new Adler32();
+        adler.update(data, 0, data.length);
+
+        RAMDirectory dir = new RAMDirectory();
+        VerifyingIndexOutput output = new VerifyingIndexOutput(dir.createOutput("test"));
+        output.writeBytes(data, 0, 100);
+        output.writeByte(data[100]);
+        output.writeBytes(data, 101, data.length - 101);
+        output.close();
+
+        assertThat(output.checksum(), equalTo(VerifyingIndexOutput.toString(adler.getValue())));
+        assertThat(output.verify(VerifyingIndexOutput.toString(adler.getValue())), equalTo(true));
+        assertThat(output.verify(VerifyingIndexOutput.toString(adler.getValue() + 1)), equalTo(false));
+        assertThat(dir.fileLength("test"), equalTo((long) data.length));
+    }
+
+    @Test public void testCombine() {
+        byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        Adler32 full = new Adler32();
+        full.update(data, 0, data.length);
+
+        for (int split : new int[]{0, 1, 4999, 9999, 10000}) {
+            Adler32 first = new Adler32();
+            first.update(data, 0, split);
+            Adler32 second = new Adler32();
+            second.update(data, split, data.length - split);
+            assertThat(VerifyingIndexOutput.combine(first.getValue(), second.getValue(), data.length - split), equalTo(full.getValue()));
+        }
+    }
+}
@@ -79,4 +79,25 @@ public class UidFieldTests {
         assertThat(UidField.loadVersion(reader, new Term("_uid", "1")), equalTo(-1l));
         assertThat(UidField.loadDocIdAndVersion(reader, new Term("_uid", "1")), nullValue());
     }
+
+    @Test public void testUidFieldsCreatedUpfront() throws Exception {
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+
+        // the fields share the token stream of the thread indexing them, create all of them before indexing any
+        Document[] docs = new Document[10];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = new Document();
+            docs[i].add(new UidField("_uid", Integer.toString(i), i + 1));
+        }
+        for (Document doc : docs) {
+            writer.addDocument(doc);
+        }
+
+        IndexReader reader = IndexReader.open(writer, true);
+        for (int i = 0; i < docs.length; i++) {
+            assertThat(UidField.loadVersion(reader, new Term("_uid", Integer.toString(i))), equalTo(i + 1l));
+        }
+        reader.close();
+        writer.close();
+    }
 }
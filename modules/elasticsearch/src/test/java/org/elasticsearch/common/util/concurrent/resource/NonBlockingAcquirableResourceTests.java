@@ -19,7 +19,20 @@
 
 package org.elasticsearch.common.util.concurrent.resource;
 
+import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.lease.Releasable;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
 
 /**
  * @author kimchy
@@ -29,4 +42,81 @@ public class NonBlockingAcquirableResourceTests extends AbstractAcquirableResour
     @Override protected <T extends Releasable> AcquirableResource<T> createInstance(T resource) {
         return new NonBlockingAcquirableResource<T>(resource);
     }
+
+    @Test public void testMarkForCloseReleasesOnLastRelease() {
+        CountingResource resource = new CountingResource();
+        AcquirableResource<CountingResource> acquirableResource = createInstance(resource);
+        assertThat(acquirableResource.acquire(), equalTo(true));
+        assertThat(acquirableResource.acquire(), equalTo(true));
+
+        acquirableResource.markForClose();
+        assertThat(resource.releases.get(), equalTo(0));
+        // once marked, it can't be acquired anymore
+        assertThat(acquirableResource.acquire(), equalTo(false));
+
+        acquirableResource.release();
+        assertThat(resource.releases.get(), equalTo(0));
+        acquirableResource.release();
+        assertThat(resource.releases.get(), equalTo(1));
+
+        acquirableResource.markForClose();
+        assertThat(resource.releases.get(), equalTo(1));
+    }
+
+    @Test public void testForceCloseReleasesOnce() {
+        CountingResource resource = new CountingResource();
+        AcquirableResource<CountingResource> acquirableResource = createInstance(resource);
+        assertThat(acquirableResource.acquire(), equalTo(true));
+
+        acquirableResource.forceClose();
+        assertThat(resource.releases.get(), equalTo(1));
+        assertThat(acquirableResource.acquire(), equalTo(false));
+
+        // the holder releasing it afterwards, or closing it again, does not release it again
+        acquirableResource.release();
+        acquirableResource.markForClose();
+        acquirableResource.forceClose();
+        assertThat(resource.releases.get(), equalTo(1));
+    }
+
+    @Test public void testConcurrentAcquireAndMarkForClose() throws Exception {
+        final CountingResource resource = new CountingResource();
+        final AcquirableResource<CountingResource> acquirableResource = createInstance(resource);
+        final AtomicInteger releasedWhileAcquired = new AtomicInteger();
+        final int numberOfThreads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int i = 0; i < numberOfThreads; i++) {
+            futures.add(executorService.submit(new Callable<Object>() {
+                @Override public Object call() throws Exception {
+                    while (acquirableResource.acquire()) {
+                        if (resource.releases.get() != 0) {
+                            releasedWhileAcquired.incrementAndGet();
+                        }
+                        acquirableResource.release();
+                    }
+                    return null;
+                }
+            }));
+        }
+        Thread.sleep(100);
+        acquirableResource.markForClose();
+        for (Future<Object> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        assertThat(releasedWhileAcquired.get(), equalTo(0));
+        assertThat(resource.releases.get(), equalTo(1));
+    }
+
+    private static class CountingResource implements Releasable {
+
+        final AtomicInteger releases = new AtomicInteger();
+
+        @Override public boolean release() throws ElasticSearchException {
+            releases.incrementAndGet();
+            return true;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,337 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.discovery.zen.fd;
+
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.io.stream.VoidStreamable;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.timer.HashedWheelTimer;
+import org.elasticsearch.discovery.zen.DiscoveryNodesProvider;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.BaseTransportRequestHandler;
+import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportService;
+import org.elasticsearch.transport.VoidTransportResponseHandler;
+import org.elasticsearch.transport.local.LocalTransport;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.elasticsearch.common.util.concurrent.EsExecutors.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests the nodes and master fault detection running on a shared timer, between two nodes using the local transport.
+ * Node <tt>A</tt> is the master.
+ */
+@Test
+public class FaultDetectionTests {
+
+    private static final String ECHO_ACTION = "test/echo";
+
+    private ThreadPool threadPool;
+
+    private HashedWheelTimer timer;
+
+    private TransportService transportServiceA;
+
+    private TransportService transportServiceB;
+
+    private DiscoveryNode nodeA;
+
+    private DiscoveryNode nodeB;
+
+    private final List<NodesFaultDetection> nodesFDs = new CopyOnWriteArrayList<NodesFaultDetection>();
+
+    private final List<MasterFaultDetection> masterFDs = new CopyOnWriteArrayList<MasterFaultDetection>();
+
+    @BeforeMethod public void setUp() {
+        // a fine grained estimated time, since fault detection relies on it to decide if a node was recently heard from
+        threadPool = new ThreadPool(settingsBuilder().put("threadpool.estimated_time_interval", "10ms").build());
+        timer = new HashedWheelTimer(Loggers.getLogger(FaultDetectionTests.class), daemonThreadFactory("fd_test"), 10, TimeUnit.MILLISECONDS);
+
+        transportServiceA = new TransportService(new LocalTransport(threadPool), threadPool).start();
+        nodeA = new DiscoveryNode("A", transportServiceA.boundAddress().publishAddress());
+        transportServiceB = new TransportService(new LocalTransport(threadPool), threadPool).start();
+        nodeB = new DiscoveryNode("B", transportServiceB.boundAddress().publishAddress());
+        transportServiceA.connectToNode(nodeB);
+        transportServiceB.connectToNode(nodeA);
+
+        for (TransportService transportService : new TransportService[]{transportServiceA, transportServiceB}) {
+            transportService.registerHandler(ECHO_ACTION, new BaseTransportRequestHandler<VoidStreamable>() {
+                @Override public VoidStreamable newInstance() {
+                    return VoidStreamable.INSTANCE;
+                }
+
+                @Override public void messageReceived(VoidStreamable request, TransportChannel channel) throws Exception {
+                    channel.sendResponse(VoidStreamable.INSTANCE);
+                }
+
+                @Override public String executor() {
+                    return ThreadPool.Names.SAME;
+                }
+            });
+        }
+    }
+
+    @AfterMethod public void tearDown() {
+        for (MasterFaultDetection masterFD : masterFDs) {
+            masterFD.close();
+        }
+        masterFDs.clear();
+        for (NodesFaultDetection nodesFD : nodesFDs) {
+            nodesFD.close();
+        }
+        nodesFDs.clear();
+        timer.stop();
+        transportServiceA.close();
+        transportServiceB.close();
+        threadPool.shutdown();
+    }
+
+    @Test public void testDeadNodeDetectedWithinPingRetries() throws Exception {
+        // node B is connected, but never answers pings
+        final AtomicInteger pings = new AtomicInteger();
+        transportServiceB.registerHandler(NodesFaultDetection.PingRequestHandler.ACTION, new BaseTransportRequestHandler<NodesFaultDetection.PingRequest>() {
+            @Override public NodesFaultDetection.PingRequest newInstance() {
+                return new NodesFaultDetection.PingRequest();
+            }
+
+            @Override public void messageReceived(NodesFaultDetection.PingRequest request, TransportChannel channel) {
+                pings.incrementAndGet();
+            }
+
+            @Override public String executor() {
+                return ThreadPool.Names.SAME;
+            }
+        });
+
+        final CountDownLatch failed = new CountDownLatch(1);
+        final AtomicLong failedTime = new AtomicLong();
+        NodesFaultDetection nodesFD = newNodesFD(transportServiceA, 100, 200, 3);
+        nodesFD.addListener(new NodesFaultDetection.Listener() {
+            @Override public void onNodeFailure(DiscoveryNode node, String reason) {
+                failedTime.set(System.currentTimeMillis());
+                failed.countDown();
+            }
+        });
+        long startTime = System.currentTimeMillis();
+        nodesFD.start();
+        nodesFD.updateNodes(nodes("A"));
+
+        assertThat(failed.await(5, TimeUnit.SECONDS), equalTo(true));
+        long took = failedTime.get() - startTime;
+        // each of the retries timed out, and the failure was detected within ping_interval + ping_timeout * ping_retries
+        assertThat(pings.get(), equalTo(3));
+        assertThat(took, greaterThanOrEqualTo(3 * 200l));
+        assertThat(took, lessThan(100 + 3 * 200 + 500l));
+    }
+
+    @Test public void testNodeTrafficSuppressesPings() throws Exception {
+        NodesFaultDetection nodesFDB = newNodesFD(transportServiceB, 100, 200, 3);
+
+        final AtomicInteger failures = new AtomicInteger();
+        NodesFaultDetection nodesFD = newNodesFD(transportServiceA, 100, 200, 3);
+        nodesFD.addListener(new NodesFaultDetection.Listener() {
+            @Override public void onNodeFailure(DiscoveryNode node, String reason) {
+                failures.incrementAndGet();
+            }
+        });
+
+        echo(transportServiceA, nodeB);
+        nodesFD.start();
+        nodesFD.updateNodes(nodes("A"));
+
+        // A keeps hearing from B, so it never needs to ping it
+        sendTraffic(transportServiceA, nodeB, 1000);
+        assertThat(nodesFDB.lastPingReceivedFrom("A"), equalTo(-1l));
+
+        // once idle, B gets pinged again
+        assertThat(awaitPing(nodesFDB, "A", 2000), equalTo(true));
+        assertThat(failures.get(), equalTo(0));
+    }
+
+    @Test public void testDeadMasterDetectedWithinPingRetries() throws Exception {
+        // master A is connected, but never answers pings
+        final AtomicInteger pings = new AtomicInteger();
+        transportServiceA.registerHandler(MasterFaultDetection.MasterPingRequestHandler.ACTION, new BaseTransportRequestHandler<MasterFaultDetection.MasterPingRequest>() {
+            @Override public MasterFaultDetection.MasterPingRequest newInstance() {
+                return new MasterFaultDetection.MasterPingRequest();
+            }
+
+            @Override public void messageReceived(MasterFaultDetection.MasterPingRequest request, TransportChannel channel) {
+                pings.incrementAndGet();
+            }
+
+            @Override public String executor() {
+                return ThreadPool.Names.SAME;
+            }
+        });
+
+        final CountDownLatch failed = new CountDownLatch(1);
+        final AtomicLong failedTime = new AtomicLong();
+        MasterFaultDetection masterFD = newMasterFD(transportServiceB, newNodesFD(transportServiceB, 100, 200, 3), 100, 200, 3);
+        masterFD.addListener(new MasterFaultDetection.Listener() {
+            @Override public void onMasterFailure(DiscoveryNode masterNode, String reason) {
+                failedTime.set(System.currentTimeMillis());
+                failed.countDown();
+            }
+
+            @Override public void onDisconnectedFromMaster() {
+            }
+        });
+        long startTime = System.currentTimeMillis();
+        masterFD.start(nodeA, "test");
+
+        assertThat(failed.await(5, TimeUnit.SECONDS), equalTo(true));
+        long took = failedTime.get() - startTime;
+        assertThat(pings.get(), equalTo(3));
+        assertThat(took, greaterThanOrEqualTo(3 * 200l));
+        assertThat(took, lessThan(100 + 3 * 200 + 500l));
+    }
+
+    @Test public void testMasterPingsSuppressedWhileMasterPings() throws Exception {
+        AtomicInteger masterPings = countMasterPings();
+
+        // the master pings B more often than B checks the master
+        NodesFaultDetection nodesFD = newNodesFD(transportServiceA, 50, 200, 3);
+        MasterFaultDetection masterFD = newMasterFD(transportServiceB, newNodesFD(transportServiceB, 200, 200, 3), 200, 200, 3);
+        nodesFD.start();
+        nodesFD.updateNodes(nodes("A"));
+        masterFD.start(nodeA, "test");
+
+        Thread.sleep(1500);
+        assertThat(masterPings.get(), equalTo(0));
+
+        // once the master stops pinging us, we ping it again
+        nodesFD.stop();
+        long waitUntil = System.currentTimeMillis() + 2000;
+        while (masterPings.get() == 0 && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertThat(masterPings.get(), greaterThan(0));
+    }
+
+    @Test public void testMasterTrafficStillChecksRegistration() throws Exception {
+        AtomicInteger masterPings = countMasterPings();
+
+        final AtomicInteger failures = new AtomicInteger();
+        MasterFaultDetection masterFD = newMasterFD(transportServiceB, newNodesFD(transportServiceB, 100, 200, 3), 100, 200, 3);
+        masterFD.addListener(new MasterFaultDetection.Listener() {
+            @Override public void onMasterFailure(DiscoveryNode masterNode, String reason) {
+                failures.incrementAndGet();
+            }
+
+            @Override public void onDisconnectedFromMaster() {
+                failures.incrementAndGet();
+            }
+        });
+        masterFD.start(nodeA, "test");
+
+        // without traffic, the master would be pinged ~15 times, with it, only every ping_interval * ping_retries
+        sendTraffic(transportServiceB, nodeA, 1500);
+        assertThat(masterPings.get(), greaterThanOrEqualTo(2));
+        assertThat(masterPings.get(), lessThanOrEqualTo(6));
+        assertThat(failures.get(), equalTo(0));
+    }
+
+    private NodesFaultDetection newNodesFD(TransportService transportService, long pingInterval, long pingTimeout, int pingRetries) {
+        NodesFaultDetection nodesFD = new NodesFaultDetection(fdSettings(pingInterval, pingTimeout, pingRetries), threadPool, transportService, timer);
+        nodesFDs.add(nodesFD);
+        return nodesFD;
+    }
+
+    private MasterFaultDetection newMasterFD(TransportService transportService, NodesFaultDetection nodesFD, long pingInterval, long pingTimeout, int pingRetries) {
+        final DiscoveryNodes nodes = nodes("B");
+        MasterFaultDetection masterFD = new MasterFaultDetection(fdSettings(pingInterval, pingTimeout, pingRetries), threadPool, transportService, new DiscoveryNodesProvider() {
+            @Override public DiscoveryNodes nodes() {
+                return nodes;
+            }
+        }, nodesFD, timer);
+        masterFDs.add(masterFD);
+        return masterFD;
+    }
+
+    private Settings fdSettings(long pingInterval, long pingTimeout, int pingRetries) {
+        return settingsBuilder()
+                .put("discovery.zen.fd.ping_interval", pingInterval + "ms")
+                .put("discovery.zen.fd.ping_timeout", pingTimeout + "ms")
+                .put("discovery.zen.fd.ping_retries", pingRetries)
+                .put("discovery.zen.fd.register_connection_listener", false)
+                .build();
+    }
+
+    private DiscoveryNodes nodes(String localNodeId) {
+        return DiscoveryNodes.newNodesBuilder().put(nodeA).put(nodeB).masterNodeId("A").localNodeId(localNodeId).build();
+    }
+
+    /**
+     * Registers a master ping handler on A that counts the pings and answers that B is registered.
+     */
+    private AtomicInteger countMasterPings() {
+        final AtomicInteger pings = new AtomicInteger();
+        transportServiceA.registerHandler(MasterFaultDetection.MasterPingRequestHandler.ACTION, new BaseTransportRequestHandler<MasterFaultDetection.MasterPingRequest>() {
+            @Override public MasterFaultDetection.MasterPingRequest newInstance() {
+                return new MasterFaultDetection.MasterPingRequest();
+            }
+
+            @Override public void messageReceived(MasterFaultDetection.MasterPingRequest request, TransportChannel channel) throws Exception {
+                pings.incrementAndGet();
+                channel.sendResponse(new MasterFaultDetection.MasterPingResponseResponse(true));
+            }
+
+            @Override public String executor() {
+                return ThreadPool.Names.SAME;
+            }
+        });
+        return pings;
+    }
+
+    private void echo(TransportService transportService, DiscoveryNode node) {
+        transportService.submitRequest(node, ECHO_ACTION, VoidStreamable.INSTANCE, VoidTransportResponseHandler.INSTANCE_SAME).txGet();
+    }
+
+    private void sendTraffic(TransportService transportService, DiscoveryNode node, long millis) throws InterruptedException {
+        long sendUntil = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < sendUntil) {
+            echo(transportService, node);
+            Thread.sleep(20);
+        }
+    }
+
+    private boolean awaitPing(NodesFaultDetection nodesFD, String senderNodeId, long millis) throws InterruptedException {
+        long waitUntil = System.currentTimeMillis() + millis;
+        while (nodesFD.lastPingReceivedFrom(senderNodeId) == -1 && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+        return nodesFD.lastPingReceivedFrom(senderNodeId) != -1;
+    }
+}
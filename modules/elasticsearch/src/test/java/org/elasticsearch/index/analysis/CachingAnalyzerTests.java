@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.analysis;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.elasticsearch.common.io.FastStringReader;
+import org.elasticsearch.common.lucene.Lucene;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class CachingAnalyzerTests {
+
+    @Test public void testReplayCachedTokens() throws Exception {
+        AnalysisCache cache = new AnalysisCache(10);
+        CachingAnalyzer analyzer = new CachingAnalyzer(Lucene.STANDARD_ANALYZER, cache);
+
+        String value = "Mozilla/5.0 (X11; Linux x86_64) the Gecko Firefox";
+        List<String> expected = analyze(Lucene.STANDARD_ANALYZER.reusableTokenStream("field", new FastStringReader(value)));
+
+        assertThat(analyze(analyzer.reusableTokenStream("field", new FastStringReader(value))), equalTo(expected));
+        assertThat(cache.misses(), equalTo(1l));
+        assertThat(cache.hits(), equalTo(0l));
+        assertThat(cache.count(), equalTo(1));
+
+        assertThat(analyze(analyzer.reusableTokenStream("field", new FastStringReader(value))), equalTo(expected));
+        assertThat(cache.misses(), equalTo(1l));
+        assertThat(cache.hits(), equalTo(1l));
+
+        // another value in between, and then the cached one again
+        List<String> other = analyze(analyzer.reusableTokenStream("field", new FastStringReader("curl/7.21.0")));
+        assertThat(other, equalTo(analyze(Lucene.STANDARD_ANALYZER.reusableTokenStream("field", new FastStringReader("curl/7.21.0")))));
+        assertThat(analyze(analyzer.reusableTokenStream("field", new FastStringReader(value))), equalTo(expected));
+        assertThat(cache.misses(), equalTo(2l));
+        assertThat(cache.hits(), equalTo(2l));
+        assertThat(cache.count(), equalTo(2));
+    }
+
+    @Test public void testLongValuesAreNotCached() throws Exception {
+        AnalysisCache cache = new AnalysisCache(10);
+        CachingAnalyzer analyzer = new CachingAnalyzer(Lucene.STANDARD_ANALYZER, cache);
+
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() <= AnalysisCache.MAX_VALUE_LENGTH) {
+            sb.append("value ");
+        }
+        String value = sb.toString();
+        List<String> expected = analyze(Lucene.STANDARD_ANALYZER.reusableTokenStream("field", new FastStringReader(value)));
+        assertThat(analyze(analyzer.reusableTokenStream("field", new FastStringReader(value))), equalTo(expected));
+        assertThat(analyze(analyzer.reusableTokenStream("field", new FastStringReader(value))), equalTo(expected));
+        assertThat(cache.hits() + cache.misses(), equalTo(0l));
+        assertThat(cache.count(), equalTo(0));
+    }
+
+    private List<String> analyze(TokenStream stream) throws IOException {
+        CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+        PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+        OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+        List<String> tokens = new ArrayList<String>();
+        stream.reset();
+        while (stream.incrementToken()) {
+            tokens.add(termAtt.toString() + "/" + posIncAtt.getPositionIncrement() + "/" + offsetAtt.startOffset() + "-" + offsetAtt.endOffset());
+        }
+        stream.end();
+        tokens.add("end/" + offsetAtt.endOffset());
+        stream.close();
+        return tokens;
+    }
+}
@@ -21,8 +21,10 @@ package org.elasticsearch.index.engine;
 
 import org.apache.lucene.document.Field;
 import org.apache.lucene.index.IndexDeletionPolicy;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.elasticsearch.common.BytesHolder;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.index.Index;
@@ -48,11 +50,19 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.elasticsearch.common.lucene.DocumentBuilder.*;
 import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
@@ -544,6 +554,343 @@ public abstract class AbstractSimpleEngineTests {
         assertThat(create.version(), equalTo(1l));
     }
 
+    @Test public void testRetryOfCreateWithGeneratedId() throws Exception {
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, doc().add(uidField("1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        Engine.Create create = new Engine.Create(null, newUid("1"), doc).autoGeneratedIdTimestamp(0);
+        engine.create(create);
+        assertThat(create.version(), equalTo(1l));
+
+        // the retry might have been executed already, it should replace the document and not add a second one
+        create = new Engine.Create(null, newUid("1"), doc).autoGeneratedIdTimestamp(0).canHaveDuplicates(true);
+        engine.create(create);
+        assertThat(create.version(), equalTo(1l));
+
+        // the original request arriving after the retry should not add it again either
+        create = new Engine.Create(null, newUid("1"), doc).autoGeneratedIdTimestamp(0);
+        engine.create(create);
+
+        engine.refresh(new Engine.Refresh(true));
+        Engine.Searcher searchResult = engine.searcher();
+        assertThat(searchResult, engineSearcherTotalHits(new TermQuery(new Term("value", "test")), 1));
+        searchResult.release();
+    }
+
+    @Test public void testDelayedReplicaCreateWithGeneratedIdDuringRecovery() throws Exception {
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, doc().add(uidField("1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        // the document is in the files the replica recovers from
+        replicaEngine.create(new Engine.Create(null, newUid("1"), doc).autoGeneratedIdTimestamp(0).version(1).origin(REPLICA));
+        replicaEngine.flush(new Engine.Flush());
+        replicaEngine.close();
+
+        // the recovered engine is started, and only then the delayed replica operation arrives
+        replicaEngine = createEngine(storeReplica, createTranslogReplica());
+        replicaEngine.updateRecovering(true);
+        replicaEngine.start();
+        Engine.Create create = new Engine.Create(null, newUid("1"), doc).autoGeneratedIdTimestamp(0).version(1).origin(REPLICA);
+        replicaEngine.create(create);
+        assertThat(create.version(), equalTo(1l));
+        replicaEngine.updateRecovering(false);
+
+        replicaEngine.refresh(new Engine.Refresh(true));
+        Engine.Searcher searchResult = replicaEngine.searcher();
+        assertThat(searchResult, engineSearcherTotalHits(new TermQuery(new Term("value", "test")), 1));
+        searchResult.release();
+    }
+
+    @Test public void testOperationsAfterCreateWithGeneratedId() throws Exception {
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, doc().add(uidField("1")).add(field("value", "test")).add(field(SourceFieldMapper.NAME, B_1, Field.Store.YES)).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        Engine.Create create = new Engine.Create(null, newUid("1"), doc).autoGeneratedIdTimestamp(0);
+        engine.create(create);
+        assertThat(create.version(), equalTo(1l));
+
+        // visible in realtime before a refresh
+        Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.version(), equalTo(1l));
+        assertThat(getResult.source(), equalTo(new BytesHolder(B_1)));
+
+        // an explicit create on the same id fails, and an index replaces it with the next version
+        try {
+            engine.create(new Engine.Create(null, newUid("1"), doc));
+            assert false;
+        } catch (DocumentAlreadyExistsEngineException e) {
+            // all is well
+        }
+        Engine.Index index = new Engine.Index(null, newUid("1"), doc).version(1l);
+        engine.index(index);
+        assertThat(index.version(), equalTo(2l));
+
+        engine.refresh(new Engine.Refresh(true));
+        Engine.Searcher searchResult = engine.searcher();
+        assertThat(searchResult, engineSearcherTotalHits(new TermQuery(new Term("value", "test")), 1));
+        searchResult.release();
+    }
+
+    @Test public void testBulk() throws Exception {
+        ParsedDocument doc1 = new ParsedDocument("1", "1", "test", null, doc().add(uidField("1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(null, newUid("1"), doc1));
+        engine.flush(new Engine.Flush());
+
+        ParsedDocument doc2 = new ParsedDocument("2", "2", "test", null, doc().add(uidField("2")).add(field("value", "test")).add(field(SourceFieldMapper.NAME, B_2, Field.Store.YES)).build(), Lucene.STANDARD_ANALYZER, B_2, false);
+        Engine.Bulk bulk = new Engine.Bulk(new Engine.Operation[]{
+                new Engine.Index(null, newUid("1"), doc1),
+                new Engine.Create(null, newUid("1"), doc1),
+                null,
+                new Engine.Delete("test", "3", newUid("3")),
+                new Engine.Create(null, newUid("2"), doc2),
+                new Engine.Index(null, newUid("2"), doc2)
+        });
+        engine.bulk(bulk);
+
+        assertThat(bulk.failures()[0], nullValue());
+        assertThat(((Engine.Index) bulk.ops()[0]).version(), equalTo(2l));
+        assertThat(bulk.failures()[1], instanceOf(DocumentAlreadyExistsEngineException.class));
+        assertThat(bulk.failures()[2], nullValue());
+        assertThat(bulk.failures()[3], nullValue());
+        assertThat(((Engine.Delete) bulk.ops()[3]).notFound(), equalTo(true));
+        assertThat(bulk.failures()[4], nullValue());
+        assertThat(((Engine.Create) bulk.ops()[4]).version(), equalTo(1l));
+        assertThat(bulk.failures()[5], nullValue());
+        assertThat(((Engine.Index) bulk.ops()[5]).version(), equalTo(2l));
+
+        // the translog was written, so we can get it in realtime
+        Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid("2")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.version(), equalTo(2l));
+        assertThat(getResult.source(), equalTo(new BytesHolder(B_2)));
+
+        engine.refresh(new Engine.Refresh(true));
+        Engine.Searcher searchResult = engine.searcher();
+        assertThat(searchResult, engineSearcherTotalHits(new TermQuery(new Term("value", "test")), 2));
+        searchResult.release();
+    }
+
+    @Test public void testConcurrentBulksOnSameUids() throws Exception {
+        final int numberOfThreads = 4;
+        final int numberOfBulks = 20;
+        final int numberOfUids = 10;
+        final ParsedDocument[] docs = new ParsedDocument[numberOfUids];
+        for (int i = 0; i < numberOfUids; i++) {
+            String id = Integer.toString(i);
+            docs[i] = new ParsedDocument(id, id, "test", null, doc().add(uidField(id)).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            final boolean reverse = t % 2 == 1;
+            futures.add(executorService.submit(new Callable<Object>() {
+                @Override public Object call() throws Exception {
+                    for (int b = 0; b < numberOfBulks; b++) {
+                        Engine.Operation[] ops = new Engine.Operation[numberOfUids];
+                        for (int i = 0; i < numberOfUids; i++) {
+                            int uid = reverse ? numberOfUids - 1 - i : i;
+                            ops[i] = new Engine.Index(null, newUid(Integer.toString(uid)), docs[uid]);
+                        }
+                        Engine.Bulk bulk = new Engine.Bulk(ops);
+                        engine.bulk(bulk);
+                        for (Throwable failure : bulk.failures()) {
+                            assertThat(failure, nullValue());
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Object> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        for (int i = 0; i < numberOfUids; i++) {
+            Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid(Integer.toString(i))));
+            assertThat(getResult.exists(), equalTo(true));
+            assertThat(getResult.version(), equalTo((long) (numberOfThreads * numberOfBulks)));
+        }
+
+        // the operations on a uid are in the translog in the order of their versions
+        engine.snapshot(new Engine.SnapshotHandler<Void>() {
+            @Override public Void snapshot(SnapshotIndexCommit snapshotIndexCommit, Translog.Snapshot translogSnapshot) throws EngineException {
+                Map<String, Long> versions = new HashMap<String, Long>();
+                while (translogSnapshot.hasNext()) {
+                    Translog.Index index = (Translog.Index) translogSnapshot.next();
+                    Long previous = versions.put(index.id(), index.version());
+                    assertThat(index.version(), equalTo(previous == null ? 1l : previous + 1));
+                }
+                assertThat(versions.size(), equalTo(numberOfUids));
+                return null;
+            }
+        });
+
+        engine.refresh(new Engine.Refresh(true));
+        Engine.Searcher searchResult = engine.searcher();
+        assertThat(searchResult, engineSearcherTotalHits(new TermQuery(new Term("value", "test")), numberOfUids));
+        searchResult.release();
+    }
+
+    @Test public void testConcurrentReadsWithFlushAndClose() throws Exception {
+        final int numberOfDocs = 20;
+        for (int i = 0; i < numberOfDocs; i++) {
+            String id = Integer.toString(i);
+            ParsedDocument doc = new ParsedDocument(id, id, "test", null, doc().add(uidField(id)).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+            engine.index(new Engine.Index(null, newUid(id), doc));
+        }
+        engine.refresh(new Engine.Refresh(true));
+
+        final Set<IndexReader> readers = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<IndexReader, Boolean>()));
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicBoolean closing = new AtomicBoolean();
+        final int numberOfReaders = 4;
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfReaders + 1);
+
+        // readers doing gets (realtime or not, found or not) and searches while the engine is refreshed and flushed
+        List<Future<Object>> futures = startReaders(executorService, numberOfReaders, numberOfDocs, readers, stop, closing);
+        Future<Object> flusher = executorService.submit(new Callable<Object>() {
+            @Override public Object call() throws Exception {
+                for (int i = 0; i < 50; i++) {
+                    String id = Integer.toString(numberOfDocs + i);
+                    ParsedDocument doc = new ParsedDocument(id, id, "test", null, doc().add(uidField(id)).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_2, false);
+                    engine.index(new Engine.Index(null, newUid(id), doc));
+                    if (i % 5 == 0) {
+                        engine.flush(new Engine.Flush().full(true));
+                    } else if (i % 2 == 0) {
+                        engine.flush(new Engine.Flush());
+                    } else {
+                        engine.refresh(new Engine.Refresh(true));
+                    }
+                }
+                return null;
+            }
+        });
+        flusher.get();
+        stop.set(true);
+        for (Future<Object> future : futures) {
+            future.get();
+        }
+
+        // all the searchers got released, only the current one is still open
+        Engine.Searcher current = engine.searcher();
+        IndexReader currentReader = current.reader();
+        current.release();
+        assertThat(readers.size(), greaterThan(1));
+        for (IndexReader reader : readers) {
+            if (reader == currentReader) {
+                assertThat(reader.getRefCount(), equalTo(1));
+            } else {
+                assertThat(reader.getRefCount(), equalTo(0));
+            }
+        }
+
+        // now close the engine while reading from it, readers stop on the engine being closed
+        stop.set(false);
+        futures = startReaders(executorService, numberOfReaders, numberOfDocs, readers, stop, closing);
+        Thread.sleep(100);
+        closing.set(true);
+        engine.close();
+        for (Future<Object> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        // closing released the current searcher (once, the readers releasing it afterwards don't close it again)
+        for (IndexReader reader : readers) {
+            assertThat(reader.getRefCount(), equalTo(0));
+        }
+        try {
+            engine.searcher();
+            assertThat("searcher should fail once the engine is closed", false, equalTo(true));
+        } catch (EngineClosedException e) {
+            // all is well
+        }
+        try {
+            engine.get(new Engine.Get(true, newUid("1")));
+            assertThat("get should fail once the engine is closed", false, equalTo(true));
+        } catch (EngineClosedException e) {
+            // all is well
+        }
+    }
+
+    private List<Future<Object>> startReaders(ExecutorService executorService, int numberOfReaders, final int numberOfDocs, final Set<IndexReader> readers,
+                                              final AtomicBoolean stop, final AtomicBoolean closing) {
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int t = 0; t < numberOfReaders; t++) {
+            final boolean realtime = t % 2 == 0;
+            futures.add(executorService.submit(new Callable<Object>() {
+                @Override public Object call() throws Exception {
+                    int i = 0;
+                    while (!stop.get()) {
+                        i++;
+                        try {
+                            Engine.Searcher searcher = engine.searcher();
+                            try {
+                                readers.add(searcher.reader());
+                                searcher.searcher().search(new TermQuery(new Term("value", "test")), 10);
+                            } finally {
+                                searcher.release();
+                            }
+                            // every other get is for a doc that does not exist
+                            Engine.GetResult getResult = engine.get(new Engine.Get(realtime, newUid(Integer.toString(i % (numberOfDocs * 2)))));
+                            if (getResult.searcher() != null) {
+                                readers.add(getResult.searcher().reader());
+                                getResult.searcher().release();
+                            }
+                        } catch (EngineClosedException e) {
+                            assertThat(closing.get(), equalTo(true));
+                            return null;
+                        } catch (AlreadyClosedException e) {
+                            // closing the engine closes the searcher even if it is still in use
+                            assertThat(closing.get(), equalTo(true));
+                            return null;
+                        } catch (EngineException e) {
+                            // a get loading from a searcher that got closed under it
+                            assertThat(closing.get(), equalTo(true));
+                            return null;
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        return futures;
+    }
+
+    @Test public void testMultiGet() throws Exception {
+        ParsedDocument doc1 = new ParsedDocument("1", "1", "test", null, doc().add(uidField("1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(null, newUid("1"), doc1));
+        engine.flush(new Engine.Flush());
+        ParsedDocument doc3 = new ParsedDocument("3", "3", "test", null, doc().add(uidField("3")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_3, false);
+        engine.create(new Engine.Create(null, newUid("3"), doc3));
+        engine.flush(new Engine.Flush());
+        ParsedDocument doc2 = new ParsedDocument("2", "2", "test", null, doc().add(uidField("2")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_2, false);
+        engine.create(new Engine.Create(null, newUid("2"), doc2));
+
+        Engine.MultiGet multiGet = new Engine.MultiGet(new Engine.Get[]{
+                new Engine.Get(false, newUid("3")),
+                null,
+                new Engine.Get(true, newUid("2")),
+                new Engine.Get(false, newUid("2")),
+                new Engine.Get(false, newUid("1")),
+                new Engine.Get(true, newUid("4"))
+        });
+        engine.multiGet(multiGet);
+        Engine.GetResult[] results = multiGet.results();
+
+        assertThat(results[0].exists(), equalTo(true));
+        assertThat(results[0].docIdAndVersion(), notNullValue());
+        assertThat(results[0].searcher(), nullValue());
+        assertThat(results[1], nullValue());
+        assertThat(results[2].exists(), equalTo(true));
+        assertThat(results[2].source(), equalTo(new BytesHolder(B_2)));
+        assertThat(results[2].docIdAndVersion(), nullValue());
+        assertThat(results[3].exists(), equalTo(false));
+        assertThat(results[4].exists(), equalTo(true));
+        assertThat(results[4].docIdAndVersion(), notNullValue());
+        assertThat(results[5].exists(), equalTo(false));
+
+        assertThat(multiGet.searcher(), notNullValue());
+        multiGet.release();
+        assertThat(multiGet.searcher(), nullValue());
+    }
+
     @Test public void testExternalVersioningNewCreate() {
         ParsedDocument doc = new ParsedDocument("1", "1", "test", null, doc().add(uidField("1")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
         Engine.Create create = new Engine.Create(null, newUid("1"), doc).versionType(VersionType.EXTERNAL).version(12);
@@ -0,0 +1,124 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.field.data.support;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.field.data.FieldDataType;
+import org.elasticsearch.index.field.data.longs.DocValuesLongFieldData;
+import org.elasticsearch.index.field.data.longs.LongFieldData;
+import org.elasticsearch.index.field.data.strings.DocValuesStringFieldData;
+import org.elasticsearch.index.field.data.strings.StringFieldData;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+import static org.elasticsearch.common.lucene.DocumentBuilder.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class DocValuesTests {
+
+    @Test public void testInMemory() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexReader reader = segmentReader(dir);
+
+        assertThat(DocValues.write(reader, "svalue", FieldDataType.DefaultTypes.LONG), equalTo(true));
+        // multi valued fields get no column
+        assertThat(DocValues.write(reader, "mvalue", FieldDataType.DefaultTypes.LONG), equalTo(false));
+        assertThat(DocValues.read(reader, "mvalue"), nullValue());
+
+        DocValues docValues = DocValues.read(reader, "svalue");
+        assertThat(docValues.maxDoc(), equalTo(4));
+        assertThat(docValues.numValues(), equalTo(3));
+        assertThat(docValues.sizeInBytes(), equalTo(4l));
+
+        LongFieldData fieldData = LongFieldData.load(reader, "svalue");
+        assertThat(fieldData, instanceOf(DocValuesLongFieldData.class));
+        assertThat(fieldData.multiValued(), equalTo(false));
+        assertThat(fieldData.value(0), equalTo(4l));
+        assertThat(fieldData.value(1), equalTo(3l));
+        assertThat(fieldData.value(2), equalTo(7l));
+        assertThat(fieldData.values(2).length, equalTo(1));
+        assertThat(fieldData.value(3), equalTo(4l));
+
+        // fields with no column are still un-inverted
+        assertThat(LongFieldData.load(reader, "mvalue").multiValued(), equalTo(true));
+
+        reader.close();
+        dir.close();
+    }
+
+    @Test public void testMapped() throws Exception {
+        File location = new File("work/doc-values");
+        FileSystemUtils.deleteRecursively(location, true);
+        Directory dir = FSDirectory.open(location);
+        IndexReader reader = segmentReader(dir);
+
+        assertThat(DocValues.write(reader, "tag", FieldDataType.DefaultTypes.STRING), equalTo(true));
+        assertThat(DocValues.read(reader, "tag").sizeInBytes(), equalTo(0l));
+
+        StringFieldData fieldData = StringFieldData.load(reader, "tag");
+        assertThat(fieldData, instanceOf(DocValuesStringFieldData.class));
+        assertThat(fieldData.value(0), equalTo("a"));
+        assertThat(fieldData.value(1), equalTo("b"));
+        assertThat(fieldData.hasValue(2), equalTo(true));
+        assertThat(fieldData.value(2), equalTo("a"));
+        assertThat(fieldData.hasValue(3), equalTo(false));
+        assertThat(fieldData.values(3).length, equalTo(0));
+
+        reader.close();
+        dir.close();
+        FileSystemUtils.deleteRecursively(location, true);
+    }
+
+    private IndexReader segmentReader(Directory dir) throws Exception {
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        indexWriter.addDocument(doc()
+                .add(new NumericField("svalue").setLongValue(4))
+                .add(new NumericField("mvalue").setLongValue(104))
+                .add(field("tag", "a", Field.Store.NO, Field.Index.NOT_ANALYZED))
+                .build());
+        indexWriter.addDocument(doc()
+                .add(new NumericField("svalue").setLongValue(3))
+                .add(new NumericField("mvalue").setLongValue(104))
+                .add(new NumericField("mvalue").setLongValue(105))
+                .add(field("tag", "b", Field.Store.NO, Field.Index.NOT_ANALYZED))
+                .build());
+        indexWriter.addDocument(doc()
+                .add(new NumericField("svalue").setLongValue(7))
+                .add(field("tag", "a", Field.Store.NO, Field.Index.NOT_ANALYZED))
+                .build());
+        indexWriter.addDocument(doc()
+                .add(new NumericField("svalue").setLongValue(4))
+                .build());
+        indexWriter.close();
+        IndexReader reader = IndexReader.open(dir, true);
+        assertThat(reader.getSequentialSubReaders().length, equalTo(1));
+        return reader.getSequentialSubReaders()[0];
+    }
+}
@@ -39,7 +39,7 @@ public class CommitPointsTests {
     @Test public void testCommitPointXContent() throws Exception {
         ArrayList<CommitPoint.FileInfo> indexFiles = Lists.newArrayList();
         indexFiles.add(new CommitPoint.FileInfo("file1", "file1_p", 100, "ck1"));
-        indexFiles.add(new CommitPoint.FileInfo("file2", "file2_p", 200, "ck2"));
+        indexFiles.add(new CommitPoint.FileInfo("file2", "file2_p", 200, "ck2", "cck2"));
 
         ArrayList<CommitPoint.FileInfo> translogFiles = Lists.newArrayList();
         translogFiles.add(new CommitPoint.FileInfo("t_file1", "t_file1_p", 100, null));
@@ -60,6 +60,7 @@ public class CommitPointsTests {
             assertThat(desCp.indexFiles().get(i).physicalName(), equalTo(commitPoint.indexFiles().get(i).physicalName()));
             assertThat(desCp.indexFiles().get(i).length(), equalTo(commitPoint.indexFiles().get(i).length()));
             assertThat(desCp.indexFiles().get(i).checksum(), equalTo(commitPoint.indexFiles().get(i).checksum()));
+            assertThat(desCp.indexFiles().get(i).contentChecksum(), equalTo(commitPoint.indexFiles().get(i).contentChecksum()));
         }
 
         assertThat(desCp.translogFiles().size(), equalTo(commitPoint.translogFiles().size()));
@@ -0,0 +1,77 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper.source;
+
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperTests;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class FormatSourceMappingTests {
+
+    @Test public void testJsonSourceStoredAsIs() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type").endObject().endObject().string();
+
+        DocumentMapper documentMapper = MapperTests.newParser().parse(mapping);
+
+        ParsedDocument doc = documentMapper.parse("type", "1", XContentFactory.jsonBuilder().startObject()
+                .field("field1", "value1")
+                .endObject().copiedBytes());
+
+        assertThat(XContentFactory.xContentType(doc.doc().getBinaryValue("_source")), equalTo(XContentType.JSON));
+    }
+
+    @Test public void testSmileFormat() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("_source").field("format", "smile").endObject()
+                .endObject().endObject().string();
+
+        DocumentMapper documentMapper = MapperTests.newParser().parse(mapping);
+        assertThat(documentMapper.sourceMapper().format(), equalTo(XContentType.SMILE));
+
+        byte[] json = XContentFactory.jsonBuilder().startObject()
+                .field("field1", "value1")
+                .startArray("objects")
+                .startObject().field("name", "a").field("count", 1).endObject()
+                .startObject().field("name", "b").field("count", 2).endObject()
+                .endArray()
+                .endObject().copiedBytes();
+        ParsedDocument doc = documentMapper.parse("type", "1", json);
+
+        byte[] source = doc.doc().getBinaryValue("_source");
+        assertThat(XContentFactory.xContentType(source), equalTo(XContentType.SMILE));
+        assertThat(source.length, lessThan(json.length));
+
+        Map<String, Object> expected = XContentFactory.xContent(json).createParser(json).map();
+        Map<String, Object> stored = XContentFactory.xContent(source).createParser(source).map();
+        assertThat(stored, equalTo(expected));
+
+        String converted = XContentHelper.convertToJson(source, 0, source.length);
+        assertThat(XContentFactory.xContent(converted).createParser(converted).map(), equalTo(expected));
+    }
+}
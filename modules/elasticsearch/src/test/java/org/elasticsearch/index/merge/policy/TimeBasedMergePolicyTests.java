@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TimeBasedMergePolicy;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class TimeBasedMergePolicyTests {
+
+    private static final long DAY = 24 * 60 * 60 * 1000l;
+
+    @Test public void testMergesSegmentsAdjacentInTime() throws Exception {
+        TimeBasedMergePolicy policy = new TimeBasedMergePolicy();
+        policy.setTimeField("time");
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = newWriter(dir, policy);
+        long now = System.currentTimeMillis();
+        // segments _0 to _3, flushed out of time order
+        long[] times = new long[]{now - 4 * DAY, now - DAY, now - 3 * DAY, now - 2 * DAY};
+        for (int i = 0; i < times.length; i++) {
+            addSegment(writer, "seg" + i, times[i], 10);
+        }
+
+        policy.setSegmentsPerTier(2);
+        policy.setMaxMergeAtOnce(2);
+        MergePolicy.MergeSpecification spec = policy.findMerges(segmentInfos(dir));
+        assertThat(spec, notNullValue());
+        assertThat(spec.merges.size(), equalTo(1));
+        // equally sized segments, the two oldest are merged together
+        assertThat(names(spec.merges.get(0).segments), equalTo(names("_0", "_2")));
+        writer.close();
+    }
+
+    @Test public void testFrozenSegmentsAreOnlyRewrittenToReclaimDeletes() throws Exception {
+        TimeBasedMergePolicy policy = new TimeBasedMergePolicy();
+        policy.setTimeField("time");
+        policy.setMaxMergeAgeInMillis(DAY);
+        // no rewrite while the deletes are applied
+        policy.setFrozenExpungeDeletesPctAllowed(100);
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = newWriter(dir, policy);
+        long now = System.currentTimeMillis();
+        addSegment(writer, "old", now - 10 * DAY, 10);
+        addSegment(writer, "new", now, 10);
+        for (int i = 0; i < 5; i++) {
+            writer.deleteDocuments(new Term("id", "old" + i));
+            writer.deleteDocuments(new Term("id", "new" + i));
+        }
+        writer.commit();
+
+        policy.setFrozenExpungeDeletesPctAllowed(30);
+        MergePolicy.MergeSpecification spec = policy.findMerges(segmentInfos(dir));
+        assertThat(spec, notNullValue());
+        assertThat(spec.merges.size(), equalTo(1));
+        assertThat(names(spec.merges.get(0).segments), equalTo(names("_0")));
+
+        // below the frozen deletes threshold, nothing to do
+        policy.setFrozenExpungeDeletesPctAllowed(60);
+        assertThat(policy.findMerges(segmentInfos(dir)), nullValue());
+        writer.close();
+    }
+
+    @Test public void testShiftNotMultipleOfPrecisionStep() throws Exception {
+        final AtomicInteger mismatches = new AtomicInteger();
+        TimeBasedMergePolicy policy = new TimeBasedMergePolicy() {
+            @Override protected void onTimeFieldShiftMismatch(SegmentInfo info, String timeField, int shift) {
+                mismatches.incrementAndGet();
+            }
+        };
+        policy.setTimeField("time");
+        // the precision step is 4
+        policy.setTimeFieldShift(6);
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = newWriter(dir, policy);
+        addSegment(writer, "seg", System.currentTimeMillis(), 10);
+
+        policy.findMerges(segmentInfos(dir));
+        assertThat(mismatches.get(), equalTo(1));
+        // the (empty) time range is cached
+        policy.findMerges(segmentInfos(dir));
+        assertThat(mismatches.get(), equalTo(1));
+        writer.close();
+    }
+
+    private IndexWriter newWriter(RAMDirectory dir, TimeBasedMergePolicy policy) throws Exception {
+        // no natural merges while the segments are created
+        policy.setSegmentsPerTier(100);
+        IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER);
+        config.setMergePolicy(policy);
+        return new IndexWriter(dir, config);
+    }
+
+    private void addSegment(IndexWriter writer, String prefix, long time, int numDocs) throws Exception {
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new Field("id", prefix + i, Field.Store.NO, Field.Index.NOT_ANALYZED));
+            doc.add(new NumericField("time", 4, Field.Store.NO, true).setLongValue(time + i));
+            writer.addDocument(doc);
+        }
+        writer.commit();
+    }
+
+    private SegmentInfos segmentInfos(RAMDirectory dir) throws Exception {
+        SegmentInfos infos = new SegmentInfos();
+        infos.read(dir);
+        return infos;
+    }
+
+    private List<String> names(List<SegmentInfo> segments) {
+        List<String> names = new ArrayList<String>();
+        for (SegmentInfo info : segments) {
+            names.add(info.name);
+        }
+        return names;
+    }
+
+    private List<String> names(String... names) {
+        List<String> list = new ArrayList<String>();
+        for (String name : names) {
+            list.add(name);
+        }
+        return list;
+    }
+}
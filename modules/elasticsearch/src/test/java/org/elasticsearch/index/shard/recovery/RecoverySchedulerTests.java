@@ -0,0 +1,175 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard.recovery;
+
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class RecoverySchedulerTests {
+
+    private ThreadPool threadPool;
+
+    @BeforeMethod public void createThreadPool() {
+        threadPool = new ThreadPool();
+    }
+
+    @AfterMethod public void shutdownThreadPool() throws Exception {
+        threadPool.shutdownNow();
+    }
+
+    @Test public void testDuplicateRecoveryIsIgnored() throws Exception {
+        RecoveryScheduler scheduler = new RecoveryScheduler(settingsBuilder().put("index.shard.recovery.concurrent_recoveries", 1).build(), threadPool);
+        ShardId shardId = new ShardId(new Index("test"), 0);
+        Object shard = new Object();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+
+        assertThat(scheduler.schedule(shardId, shard, RecoveryScheduler.Priority.REPLICA, new BlockingRecovery(started, release)), equalTo(true));
+        assertThat(started.await(10, TimeUnit.SECONDS), equalTo(true));
+        // running
+        assertThat(scheduler.schedule(shardId, shard, RecoveryScheduler.Priority.REPLICA, new BlockingRecovery(null, null)), equalTo(false));
+
+        ShardId otherShardId = new ShardId(new Index("test"), 1);
+        Object otherShard = new Object();
+        assertThat(scheduler.schedule(otherShardId, otherShard, RecoveryScheduler.Priority.REPLICA, new BlockingRecovery(null, null)), equalTo(true));
+        // pending
+        assertThat(scheduler.schedule(otherShardId, otherShard, RecoveryScheduler.Priority.PRIMARY, new BlockingRecovery(null, null)), equalTo(false));
+        assertThat(scheduler.runningRecoveries(), equalTo(1));
+        assertThat(scheduler.pendingRecoveries(), equalTo(1));
+
+        release.countDown();
+        scheduler.recoveryDone(shardId, shard);
+        // once done, the shard can be recovered again
+        assertThat(scheduler.schedule(shardId, shard, RecoveryScheduler.Priority.REPLICA, new BlockingRecovery(null, null)), equalTo(true));
+        scheduler.close();
+    }
+
+    @Test public void testPendingRecoveriesStartByPriority() throws Exception {
+        final RecoveryScheduler scheduler = new RecoveryScheduler(settingsBuilder().put("index.shard.recovery.concurrent_recoveries", 1).build(), threadPool);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final Object firstShard = new Object();
+        scheduler.schedule(new ShardId(new Index("test"), 0), firstShard, RecoveryScheduler.Priority.REPLICA, new BlockingRecovery(started, release));
+        assertThat(started.await(10, TimeUnit.SECONDS), equalTo(true));
+
+        final List<Integer> order = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch done = new CountDownLatch(3);
+        RecoveryScheduler.Priority[] priorities = new RecoveryScheduler.Priority[]{RecoveryScheduler.Priority.RELOCATION, RecoveryScheduler.Priority.REPLICA, RecoveryScheduler.Priority.PRIMARY};
+        for (int i = 0; i < priorities.length; i++) {
+            final ShardId shardId = new ShardId(new Index("test"), i + 1);
+            final Object shard = new Object();
+            scheduler.schedule(shardId, shard, priorities[i], new Runnable() {
+                @Override public void run() {
+                    order.add(shardId.id());
+                    scheduler.recoveryDone(shardId, shard);
+                    done.countDown();
+                }
+            });
+        }
+        assertThat(scheduler.pendingRecoveries(), equalTo(3));
+
+        release.countDown();
+        scheduler.recoveryDone(new ShardId(new Index("test"), 0), firstShard);
+        assertThat(done.await(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(order.get(0), equalTo(3));
+        assertThat(order.get(1), equalTo(2));
+        assertThat(order.get(2), equalTo(1));
+        scheduler.close();
+    }
+
+    @Test public void testRecoveryOfRecreatedShard() throws Exception {
+        RecoveryScheduler scheduler = new RecoveryScheduler(settingsBuilder().put("index.shard.recovery.concurrent_recoveries", 1).build(), threadPool);
+        ShardId blockingShardId = new ShardId(new Index("test"), 1);
+        Object blockingShard = new Object();
+        CountDownLatch blockingRelease = new CountDownLatch(1);
+        CountDownLatch blockingStarted = new CountDownLatch(1);
+        scheduler.schedule(blockingShardId, blockingShard, RecoveryScheduler.Priority.REPLICA, new BlockingRecovery(blockingStarted, blockingRelease));
+        assertThat(blockingStarted.await(10, TimeUnit.SECONDS), equalTo(true));
+
+        // the shard is closed and created again while its recovery is pending, the stale one is replaced
+        ShardId shardId = new ShardId(new Index("test"), 0);
+        CountDownLatch staleStarted = new CountDownLatch(1);
+        assertThat(scheduler.schedule(shardId, new Object(), RecoveryScheduler.Priority.REPLICA, new BlockingRecovery(staleStarted, null)), equalTo(true));
+        Object shard = new Object();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        assertThat(scheduler.schedule(shardId, shard, RecoveryScheduler.Priority.REPLICA, new BlockingRecovery(started, release)), equalTo(true));
+        assertThat(scheduler.pendingRecoveries(), equalTo(1));
+
+        blockingRelease.countDown();
+        scheduler.recoveryDone(blockingShardId, blockingShard);
+        assertThat(started.await(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(staleStarted.getCount(), equalTo(1l));
+
+        // the shard is closed and created again while its recovery is running, the new one starts once the stale one is done
+        Object recreatedShard = new Object();
+        CountDownLatch recreatedStarted = new CountDownLatch(1);
+        assertThat(scheduler.schedule(shardId, recreatedShard, RecoveryScheduler.Priority.REPLICA, new BlockingRecovery(recreatedStarted, null)), equalTo(true));
+        assertThat(scheduler.pendingRecoveries(), equalTo(1));
+        // a stale instance can't free the slot of another one
+        scheduler.recoveryDone(shardId, new Object());
+        assertThat(scheduler.runningRecoveries(), equalTo(1));
+        assertThat(recreatedStarted.getCount(), equalTo(1l));
+
+        release.countDown();
+        scheduler.recoveryDone(shardId, shard);
+        assertThat(recreatedStarted.await(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(scheduler.pendingRecoveries(), equalTo(0));
+        scheduler.close();
+    }
+
+    static class BlockingRecovery implements Runnable {
+
+        private final CountDownLatch started;
+
+        private final CountDownLatch release;
+
+        BlockingRecovery(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override public void run() {
+            if (started != null) {
+                started.countDown();
+            }
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard.service;
+
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.index.shard.service.InternalIndexShard.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class AdaptiveRefreshTests {
+
+    @Test public void testCheapRefreshKeepsInterval() {
+        assertThat(adaptiveRefreshDelay(1000, 5000, 0, 10), equalTo(1000l));
+        assertThat(adaptiveRefreshDelay(1000, 5000, 100, 10), equalTo(1000l));
+    }
+
+    @Test public void testCostlyRefreshDelaysNextRefresh() {
+        assertThat(adaptiveRefreshDelay(1000, 5000, 200, 10), equalTo(2000l));
+        assertThat(adaptiveRefreshDelay(1000, 5000, 300, 5), equalTo(1500l));
+    }
+
+    @Test public void testDelayCappedByMaxInterval() {
+        assertThat(adaptiveRefreshDelay(1000, 5000, 10000, 10), equalTo(5000l));
+        // a max interval lower than the refresh interval never shortens it
+        assertThat(adaptiveRefreshDelay(1000, 500, 10000, 10), equalTo(1000l));
+    }
+}
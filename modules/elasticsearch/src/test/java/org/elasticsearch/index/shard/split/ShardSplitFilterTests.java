@@ -0,0 +1,107 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard.split;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.cluster.routing.operation.ResponseCollector;
+import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
+import org.elasticsearch.cluster.routing.operation.plain.PlainOperationRouting;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.mapper.Uid;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class ShardSplitFilterTests {
+
+    private final OperationRouting operationRouting = new PlainOperationRouting(ImmutableSettings.Builder.EMPTY_SETTINGS, new DjbHashFunction(),
+            new ResponseCollector(ImmutableSettings.Builder.EMPTY_SETTINGS));
+
+    private final IndexMetaData indexMetaData = newIndexMetaDataBuilder("test").numberOfShards(4).numberOfReplicas(0).build();
+
+    @Test public void testIndexedRouting() throws Exception {
+        IndexReader reader = index(Field.Index.NOT_ANALYZED);
+        for (int shardId = 0; shardId < indexMetaData.numberOfShards(); shardId++) {
+            assertThat(matches(reader, shardId, true), equalTo(expected(reader, shardId)));
+        }
+        reader.close();
+    }
+
+    @Test public void testStoredOnlyRouting() throws Exception {
+        IndexReader reader = index(Field.Index.NO);
+        for (int shardId = 0; shardId < indexMetaData.numberOfShards(); shardId++) {
+            assertThat(matches(reader, shardId, false), equalTo(expected(reader, shardId)));
+        }
+        reader.close();
+    }
+
+    private IndexReader index(Field.Index routingIndex) throws Exception {
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        for (int i = 0; i < 100; i++) {
+            Document doc = new Document();
+            doc.add(new Field("_uid", Uid.createUid("type1", Integer.toString(i)), Field.Store.YES, Field.Index.NOT_ANALYZED));
+            doc.add(new Field("id", Integer.toString(i), Field.Store.YES, Field.Index.NO));
+            // every other document is routed
+            if (i % 2 == 0) {
+                doc.add(new Field("_routing", "routing" + (i % 7), Field.Store.YES, routingIndex));
+            }
+            writer.addDocument(doc);
+        }
+        writer.commit();
+        IndexReader reader = IndexReader.open(writer, true);
+        writer.close();
+        return reader;
+    }
+
+    private Set<String> matches(IndexReader reader, int shardId, boolean routingIndexed) throws Exception {
+        Set<String> ids = new HashSet<String>();
+        DocIdSetIterator it = new ShardSplitFilter(operationRouting, indexMetaData, shardId, routingIndexed).getDocIdSet(reader).iterator();
+        for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+            ids.add(reader.document(doc).get("id"));
+        }
+        return ids;
+    }
+
+    private Set<String> expected(IndexReader reader, int shardId) throws Exception {
+        Set<String> ids = new HashSet<String>();
+        for (int doc = 0; doc < reader.maxDoc(); doc++) {
+            Document document = reader.document(doc);
+            String id = document.get("id");
+            if (operationRouting.shardId(indexMetaData, "type1", id, document.get("_routing")) != shardId) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
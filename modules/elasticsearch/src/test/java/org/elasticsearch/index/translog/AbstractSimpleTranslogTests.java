@@ -20,6 +20,7 @@
 package org.elasticsearch.index.translog;
 
 import org.apache.lucene.index.Term;
+import org.elasticsearch.common.BytesHolder;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
 import org.hamcrest.Matchers;
@@ -144,6 +145,32 @@ public abstract class AbstractSimpleTranslogTests {
         snapshot.release();
     }
 
+    @Test public void testBulkOperations() throws Exception {
+        translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        Translog.Location[] locations = translog.add(new Translog.Operation[]{
+                new Translog.Index("test", "2", new byte[]{2}),
+                new Translog.Delete(newUid("3")),
+                new Translog.Create("test", "4", new byte[]{4})
+        });
+        assertThat(locations.length, equalTo(3));
+
+        Translog.Snapshot snapshot = translog.snapshot();
+        assertThat(snapshot, translogSize(4));
+        assertThat(snapshot.estimatedTotalOperations(), equalTo(4));
+        snapshot.release();
+
+        assertThat(TranslogStreams.readSource(translog.read(locations[0])), equalTo(new BytesHolder(new byte[]{2})));
+        assertThat(TranslogStreams.readSource(translog.read(locations[2])), equalTo(new BytesHolder(new byte[]{4})));
+
+        snapshot = translog.snapshot();
+        assertThat(((Translog.Create) snapshot.next()).source(), equalTo(new byte[]{1}));
+        assertThat(((Translog.Index) snapshot.next()).source(), equalTo(new byte[]{2}));
+        assertThat(((Translog.Delete) snapshot.next()).uid(), equalTo(newUid("3")));
+        assertThat(((Translog.Create) snapshot.next()).source(), equalTo(new byte[]{4}));
+        assertThat(snapshot.hasNext(), equalTo(false));
+        snapshot.release();
+    }
+
     @Test public void testSnapshot() {
         Translog.Snapshot snapshot = translog.snapshot();
         assertThat(snapshot, translogSize(0));
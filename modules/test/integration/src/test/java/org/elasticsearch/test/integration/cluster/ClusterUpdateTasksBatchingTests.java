@@ -0,0 +1,283 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.cluster;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.cluster.FailableClusterStateUpdateTask;
+import org.elasticsearch.cluster.action.shard.ShardStateAction;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.cluster.service.ClusterUpdateTasksStats;
+import org.elasticsearch.cluster.service.InternalClusterService;
+import org.elasticsearch.node.internal.InternalNode;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.cluster.ClusterState.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class ClusterUpdateTasksBatchingTests extends AbstractNodesTests {
+
+    private InternalClusterService clusterService;
+
+    private final List<ClusterChangedEvent> events = new CopyOnWriteArrayList<ClusterChangedEvent>();
+
+    @BeforeMethod public void startNodes() {
+        startNode("node1", settingsBuilder().put("node.local", true));
+        assertThat(client("node1").admin().cluster().prepareHealth().setWaitForNodes("1").execute().actionGet().timedOut(), equalTo(false));
+        clusterService = (InternalClusterService) ((InternalNode) node("node1")).injector().getInstance(ClusterService.class);
+        events.clear();
+        clusterService.add(new ClusterStateListener() {
+            @Override public void clusterChanged(ClusterChangedEvent event) {
+                events.add(event);
+            }
+        });
+    }
+
+    @AfterMethod public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test public void testSameKeyTasksAreBatched() throws Exception {
+        CountDownLatch release = blockUpdateTasks();
+        long version = clusterService.state().version();
+        events.clear();
+
+        RecordingTask[] tasks = new RecordingTask[10];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new RecordingTask(false);
+            clusterService.submitStateUpdateTask("task" + i, "test-batch", tasks[i]);
+        }
+        release.countDown();
+        for (RecordingTask task : tasks) {
+            task.await();
+        }
+
+        // all the tasks were applied on a single cluster state, and published once
+        assertThat(clusterService.state().version(), equalTo(version + 1));
+        assertThat(events.size(), equalTo(1));
+        assertThat(events.get(0).source(), equalTo("task0 (batched with 9 more)"));
+        for (RecordingTask task : tasks) {
+            assertThat(task.failure, nullValue());
+            assertThat(task.processed, sameInstance(clusterService.state()));
+        }
+
+        ClusterUpdateTasksStats.Entry entry = clusterService.updateTasksStats().entries().get("test-batch");
+        assertThat(entry.batches(), equalTo(1l));
+        assertThat(entry.tasks(), equalTo(10l));
+        assertThat(entry.maxBatchSize(), equalTo(10l));
+        assertThat(entry.avgBatchSize(), equalTo(10d));
+    }
+
+    @Test public void testFailingTaskDoesNotFailTheBatch() throws Exception {
+        CountDownLatch release = blockUpdateTasks();
+        long version = clusterService.state().version();
+        events.clear();
+
+        RecordingTask first = new RecordingTask(false);
+        RecordingTask failing = new RecordingTask(true);
+        RecordingTask last = new RecordingTask(false);
+        clusterService.submitStateUpdateTask("first", "test-batch", first);
+        clusterService.submitStateUpdateTask("failing", "test-batch", failing);
+        clusterService.submitStateUpdateTask("last", "test-batch", last);
+        release.countDown();
+        first.await();
+        failing.await();
+        last.await();
+
+        assertThat(failing.processed, nullValue());
+        assertThat(failing.failure, notNullValue());
+        assertThat(failing.failure.getMessage(), equalTo("failing on purpose"));
+        // the other tasks of the batch are still applied, on a single cluster state
+        assertThat(first.failure, nullValue());
+        assertThat(last.failure, nullValue());
+        assertThat(first.processed, sameInstance(clusterService.state()));
+        assertThat(last.processed, sameInstance(clusterService.state()));
+        assertThat(last.executedOn, sameInstance(first.result));
+        assertThat(clusterService.state().version(), equalTo(version + 1));
+        assertThat(events.size(), equalTo(1));
+
+        ClusterUpdateTasksStats.Entry entry = clusterService.updateTasksStats().entries().get("test-batch");
+        assertThat(entry.batches(), equalTo(1l));
+        assertThat(entry.tasks(), equalTo(3l));
+    }
+
+    @Test public void testDifferentKeysAreNotBatched() throws Exception {
+        ClusterUpdateTasksStats.Entry unbatched = clusterService.updateTasksStats().entries().get(ClusterUpdateTasksStats.UNBATCHED);
+        long unbatchedTasks = unbatched == null ? 0 : unbatched.tasks();
+
+        CountDownLatch release = blockUpdateTasks();
+        long version = clusterService.state().version();
+        events.clear();
+
+        RecordingTask[] tasks = new RecordingTask[]{new RecordingTask(false), new RecordingTask(false), new RecordingTask(false),
+                new RecordingTask(false), new RecordingTask(false), new RecordingTask(false)};
+        // only tasks submitted one after the other with the same key are batched
+        clusterService.submitStateUpdateTask("a1", "test-a", tasks[0]);
+        clusterService.submitStateUpdateTask("a2", "test-a", tasks[1]);
+        clusterService.submitStateUpdateTask("b1", "test-b", tasks[2]);
+        clusterService.submitStateUpdateTask("a3", "test-a", tasks[3]);
+        clusterService.submitStateUpdateTask("unbatched1", tasks[4]);
+        clusterService.submitStateUpdateTask("unbatched2", tasks[5]);
+        release.countDown();
+        for (RecordingTask task : tasks) {
+            task.await();
+        }
+
+        assertThat(clusterService.state().version(), equalTo(version + 5));
+        assertThat(events.size(), equalTo(5));
+        assertThat(events.get(0).source(), equalTo("a1 (batched with 1 more)"));
+        assertThat(events.get(1).source(), equalTo("b1"));
+        assertThat(events.get(2).source(), equalTo("a3"));
+        assertThat(events.get(3).source(), equalTo("unbatched1"));
+        assertThat(events.get(4).source(), equalTo("unbatched2"));
+        assertThat(tasks[0].processed, sameInstance(tasks[1].processed));
+        assertThat(tasks[1].processed, not(sameInstance(tasks[2].processed)));
+
+        ClusterUpdateTasksStats stats = clusterService.updateTasksStats();
+        assertThat(stats.entries().get("test-a").batches(), equalTo(2l));
+        assertThat(stats.entries().get("test-a").tasks(), equalTo(3l));
+        assertThat(stats.entries().get("test-a").maxBatchSize(), equalTo(2l));
+        assertThat(stats.entries().get("test-b").batches(), equalTo(1l));
+        assertThat(stats.entries().get("test-b").tasks(), equalTo(1l));
+        // the blocking task and the two unbatched ones
+        assertThat(stats.entries().get(ClusterUpdateTasksStats.UNBATCHED).tasks(), equalTo(unbatchedTasks + 3));
+        assertThat(stats.entries().get(ClusterUpdateTasksStats.UNBATCHED).maxBatchSize(), equalTo(1l));
+
+        // the stats are exposed through the nodes stats as well
+        NodesStatsResponse response = client("node1").admin().cluster().prepareNodesStats().execute().actionGet();
+        ClusterUpdateTasksStats nodeStats = response.nodes()[0].clusterUpdateTasks();
+        assertThat(nodeStats.entries().get("test-a").batches(), equalTo(2l));
+        assertThat(nodeStats.entries().get("test-b").tasks(), equalTo(1l));
+    }
+
+    @Test public void testFailedShardsAreBatched() throws Exception {
+        client("node1").admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("index.number_of_shards", 5).put("index.number_of_replicas", 0))
+                .execute().actionGet();
+        assertThat(client("node1").admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet().status(), equalTo(ClusterHealthStatus.GREEN));
+
+        ShardStateAction shardStateAction = ((InternalNode) node("node1")).injector().getInstance(ShardStateAction.class);
+        CountDownLatch release = blockUpdateTasks();
+        List<ShardRouting> startedShards = clusterService.state().routingTable().shardsWithState(ShardRoutingState.STARTED);
+        assertThat(startedShards.size(), equalTo(5));
+        events.clear();
+
+        for (ShardRouting shardRouting : startedShards) {
+            shardStateAction.shardFailed(shardRouting, "test");
+        }
+        release.countDown();
+
+        // the failed shards are applied with a single reroute, and get allocated again
+        assertThat(client("node1").admin().cluster().prepareHealth().setWaitForGreenStatus().setWaitForRelocatingShards(0).execute().actionGet().status(), equalTo(ClusterHealthStatus.GREEN));
+        int failedEvents = 0;
+        for (ClusterChangedEvent event : events) {
+            if (event.source().startsWith("shard-failed")) {
+                failedEvents++;
+                for (ShardRouting shardRouting : startedShards) {
+                    assertThat(event.state().routingTable().shardsWithState(ShardRoutingState.STARTED).contains(shardRouting), equalTo(false));
+                }
+            }
+        }
+        assertThat(failedEvents, equalTo(1));
+        ClusterUpdateTasksStats.Entry entry = clusterService.updateTasksStats().entries().get("shard-failed");
+        assertThat(entry.batches(), equalTo(1l));
+        assertThat(entry.tasks(), equalTo(5l));
+    }
+
+    /**
+     * Blocks the cluster state update thread, so the tasks submitted until the returned latch is released
+     * are pending together.
+     */
+    private CountDownLatch blockUpdateTasks() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        clusterService.submitStateUpdateTask("block", new ClusterStateUpdateTask() {
+            @Override public ClusterState execute(ClusterState currentState) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return currentState;
+            }
+        });
+        assertThat(blocked.await(10, TimeUnit.SECONDS), equalTo(true));
+        return release;
+    }
+
+    private static class RecordingTask implements FailableClusterStateUpdateTask {
+
+        private final boolean fail;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        volatile ClusterState executedOn;
+
+        volatile ClusterState result;
+
+        volatile ClusterState processed;
+
+        volatile Throwable failure;
+
+        RecordingTask(boolean fail) {
+            this.fail = fail;
+        }
+
+        @Override public ClusterState execute(ClusterState currentState) {
+            executedOn = currentState;
+            if (fail) {
+                throw new RuntimeException("failing on purpose");
+            }
+            result = newClusterStateBuilder().state(currentState).build();
+            return result;
+        }
+
+        @Override public void clusterStateProcessed(ClusterState clusterState) {
+            processed = clusterState;
+            done.countDown();
+        }
+
+        @Override public void onFailure(String source, Throwable t) {
+            failure = t;
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertThat(done.await(10, TimeUnit.SECONDS), equalTo(true));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.cluster;
+
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
+import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.service.ClusterStatePublishStats;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.elasticsearch.common.xcontent.XContentFactory.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class PublishClusterStateAckTests extends AbstractNodesTests {
+
+    @AfterMethod public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test public void testAckedWithLocalDiscovery() throws Exception {
+        testAcked(settingsBuilder().put("node.local", true).build());
+    }
+
+    @Test public void testAckedWithZenDiscovery() throws Exception {
+        testAcked(settingsBuilder().put("discovery.type", "zen").build());
+    }
+
+    private void testAcked(Settings settings) throws Exception {
+        startNode("node1", settings);
+        startNode("node2", settings);
+        startNode("node3", settings);
+        assertThat(client("node1").admin().cluster().prepareHealth().setWaitForNodes("3").execute().actionGet().timedOut(), equalTo(false));
+
+        CreateIndexResponse createIndexResponse = client("node1").admin().indices().prepareCreate("test").execute().actionGet();
+        assertThat(createIndexResponse.acknowledged(), equalTo(true));
+        // acknowledged means all the nodes have applied the state with the index
+        for (String node : new String[]{"node1", "node2", "node3"}) {
+            ClusterState state = client(node).admin().cluster().prepareState().setLocal(true).execute().actionGet().state();
+            assertThat(state.metaData().hasIndex("test"), equalTo(true));
+        }
+
+        PutMappingResponse putMappingResponse = client("node2").admin().indices().preparePutMapping("test").setType("type1")
+                .setSource(jsonBuilder().startObject().startObject("type1").startObject("properties")
+                        .startObject("field1").field("type", "string").endObject()
+                        .endObject().endObject().endObject())
+                .execute().actionGet();
+        assertThat(putMappingResponse.acknowledged(), equalTo(true));
+        for (String node : new String[]{"node1", "node2", "node3"}) {
+            ClusterState state = client(node).admin().cluster().prepareState().setLocal(true).execute().actionGet().state();
+            assertThat(state.metaData().index("test").mappings().containsKey("type1"), equalTo(true));
+        }
+
+        // the master got acks from the two other nodes, and no failures
+        NodesStatsResponse nodesStats = client("node1").admin().cluster().prepareNodesStats().execute().actionGet();
+        String masterNodeId = client("node1").admin().cluster().prepareState().execute().actionGet().state().nodes().masterNodeId();
+        for (NodeStats nodeStats : nodesStats.nodes()) {
+            if (!nodeStats.node().id().equals(masterNodeId)) {
+                continue;
+            }
+            ClusterStatePublishStats publishStats = nodeStats.clusterStatePublish();
+            assertThat(publishStats.nodes().size(), equalTo(2));
+            for (ClusterStatePublishStats.NodeEntry entry : publishStats.nodes().values()) {
+                assertThat(entry.acks(), greaterThan(0l));
+                assertThat(entry.failures(), equalTo(0l));
+            }
+        }
+    }
+}
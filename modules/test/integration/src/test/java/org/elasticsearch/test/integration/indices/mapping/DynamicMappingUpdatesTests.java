@@ -0,0 +1,216 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.indices.mapping;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.cluster.action.index.MappingUpdatedAction;
+import org.elasticsearch.cluster.metadata.MetaDataMappingService;
+import org.elasticsearch.cluster.service.ClusterUpdateTasksStats;
+import org.elasticsearch.cluster.service.InternalClusterService;
+import org.elasticsearch.common.compress.CompressedString;
+import org.elasticsearch.node.internal.InternalNode;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests that dynamic mapping updates of the same index and type are coalesced, both when sent to the master
+ * ({@link MappingUpdatedAction}) and when applied by it ({@link MetaDataMappingService}).
+ */
+public class DynamicMappingUpdatesTests extends AbstractNodesTests {
+
+    private InternalClusterService clusterService;
+
+    private final List<ClusterChangedEvent> mappingEvents = new CopyOnWriteArrayList<ClusterChangedEvent>();
+
+    @BeforeMethod public void startNodes() {
+        startNode("node1", settingsBuilder().put("node.local", true));
+        client("node1").admin().indices().prepareCreate("test").execute().actionGet();
+        assertThat(client("node1").admin().cluster().prepareHealth().setWaitForYellowStatus().execute().actionGet().timedOut(), equalTo(false));
+
+        clusterService = (InternalClusterService) ((InternalNode) node("node1")).injector().getInstance(ClusterService.class);
+        mappingEvents.clear();
+        clusterService.add(new ClusterStateListener() {
+            @Override public void clusterChanged(ClusterChangedEvent event) {
+                if (event.source().startsWith("update-mapping")) {
+                    mappingEvents.add(event);
+                }
+            }
+        });
+    }
+
+    @AfterMethod public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test public void testConcurrentUpdatesAppliedAsOneMerge() throws Exception {
+        MetaDataMappingService mappingService = ((InternalNode) node("node1")).injector().getInstance(MetaDataMappingService.class);
+        long updateMappingTasks = updateMappingTasks();
+
+        CountDownLatch release = blockUpdateTasks();
+        long version = clusterService.state().metaData().version();
+        MappingListener listener = new MappingListener(10);
+        for (int i = 0; i < 5; i++) {
+            // each field is sent twice, as different shards would
+            mappingService.updateMapping("test", "type1", mappingSource("field_" + i), listener);
+            mappingService.updateMapping("test", "type1", mappingSource("field_" + i), listener);
+        }
+        release.countDown();
+        listener.await();
+
+        assertThat(listener.failures.get(), equalTo(0));
+        // one task, merging all the updates into a single mapping change
+        assertThat(updateMappingTasks(), equalTo(updateMappingTasks + 1));
+        assertThat(mappingEvents.size(), equalTo(1));
+        assertThat(clusterService.state().metaData().version(), equalTo(version + 1));
+        String mapping = clusterService.state().metaData().index("test").mapping("type1").source().string();
+        for (int i = 0; i < 5; i++) {
+            assertThat(mapping, containsString("\"field_" + i + "\""));
+        }
+    }
+
+    @Test public void testUnchangedMappingNotifiesListeners() throws Exception {
+        MetaDataMappingService mappingService = ((InternalNode) node("node1")).injector().getInstance(MetaDataMappingService.class);
+        CountDownLatch release = blockUpdateTasks();
+        MappingListener listener = new MappingListener(2);
+        mappingService.updateMapping("test", "type1", mappingSource("field_0"), listener);
+        mappingService.updateMapping("test", "type1", mappingSource("field_1"), listener);
+        release.countDown();
+        listener.await();
+        assertThat(mappingEvents.size(), equalTo(1));
+        long version = clusterService.state().metaData().version();
+
+        release = blockUpdateTasks();
+        listener = new MappingListener(3);
+        // the current mapping as is, and mappings already included in it
+        mappingService.updateMapping("test", "type1", clusterService.state().metaData().index("test").mapping("type1").source(), listener);
+        mappingService.updateMapping("test", "type1", mappingSource("field_0"), listener);
+        mappingService.updateMapping("test", "type1", mappingSource("field_1"), listener);
+        release.countDown();
+        listener.await();
+
+        // all the listeners are notified, without a new cluster state
+        assertThat(listener.failures.get(), equalTo(0));
+        assertThat(mappingEvents.size(), equalTo(1));
+        assertThat(clusterService.state().metaData().version(), equalTo(version));
+    }
+
+    @Test public void testUpdatesSentToMasterAreCoalesced() throws Exception {
+        MappingUpdatedAction mappingUpdatedAction = ((InternalNode) node("node1")).injector().getInstance(MappingUpdatedAction.class);
+        long updateMappingTasks = updateMappingTasks();
+
+        CountDownLatch release = blockUpdateTasks();
+        MappingListener listener = new MappingListener(4);
+        // sent right away, and stays in flight until the cluster state update thread is released
+        mappingUpdatedAction.updateMappingOnMaster("test", "type1", mappingSource("field_1"), listener);
+        // same source as the in flight one, waits for it
+        mappingUpdatedAction.updateMappingOnMaster("test", "type1", mappingSource("field_1"), listener);
+        // held back, and then replaced by the latest update (which, on a real node, includes it)
+        mappingUpdatedAction.updateMappingOnMaster("test", "type1", mappingSource("field_2"), listener);
+        mappingUpdatedAction.updateMappingOnMaster("test", "type1", mappingSource("field_3"), listener);
+        release.countDown();
+        listener.await();
+
+        assertThat(listener.failures.get(), equalTo(0));
+        // the in flight update, and then the latest held back one
+        assertThat(updateMappingTasks(), equalTo(updateMappingTasks + 2));
+        assertThat(mappingEvents.size(), equalTo(2));
+        String mapping = clusterService.state().metaData().index("test").mapping("type1").source().string();
+        assertThat(mapping, containsString("\"field_1\""));
+        assertThat(mapping, not(containsString("\"field_2\"")));
+        assertThat(mapping, containsString("\"field_3\""));
+    }
+
+    private long updateMappingTasks() {
+        ClusterUpdateTasksStats.Entry entry = clusterService.updateTasksStats().entries().get("update-mapping");
+        return entry == null ? 0 : entry.tasks();
+    }
+
+    private CompressedString mappingSource(String field) throws IOException {
+        return new CompressedString("{\"type1\":{\"properties\":{\"" + field + "\":{\"type\":\"string\"}}}}");
+    }
+
+    /**
+     * Blocks the cluster state update thread, so the mapping updates submitted until the returned latch is
+     * released are pending together.
+     */
+    private CountDownLatch blockUpdateTasks() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        clusterService.submitStateUpdateTask("block", new ClusterStateUpdateTask() {
+            @Override public ClusterState execute(ClusterState currentState) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return currentState;
+            }
+        });
+        assertThat(blocked.await(10, TimeUnit.SECONDS), equalTo(true));
+        return release;
+    }
+
+    private static class MappingListener implements MetaDataMappingService.Listener, ActionListener<MappingUpdatedAction.MappingUpdatedResponse> {
+
+        private final CountDownLatch latch;
+
+        final AtomicInteger failures = new AtomicInteger();
+
+        MappingListener(int expectedResponses) {
+            this.latch = new CountDownLatch(expectedResponses);
+        }
+
+        @Override public void onResponse(MetaDataMappingService.Response response) {
+            latch.countDown();
+        }
+
+        @Override public void onResponse(MappingUpdatedAction.MappingUpdatedResponse response) {
+            latch.countDown();
+        }
+
+        @Override public void onFailure(Throwable t) {
+            failures.incrementAndGet();
+            latch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertThat(latch.await(10, TimeUnit.SECONDS), equalTo(true));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.indices.state;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.cluster.state.ClusterStateResponse;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Applies cluster states touching several indices at once, with the indices applied concurrently on each node.
+ */
+public class ConcurrentIndicesApplyTests extends AbstractNodesTests {
+
+    @AfterMethod public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test public void testCreateAndDeleteManyIndices() {
+        Settings settings = settingsBuilder()
+                .put("indices.cluster.concurrent_index_updates", 4)
+                .put("index.number_of_shards", 2)
+                .put("index.number_of_replicas", 1)
+                .build();
+        startNode("node1", settings);
+        startNode("node2", settings);
+
+        for (int i = 0; i < 10; i++) {
+            client("node1").admin().indices().prepareCreate("test" + i).execute().actionGet();
+            client("node1").prepareIndex("test" + i, "type1", "1").setSource("field1", "value1").execute().actionGet();
+        }
+
+        ClusterHealthResponse health = client("node1").admin().cluster().prepareHealth().setWaitForGreenStatus().setWaitForNodes("2").execute().actionGet();
+        assertThat(health.timedOut(), equalTo(false));
+        ClusterStateResponse stateResponse = client("node1").admin().cluster().prepareState().execute().actionGet();
+        for (int i = 0; i < 10; i++) {
+            assertThat(stateResponse.state().routingTable().index("test" + i).shardsWithState(ShardRoutingState.STARTED).size(), equalTo(4));
+        }
+
+        // deletions run after the concurrent index tasks of the same cluster state
+        for (int i = 0; i < 5; i++) {
+            client("node2").admin().indices().prepareDelete("test" + i).execute().actionGet();
+        }
+        health = client("node1").admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        assertThat(health.timedOut(), equalTo(false));
+        for (int i = 0; i < 10; i++) {
+            boolean exists = client("node2").admin().indices().prepareExists("test" + i).execute().actionGet().exists();
+            assertThat(exists, equalTo(i >= 5));
+        }
+        for (int i = 5; i < 10; i++) {
+            assertThat(client("node2").prepareGet("test" + i, "type1", "1").execute().actionGet().exists(), equalTo(true));
+        }
+    }
+}
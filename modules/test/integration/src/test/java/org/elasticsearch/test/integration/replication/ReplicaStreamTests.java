@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.replication;
+
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.indices.status.IndicesStatusResponse;
+import org.elasticsearch.action.admin.indices.status.ShardStatus;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.support.replication.ReplicationType;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.client.Requests.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Replicates operations over replica streams, batching the operations of a shard sent to the same node.
+ */
+public class ReplicaStreamTests extends AbstractNodesTests {
+
+    @AfterMethod public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test public void testSyncReplicationOverStream() throws Exception {
+        startNodes(settingsBuilder().put("action.replication.stream.sync", true));
+
+        List<ListenableActionFuture<IndexResponse>> futures = index(200, ReplicationType.SYNC);
+        for (ListenableActionFuture<IndexResponse> future : futures) {
+            future.actionGet();
+        }
+
+        // the responses are sent once the replicas acknowledged the operations
+        assertReplicasInSync(200);
+    }
+
+    @Test public void testAsyncReplicationOverStream() throws Exception {
+        startNodes(settingsBuilder());
+
+        List<ListenableActionFuture<IndexResponse>> futures = index(200, ReplicationType.ASYNC);
+        for (ListenableActionFuture<IndexResponse> future : futures) {
+            future.actionGet();
+        }
+
+        // the responses don't wait for the replicas, wait for the streams to be flushed
+        long timeout = System.currentTimeMillis() + 10000;
+        while (!replicasInSync(200) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(100);
+        }
+        assertReplicasInSync(200);
+    }
+
+    private void startNodes(ImmutableSettings.Builder builder) {
+        Settings settings = builder
+                .put("action.replication.stream.batch_size", 7)
+                .put("index.number_of_shards", 2)
+                .put("index.number_of_replicas", 1)
+                .build();
+        startNode("node1", settings);
+        startNode("node2", settings);
+        client("node1").admin().indices().prepareCreate("test").execute().actionGet();
+        ClusterHealthResponse health = client("node1").admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+        assertThat(health.timedOut(), equalTo(false));
+    }
+
+    private List<ListenableActionFuture<IndexResponse>> index(int numberOfDocs, ReplicationType replicationType) {
+        List<ListenableActionFuture<IndexResponse>> futures = new ArrayList<ListenableActionFuture<IndexResponse>>();
+        for (int i = 0; i < numberOfDocs; i++) {
+            futures.add(client("node" + (i % 2 + 1)).prepareIndex("test", "type1", Integer.toString(i))
+                    .setSource("field", "value" + i).setReplicationType(replicationType).execute());
+        }
+        return futures;
+    }
+
+    private boolean replicasInSync(int numberOfDocs) {
+        client("node1").admin().indices().prepareRefresh("test").execute().actionGet();
+        IndicesStatusResponse status = client("node1").admin().indices().prepareStatus("test").execute().actionGet();
+        int primaryDocs = 0;
+        int replicaDocs = 0;
+        for (ShardStatus shardStatus : status.shards()) {
+            if (shardStatus.shardRouting().primary()) {
+                primaryDocs += shardStatus.docs().numDocs();
+            } else {
+                replicaDocs += shardStatus.docs().numDocs();
+            }
+        }
+        return primaryDocs == numberOfDocs && replicaDocs == numberOfDocs;
+    }
+
+    private void assertReplicasInSync(int numberOfDocs) {
+        assertThat(replicasInSync(numberOfDocs), equalTo(true));
+        // no replica got failed
+        ClusterHealthResponse health = client("node1").admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        assertThat(health.timedOut(), equalTo(false));
+        assertThat(health.activeShards(), equalTo(4));
+    }
+}
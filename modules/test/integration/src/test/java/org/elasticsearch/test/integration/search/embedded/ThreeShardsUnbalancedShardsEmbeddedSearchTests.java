@@ -26,6 +26,7 @@ import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.cluster.routing.operation.ResponseCollector;
 import org.elasticsearch.cluster.routing.operation.plain.PlainOperationRouting;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.inject.AbstractModule;
@@ -399,7 +400,7 @@ public class ThreeShardsUnbalancedShardsEmbeddedSearchTests extends AbstractNode
     public static class UnevenOperationRoutingStrategy extends PlainOperationRouting {
 
         @Inject public UnevenOperationRoutingStrategy(Settings settings) {
-            super(settings, null);
+            super(settings, null, new ResponseCollector(settings));
         }
 
         @Override protected int hash(String routing) {